@@ -17,6 +17,7 @@
 package org.apache.commons.collections4;
 
 import java.util.SortedMap;
+import java.util.function.BiConsumer;
 
 /**
  * Defines the interface for a prefix tree, an ordered tree data structure. For
@@ -45,4 +46,36 @@ public interface Trie<K, V> extends IterableSortedMap<K, V> {
      */
     SortedMap<K, V> prefixMap(K key);
 
+    /**
+     * Returns the number of elements whose key is prefixed by the given key.
+     * <p>
+     * This is the size of {@link #prefixMap(Object)}; implementations may count
+     * the elements without creating the view.
+     * </p>
+     *
+     * @param key  the key used in the search
+     * @return the number of elements whose key is prefixed by the search key
+     * @since 4.6
+     */
+    default int countWithPrefix(final K key) {
+        return prefixMap(key).size();
+    }
+
+    /**
+     * Performs the given action for each element whose key is prefixed by the
+     * given key, in the order of the keys.
+     * <p>
+     * This is {@code prefixMap(key).forEach(action)}; implementations may visit
+     * the elements without creating the view.
+     * </p>
+     *
+     * @param key  the key used in the search
+     * @param action  the action to perform for each element
+     * @throws NullPointerException if the action is null
+     * @since 4.6
+     */
+    default void forEachWithPrefix(final K key, final BiConsumer<? super K, ? super V> action) {
+        prefixMap(key).forEach(action);
+    }
+
 }
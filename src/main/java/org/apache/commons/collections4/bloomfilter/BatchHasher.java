@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * A reusable {@link Hasher} over arrays of pre-computed hash pairs. Selecting an item changes
+ * the indices produced, so a single instance serves a whole batch without allocating per
+ * item. The indices are those of an {@link EnhancedDoubleHasher} built from the same pair.
+ *
+ * <p>Used by the default batch operations of {@link BloomFilter}.</p>
+ */
+final class BatchHasher implements Hasher {
+
+    private final long[] initial;
+
+    private final long[] increment;
+
+    /**
+     * The selected item.
+     */
+    private int item;
+
+    /**
+     * The shape of the last call to {@link #indices(Shape)}.
+     */
+    private Shape shape;
+
+    /**
+     * The indices of the selected item for {@link #shape}.
+     */
+    private int[] buffer;
+
+    /**
+     * The producer of the indices in {@link #buffer}.
+     */
+    private final IndexProducer producer = this::forEachIndex;
+
+    /**
+     * Creates a hasher over the specified hash pairs.
+     *
+     * @param initial the initial values, one per item.
+     * @param increment the increment values, one per item.
+     * @throws IllegalArgumentException if the arrays differ in length.
+     */
+    BatchHasher(final long[] initial, final long[] increment) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        checkLengths(initial, increment);
+        this.initial = initial;
+        this.increment = increment;
+    }
+
+    /**
+     * Checks that the arrays of a batch have the same length.
+     *
+     * @param initial the initial values, one per item.
+     * @param increment the increment values, one per item.
+     * @throws IllegalArgumentException if the arrays differ in length.
+     */
+    static void checkLengths(final long[] initial, final long[] increment) {
+        if (initial.length != increment.length) {
+            throw new IllegalArgumentException(String.format("initial and increment lengths differ: %s != %s",
+                    initial.length, increment.length));
+        }
+    }
+
+    /**
+     * Checks that the results array can hold the results of a batch.
+     *
+     * @param initial the initial values, one per item.
+     * @param results the results array.
+     * @throws IllegalArgumentException if the results array is too short.
+     */
+    static void checkResults(final long[] initial, final boolean[] results) {
+        Objects.requireNonNull(results, "results");
+        if (results.length < initial.length) {
+            throw new IllegalArgumentException(String.format("results length %s is less than the batch size %s",
+                    results.length, initial.length));
+        }
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return the number of items.
+     */
+    int size() {
+        return initial.length;
+    }
+
+    /**
+     * Selects the item whose indices are produced.
+     *
+     * @param item the item.
+     * @return this hasher.
+     */
+    BatchHasher select(final int item) {
+        this.item = item;
+        this.shape = null;
+        return this;
+    }
+
+    @Override
+    public IndexProducer indices(final Shape shape) {
+        Objects.requireNonNull(shape, "shape");
+        if (buffer == null || buffer.length != shape.getNumberOfHashFunctions()) {
+            buffer = new int[shape.getNumberOfHashFunctions()];
+        }
+        if (!shape.equals(this.shape)) {
+            EnhancedDoubleHasher.fillIndices(initial[item], increment[item], shape.getNumberOfBits(), buffer);
+            this.shape = shape;
+        }
+        return producer;
+    }
+
+    private boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        for (final int i : buffer) {
+            if (!consumer.test(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
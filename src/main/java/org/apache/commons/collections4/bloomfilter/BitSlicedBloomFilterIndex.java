@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * An index over many Bloom filters of one {@link Shape} that finds every filter containing an
+ * item without testing the filters one by one.
+ *
+ * <p>The filters are stored column-wise as a bit-sliced signature file: for each bit index of the
+ * shape there is a slice with one bit per filter, set if that filter has the bit index enabled.
+ * The filters that contain a {@link Hasher} are those whose bit is set in every slice selected by
+ * its indices, so a search is the {@code AND} of at most {@code k} slices: one word operation per
+ * 64 filters per hash function, stopping early when no filter is left.</p>
+ *
+ * <p>Each filter added is given an id, the smallest not in use, which identifies it in the results
+ * of a search and to {@link #remove(int)} and {@link #replace(int, BloomFilter)}. The index keeps
+ * only the bits of the filters, not the filters themselves. The slices grow as filters are added;
+ * removing and replacing a filter visit every slice once.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 4.6
+ */
+public final class BitSlicedBloomFilterIndex {
+
+    private static final int[] EMPTY = {};
+
+    /**
+     * The shape of the indexed filters.
+     */
+    private final Shape shape;
+
+    /**
+     * The slices, each of {@code sliceLength} words. The slice for bit index {@code i} starts at
+     * {@code i * sliceLength}; the bit for filter {@code id} is bit {@code id % 64} of word
+     * {@code id / 64} of the slice.
+     */
+    private long[] slices;
+
+    /**
+     * The number of words in each slice.
+     */
+    private int sliceLength;
+
+    /**
+     * The ids in use, one bit per id.
+     */
+    private long[] ids;
+
+    /**
+     * The number of filters in the index.
+     */
+    private int size;
+
+    /**
+     * The id of the filter being added.
+     */
+    private int current;
+
+    // Predicates created once so the filters can be consumed without allocating
+
+    private final IntPredicate checkIndex = this::checkIndex;
+
+    private final IntPredicate setBit = this::setBit;
+
+    /**
+     * Constructs an empty index for filters of the specified shape.
+     *
+     * @param shape the shape of the filters.
+     */
+    public BitSlicedBloomFilterIndex(final Shape shape) {
+        this(shape, Long.SIZE);
+    }
+
+    /**
+     * Constructs an empty index for filters of the specified shape with room for the specified
+     * number of filters before the slices grow.
+     *
+     * @param shape the shape of the filters.
+     * @param initialCapacity the number of filters to allocate room for.
+     * @throws IllegalArgumentException if the initial capacity is not positive.
+     */
+    public BitSlicedBloomFilterIndex(final Shape shape, final int initialCapacity) {
+        Objects.requireNonNull(shape, "shape");
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException(String.format("Initial capacity (%s) must be positive", initialCapacity));
+        }
+        this.shape = shape;
+        sliceLength = BitMap.numberOfBitMaps(initialCapacity);
+        slices = new long[checkedLength(sliceLength)];
+        ids = new long[sliceLength];
+    }
+
+    /**
+     * Gets the shape of the filters in this index.
+     *
+     * @return the shape.
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Gets the number of filters in this index.
+     *
+     * @return the number of filters.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests if this index has no filters.
+     *
+     * @return {@code true} if there are no filters.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Tests if the id identifies a filter in this index.
+     *
+     * @param id the id.
+     * @return {@code true} if the id is in use.
+     */
+    public boolean contains(final int id) {
+        return id >= 0 && id < sliceLength * Long.SIZE && BitMap.contains(ids, id);
+    }
+
+    /**
+     * Removes all filters from this index. The slices keep their size.
+     */
+    public void clear() {
+        Arrays.fill(slices, 0L);
+        Arrays.fill(ids, 0L);
+        size = 0;
+    }
+
+    /**
+     * Adds the bits of a filter to this index.
+     *
+     * @param filter the filter to add.
+     * @return the id of the filter: the smallest id not in use.
+     * @throws IllegalArgumentException if the filter shape differs from the index shape or the
+     * filter has an index not in the shape; the index is then unchanged.
+     */
+    public int add(final BloomFilter filter) {
+        checkFilter(filter);
+        int id = -1;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != -1L) {
+                id = i * Long.SIZE + Long.numberOfTrailingZeros(~ids[i]);
+                break;
+            }
+        }
+        if (id < 0) {
+            id = sliceLength * Long.SIZE;
+            grow();
+        }
+        BitMap.set(ids, id);
+        size++;
+        setBits(id, filter);
+        return id;
+    }
+
+    /**
+     * Removes a filter from this index. The id becomes free for reuse.
+     *
+     * @param id the id of the filter.
+     * @return {@code true} if the id was in use.
+     */
+    public boolean remove(final int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        clearBits(id);
+        ids[BitMap.getLongIndex(id)] &= ~BitMap.getLongBit(id);
+        size--;
+        return true;
+    }
+
+    /**
+     * Replaces the bits of a filter in this index, keeping its id.
+     *
+     * @param id the id of the filter to replace.
+     * @param filter the new filter.
+     * @throws IllegalArgumentException if the id is not in use, the filter shape differs from
+     * the index shape or the filter has an index not in the shape; the index is then unchanged.
+     */
+    public void replace(final int id, final BloomFilter filter) {
+        checkFilter(filter);
+        if (!contains(id)) {
+            throw new IllegalArgumentException(String.format("Id %s is not in the index", id));
+        }
+        clearBits(id);
+        setBits(id, filter);
+    }
+
+    /**
+     * Finds the filters that contain the item of a hasher.
+     *
+     * @param hasher the hasher of the item.
+     * @return the ids of the filters that have all the bit indices of the hasher enabled, in
+     * ascending order.
+     */
+    public int[] search(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        return search(hasher.indices(shape));
+    }
+
+    /**
+     * Finds the filters that contain all the bit indices of a producer, for example those of
+     * another Bloom filter.
+     *
+     * @param indexProducer the bit indices.
+     * @return the ids of the filters that have all the bit indices enabled, in ascending order.
+     * If there are no indices every id in use is returned.
+     * @throws IllegalArgumentException if an index is not in the shape.
+     */
+    public int[] search(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        final Search search = new Search();
+        indexProducer.forEachIndex(search);
+        return toIds(search.started ? search.matches : ids);
+    }
+
+    /**
+     * Checks that a bit index of a filter to add is in the shape.
+     *
+     * @param idx the bit index.
+     * @return {@code true} always.
+     */
+    private boolean checkIndex(final int idx) {
+        if (idx < 0 || idx >= shape.getNumberOfBits()) {
+            throw new IllegalArgumentException(String.format(
+                "Filter should only contain values in the range[0,%s)", shape.getNumberOfBits()));
+        }
+        return true;
+    }
+
+    /**
+     * Sets the bit of the filter being added in the slice of a bit index. The index has been
+     * checked by {@link #checkIndex(int)}.
+     *
+     * @param idx the bit index.
+     * @return {@code true} always.
+     */
+    private boolean setBit(final int idx) {
+        slices[idx * sliceLength + (current >>> 6)] |= BitMap.getLongBit(current);
+        return true;
+    }
+
+    /**
+     * A search in progress, created for each call so that a search does not change the state of
+     * the index.
+     */
+    private final class Search implements IntPredicate {
+
+        /**
+         * The filters that match the slices read so far.
+         */
+        final long[] matches = new long[sliceLength];
+
+        /**
+         * Set when the first slice has been read.
+         */
+        boolean started;
+
+        /**
+         * Combines the slice of a bit index with the matches.
+         *
+         * @param idx the bit index.
+         * @return {@code false} when no filter matches, to stop the search.
+         */
+        @Override
+        public boolean test(final int idx) {
+            if (idx < 0 || idx >= shape.getNumberOfBits()) {
+                throw new IllegalArgumentException(String.format(
+                    "Search should only contain values in the range[0,%s)", shape.getNumberOfBits()));
+            }
+            final int offset = idx * sliceLength;
+            if (!started) {
+                System.arraycopy(slices, offset, matches, 0, sliceLength);
+                started = true;
+                return true;
+            }
+            long any = 0;
+            for (int i = 0; i < sliceLength; i++) {
+                any |= matches[i] &= slices[offset + i];
+            }
+            return any != 0;
+        }
+    }
+
+    private void setBits(final int id, final BloomFilter filter) {
+        current = id;
+        filter.forEachIndex(setBit);
+    }
+
+    private void clearBits(final int id) {
+        final long mask = ~BitMap.getLongBit(id);
+        for (int i = id >>> 6; i < slices.length; i += sliceLength) {
+            slices[i] &= mask;
+        }
+    }
+
+    /**
+     * Checks a filter before any state is changed, so that a filter that cannot be added leaves
+     * the index as it was.
+     */
+    private void checkFilter(final BloomFilter filter) {
+        Objects.requireNonNull(filter, "filter");
+        if (!shape.equals(filter.getShape())) {
+            throw new IllegalArgumentException(String.format("Filter shape %s is not the index shape %s",
+                filter.getShape(), shape));
+        }
+        filter.forEachIndex(checkIndex);
+    }
+
+    /**
+     * Doubles the length of each slice.
+     */
+    private void grow() {
+        final int newLength = sliceLength * 2;
+        final long[] newSlices = new long[checkedLength(newLength)];
+        for (int i = 0, j = 0; i < slices.length; i += sliceLength, j += newLength) {
+            System.arraycopy(slices, i, newSlices, j, sliceLength);
+        }
+        slices = newSlices;
+        sliceLength = newLength;
+        ids = Arrays.copyOf(ids, newLength);
+    }
+
+    /**
+     * Computes the length of the array of slices.
+     *
+     * @param length the number of words in each slice.
+     * @return the length of the array.
+     * @throws IllegalStateException if the slices do not fit in an array.
+     */
+    private int checkedLength(final int length) {
+        final long total = (long) length * shape.getNumberOfBits();
+        if (length < 0 || total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(String.format(
+                "Slices of %s words for %s bits exceed the maximum array size", length, shape.getNumberOfBits()));
+        }
+        return (int) total;
+    }
+
+    private static int[] toIds(final long[] bitMaps) {
+        int count = 0;
+        for (final long word : bitMaps) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        final int[] result = new int[count];
+        int n = 0;
+        for (int i = 0; i < bitMaps.length; i++) {
+            long word = bitMaps[i];
+            while (word != 0) {
+                result[n++] = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * A bloom filter in which all the bits of an item are enabled within one block of the bit maps,
+ * so that merging or testing an item touches a single cache line, or a single {@code long} when
+ * the block is 64 bits, rather than {@code k} random words.
+ *
+ * <p>The first index a {@link Hasher} produces selects the block and is itself enabled; each
+ * further index enables the bit at the same offset within that block. The false-positive
+ * probability is therefore higher than that of a {@link SimpleBloomFilter} of the same shape: use
+ * {@link Shape#getBlockedProbability(int, int)} to calculate it and
+ * {@link Shape#fromNPBlocked(int, double, int)} to size a filter for a desired probability.</p>
+ *
+ * <p>Only {@link #merge(Hasher)} and {@link #contains(Hasher)}, and the batch forms built on them,
+ * apply the blocking. Index and bit map producers, and other filters, are merged and tested as
+ * the plain bits they describe, so filters of the same shape and block size can be combined and
+ * compared as usual. Adding the indices of a hasher with {@link #merge(IndexProducer)} does not
+ * add the item.</p>
+ *
+ * <p>On the JVM a {@code long[]} is not aligned to cache lines, so a block of 512 bits may span
+ * two of them.</p>
+ *
+ * @since 4.6
+ */
+public final class BlockedBloomFilter implements BloomFilter {
+
+    /**
+     * The default number of bits per block: one 64-byte cache line.
+     */
+    public static final int DEFAULT_BITS_PER_BLOCK = 512;
+
+    /**
+     * The array of bit map longs that defines this Bloom filter.
+     */
+    private final long[] bitMap;
+
+    /**
+     * The Shape of this Bloom filter.
+     */
+    private final Shape shape;
+
+    /**
+     * The number of bits per block, a power of 2.
+     */
+    private final int bitsPerBlock;
+
+    /**
+     * The cardinality of this Bloom filter, or -1 if it must be recalculated.
+     */
+    private int cardinality;
+
+    /**
+     * Creates an empty instance with blocks of {@link #DEFAULT_BITS_PER_BLOCK} bits, or of the
+     * number of bits of the shape if that is fewer.
+     *
+     * @param shape The shape for the filter.
+     */
+    public BlockedBloomFilter(final Shape shape) {
+        this(shape, Math.min(DEFAULT_BITS_PER_BLOCK, Integer.highestOneBit(shape.getNumberOfBits())));
+    }
+
+    /**
+     * Creates an empty instance.
+     *
+     * <p>Blocks of 64 bits hold all the bits of an item in one {@code long}; larger blocks reduce
+     * the false-positive probability at the cost of touching more words of the same cache line.</p>
+     *
+     * @param shape The shape for the filter.
+     * @param bitsPerBlock the number of bits per block: a power of 2 no greater than the number of
+     * bits of the shape.
+     * @throws IllegalArgumentException if {@code bitsPerBlock} is not a power of 2 or is greater
+     * than the number of bits of the shape.
+     */
+    public BlockedBloomFilter(final Shape shape, final int bitsPerBlock) {
+        Objects.requireNonNull(shape, "shape");
+        if (bitsPerBlock < 1 || Integer.bitCount(bitsPerBlock) != 1 || bitsPerBlock > shape.getNumberOfBits()) {
+            throw new IllegalArgumentException(String.format(
+                    "Bits per block must be a power of 2 no greater than %s: %s", shape.getNumberOfBits(), bitsPerBlock));
+        }
+        this.shape = shape;
+        this.bitsPerBlock = bitsPerBlock;
+        this.bitMap = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
+    }
+
+    /**
+     * Copy constructor for {@code copy()} use.
+     * @param source the filter to copy.
+     */
+    private BlockedBloomFilter(final BlockedBloomFilter source) {
+        this.shape = source.shape;
+        this.bitsPerBlock = source.bitsPerBlock;
+        this.bitMap = source.bitMap.clone();
+        this.cardinality = source.cardinality;
+    }
+
+    /**
+     * Gets the number of bits per block.
+     *
+     * @return the number of bits per block.
+     */
+    public int getBitsPerBlock() {
+        return bitsPerBlock;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bitMap, 0L);
+        cardinality = 0;
+    }
+
+    @Override
+    public long[] asBitMapArray() {
+        return Arrays.copyOf(bitMap, bitMap.length);
+    }
+
+    /**
+     * Gets the bit maps without copying them, for use by {@link SetOperations}. The array must
+     * not be modified.
+     *
+     * @return the bit maps of this filter.
+     */
+    long[] getBitMaps() {
+        return bitMap;
+    }
+
+    @Override
+    public boolean forEachBitMapPair(final BitMapProducer other, final LongBiPredicate func) {
+        final CountingLongPredicate p = new CountingLongPredicate(bitMap, func);
+        return other.forEachBitMap(p) && p.forEachRemaining();
+    }
+
+    @Override
+    public BlockedBloomFilter copy() {
+        return new BlockedBloomFilter(this);
+    }
+
+    /**
+     * Maps the indices of a hasher for one item to the bits they select in the block of the item,
+     * which its first index chooses. A new instance is used for each item, so that queries do not
+     * change the filter.
+     */
+    private final class Block {
+
+        /**
+         * The first bit of the block, or -1 before the first index.
+         */
+        private int start = -1;
+
+        /**
+         * The number of bits in the block. Only the final block of a filter whose number of bits
+         * is not a multiple of the block size is shorter than {@link #bitsPerBlock}.
+         */
+        private int length;
+
+        /**
+         * Maps an index of the hasher to the bit it selects in the block.
+         *
+         * @param idx the index.
+         * @return the bit.
+         * @throws IllegalArgumentException if the index is outside the shape.
+         */
+        int index(final int idx) {
+            if (idx < 0 || idx >= shape.getNumberOfBits()) {
+                throw new IllegalArgumentException(String.format(
+                        "Hasher should only send values in the range[0,%s)", shape.getNumberOfBits()));
+            }
+            if (start < 0) {
+                start = idx & -bitsPerBlock;
+                length = Math.min(bitsPerBlock, shape.getNumberOfBits() - start);
+                return idx;
+            }
+            final int offset = idx & bitsPerBlock - 1;
+            return start + (offset < length ? offset : offset % length);
+        }
+    }
+
+    /**
+     * Merges the item the hasher describes into this filter, enabling all its bits within one
+     * block.
+     *
+     * @param hasher The hasher to merge.
+     * @return true if the merge was successful
+     * @throws IllegalArgumentException if hasher produces an illegal value.
+     */
+    @Override
+    public boolean merge(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        if (isInlined(hasher)) {
+            final EnhancedDoubleHasher h = (EnhancedDoubleHasher) hasher;
+            mergeHashes(new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits()), h.getInitial(), h.getIncrement());
+        } else {
+            final Block block = new Block();
+            hasher.indices(shape).forEachIndex(idx -> {
+                BitMap.set(bitMap, block.index(idx));
+                return true;
+            });
+        }
+        cardinality = -1;
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this filter contains the item the hasher describes, testing its bits
+     * within one block.
+     *
+     * @param hasher the hasher to provide the indexes
+     * @return true if this filter is enabled for all bits of the item.
+     */
+    @Override
+    public boolean contains(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "Hasher");
+        if (isInlined(hasher)) {
+            final EnhancedDoubleHasher h = (EnhancedDoubleHasher) hasher;
+            return containsHashes(new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits()), h.getInitial(),
+                h.getIncrement());
+        }
+        final Block block = new Block();
+        return hasher.indices(shape).forEachIndex(idx -> BitMap.contains(bitMap, block.index(idx)));
+    }
+
+    @Override
+    public boolean mergeAll(final long[] initial, final long[] increment) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        BatchHasher.checkLengths(initial, increment);
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        for (int i = 0; i < initial.length; i++) {
+            mergeHashes(cursor, initial[i], increment[i]);
+        }
+        cardinality = -1;
+        return true;
+    }
+
+    @Override
+    public int containsEach(final long[] initial, final long[] increment, final boolean[] results) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        BatchHasher.checkLengths(initial, increment);
+        BatchHasher.checkResults(initial, results);
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        int count = 0;
+        for (int i = 0; i < initial.length; i++) {
+            results[i] = containsHashes(cursor, initial[i], increment[i]);
+            if (results[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests if the indices of the hasher can be calculated inline rather than through its
+     * {@link IndexProducer}. Subclasses of {@link EnhancedDoubleHasher} may produce other indices.
+     *
+     * @param hasher the hasher.
+     * @return true if the hasher is an {@link EnhancedDoubleHasher}.
+     */
+    private boolean isInlined(final Hasher hasher) {
+        return hasher.getClass() == EnhancedDoubleHasher.class;
+    }
+
+    /**
+     * Enables the bits of an item, as {@link #merge(Hasher)} does for an {@link EnhancedDoubleHasher}
+     * of the same values.
+     *
+     * @param cursor the cursor over the indices of the item.
+     * @param initial the initial value of the hasher.
+     * @param increment the increment value of the hasher.
+     */
+    private void mergeHashes(final EnhancedDoubleHasher.IndexCursor cursor, final long initial, final long increment) {
+        // the indices of EnhancedDoubleHasher.indices(Shape), inlined and mapped into the block
+        final int bits = shape.getNumberOfBits();
+        final int k = shape.getNumberOfHashFunctions();
+        int index = cursor.start(initial, increment);
+        final int start = index & -bitsPerBlock;
+        final int length = Math.min(bitsPerBlock, bits - start);
+        final int mask = bitsPerBlock - 1;
+        BitMap.set(bitMap, index);
+        for (int i = 1; i < k; i++) {
+            index = cursor.next();
+            final int offset = index & mask;
+            BitMap.set(bitMap, start + (offset < length ? offset : offset % length));
+        }
+    }
+
+    /**
+     * Tests the bits of an item, as {@link #contains(Hasher)} does for an
+     * {@link EnhancedDoubleHasher} of the same values.
+     *
+     * @param cursor the cursor over the indices of the item.
+     * @param initial the initial value of the hasher.
+     * @param increment the increment value of the hasher.
+     * @return true if all the bits of the item are enabled.
+     */
+    private boolean containsHashes(final EnhancedDoubleHasher.IndexCursor cursor, final long initial,
+            final long increment) {
+        final int bits = shape.getNumberOfBits();
+        final int k = shape.getNumberOfHashFunctions();
+        int index = cursor.start(initial, increment);
+        final int start = index & -bitsPerBlock;
+        final int length = Math.min(bitsPerBlock, bits - start);
+        if (length == Long.SIZE) {
+            // a whole word: the block offset is the bit of the word, so test all bits at once
+            long wanted = 1L << index;
+            for (int i = 1; i < k; i++) {
+                index = cursor.next();
+                wanted |= 1L << index;
+            }
+            return (bitMap[BitMap.getLongIndex(start)] & wanted) == wanted;
+        }
+        if (!BitMap.contains(bitMap, index)) {
+            return false;
+        }
+        final int mask = bitsPerBlock - 1;
+        for (int i = 1; i < k; i++) {
+            index = cursor.next();
+            final int offset = index & mask;
+            if (!BitMap.contains(bitMap, start + (offset < length ? offset : offset % length))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean merge(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        indexProducer.forEachIndex(idx -> {
+            if (idx < 0 || idx >= shape.getNumberOfBits()) {
+                throw new IllegalArgumentException(String.format(
+                        "IndexProducer should only send values in the range[0,%s)", shape.getNumberOfBits()));
+            }
+            BitMap.set(bitMap, idx);
+            return true;
+        });
+        cardinality = -1;
+        return true;
+    }
+
+    @Override
+    public boolean merge(final BitMapProducer bitMapProducer) {
+        Objects.requireNonNull(bitMapProducer, "bitMapProducer");
+        try {
+            final int[] idx = new int[1];
+            bitMapProducer.forEachBitMap(value -> {
+                bitMap[idx[0]++] |= value;
+                return true;
+            });
+            // idx[0] will be limit+1 so decrement it
+            idx[0]--;
+            final int idxLimit = BitMap.getLongIndex(shape.getNumberOfBits());
+            if (idxLimit == idx[0]) {
+                final long excess = bitMap[idxLimit] >> shape.getNumberOfBits();
+                if (excess != 0) {
+                    throw new IllegalArgumentException(
+                            String.format("BitMapProducer set a bit higher than the limit for the shape: %s",
+                                    shape.getNumberOfBits()));
+                }
+            }
+            cardinality = -1;
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(
+                    String.format("BitMapProducer should send at most %s maps", bitMap.length), e);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean merge(final BloomFilter other) {
+        Objects.requireNonNull(other, "other");
+        if ((other.characteristics() & SPARSE) != 0) {
+            merge((IndexProducer) other);
+        } else {
+            merge((BitMapProducer) other);
+        }
+        return true;
+    }
+
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public int characteristics() {
+        return 0;
+    }
+
+    @Override
+    public int cardinality() {
+        // Lazy evaluation with caching
+        int c = cardinality;
+        if (c < 0) {
+            cardinality = c = SetOperations.cardinality(this);
+        }
+        return c;
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return IndexProducer.fromBitMapProducer(this).forEachIndex(consumer);
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        for (final long l : bitMap) {
+            if (!consumer.test(l)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        return indexProducer.forEachIndex(idx -> BitMap.contains(bitMap, idx));
+    }
+}
@@ -97,6 +97,35 @@ public interface BloomFilter extends IndexProducer, BitMapProducer {
         return contains(hasher.indices(shape));
     }
 
+    /**
+     * Tests each item of a batch of pre-computed hashes for membership.
+     *
+     * <p>Item {@code i} is the item an {@link EnhancedDoubleHasher} constructed from
+     * {@code initial[i]} and {@code increment[i]} describes, and {@code results[i]} is set to
+     * {@code contains(new EnhancedDoubleHasher(initial[i], increment[i]))}. The batch form does
+     * not create a hasher per item.</p>
+     *
+     * @param initial the initial hash values, one per item.
+     * @param increment the increment hash values, one per item.
+     * @param results the array to receive the result for each item; at least as long as the batch.
+     * @return the number of items contained in this filter.
+     * @throws IllegalArgumentException if {@code initial} and {@code increment} differ in length
+     * or {@code results} is shorter than them.
+     * @since 4.6
+     */
+    default int containsEach(final long[] initial, final long[] increment, final boolean[] results) {
+        final BatchHasher hasher = new BatchHasher(initial, increment);
+        BatchHasher.checkResults(initial, results);
+        int count = 0;
+        for (int i = 0; i < hasher.size(); i++) {
+            results[i] = contains(hasher.select(i));
+            if (results[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Returns {@code true} if this filter contains the indices specified IndexProducer.
      *
@@ -157,6 +186,29 @@ public interface BloomFilter extends IndexProducer, BitMapProducer {
         return merge(hasher.indices(getShape()));
     }
 
+    /**
+     * Merges a batch of pre-computed hashes into this Bloom filter.
+     *
+     * <p>Item {@code i} is the item an {@link EnhancedDoubleHasher} constructed from
+     * {@code initial[i]} and {@code increment[i]} describes, and the result is that of calling
+     * {@code merge(new EnhancedDoubleHasher(initial[i], increment[i]))} for each item in turn.
+     * The batch form does not create a hasher per item.</p>
+     *
+     * @param initial the initial hash values, one per item.
+     * @param increment the increment hash values, one per item.
+     * @return true if every merge was successful
+     * @throws IllegalArgumentException if {@code initial} and {@code increment} differ in length.
+     * @since 4.6
+     */
+    default boolean mergeAll(final long[] initial, final long[] increment) {
+        final BatchHasher hasher = new BatchHasher(initial, increment);
+        boolean result = true;
+        for (int i = 0; i < hasher.size(); i++) {
+            result &= merge(hasher.select(i));
+        }
+        return result;
+    }
+
     /**
      * Merges the specified IndexProducer into this Bloom filter. Specifically all
      * bit indexes that are identified by the {@code producer} will be enabled in this filter.
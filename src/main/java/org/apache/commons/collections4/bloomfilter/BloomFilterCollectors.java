@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s that build Bloom filters from streams of {@link Hasher}s.
+ *
+ * <p>Each part a parallel stream is split into merges its items into a filter of its own, and the
+ * filters are then combined: by merging for Bloom filters, and by adding the counts for counting
+ * Bloom filters. The parts do not share any state while the items are merged, so construction
+ * scales with the number of threads. The collectors are unordered.</p>
+ *
+ * <p>A stream of items of another type can be collected with
+ * {@link java.util.stream.Collectors#mapping(java.util.function.Function, Collector)
+ * Collectors.mapping(item -&gt; hasher, collector)}.</p>
+ *
+ * @since 4.6
+ */
+public final class BloomFilterCollectors {
+
+    private static final String SUPPLIER = "supplier";
+
+    /**
+     * Returns a collector that merges the hashers into a {@link SimpleBloomFilter} of the shape.
+     *
+     * @param shape the shape of the filter.
+     * @return the collector.
+     */
+    public static Collector<Hasher, ?, BloomFilter> toBloomFilter(final Shape shape) {
+        Objects.requireNonNull(shape, "shape");
+        return toBloomFilter(() -> new SimpleBloomFilter(shape));
+    }
+
+    /**
+     * Returns a collector that merges the hashers into filters created by the supplier. The
+     * supplier is called once for a sequential stream and once for each part a parallel stream is
+     * split into, which may be many times per thread; it must return empty filters of the same
+     * shape.
+     *
+     * @param <T> the type of the filter.
+     * @param supplier the supplier of empty filters.
+     * @return the collector.
+     */
+    public static <T extends BloomFilter> Collector<Hasher, ?, T> toBloomFilter(final Supplier<T> supplier) {
+        Objects.requireNonNull(supplier, SUPPLIER);
+        return Collector.of(supplier, BloomFilter::merge, (left, right) -> {
+            left.merge(right);
+            return left;
+        }, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Returns a collector that merges the hashers into an {@link ArrayCountingBloomFilter} of the
+     * shape. Each hasher adds one to the count of each of its distinct indices.
+     *
+     * @param shape the shape of the filter.
+     * @return the collector.
+     */
+    public static Collector<Hasher, ?, CountingBloomFilter> toCountingBloomFilter(final Shape shape) {
+        Objects.requireNonNull(shape, "shape");
+        return toCountingBloomFilter(() -> new ArrayCountingBloomFilter(shape));
+    }
+
+    /**
+     * Returns a collector that merges the hashers into counting filters created by the supplier. The
+     * supplier is called once for a sequential stream and once for each part a parallel stream is
+     * split into, which may be many times per thread; it must return empty filters of the same
+     * shape. The counts of the filters are added to combine them, so the result is the
+     * same as that of a sequential stream.
+     *
+     * <p>A count that overflows leaves the resulting filter invalid, see
+     * {@link CountingBloomFilter#isValid()}.</p>
+     *
+     * @param <T> the type of the filter.
+     * @param supplier the supplier of empty filters.
+     * @return the collector.
+     */
+    public static <T extends CountingBloomFilter> Collector<Hasher, ?, T> toCountingBloomFilter(
+            final Supplier<T> supplier) {
+        Objects.requireNonNull(supplier, SUPPLIER);
+        return Collector.of(supplier, CountingBloomFilter::merge, (left, right) -> {
+            left.add(right);
+            return left;
+        }, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Do not instantiate.
+     */
+    private BloomFilterCollectors() {
+    }
+}
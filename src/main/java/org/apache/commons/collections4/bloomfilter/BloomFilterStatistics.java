@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+/**
+ * An immutable snapshot of the usage and state of an {@link InstrumentedBloomFilter} or
+ * {@link InstrumentedCountingBloomFilter}.
+ *
+ * <p>The counts are taken from counters that are updated independently, so under concurrent use
+ * a snapshot may include an operation in one count and not yet in another.</p>
+ *
+ * <p>Each merge is assumed to add one item, and each remove to take one away. The expected
+ * probability and the drift of the estimated number of items are computed from that item count;
+ * they are only meaningful when the filter is used in that way.</p>
+ *
+ * @since 4.6
+ */
+public final class BloomFilterStatistics {
+
+    private final Shape shape;
+
+    private final int cardinality;
+
+    private final long queries;
+
+    private final long positives;
+
+    private final long falsePositives;
+
+    private final long merges;
+
+    private final long removes;
+
+    private final long invalidations;
+
+    private final int saturatedCounters;
+
+    private final boolean valid;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param shape the shape of the filter.
+     * @param cardinality the number of enabled bits.
+     * @param queries the number of contains operations.
+     * @param positives the number of contains operations that returned {@code true}.
+     * @param falsePositives the number of positives recorded as false.
+     * @param merges the number of merge and add operations.
+     * @param removes the number of remove and subtract operations.
+     * @param invalidations the number of times a counting filter became invalid.
+     * @param saturatedCounters the number of saturated counters of a counting filter.
+     * @param valid {@code false} if a counting filter is invalid.
+     */
+    BloomFilterStatistics(final Shape shape, final int cardinality, final long queries, final long positives,
+            final long falsePositives, final long merges, final long removes, final long invalidations,
+            final int saturatedCounters, final boolean valid) {
+        this.shape = shape;
+        this.cardinality = cardinality;
+        this.queries = queries;
+        this.positives = positives;
+        this.falsePositives = falsePositives;
+        this.merges = merges;
+        this.removes = removes;
+        this.invalidations = invalidations;
+        this.saturatedCounters = saturatedCounters;
+        this.valid = valid;
+    }
+
+    /**
+     * Gets the shape of the filter.
+     *
+     * @return the shape.
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Gets the number of enabled bits of the filter.
+     *
+     * @return the cardinality.
+     */
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Gets the number of contains operations, counting each item of a batch.
+     *
+     * @return the number of queries.
+     */
+    public long getQueries() {
+        return queries;
+    }
+
+    /**
+     * Gets the number of contains operations that returned {@code true}.
+     *
+     * @return the number of positive results.
+     */
+    public long getPositives() {
+        return positives;
+    }
+
+    /**
+     * Gets the number of positive results that the caller recorded as false.
+     *
+     * @return the number of false positives.
+     */
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    /**
+     * Gets the number of merge operations, counting each item of a batch. For a counting filter
+     * this includes add operations.
+     *
+     * @return the number of merges.
+     */
+    public long getMerges() {
+        return merges;
+    }
+
+    /**
+     * Gets the number of remove and subtract operations of a counting filter.
+     *
+     * @return the number of removes.
+     */
+    public long getRemoves() {
+        return removes;
+    }
+
+    /**
+     * Gets the number of times a counting filter became invalid, because a count overflowed or
+     * went below zero. An invalid filter stays invalid, so later operations are not counted
+     * again; the count can only grow past one if the filter is valid again after a clear.
+     *
+     * @return the number of invalidations.
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Gets the number of counters of a {@link CompactCountingBloomFilter} that are saturated. A
+     * saturated counter does not make the filter invalid, but its bit index stays enabled
+     * whatever is removed. Other filters have no saturated counters.
+     *
+     * @return the number of saturated counters.
+     * @see CompactCountingBloomFilter#getSaturatedCount()
+     */
+    public int getSaturatedCounters() {
+        return saturatedCounters;
+    }
+
+    /**
+     * Tests if the filter was valid. A filter that is not a counting filter is always valid.
+     *
+     * @return {@code true} if the filter was valid.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Gets the fraction of the bits of the filter that are enabled.
+     *
+     * @return the fill ratio in the range {@code [0, 1]}.
+     */
+    public double getFillRatio() {
+        return (double) cardinality / shape.getNumberOfBits();
+    }
+
+    /**
+     * Gets the number of items in the filter, taking each merge to add one item and each remove to
+     * take one away.
+     *
+     * @return the number of items, at least zero.
+     */
+    public long getItems() {
+        return Math.max(0, merges - removes);
+    }
+
+    /**
+     * Gets the number of items estimated from the enabled bits.
+     *
+     * @return the estimated number of items; infinite if the filter is full.
+     * @see Shape#estimateN(int)
+     */
+    public double getEstimatedN() {
+        return shape.estimateN(cardinality);
+    }
+
+    /**
+     * Gets the difference between the number of items estimated from the enabled bits and the
+     * number of items merged. A large positive drift shows more distinct items than merges, for
+     * example filters merged in whole, or that the filter is close to full.
+     *
+     * @return the estimated number of items less the number of items.
+     */
+    public double getEstimatedNDrift() {
+        return getEstimatedN() - getItems();
+    }
+
+    /**
+     * Gets the false positive probability implied by the enabled bits: the chance that all the
+     * bit indices of an absent item are enabled.
+     *
+     * @return the current false positive probability.
+     */
+    public double getCurrentProbability() {
+        return Math.pow(getFillRatio(), shape.getNumberOfHashFunctions());
+    }
+
+    /**
+     * Gets the false positive probability that the shape predicts for the number of items.
+     *
+     * @return the expected false positive probability.
+     * @see Shape#getProbability(int)
+     */
+    public double getExpectedProbability() {
+        return shape.getProbability((int) Math.min(Integer.MAX_VALUE, getItems()));
+    }
+
+    /**
+     * Gets the false positive probability observed from the recorded false positives: the fraction
+     * of queries for absent items that returned {@code true}. Only meaningful if the caller records
+     * every false positive it finds.
+     *
+     * @return the observed false positive probability, or 0 if there were no queries for absent
+     * items.
+     */
+    public double getObservedProbability() {
+        final long absent = falsePositives + queries - positives;
+        return absent <= 0 ? 0 : (double) falsePositives / absent;
+    }
+
+    /**
+     * Gets the fraction of queries that returned {@code true}.
+     *
+     * @return the positive rate, or 0 if there were no queries.
+     */
+    public double getPositiveRate() {
+        return queries == 0 ? 0 : (double) positives / queries;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BloomFilterStatistics[shape=%s, cardinality=%s, fillRatio=%.4f, estimatedN=%.1f, "
+            + "items=%s, queries=%s, positives=%s, falsePositives=%s, merges=%s, removes=%s, invalidations=%s, "
+            + "saturatedCounters=%s, valid=%s]", shape, cardinality, getFillRatio(), getEstimatedN(), getItems(),
+            queries, positives, falsePositives, merges, removes, invalidations, saturatedCounters, valid);
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * A bloom filter whose bit maps live in a {@link ByteBuffer}, typically a file mapped
+ * into memory or a direct buffer outside the Java heap.
+ *
+ * <p>The buffer holds a complete, self-describing filter:</p>
+ * <table>
+ * <caption>Buffer layout</caption>
+ * <tr><th>Offset</th><th>Size</th><th>Content</th></tr>
+ * <tr><td>0</td><td>4</td><td>the magic number {@code 0x424C4D46} ("BLMF")</td></tr>
+ * <tr><td>4</td><td>4</td><td>the format version, currently 1</td></tr>
+ * <tr><td>8</td><td>4</td><td>the number of hash functions of the {@link Shape}</td></tr>
+ * <tr><td>12</td><td>4</td><td>the number of bits of the {@link Shape}</td></tr>
+ * <tr><td>16</td><td>8 &times; n</td><td>the n bit maps, in the order of {@link #forEachBitMap(LongPredicate)}</td></tr>
+ * </table>
+ * <p>All values are little-endian regardless of the platform, so a file may be moved
+ * between machines.</p>
+ *
+ * <p>Opening a filter maps the file and reads the 16 byte header; the bit maps are not
+ * copied. {@code contains}, {@code merge} and {@code forEachBitMap} operate directly on the
+ * buffer, and changes to a filter opened for writing are written back to the file by the
+ * operating system, or immediately by {@link #force()}.</p>
+ *
+ * <p>This class is not thread-safe. A filter whose buffer is read-only throws
+ * {@link java.nio.ReadOnlyBufferException} from every {@code merge} method.</p>
+ *
+ * @since 4.6
+ */
+public final class BufferBloomFilter implements BloomFilter {
+
+    /**
+     * The magic number identifying the format.
+     */
+    static final int MAGIC = 0x424C4D46;
+
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The length in bytes of the header preceding the bit maps.
+     */
+    static final int HEADER_LENGTH = 16;
+
+    /**
+     * The whole of the filter, header included.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * A view of the bit maps following the header.
+     */
+    private final LongBuffer bitMap;
+
+    /**
+     * The Shape of this Bloom filter.
+     */
+    private final Shape shape;
+
+    /**
+     * The cardinality of this Bloom filter, or -1 if not known.
+     */
+    private int cardinality = -1;
+
+    /**
+     * Creates an instance over a buffer holding a valid header.
+     *
+     * @param buffer the buffer positioned at the header, in little-endian order.
+     * @param shape the shape read from the header.
+     */
+    private BufferBloomFilter(final ByteBuffer buffer, final Shape shape) {
+        this.buffer = buffer;
+        this.shape = shape;
+        final ByteBuffer words = buffer.duplicate();
+        // cast for the Java 8 Buffer signatures
+        ((Buffer) words).limit(bufferSize(shape));
+        ((Buffer) words).position(HEADER_LENGTH);
+        this.bitMap = words.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * Returns the number of bytes needed to hold a filter of the specified shape, header
+     * included.
+     *
+     * @param shape the shape of the filter.
+     * @return the number of bytes.
+     */
+    public static int bufferSize(final Shape shape) {
+        Objects.requireNonNull(shape, "shape");
+        return HEADER_LENGTH + BitMap.numberOfBitMaps(shape.getNumberOfBits()) * Long.BYTES;
+    }
+
+    /**
+     * Creates an empty filter in a direct buffer outside the Java heap.
+     *
+     * @param shape the shape of the filter.
+     * @return a new filter.
+     */
+    public static BufferBloomFilter allocateDirect(final Shape shape) {
+        return create(ByteBuffer.allocateDirect(bufferSize(shape)), shape);
+    }
+
+    /**
+     * Creates a file holding an empty filter and maps it into memory. An existing file
+     * is replaced.
+     *
+     * @param path the file to create.
+     * @param shape the shape of the filter.
+     * @return a new filter backed by the file.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static BufferBloomFilter create(final Path path, final Shape shape) throws IOException {
+        Objects.requireNonNull(path, "path");
+        final int size = bufferSize(shape);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return create(channel.map(FileChannel.MapMode.READ_WRITE, 0, size), shape);
+        }
+    }
+
+    /**
+     * Writes the header for an empty filter into the buffer and wraps it.
+     *
+     * @param buffer a zeroed buffer of {@link #bufferSize(Shape)} bytes.
+     * @param shape the shape of the filter.
+     * @return a new filter.
+     */
+    private static BufferBloomFilter create(final ByteBuffer buffer, final Shape shape) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, shape.getNumberOfHashFunctions());
+        buffer.putInt(12, shape.getNumberOfBits());
+        return new BufferBloomFilter(buffer, shape);
+    }
+
+    /**
+     * Maps a file previously written by {@link #create(Path, Shape)} for reading and
+     * writing.
+     *
+     * @param path the file to open.
+     * @return a filter backed by the file.
+     * @throws IOException if the file cannot be opened or mapped.
+     * @throws IllegalArgumentException if the file does not hold a valid filter.
+     */
+    public static BufferBloomFilter open(final Path path) throws IOException {
+        return open(path, FileChannel.MapMode.READ_WRITE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Maps a file previously written by {@link #create(Path, Shape)} for reading only.
+     *
+     * @param path the file to open.
+     * @return a read-only filter backed by the file.
+     * @throws IOException if the file cannot be opened or mapped.
+     * @throws IllegalArgumentException if the file does not hold a valid filter.
+     */
+    public static BufferBloomFilter openReadOnly(final Path path) throws IOException {
+        return open(path, FileChannel.MapMode.READ_ONLY, StandardOpenOption.READ);
+    }
+
+    private static BufferBloomFilter open(final Path path, final FileChannel.MapMode mode,
+            final StandardOpenOption... options) throws IOException {
+        Objects.requireNonNull(path, "path");
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("File is too large: %s bytes", size));
+            }
+            // the mapping remains valid once the channel is closed
+            return wrap(channel.map(mode, 0, size));
+        }
+    }
+
+    /**
+     * Wraps a buffer holding a filter in the format described above, starting at the
+     * buffer's position. The buffer contents are shared, not copied; the buffer's
+     * position, limit and byte order are not modified.
+     *
+     * @param buffer the buffer to wrap.
+     * @return a filter backed by the buffer.
+     * @throws IllegalArgumentException if the buffer does not hold a valid filter.
+     */
+    public static BufferBloomFilter wrap(final ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer");
+        final ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (slice.remaining() < HEADER_LENGTH) {
+            throw new IllegalArgumentException(
+                    String.format("Buffer is too short for the header: %s bytes", slice.remaining()));
+        }
+        if (slice.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(String.format("Not a Bloom filter: magic number %08x", slice.getInt(0)));
+        }
+        if (slice.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported format version: %s", slice.getInt(4)));
+        }
+        final Shape shape = Shape.fromKM(slice.getInt(8), slice.getInt(12));
+        final int size = bufferSize(shape);
+        if (slice.remaining() < size) {
+            throw new IllegalArgumentException(
+                    String.format("Buffer is too short for %s: %s bytes, expected %s", shape, slice.remaining(), size));
+        }
+        return new BufferBloomFilter(slice, shape);
+    }
+
+    /**
+     * Forces any changes to a filter backed by a file to be written to the storage device.
+     * Does nothing if the filter is not backed by a file.
+     *
+     * @see MappedByteBuffer#force()
+     */
+    public void force() {
+        if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly()) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    /**
+     * Tests whether the filter is read-only.
+     *
+     * @return {@code true} if the merge methods will throw.
+     */
+    public boolean isReadOnly() {
+        return buffer.isReadOnly();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The copy is held in a new buffer on the Java heap.</p>
+     */
+    @Override
+    public BufferBloomFilter copy() {
+        final int size = bufferSize(shape);
+        final ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).limit(size);
+        ((Buffer) source).position(0);
+        final ByteBuffer target = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        target.put(source);
+        ((Buffer) target).clear();
+        final BufferBloomFilter copy = new BufferBloomFilter(target, shape);
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < bitMap.limit(); i++) {
+            bitMap.put(i, 0L);
+        }
+        cardinality = 0;
+    }
+
+    @Override
+    public long[] asBitMapArray() {
+        final long[] result = new long[bitMap.limit()];
+        bitMap.duplicate().get(result);
+        return result;
+    }
+
+    @Override
+    public boolean forEachBitMapPair(final BitMapProducer other, final LongBiPredicate func) {
+        final int[] idx = new int[1];
+        final int limit = bitMap.limit();
+        if (!other.forEachBitMap(value -> func.test(idx[0] == limit ? 0 : bitMap.get(idx[0]++), value))) {
+            return false;
+        }
+        for (int i = idx[0]; i < limit; i++) {
+            if (!func.test(bitMap.get(i), 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean merge(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        cardinality = -1;
+        indexProducer.forEachIndex(idx -> {
+            if (idx < 0 || idx >= shape.getNumberOfBits()) {
+                throw new IllegalArgumentException(String.format(
+                        "IndexProducer should only send values in the range[0,%s)", shape.getNumberOfBits()));
+            }
+            final int i = BitMap.getLongIndex(idx);
+            bitMap.put(i, bitMap.get(i) | BitMap.getLongBit(idx));
+            return true;
+        });
+        return true;
+    }
+
+    @Override
+    public boolean merge(final BitMapProducer bitMapProducer) {
+        Objects.requireNonNull(bitMapProducer, "bitMapProducer");
+        final int limit = bitMap.limit();
+        final int idxLimit = BitMap.getLongIndex(shape.getNumberOfBits());
+        final int[] idx = new int[1];
+        cardinality = -1;
+        bitMapProducer.forEachBitMap(value -> {
+            final int i = idx[0]++;
+            if (i >= limit) {
+                throw new IllegalArgumentException(
+                        String.format("BitMapProducer should send at most %s maps", limit));
+            }
+            if (i == idxLimit && value >> shape.getNumberOfBits() != 0) {
+                throw new IllegalArgumentException(
+                        String.format("BitMapProducer set a bit higher than the limit for the shape: %s",
+                                shape.getNumberOfBits()));
+            }
+            bitMap.put(i, bitMap.get(i) | value);
+            return true;
+        });
+        return true;
+    }
+
+    @Override
+    public boolean merge(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        return merge(hasher.indices(shape));
+    }
+
+    @Override
+    public boolean merge(final BloomFilter other) {
+        Objects.requireNonNull(other, "other");
+        if ((other.characteristics() & SPARSE) != 0) {
+            merge((IndexProducer) other);
+        } else {
+            merge((BitMapProducer) other);
+        }
+        return true;
+    }
+
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public int characteristics() {
+        return 0;
+    }
+
+    @Override
+    public int cardinality() {
+        // Lazy evaluation with caching
+        int c = cardinality;
+        if (c < 0) {
+            c = 0;
+            for (int i = 0; i < bitMap.limit(); i++) {
+                c += Long.bitCount(bitMap.get(i));
+            }
+            cardinality = c;
+        }
+        return c;
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return IndexProducer.fromBitMapProducer(this).forEachIndex(consumer);
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        for (int i = 0; i < bitMap.limit(); i++) {
+            if (!consumer.test(bitMap.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        return indexProducer.forEachIndex(idx -> (bitMap.get(BitMap.getLongIndex(idx)) & BitMap.getLongBit(idx)) != 0);
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * A counting Bloom filter that packs small saturating counters into {@code long} words.
+ *
+ * <p>Each bit index has a counter of 2, 4 or 8 bits, so a filter takes 1/16, 1/8 or 1/4 of
+ * the memory of an {@link ArrayCountingBloomFilter} of the same shape. With the default 4 bit
+ * counters a count can reach 15, which is rarely exceeded in a filter of a sensible shape.</p>
+ *
+ * <p>A counter that reaches the maximum count saturates: further additions leave it at the
+ * maximum and, as the true count is no longer known, subtractions do not decrement it. The
+ * bit index therefore stays enabled. This keeps the filter free of false negatives at the cost
+ * of a slightly higher false positive rate after heavy use. Saturation does not make the filter
+ * invalid.</p>
+ *
+ * <p>A subtraction that would take a counter below zero leaves it at zero and marks the filter
+ * invalid. Unlike {@link ArrayCountingBloomFilter} the counts are not kept negative, so the
+ * operation cannot be reversed by its complement.</p>
+ *
+ * <p>Adding or subtracting another {@code CompactCountingBloomFilter} with the same number of
+ * bits and counter size, and {@link #forEachBitMap(LongPredicate)}, work on a whole word of
+ * counters at a time.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @see ArrayCountingBloomFilter
+ * @see Shape
+ * @since 4.6
+ */
+public final class CompactCountingBloomFilter implements CountingBloomFilter {
+
+    /**
+     * The default number of bits in each counter.
+     */
+    public static final int DEFAULT_COUNTER_BITS = 4;
+
+    private static final String CONSUMER = "consumer";
+
+    /**
+     * The lowest bit of each 2, 4 and 8 bit counter, indexed by the log2 of the counter size.
+     */
+    private static final long[] LOW_BITS = {0, 0x5555555555555555L, 0x1111111111111111L, 0x0101010101010101L};
+
+    /**
+     * The shape of this Bloom filter.
+     */
+    private final Shape shape;
+
+    /**
+     * The number of bits in the filter.
+     */
+    private final int numberOfBits;
+
+    /**
+     * The number of bits in each counter.
+     */
+    private final int counterBits;
+
+    /**
+     * The log2 of the number of bits in each counter. A bit index shifted left by this is the
+     * bit offset of its counter; only the low 6 bits of the offset are used by a shift.
+     */
+    private final int bitsShift;
+
+    /**
+     * The log2 of the number of counters in each word. A bit index shifted right by this is
+     * the index of the word holding its counter.
+     */
+    private final int wordShift;
+
+    /**
+     * The maximum count, also the mask of a single counter.
+     */
+    private final long maxCount;
+
+    /**
+     * The lowest bit of each counter in a word.
+     */
+    private final long lowBits;
+
+    /**
+     * The highest bit of each counter in a word.
+     */
+    private final long highBits;
+
+    /**
+     * The counters. There are {@code counterBits} words for each bit map of the filter so the
+     * counters for one bit map are always held in full words.
+     */
+    private final long[] counts;
+
+    /**
+     * Set when a subtraction took a counter below zero.
+     */
+    private boolean invalid;
+
+    /**
+     * Adds one to the count of an index. Held to avoid creating a method reference per merge.
+     */
+    private final IntPredicate increment = this::increment;
+
+    /**
+     * Subtracts one from the count of an index. Held to avoid creating a method reference per
+     * remove.
+     */
+    private final IntPredicate decrement = this::decrement;
+
+    /**
+     * Tests the count of an index is not zero. Held to avoid creating a method reference per
+     * contains.
+     */
+    private final IntPredicate isSet = this::isSet;
+
+    /**
+     * Constructs an empty counting Bloom filter with the specified shape and 4 bit counters.
+     *
+     * @param shape the shape of the filter
+     */
+    public CompactCountingBloomFilter(final Shape shape) {
+        this(shape, DEFAULT_COUNTER_BITS);
+    }
+
+    /**
+     * Constructs an empty counting Bloom filter with the specified shape and counter size.
+     *
+     * @param shape the shape of the filter
+     * @param counterBits the number of bits in each counter: 2, 4 or 8
+     * @throws IllegalArgumentException if the counter size is not 2, 4 or 8
+     */
+    public CompactCountingBloomFilter(final Shape shape, final int counterBits) {
+        Objects.requireNonNull(shape, "shape");
+        if (counterBits != 2 && counterBits != 4 && counterBits != 8) {
+            throw new IllegalArgumentException(String.format("Counter bits (%s) must be 2, 4 or 8", counterBits));
+        }
+        this.shape = shape;
+        numberOfBits = shape.getNumberOfBits();
+        this.counterBits = counterBits;
+        bitsShift = Integer.numberOfTrailingZeros(counterBits);
+        wordShift = 6 - bitsShift;
+        maxCount = (1L << counterBits) - 1;
+        lowBits = LOW_BITS[bitsShift];
+        highBits = lowBits << counterBits - 1;
+        counts = new long[BitMap.numberOfBitMaps(numberOfBits) * counterBits];
+    }
+
+    private CompactCountingBloomFilter(final CompactCountingBloomFilter source) {
+        this.shape = source.shape;
+        this.numberOfBits = source.numberOfBits;
+        this.counterBits = source.counterBits;
+        this.bitsShift = source.bitsShift;
+        this.wordShift = source.wordShift;
+        this.maxCount = source.maxCount;
+        this.lowBits = source.lowBits;
+        this.highBits = source.highBits;
+        this.invalid = source.invalid;
+        this.counts = source.counts.clone();
+    }
+
+    /**
+     * Gets the number of bits in each counter.
+     *
+     * @return the number of bits in each counter.
+     */
+    public int getCounterBits() {
+        return counterBits;
+    }
+
+    /**
+     * Gets the count at which a counter saturates.
+     *
+     * @return the maximum count.
+     */
+    public int getMaximumCount() {
+        return (int) maxCount;
+    }
+
+    /**
+     * Gets the number of counters that are saturated. Their bit indices stay enabled whatever is
+     * subtracted.
+     *
+     * @return the number of saturated counters.
+     */
+    public int getSaturatedCount() {
+        int saturated = 0;
+        for (final long word : counts) {
+            saturated += Long.bitCount(allOnes(word));
+        }
+        return saturated;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    @Override
+    public CompactCountingBloomFilter copy() {
+        return new CompactCountingBloomFilter(this);
+    }
+
+    @Override
+    public int characteristics() {
+        return 0;
+    }
+
+    @Override
+    public int cardinality() {
+        int cardinality = 0;
+        for (final long word : counts) {
+            cardinality += Long.bitCount(nonZero(word));
+        }
+        return cardinality;
+    }
+
+    @Override
+    public boolean add(final BitCountProducer other) {
+        Objects.requireNonNull(other, "other");
+        if (isCompatible(other)) {
+            final long[] otherCounts = ((CompactCountingBloomFilter) other).counts;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = saturatingAdd(counts[i], otherCounts[i]);
+            }
+        } else {
+            other.forEachCount(this::add);
+        }
+        return isValid();
+    }
+
+    @Override
+    public boolean subtract(final BitCountProducer other) {
+        Objects.requireNonNull(other, "other");
+        if (isCompatible(other)) {
+            final long[] otherCounts = ((CompactCountingBloomFilter) other).counts;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = saturatingSubtract(counts[i], otherCounts[i]);
+            }
+        } else {
+            other.forEachCount(this::subtract);
+        }
+        return isValid();
+    }
+
+    @Override
+    public boolean merge(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        try {
+            indexProducer.forEachIndex(increment);
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(
+                    String.format("Filter only accepts values in the [0,%d) range", numberOfBits), e);
+        }
+        return isValid();
+    }
+
+    @Override
+    public boolean remove(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        try {
+            indexProducer.forEachIndex(decrement);
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(
+                    String.format("Filter only accepts values in the [0,%d) range", numberOfBits), e);
+        }
+        return isValid();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><em>Implementation note</em>
+     *
+     * <p>The state transition to invalid is permanent. It happens only when a subtraction takes
+     * a counter below zero; the counter is left at zero. A saturated counter does not make the
+     * filter invalid.</p>
+     */
+    @Override
+    public boolean isValid() {
+        return !invalid;
+    }
+
+    @Override
+    public boolean forEachCount(final BitCountProducer.BitCountConsumer consumer) {
+        Objects.requireNonNull(consumer, CONSUMER);
+        for (int i = 0; i < counts.length; i++) {
+            long word = counts[i];
+            final int base = i << wordShift;
+            while (word != 0) {
+                final int shift = Long.numberOfTrailingZeros(word) & -counterBits;
+                if (!consumer.test(base + (shift >>> bitsShift), (int) (word >>> shift & maxCount))) {
+                    return false;
+                }
+                word &= ~(maxCount << shift);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, CONSUMER);
+        final int blocks = counts.length >>> bitsShift;
+        for (int j = 0; j < blocks; j++) {
+            long bitMap = bitMap(j);
+            final int base = j * Long.SIZE;
+            while (bitMap != 0) {
+                if (!consumer.test(base + Long.numberOfTrailingZeros(bitMap))) {
+                    return false;
+                }
+                bitMap &= bitMap - 1;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate consumer) {
+        Objects.requireNonNull(consumer, CONSUMER);
+        final int blocks = counts.length >>> bitsShift;
+        for (int j = 0; j < blocks; j++) {
+            if (!consumer.test(bitMap(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        return indexProducer.forEachIndex(isSet);
+    }
+
+    /**
+     * Tests the count for the bit index is not zero.
+     *
+     * @param idx the index
+     * @return {@code true} if the count is not zero.
+     */
+    private boolean isSet(final int idx) {
+        return (counts[idx >>> wordShift] >>> (idx << bitsShift) & maxCount) != 0;
+    }
+
+    /**
+     * Tests if the producer is a filter with counters laid out as in this filter.
+     *
+     * @param other the producer.
+     * @return {@code true} if the counters can be combined word by word.
+     */
+    private boolean isCompatible(final BitCountProducer other) {
+        if (other instanceof CompactCountingBloomFilter) {
+            final CompactCountingBloomFilter filter = (CompactCountingBloomFilter) other;
+            return filter.counterBits == counterBits
+                && filter.numberOfBits == numberOfBits;
+        }
+        return false;
+    }
+
+    /**
+     * Add to the count for the bit index.
+     *
+     * @param idx the index
+     * @param addend the amount to add
+     * @return {@code true} always.
+     */
+    private boolean add(final int idx, final int addend) {
+        update(idx, addend);
+        return true;
+    }
+
+    /**
+     * Subtract from the count for the bit index.
+     *
+     * @param idx the index
+     * @param subtrahend the amount to subtract
+     * @return {@code true} always.
+     */
+    private boolean subtract(final int idx, final int subtrahend) {
+        update(idx, -(long) subtrahend);
+        return true;
+    }
+
+    /**
+     * Add one to the count for the bit index.
+     *
+     * @param idx the index
+     * @return {@code true} always.
+     */
+    private boolean increment(final int idx) {
+        checkIndex(idx);
+        final int shift = idx << bitsShift;
+        final long current = counts[idx >>> wordShift] >>> shift & maxCount;
+        if (current != maxCount) {
+            counts[idx >>> wordShift] += 1L << shift;
+        }
+        return true;
+    }
+
+    /**
+     * Subtract one from the count for the bit index.
+     *
+     * @param idx the index
+     * @return {@code true} always.
+     */
+    private boolean decrement(final int idx) {
+        checkIndex(idx);
+        final int shift = idx << bitsShift;
+        final long current = counts[idx >>> wordShift] >>> shift & maxCount;
+        if (current == 0) {
+            invalid = true;
+        } else if (current != maxCount) {
+            counts[idx >>> wordShift] -= 1L << shift;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the index is in the filter.
+     *
+     * @param idx the index
+     * @throws IndexOutOfBoundsException if the index is not in the filter
+     */
+    private void checkIndex(final int idx) {
+        if (idx < 0 || idx >= numberOfBits) {
+            throw new IndexOutOfBoundsException(String.format("Index %s is not in [0,%s)", idx, numberOfBits));
+        }
+    }
+
+    /**
+     * Changes the count for the bit index, saturating at the maximum and stopping at zero.
+     *
+     * @param idx the index
+     * @param delta the change in the count
+     * @throws IndexOutOfBoundsException if the index is not in the filter
+     */
+    private void update(final int idx, final long delta) {
+        checkIndex(idx);
+        final int word = idx >>> wordShift;
+        final int shift = idx << bitsShift;
+        final long current = counts[word] >>> shift & maxCount;
+        if (current == maxCount) {
+            // the true count of a saturated counter is unknown
+            return;
+        }
+        long updated = current + delta;
+        if (updated > maxCount) {
+            updated = maxCount;
+        } else if (updated < 0) {
+            updated = 0;
+            invalid = true;
+        }
+        counts[word] += updated - current << shift;
+    }
+
+    /**
+     * Adds each counter of two words, saturating at the maximum count.
+     *
+     * @param a the first word.
+     * @param b the second word.
+     * @return the word of sums.
+     */
+    private long saturatingAdd(final long a, final long b) {
+        // add the low bits of each counter, then the high bit without carry into the next counter
+        final long sum = ((a & ~highBits) + (b & ~highBits)) ^ (a ^ b) & highBits;
+        // the carry out of the high bit of each counter
+        final long carry = (a & b | (a | b) & ~sum) & highBits;
+        return sum | (carry >>> counterBits - 1) * maxCount;
+    }
+
+    /**
+     * Subtracts each counter of the second word from the first, stopping at zero and leaving
+     * saturated counters of the first word unchanged. Marks the filter invalid if any counter
+     * would go below zero.
+     *
+     * @param a the first word.
+     * @param b the second word.
+     * @return the word of differences.
+     */
+    private long saturatingSubtract(final long a, final long b) {
+        final long difference = ((a | highBits) - (b & ~highBits)) ^ (a ^ ~b) & highBits;
+        // the borrow out of the high bit of each counter
+        final long borrow = (~a & b | ~(a ^ b) & difference) & highBits;
+        final long saturated = allOnes(a) * maxCount;
+        if (borrow != 0) {
+            invalid = true;
+        }
+        return difference & ~((borrow >>> counterBits - 1) * maxCount) & ~saturated | a & saturated;
+    }
+
+    /**
+     * Sets the low bit of each counter that is not zero and clears all other bits.
+     *
+     * @param word the counters.
+     * @return the lowest bit of each counter that is not zero.
+     */
+    private long nonZero(final long word) {
+        switch (counterBits) {
+        case 2:
+            return (word | word >>> 1) & lowBits;
+        case 4: {
+            final long t = word | word >>> 1;
+            return (t | t >>> 2) & lowBits;
+        }
+        default: {
+            long t = word | word >>> 1;
+            t |= t >>> 2;
+            return (t | t >>> 4) & lowBits;
+        }
+        }
+    }
+
+    /**
+     * Sets the low bit of each counter that is saturated and clears all other bits.
+     *
+     * @param word the counters.
+     * @return the lowest bit of each counter that is saturated.
+     */
+    private long allOnes(final long word) {
+        switch (counterBits) {
+        case 2:
+            return word & word >>> 1 & lowBits;
+        case 4: {
+            final long t = word & word >>> 1;
+            return t & t >>> 2 & lowBits;
+        }
+        default: {
+            long t = word & word >>> 1;
+            t &= t >>> 2;
+            return t & t >>> 4 & lowBits;
+        }
+        }
+    }
+
+    /**
+     * Creates a bit map of the enabled bits from the counters of one block of the filter.
+     *
+     * @param block the index of the bit map.
+     * @return the bit map.
+     */
+    private long bitMap(final int block) {
+        final int first = block << bitsShift;
+        final int countersPerWord = Long.SIZE >>> bitsShift;
+        long bitMap = 0;
+        for (int r = 0; r < counterBits; r++) {
+            bitMap |= compress(nonZero(counts[first + r])) << r * countersPerWord;
+        }
+        return bitMap;
+    }
+
+    /**
+     * Moves the low bit of each counter into the low bits of the result, keeping their order.
+     *
+     * @param t a word with only the low bit of each counter possibly set.
+     * @return the packed bits.
+     */
+    private long compress(long t) {
+        switch (counterBits) {
+        case 2:
+            t = (t | t >>> 1) & 0x3333333333333333L;
+            t = (t | t >>> 2) & 0x0f0f0f0f0f0f0f0fL;
+            t = (t | t >>> 4) & 0x00ff00ff00ff00ffL;
+            t = (t | t >>> 8) & 0x0000ffff0000ffffL;
+            return (t | t >>> 16) & 0xffffffffL;
+        case 4:
+            t = (t | t >>> 3) & 0x0303030303030303L;
+            t = (t | t >>> 6) & 0x000f000f000f000fL;
+            t = (t | t >>> 12) & 0x000000ff000000ffL;
+            return (t | t >>> 24) & 0xffffL;
+        default:
+            // bit 8j lands on bit 56 + j with no carries between the partial products
+            return t * 0x0102040810204080L >>> 56;
+        }
+    }
+}
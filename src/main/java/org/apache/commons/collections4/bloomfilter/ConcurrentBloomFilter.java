@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * A thread-safe bloom filter using an {@link AtomicLongArray} of bit maps to track
+ * enabled bits.
+ *
+ * <p>Bits are enabled with a compare-and-set on the containing word, and only when the
+ * bit is not already enabled, so merging an item that is already present performs no
+ * writes. Any number of threads may {@code merge} and {@code contains} concurrently
+ * without external locking. {@code contains} never blocks or retries: it performs one
+ * volatile read per index.</p>
+ *
+ * <p>An operation that touches several words is not atomic as a whole: a concurrent
+ * {@code contains} may observe some of the bits of an in-flight merge and not others.
+ * Once a merge has returned, every thread observes all of its bits.</p>
+ *
+ * <p>The cardinality is maintained incrementally by the thread that enables each bit, so
+ * {@link #cardinality()} does not scan the bit maps. While merges are in flight it may
+ * lag the bits already visible; it is exact once they complete.</p>
+ *
+ * @see SimpleBloomFilter
+ * @since 4.6
+ */
+public final class ConcurrentBloomFilter implements BloomFilter {
+
+    /**
+     * The array of bit map longs that defines this Bloom filter.
+     */
+    private final AtomicLongArray bitMap;
+
+    /**
+     * The Shape of this Bloom filter.
+     */
+    private final Shape shape;
+
+    /**
+     * The number of enabled bits, updated by the thread that enabled or disabled them.
+     */
+    private final LongAdder cardinality = new LongAdder();
+
+    /**
+     * Creates an empty instance.
+     *
+     * @param shape The shape for the filter.
+     */
+    public ConcurrentBloomFilter(final Shape shape) {
+        Objects.requireNonNull(shape, "shape");
+        this.shape = shape;
+        this.bitMap = new AtomicLongArray(BitMap.numberOfBitMaps(shape.getNumberOfBits()));
+    }
+
+    /**
+     * Copy constructor for {@code copy()} use.
+     * @param source
+     */
+    private ConcurrentBloomFilter(final ConcurrentBloomFilter source) {
+        this.shape = source.shape;
+        this.bitMap = new AtomicLongArray(source.asBitMapArray());
+        long c = 0;
+        for (int i = 0; i < bitMap.length(); i++) {
+            c += Long.bitCount(bitMap.get(i));
+        }
+        cardinality.add(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each word is cleared atomically, but the filter as a whole is not: bits enabled
+     * by a merge running concurrently with {@code clear} may survive it.</p>
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < bitMap.length(); i++) {
+            final long old = bitMap.getAndSet(i, 0L);
+            if (old != 0) {
+                cardinality.add(-Long.bitCount(old));
+            }
+        }
+    }
+
+    @Override
+    public long[] asBitMapArray() {
+        final long[] result = new long[bitMap.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bitMap.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean forEachBitMapPair(final BitMapProducer other, final LongBiPredicate func) {
+        final int[] idx = new int[1];
+        final int limit = bitMap.length();
+        return other.forEachBitMap(value -> func.test(idx[0] == limit ? 0 : bitMap.get(idx[0]++), value))
+            && forEachRemaining(idx[0], func);
+    }
+
+    /**
+     * Calls the bi-predicate for each bit map from {@code start} paired with zero.
+     *
+     * @param start the first unpaired bit map
+     * @param func the function to apply to the pairs of long values
+     * @return true if all calls the predicate were successful
+     */
+    private boolean forEachRemaining(final int start, final LongBiPredicate func) {
+        for (int i = start; i < bitMap.length(); i++) {
+            if (!func.test(bitMap.get(i), 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ConcurrentBloomFilter copy() {
+        return new ConcurrentBloomFilter(this);
+    }
+
+    /**
+     * Enables bits in the word at {@code idx}, counting the bits this thread enabled.
+     *
+     * @param idx the word index
+     * @param mask the bits to enable
+     */
+    private void or(final int idx, final long mask) {
+        long old = bitMap.get(idx);
+        while ((old & mask) != mask) {
+            if (bitMap.compareAndSet(idx, old, old | mask)) {
+                cardinality.add(Long.bitCount(mask & ~old));
+                return;
+            }
+            old = bitMap.get(idx);
+        }
+    }
+
+    @Override
+    public boolean merge(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        indexProducer.forEachIndex(idx -> {
+            if (idx < 0 || idx >= shape.getNumberOfBits()) {
+                throw new IllegalArgumentException(String.format(
+                        "IndexProducer should only send values in the range[0,%s)", shape.getNumberOfBits()));
+            }
+            or(BitMap.getLongIndex(idx), BitMap.getLongBit(idx));
+            return true;
+        });
+        return true;
+    }
+
+    @Override
+    public boolean merge(final BitMapProducer bitMapProducer) {
+        Objects.requireNonNull(bitMapProducer, "bitMapProducer");
+        final int limit = bitMap.length();
+        final int idxLimit = BitMap.getLongIndex(shape.getNumberOfBits());
+        final int[] idx = new int[1];
+        bitMapProducer.forEachBitMap(value -> {
+            final int i = idx[0]++;
+            if (i >= limit) {
+                throw new IllegalArgumentException(
+                        String.format("BitMapProducer should send at most %s maps", limit));
+            }
+            // check before any bit is enabled so a rejected map leaves the filter unchanged
+            if (i == idxLimit && value >> shape.getNumberOfBits() != 0) {
+                throw new IllegalArgumentException(
+                        String.format("BitMapProducer set a bit higher than the limit for the shape: %s",
+                                shape.getNumberOfBits()));
+            }
+            if (value != 0) {
+                or(i, value);
+            }
+            return true;
+        });
+        return true;
+    }
+
+    @Override
+    public boolean merge(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        return merge(hasher.indices(shape));
+    }
+
+    @Override
+    public boolean mergeAll(final long[] initial, final long[] increment) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        BatchHasher.checkLengths(initial, increment);
+        final int k = shape.getNumberOfHashFunctions();
+        // the indices of EnhancedDoubleHasher.indices(Shape), inlined
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        for (int i = 0; i < initial.length; i++) {
+            int index = cursor.start(initial[i], increment[i]);
+            for (int j = 0; j < k; j++) {
+                or(BitMap.getLongIndex(index), BitMap.getLongBit(index));
+                index = cursor.next();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int containsEach(final long[] initial, final long[] increment, final boolean[] results) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        BatchHasher.checkLengths(initial, increment);
+        BatchHasher.checkResults(initial, results);
+        final int k = shape.getNumberOfHashFunctions();
+        // the indices of EnhancedDoubleHasher.indices(Shape), inlined to stop at the first miss
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        int count = 0;
+        for (int i = 0; i < initial.length; i++) {
+            int index = cursor.start(initial[i], increment[i]);
+            boolean found = true;
+            for (int j = 0; j < k; j++) {
+                if ((bitMap.get(BitMap.getLongIndex(index)) & BitMap.getLongBit(index)) == 0) {
+                    found = false;
+                    break;
+                }
+                index = cursor.next();
+            }
+            results[i] = found;
+            if (found) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean merge(final BloomFilter other) {
+        Objects.requireNonNull(other, "other");
+        if ((other.characteristics() & SPARSE) != 0) {
+            merge((IndexProducer) other);
+        } else {
+            merge((BitMapProducer) other);
+        }
+        return true;
+    }
+
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public int characteristics() {
+        return 0;
+    }
+
+    @Override
+    public int cardinality() {
+        return cardinality.intValue();
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return IndexProducer.fromBitMapProducer(this).forEachIndex(consumer);
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        for (int i = 0; i < bitMap.length(); i++) {
+            if (!consumer.test(bitMap.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        return indexProducer.forEachIndex(idx -> (bitMap.get(BitMap.getLongIndex(idx)) & BitMap.getLongBit(idx)) != 0);
+    }
+}
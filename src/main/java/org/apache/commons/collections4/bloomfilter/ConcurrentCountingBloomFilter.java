@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * A thread-safe counting Bloom filter using an {@link AtomicIntegerArray} to track
+ * counts for each enabled bit index.
+ *
+ * <p>Each count is updated with a single atomic add, so any number of threads may
+ * {@code merge}, {@code remove}, {@code add} and {@code subtract} concurrently without
+ * external locking and without losing updates. An operation that touches several
+ * indices is not atomic as a whole: a concurrent reader may observe some of its
+ * indices updated and others not. Once every writer has completed, the counts are
+ * exactly those that would have resulted from performing the same operations one
+ * after another.</p>
+ *
+ * <p>As with {@link ArrayCountingBloomFilter}, any operation that results in negative
+ * counts or integer overflow of counts will mark this filter as invalid. This
+ * transition is not reversible. The operation is completed in full, no exception is
+ * raised and the state is set to invalid, so the complement of the operation restores
+ * the prior counts. See the documentation in {@link #isValid()} for details.</p>
+ *
+ * <p>{@link #clear()} and {@link #copy()} visit each count in turn and are not atomic
+ * with respect to concurrent updates.</p>
+ *
+ * @see ArrayCountingBloomFilter
+ * @see Shape
+ * @since 4.6
+ */
+public final class ConcurrentCountingBloomFilter implements CountingBloomFilter {
+
+    private static final String CONSUMER = "consumer";
+
+    /**
+     * The shape of this Bloom filter.
+     */
+    private final Shape shape;
+
+    /**
+     * The count of each bit index in the filter.
+     */
+    private final AtomicIntegerArray counts;
+
+    /**
+     * The state flag. Set when any update produced a negative count, which happens
+     * on underflow of a subtraction and on integer overflow of an addition.
+     *
+     * <p>The flag is only written on the failure path so the common case costs one
+     * atomic add per index and no further memory traffic.</p>
+     */
+    private volatile boolean invalid;
+
+    /**
+     * Constructs an empty counting Bloom filter with the specified shape.
+     *
+     * @param shape the shape of the filter
+     */
+    public ConcurrentCountingBloomFilter(final Shape shape) {
+        Objects.requireNonNull(shape, "shape");
+        this.shape = shape;
+        counts = new AtomicIntegerArray(shape.getNumberOfBits());
+    }
+
+    private ConcurrentCountingBloomFilter(final ConcurrentCountingBloomFilter source) {
+        this.shape = source.shape;
+        this.invalid = source.invalid;
+        final int length = source.counts.length();
+        this.counts = new AtomicIntegerArray(length);
+        for (int i = 0; i < length; i++) {
+            counts.lazySet(i, source.counts.get(i));
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    @Override
+    public ConcurrentCountingBloomFilter copy() {
+        return new ConcurrentCountingBloomFilter(this);
+    }
+
+    @Override
+    public int characteristics() {
+        return SPARSE;
+    }
+
+    @Override
+    public int cardinality() {
+        return (int) IntStream.range(0, counts.length()).filter(i -> counts.get(i) > 0).count();
+    }
+
+    @Override
+    public boolean add(final BitCountProducer other) {
+        Objects.requireNonNull(other, "other");
+        other.forEachCount(this::add);
+        return isValid();
+    }
+
+    @Override
+    public boolean subtract(final BitCountProducer other) {
+        Objects.requireNonNull(other, "other");
+        other.forEachCount(this::subtract);
+        return isValid();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><em>Implementation note</em>
+     *
+     * <p>The state transition to invalid is permanent and is visible to all threads
+     * once the operation that caused it has returned.</p>
+     *
+     * <p>This implementation does not correct negative counts to zero or integer
+     * overflow counts to {@link Integer#MAX_VALUE}. Thus the operation that
+     * generated invalid counts can be reversed by using the complement of the
+     * original operation with the same Bloom filter. This will restore the counts
+     * to the state prior to the invalid operation. Counts can then be extracted
+     * using {@link #forEachCount(BitCountConsumer)}.</p>
+     */
+    @Override
+    public boolean isValid() {
+        return !invalid;
+    }
+
+    @Override
+    public boolean forEachCount(final BitCountProducer.BitCountConsumer consumer) {
+        Objects.requireNonNull(consumer, CONSUMER);
+        for (int i = 0; i < counts.length(); i++) {
+            final int count = counts.get(i);
+            if (count != 0 && !consumer.test(i, count)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, CONSUMER);
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0 && !consumer.test(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate consumer) {
+        Objects.requireNonNull(consumer, CONSUMER);
+        final int length = counts.length();
+        final int blocksm1 = BitMap.numberOfBitMaps(length) - 1;
+        int i = 0;
+        long value;
+        // must break final block separate as the number of bits may not fall on the long boundary
+        for (int j = 0; j < blocksm1; j++) {
+            value = 0;
+            for (int k = 0; k < Long.SIZE; k++) {
+                if (counts.get(i++) != 0) {
+                    value |= BitMap.getLongBit(k);
+                }
+            }
+            if (!consumer.test(value)) {
+                return false;
+            }
+        }
+        // Final block
+        value = 0;
+        for (int k = 0; i < length; k++) {
+            if (counts.get(i++) != 0) {
+                value |= BitMap.getLongBit(k);
+            }
+        }
+        return consumer.test(value);
+    }
+
+    /**
+     * Add to the count for the bit index.
+     *
+     * @param idx the index
+     * @param addend the amount to add
+     * @return {@code true} always.
+     */
+    private boolean add(final int idx, final int addend) {
+        if (counts.addAndGet(idx, addend) < 0) {
+            invalid = true;
+        }
+        return true;
+    }
+
+    /**
+     * Subtract from the count for the bit index.
+     *
+     * @param idx the index
+     * @param subtrahend the amount to subtract
+     * @return {@code true} always.
+     */
+    private boolean subtract(final int idx, final int subtrahend) {
+        if (counts.addAndGet(idx, -subtrahend) < 0) {
+            invalid = true;
+        }
+        return true;
+    }
+
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        return indexProducer.forEachIndex(idx -> this.counts.get(idx) != 0);
+    }
+
+    @Override
+    public boolean contains(final BitMapProducer bitMapProducer) {
+        return contains(IndexProducer.fromBitMapProducer(bitMapProducer));
+    }
+
+    @Override
+    public int[] asIndexArray() {
+        return IntStream.range(0, counts.length()).filter(i -> counts.get(i) > 0).toArray();
+    }
+}
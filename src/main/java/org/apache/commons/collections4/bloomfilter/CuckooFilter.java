@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * A cuckoo filter: an approximate membership set that, unlike a Bloom filter, supports removing
+ * items without the memory cost of a {@link CountingBloomFilter}.
+ *
+ * <p>Each item is reduced to a short fingerprint stored in one of two candidate buckets of four
+ * slots. The fingerprints are packed, so with the default 12-bit fingerprints a filter filled to
+ * its capacity uses about 12.8 bits per item, and a false positive occurs with probability of at
+ * most about {@code 8 / 2^12}, see {@link #getProbability()}.</p>
+ *
+ * <p>Items are described by a {@link Hasher}, as for the Bloom filters: the first two indices it
+ * produces for a shape of {@code Integer.MAX_VALUE} bits select the bucket and the fingerprint.
+ * The same hasher must be used to add, test and remove an item.</p>
+ *
+ * <p>Adding an item that is already present stores another copy of its fingerprint, so an item
+ * added twice remains present after one removal. Removing an item that was never added may remove
+ * the fingerprint of another item and must be avoided. An {@link #add(Hasher) add} fails once no
+ * slot can be freed for the fingerprint by relocating others; the filter is then full.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 4.6
+ */
+public final class CuckooFilter {
+
+    /**
+     * The default number of bits per fingerprint.
+     */
+    public static final int DEFAULT_FINGERPRINT_BITS = 12;
+
+    /**
+     * The number of slots per bucket.
+     */
+    private static final int SLOTS = 4;
+
+    /**
+     * The fraction of the slots the capacity fills. Insertion reliably succeeds below about 95%.
+     */
+    private static final double LOAD_FACTOR = 0.94;
+
+    /**
+     * The number of relocations an insertion attempts before the filter is considered full.
+     */
+    private static final int MAX_KICKS = 500;
+
+    /**
+     * The shape whose first two indices select the bucket and the fingerprint.
+     */
+    private static final Shape HASH_SHAPE = Shape.fromKM(2, Integer.MAX_VALUE);
+
+    /**
+     * The packed buckets, each of {@code SLOTS * fingerprintBits} bits. A zero slot is empty.
+     */
+    private final long[] table;
+
+    private final int numberOfBuckets;
+
+    private final int fingerprintBits;
+
+    private final long fingerprintMask;
+
+    private final int bucketBits;
+
+    private final long bucketMask;
+
+    private final int capacity;
+
+    /**
+     * The number of fingerprints stored, including the victim.
+     */
+    private int size;
+
+    /**
+     * A fingerprint that could not be placed, or zero. A filter holding a victim is full.
+     */
+    private long victim;
+
+    /**
+     * The bucket of {@link #victim}.
+     */
+    private int victimBucket;
+
+    /**
+     * The state of the generator choosing which fingerprint to relocate.
+     */
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Creates an empty filter for the capacity with {@link #DEFAULT_FINGERPRINT_BITS}-bit fingerprints.
+     *
+     * @param capacity the number of items the filter must hold.
+     * @throws IllegalArgumentException if {@code capacity < 1}.
+     */
+    public CuckooFilter(final int capacity) {
+        this(capacity, DEFAULT_FINGERPRINT_BITS);
+    }
+
+    /**
+     * Creates an empty filter for the capacity.
+     *
+     * <p>Each extra bit of fingerprint costs about one bit per item and halves the false-positive
+     * probability. Fingerprints of fewer than 8 bits select too few alternate buckets for the
+     * filter to be filled to its capacity.</p>
+     *
+     * @param capacity the number of items the filter must hold.
+     * @param fingerprintBits the number of bits of each fingerprint, in the range {@code [8, 16]}.
+     * @throws IllegalArgumentException if {@code capacity < 1} or if {@code fingerprintBits} is out of
+     * range.
+     */
+    public CuckooFilter(final int capacity, final int fingerprintBits) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+        }
+        if (fingerprintBits < 8 || fingerprintBits > 16) {
+            throw new IllegalArgumentException("Fingerprint bits must be in the range [8, 16]: " + fingerprintBits);
+        }
+        // at most 2^31 / 3.76 buckets of 64 bits: the table length always fits an int
+        final long buckets = Math.max(1, (long) Math.ceil(capacity / (SLOTS * LOAD_FACTOR)));
+        final long words = (buckets * SLOTS * fingerprintBits + Long.SIZE - 1) / Long.SIZE + 1;
+        this.capacity = capacity;
+        this.numberOfBuckets = (int) buckets;
+        this.fingerprintBits = fingerprintBits;
+        this.fingerprintMask = (1L << fingerprintBits) - 1;
+        this.bucketBits = SLOTS * fingerprintBits;
+        this.bucketMask = bucketBits == Long.SIZE ? -1L : (1L << bucketBits) - 1;
+        // one extra word so a bucket may always be read as two adjacent words
+        this.table = new long[(int) words];
+    }
+
+    /**
+     * Copy constructor for {@code copy()} use.
+     * @param source
+     */
+    private CuckooFilter(final CuckooFilter source) {
+        this.table = source.table.clone();
+        this.numberOfBuckets = source.numberOfBuckets;
+        this.fingerprintBits = source.fingerprintBits;
+        this.fingerprintMask = source.fingerprintMask;
+        this.bucketBits = source.bucketBits;
+        this.bucketMask = source.bucketMask;
+        this.capacity = source.capacity;
+        this.size = source.size;
+        this.victim = source.victim;
+        this.victimBucket = source.victimBucket;
+        this.seed = source.seed;
+    }
+
+    /**
+     * Creates a copy of this filter.
+     *
+     * @return a copy of this filter.
+     */
+    public CuckooFilter copy() {
+        return new CuckooFilter(this);
+    }
+
+    /**
+     * Gets the number of items the filter was sized for.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of bits of each fingerprint.
+     *
+     * @return the number of bits of each fingerprint.
+     */
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * Gets the number of items in the filter, counting each addition of an item.
+     *
+     * @return the number of items.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if the filter holds no items.
+     *
+     * @return true if the filter is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the upper bound of the false-positive probability: the probability that one of the
+     * eight fingerprints of the two candidate buckets of an absent item matches its own, with every
+     * slot full.
+     * <pre>p = 1 - pow(1 - 1 / (2^f - 1), 8)</pre>
+     *
+     * <p>The actual probability scales with the fraction of the slots in use.</p>
+     *
+     * @return the false-positive probability of a full filter.
+     */
+    public double getProbability() {
+        return -Math.expm1(2 * SLOTS * Math.log1p(-1.0 / fingerprintMask));
+    }
+
+    /**
+     * Removes all items.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+        victim = 0;
+    }
+
+    /**
+     * Adds an item.
+     *
+     * @param hasher the hasher describing the item.
+     * @return {@code true} if the item was added, {@code false} if the filter is full.
+     * @throws IllegalArgumentException if the hasher produces fewer than two indices.
+     */
+    public boolean add(final Hasher hasher) {
+        final Indices indices = hash(hasher);
+        if (victim != 0) {
+            return false;
+        }
+        long fingerprint = fingerprint(indices.second);
+        int bucket = bucket(indices.first);
+        if (insert(bucket, fingerprint)) {
+            size++;
+            return true;
+        }
+        bucket = alternate(bucket, fingerprint);
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            if (insert(bucket, fingerprint)) {
+                size++;
+                return true;
+            }
+            // evict a random fingerprint and move it to its other bucket
+            final int slot = nextSlot();
+            final long value = readBucket(bucket);
+            final int shift = slot * fingerprintBits;
+            final long evicted = value >>> shift & fingerprintMask;
+            writeBucket(bucket, value & ~(fingerprintMask << shift) | fingerprint << shift);
+            fingerprint = evicted;
+            bucket = alternate(bucket, fingerprint);
+        }
+        // keep the displaced fingerprint so no item is lost; the filter is now full
+        victim = fingerprint;
+        victimBucket = bucket;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the filter may contain the item. False positives are possible; false
+     * negatives are not, for items added and not removed.
+     *
+     * @param hasher the hasher describing the item.
+     * @return {@code true} if the filter may contain the item.
+     * @throws IllegalArgumentException if the hasher produces fewer than two indices.
+     */
+    public boolean contains(final Hasher hasher) {
+        final Indices indices = hash(hasher);
+        final long fingerprint = fingerprint(indices.second);
+        final int bucket = bucket(indices.first);
+        final int other = alternate(bucket, fingerprint);
+        return findSlot(readBucket(bucket), fingerprint) >= 0
+            || findSlot(readBucket(other), fingerprint) >= 0
+            || victim == fingerprint && (victimBucket == bucket || victimBucket == other);
+    }
+
+    /**
+     * Removes one copy of an item. The item must have been added; removing an item that was not
+     * may remove another item with the same fingerprint and bucket.
+     *
+     * @param hasher the hasher describing the item.
+     * @return {@code true} if a fingerprint of the item was found and removed.
+     * @throws IllegalArgumentException if the hasher produces fewer than two indices.
+     */
+    public boolean remove(final Hasher hasher) {
+        final Indices indices = hash(hasher);
+        final long fingerprint = fingerprint(indices.second);
+        final int bucket = bucket(indices.first);
+        final int other = alternate(bucket, fingerprint);
+        if (victim == fingerprint && (victimBucket == bucket || victimBucket == other)) {
+            victim = 0;
+            size--;
+            return true;
+        }
+        if (delete(bucket, fingerprint) || delete(other, fingerprint)) {
+            size--;
+            if (victim != 0) {
+                // a slot is free: place the victim again
+                final long v = victim;
+                victim = 0;
+                size--;
+                insertVictim(v, victimBucket);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Places a displaced fingerprint after a removal has freed a slot.
+     *
+     * @param fingerprint the fingerprint.
+     * @param bucket one of its buckets.
+     */
+    private void insertVictim(final long fingerprint, final int bucket) {
+        if (insert(bucket, fingerprint) || insert(alternate(bucket, fingerprint), fingerprint)) {
+            size++;
+            return;
+        }
+        // the free slot is reachable only through relocations
+        long f = fingerprint;
+        int b = bucket;
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            final int slot = nextSlot();
+            final long value = readBucket(b);
+            final int shift = slot * fingerprintBits;
+            final long evicted = value >>> shift & fingerprintMask;
+            writeBucket(b, value & ~(fingerprintMask << shift) | f << shift);
+            f = evicted;
+            b = alternate(b, f);
+            if (insert(b, f)) {
+                size++;
+                return;
+            }
+        }
+        victim = f;
+        victimBucket = b;
+        size++;
+    }
+
+    /**
+     * The first two indices of a hasher, collected for one call so that a query does not change
+     * the state of the filter.
+     */
+    private static final class Indices implements IntPredicate {
+
+        /**
+         * The first index, or -1 before it is produced.
+         */
+        int first = -1;
+
+        /**
+         * The second index, or -1 before it is produced.
+         */
+        int second = -1;
+
+        @Override
+        public boolean test(final int idx) {
+            if (idx < 0) {
+                throw new IllegalArgumentException(String.format("Hasher produced a negative index: %s", idx));
+            }
+            if (first < 0) {
+                first = idx;
+                return true;
+            }
+            second = idx;
+            return false;
+        }
+    }
+
+    /**
+     * Collects the first two indices of the hasher.
+     *
+     * @param hasher the hasher.
+     * @return the indices.
+     * @throws IllegalArgumentException if the hasher produces fewer than two indices.
+     */
+    private static Indices hash(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        final Indices indices = new Indices();
+        hasher.indices(HASH_SHAPE).forEachIndex(indices);
+        if (indices.second < 0) {
+            throw new IllegalArgumentException("Hasher must produce at least two indices");
+        }
+        return indices;
+    }
+
+    /**
+     * Maps an index to a bucket.
+     *
+     * @param index the index, in the range {@code [0, 2^31)}.
+     * @return the bucket.
+     */
+    private int bucket(final int index) {
+        // multiply and shift rather than divide: floor(index * n / 2^31)
+        return (int) (index * (long) numberOfBuckets >>> 31);
+    }
+
+    /**
+     * Derives the non-zero fingerprint from an index.
+     *
+     * @param index the index, in the range {@code [0, 2^31)}.
+     * @return the fingerprint.
+     */
+    private long fingerprint(final int index) {
+        // [1, 2^f - 1] so that zero marks an empty slot
+        return (index * fingerprintMask >>> 31) + 1;
+    }
+
+    /**
+     * Gets the other bucket of a fingerprint. The mapping is its own inverse, so either bucket
+     * leads to the other, and it needs no power of 2 number of buckets.
+     *
+     * @param bucket one bucket of the fingerprint.
+     * @param fingerprint the fingerprint.
+     * @return the other bucket.
+     */
+    private int alternate(final int bucket, final long fingerprint) {
+        // spread the fingerprint over the buckets: floor(hash * n / 2^32) for a 32-bit hash
+        final long h = (fingerprint * 0xc6a4a7935bd1e995L >>> 32) * numberOfBuckets >>> 32;
+        final long other = h - bucket;
+        return (int) (other < 0 ? other + numberOfBuckets : other);
+    }
+
+    /**
+     * Chooses a slot to relocate with a xorshift generator.
+     *
+     * @return the slot.
+     */
+    private int nextSlot() {
+        long x = seed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed = x;
+        return (int) (x >>> 62);
+    }
+
+    private long readBucket(final int bucket) {
+        final long bit = (long) bucket * bucketBits;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) (bit & 63);
+        long value = table[word] >>> shift;
+        if (shift + bucketBits > Long.SIZE) {
+            value |= table[word + 1] << Long.SIZE - shift;
+        }
+        return value & bucketMask;
+    }
+
+    private void writeBucket(final int bucket, final long value) {
+        final long bit = (long) bucket * bucketBits;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) (bit & 63);
+        table[word] = table[word] & ~(bucketMask << shift) | value << shift;
+        if (shift + bucketBits > Long.SIZE) {
+            final int spill = Long.SIZE - shift;
+            table[word + 1] = table[word + 1] & ~(bucketMask >>> spill) | value >>> spill;
+        }
+    }
+
+    /**
+     * Finds the slot of a bucket holding the fingerprint.
+     *
+     * @param value the bucket.
+     * @param fingerprint the fingerprint, or zero for an empty slot.
+     * @return the slot, or -1 if there is none.
+     */
+    private int findSlot(final long value, final long fingerprint) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if ((value >>> slot * fingerprintBits & fingerprintMask) == fingerprint) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean insert(final int bucket, final long fingerprint) {
+        final long value = readBucket(bucket);
+        final int slot = findSlot(value, 0);
+        if (slot < 0) {
+            return false;
+        }
+        writeBucket(bucket, value | fingerprint << slot * fingerprintBits);
+        return true;
+    }
+
+    private boolean delete(final int bucket, final long fingerprint) {
+        final long value = readBucket(bucket);
+        final int slot = findSlot(value, fingerprint);
+        if (slot < 0) {
+            return false;
+        }
+        writeBucket(bucket, value & ~(fingerprintMask << slot * fingerprintBits));
+        return true;
+    }
+}
@@ -145,6 +145,103 @@ public class EnhancedDoubleHasher implements Hasher {
         return (int) (remainder >= divisor ? remainder - divisor : remainder);
     }
 
+    /**
+     * Fills the array with the indices {@code new EnhancedDoubleHasher(initial, increment).indices(shape)}
+     * would produce, in the same order and including duplicates, for a shape with
+     * {@code indices.length} hash functions. This is the allocation-free form used by the batch
+     * operations of {@link BloomFilter}.
+     *
+     * @param initial the initial value for the hash calculation.
+     * @param increment the value to increment the hash by on each iteration.
+     * @param bits the number of bits of the shape.
+     * @param indices the array to fill; its length is the number of hash functions.
+     */
+    static void fillIndices(final long initial, final long increment, final int bits, final int[] indices) {
+        final IndexCursor cursor = new IndexCursor(bits);
+        int index = cursor.start(initial, increment);
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = index;
+            index = cursor.next();
+        }
+    }
+
+    /**
+     * Steps through the indices of enhanced double hashing for one item. This is the single
+     * implementation of the calculation; {@link #indices(Shape)} and the filters that inline the
+     * indices of an {@code EnhancedDoubleHasher} use it so that they produce the same indices.
+     *
+     * <p>Enhanced double hashing computes:</p>
+     * <pre>
+     * hash[i] = ( h1(x) + i*h2(x) + (i*i*i - i)/6 ) mod bits
+     * </pre>
+     * <p>See: <a href="https://en.wikipedia.org/wiki/Double_hashing#Enhanced_double_hashing">Enhanced
+     * double hashing</a>.</p>
+     *
+     * <p>Essentially this is computing a wrapped modulus from a start point and an increment and an
+     * additional term as a tetrahedral number. Only two modulus operations are needed, in
+     * {@link #start(long, long)}. Each step handles the modulus using the sign bit to detect
+     * wrapping to ensure {@code 0 <= index < bits} and {@code 0 <= inc < bits}. The final hash is
+     * {@code hash[i] = ( h1(x) - i*h2(x) - (i*i*i - i)/6 )} wrapped in {@code [0, bits)}, where the
+     * counter {@code i} restarts after every {@code bits} indices.</p>
+     *
+     * <p>A cursor can be reused for many items of the same number of bits.</p>
+     */
+    static final class IndexCursor {
+
+        /** The number of bits of the shape. */
+        private final int bits;
+
+        /** The current index. */
+        private int index;
+
+        /** The current increment. */
+        private int inc;
+
+        /** The number of the current index, modulo the number of bits. */
+        private int counter;
+
+        /**
+         * Constructs a cursor for a shape of the specified number of bits.
+         *
+         * @param bits the number of bits of the shape.
+         */
+        IndexCursor(final int bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * Starts the indices of an item.
+         *
+         * @param initial the initial value for the hash calculation.
+         * @param increment the value to increment the hash by on each iteration.
+         * @return the first index.
+         */
+        int start(final long initial, final long increment) {
+            index = mod(initial, bits);
+            inc = mod(increment, bits);
+            counter = 0;
+            return index;
+        }
+
+        /**
+         * Steps to the next index of the item.
+         *
+         * @return the next index.
+         */
+        int next() {
+            // Update index and handle wrapping
+            index -= inc;
+            index = index < 0 ? index + bits : index;
+
+            // Incorporate the counter into the increment to create a
+            // tetrahedral number additional term, and handle wrapping.
+            inc -= counter++;
+            inc = inc < 0 ? inc + bits : inc;
+            counter = counter == bits ? 0 : counter;
+            return index;
+        }
+    }
+
     @Override
     public IndexProducer indices(final Shape shape) {
         Objects.requireNonNull(shape, "shape");
@@ -154,59 +251,14 @@ public class EnhancedDoubleHasher implements Hasher {
             @Override
             public boolean forEachIndex(final IntPredicate consumer) {
                 Objects.requireNonNull(consumer, "consumer");
-                final int bits = shape.getNumberOfBits();
-                // Enhanced double hashing:
-                // hash[i] = ( h1(x) + i*h2(x) + (i*i*i - i)/6 ) mod bits
-                // See: https://en.wikipedia.org/wiki/Double_hashing#Enhanced_double_hashing
-                //
-                // Essentially this is computing a wrapped modulus from a start point and an
-                // increment and an additional term as a tetrahedral number.
-                // You only need two modulus operations before the loop. Within the loop
-                // the modulus is handled using the sign bit to detect wrapping to ensure:
-                // 0 <= index < bits
-                // 0 <= inc < bits
-                // The final hash is:
-                // hash[i] = ( h1(x) - i*h2(x) - (i*i*i - i)/6 ) wrapped in [0, bits)
-
-                int index = mod(initial, bits);
-                int inc = mod(increment, bits);
-
+                final IndexCursor cursor = new IndexCursor(shape.getNumberOfBits());
+                int index = cursor.start(initial, increment);
                 final int k = shape.getNumberOfHashFunctions();
-                if (k > bits) {
-                    for (int j = k; j > 0;) {
-                        final int block = Math.min(j, bits);
-                        j -= block;
-
-                        int loopCounter = 0;
-                        while (loopCounter < block) {
-                            if (!consumer.test(index)) {
-                                return false;
-                            }
-
-                            int updatedIndex = index - inc;
-                            index = updatedIndex < 0 ? updatedIndex + bits : updatedIndex;
-
-                            int updatedInc = inc - loopCounter;
-                            inc = updatedInc < 0 ? updatedInc + bits : updatedInc;
-
-                            loopCounter++;
-                        }
-                    }
-
-                } else {
-                    for (int i = 0; i < k; i++) {
-                        if (!consumer.test(index)) {
-                            return false;
-                        }
-                        // Update index and handle wrapping
-                        index -= inc;
-                        index = index < 0 ? index + bits : index;
-
-                        // Incorporate the counter into the increment to create a
-                        // tetrahedral number additional term, and handle wrapping.
-                        inc -= i;
-                        inc = inc < 0 ? inc + bits : inc;
+                for (int i = 0; i < k; i++) {
+                    if (!consumer.test(index)) {
+                        return false;
                     }
+                    index = cursor.next();
                 }
                 return true;
             }
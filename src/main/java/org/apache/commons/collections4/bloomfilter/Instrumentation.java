@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The usage counters of an instrumented filter.
+ *
+ * <p>Each counter is a {@link LongAdder}, which spreads updates from contending threads over
+ * separate cells, so counting does not serialize threads that share a thread-safe filter. An
+ * uncontended update is a single compare-and-set.</p>
+ */
+final class Instrumentation {
+
+    // queries are counted as positives and negatives so that each costs one update
+
+    private final LongAdder negatives = new LongAdder();
+
+    private final LongAdder positives = new LongAdder();
+
+    private final LongAdder falsePositives = new LongAdder();
+
+    private final LongAdder merges = new LongAdder();
+
+    private final LongAdder removes = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Whether an operation has left the filter invalid, so that later operations that return
+     * {@code false} are not counted as new invalidations.
+     */
+    private final AtomicBoolean invalid = new AtomicBoolean();
+
+    /**
+     * Counts a query.
+     *
+     * @param result the result of the query.
+     * @return the result.
+     */
+    boolean query(final boolean result) {
+        if (result) {
+            positives.increment();
+        } else {
+            negatives.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Counts a batch of queries.
+     *
+     * @param count the number of queries.
+     * @param result the number of positive results.
+     * @return the number of positive results.
+     */
+    int queries(final int count, final int result) {
+        negatives.add(count - result);
+        positives.add(result);
+        return result;
+    }
+
+    void falsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Counts merges.
+     *
+     * @param count the number of merges.
+     * @param result the result of the merge.
+     * @return the result.
+     */
+    boolean merge(final int count, final boolean result) {
+        merges.add(count);
+        return checkValid(result);
+    }
+
+    /**
+     * Counts a remove.
+     *
+     * @param result the result of the remove.
+     * @return the result.
+     */
+    boolean remove(final boolean result) {
+        removes.increment();
+        return checkValid(result);
+    }
+
+    /**
+     * Counts the operation that makes the filter invalid, when a count first overflows or goes
+     * below zero.
+     *
+     * @param result the result of the operation.
+     * @return the result.
+     */
+    private boolean checkValid(final boolean result) {
+        if (!result && invalid.compareAndSet(false, true)) {
+            invalidations.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Resets the counts of merges and removes, which count the items in the filter, when the
+     * filter is cleared.
+     *
+     * @param valid {@code false} if the filter is an invalid counting filter after it is cleared.
+     */
+    void clear(final boolean valid) {
+        merges.reset();
+        removes.reset();
+        invalid.set(!valid);
+    }
+
+    void reset() {
+        negatives.reset();
+        positives.reset();
+        falsePositives.reset();
+        merges.reset();
+        removes.reset();
+        invalidations.reset();
+    }
+
+    /**
+     * Takes a snapshot of the counters and the state of a filter.
+     *
+     * @param filter the filter.
+     * @param valid {@code false} if the filter is an invalid counting filter.
+     * @param saturatedCounters the number of saturated counters of the filter.
+     * @return the snapshot.
+     */
+    BloomFilterStatistics snapshot(final BloomFilter filter, final boolean valid, final int saturatedCounters) {
+        final long positiveCount = positives.sum();
+        return new BloomFilterStatistics(filter.getShape(), filter.cardinality(), negatives.sum() + positiveCount,
+            positiveCount, falsePositives.sum(), merges.sum(), removes.sum(), invalidations.sum(), saturatedCounters,
+            valid);
+    }
+}
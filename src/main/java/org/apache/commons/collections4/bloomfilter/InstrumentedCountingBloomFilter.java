@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * A counting Bloom filter decorator that counts the queries, merges and removes made through it
+ * and reports them, with the fill ratio and false positive probabilities of the filter, as
+ * {@link BloomFilterStatistics}.
+ *
+ * <p>The operation that makes the filter invalid, because a count overflowed or went below zero,
+ * is counted as an invalidation. The saturated counters of a {@link CompactCountingBloomFilter}
+ * are reported too. {@code add} is counted as a merge and {@code subtract} as a remove.</p>
+ *
+ * <p>Every operation is passed to the decorated filter, so its own implementations are used. The
+ * counters are {@link java.util.concurrent.atomic.LongAdder}s: the decorator is as thread-safe as
+ * the decorated filter, and counting adds one atomic update to each operation.</p>
+ *
+ * <p>Callers that check positive results against the source of truth may report the false
+ * positives they find with {@link #recordFalsePositive()} to obtain the observed false positive
+ * probability.</p>
+ *
+ * @see InstrumentedBloomFilter
+ * @since 4.6
+ */
+public final class InstrumentedCountingBloomFilter implements CountingBloomFilter {
+
+    private final CountingBloomFilter filter;
+
+    private final Instrumentation instrumentation = new Instrumentation();
+
+    /**
+     * Constructs a decorator of a counting Bloom filter with all counts zero.
+     *
+     * @param filter the filter to decorate.
+     */
+    public InstrumentedCountingBloomFilter(final CountingBloomFilter filter) {
+        this.filter = Objects.requireNonNull(filter, "filter");
+    }
+
+    /**
+     * Gets the decorated filter. Operations on it are not counted.
+     *
+     * @return the decorated filter.
+     */
+    public CountingBloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Takes a snapshot of the counts and the current state of the filter.
+     *
+     * @return the statistics.
+     */
+    public BloomFilterStatistics getStatistics() {
+        final int saturatedCounters = filter instanceof CompactCountingBloomFilter
+            ? ((CompactCountingBloomFilter) filter).getSaturatedCount() : 0;
+        return instrumentation.snapshot(filter, filter.isValid(), saturatedCounters);
+    }
+
+    /**
+     * Records that a positive result of a query was found to be false.
+     */
+    public void recordFalsePositive() {
+        instrumentation.falsePositive();
+    }
+
+    /**
+     * Sets all the counts to zero. The filter is not changed.
+     */
+    public void resetStatistics() {
+        instrumentation.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The copy decorates a copy of the filter and has all counts zero.</p>
+     */
+    @Override
+    public InstrumentedCountingBloomFilter copy() {
+        return new InstrumentedCountingBloomFilter(filter.copy());
+    }
+
+    @Override
+    public boolean isValid() {
+        return filter.isValid();
+    }
+
+    @Override
+    public int characteristics() {
+        return filter.characteristics();
+    }
+
+    @Override
+    public Shape getShape() {
+        return filter.getShape();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The counts of merges and removes are reset, as the filter no longer holds the items they
+     * counted. The counts of queries are kept.</p>
+     */
+    @Override
+    public void clear() {
+        filter.clear();
+        instrumentation.clear(filter.isValid());
+    }
+
+    @Override
+    public boolean contains(final BloomFilter other) {
+        return instrumentation.query(filter.contains(other));
+    }
+
+    @Override
+    public boolean contains(final Hasher hasher) {
+        return instrumentation.query(filter.contains(hasher));
+    }
+
+    @Override
+    public int containsEach(final long[] initial, final long[] increment, final boolean[] results) {
+        return instrumentation.queries(initial.length, filter.containsEach(initial, increment, results));
+    }
+
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        return instrumentation.query(filter.contains(indexProducer));
+    }
+
+    @Override
+    public boolean contains(final BitMapProducer bitMapProducer) {
+        return instrumentation.query(filter.contains(bitMapProducer));
+    }
+
+    @Override
+    public boolean merge(final BloomFilter other) {
+        return instrumentation.merge(1, filter.merge(other));
+    }
+
+    @Override
+    public boolean merge(final Hasher hasher) {
+        return instrumentation.merge(1, filter.merge(hasher));
+    }
+
+    @Override
+    public boolean mergeAll(final long[] initial, final long[] increment) {
+        return instrumentation.merge(initial.length, filter.mergeAll(initial, increment));
+    }
+
+    @Override
+    public boolean merge(final IndexProducer indexProducer) {
+        return instrumentation.merge(1, filter.merge(indexProducer));
+    }
+
+    @Override
+    public boolean merge(final BitMapProducer bitMapProducer) {
+        return instrumentation.merge(1, filter.merge(bitMapProducer));
+    }
+
+    @Override
+    public boolean remove(final BloomFilter other) {
+        return instrumentation.remove(filter.remove(other));
+    }
+
+    @Override
+    public boolean remove(final Hasher hasher) {
+        return instrumentation.remove(filter.remove(hasher));
+    }
+
+    @Override
+    public boolean remove(final IndexProducer indexProducer) {
+        return instrumentation.remove(filter.remove(indexProducer));
+    }
+
+    @Override
+    public boolean remove(final BitMapProducer bitMapProducer) {
+        return instrumentation.remove(filter.remove(bitMapProducer));
+    }
+
+    @Override
+    public boolean add(final BitCountProducer other) {
+        return instrumentation.merge(1, filter.add(other));
+    }
+
+    @Override
+    public boolean subtract(final BitCountProducer other) {
+        return instrumentation.remove(filter.subtract(other));
+    }
+
+    @Override
+    public boolean forEachCount(final BitCountConsumer consumer) {
+        return filter.forEachCount(consumer);
+    }
+
+    @Override
+    public boolean isFull() {
+        return filter.isFull();
+    }
+
+    @Override
+    public int cardinality() {
+        return filter.cardinality();
+    }
+
+    @Override
+    public int estimateN() {
+        return filter.estimateN();
+    }
+
+    @Override
+    public int estimateUnion(final BloomFilter other) {
+        return filter.estimateUnion(other);
+    }
+
+    @Override
+    public int estimateIntersection(final BloomFilter other) {
+        return filter.estimateIntersection(other);
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate predicate) {
+        return filter.forEachIndex(predicate);
+    }
+
+    @Override
+    public int[] asIndexArray() {
+        return filter.asIndexArray();
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate predicate) {
+        return filter.forEachBitMap(predicate);
+    }
+
+    @Override
+    public boolean forEachBitMapPair(final BitMapProducer other, final LongBiPredicate func) {
+        return filter.forEachBitMapPair(other, func);
+    }
+
+    @Override
+    public long[] asBitMapArray() {
+        return filter.asBitMapArray();
+    }
+}
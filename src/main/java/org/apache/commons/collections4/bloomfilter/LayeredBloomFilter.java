@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A Bloom filter made of a bounded sequence of layers, each a {@link SimpleBloomFilter},
+ * that forgets old items by discarding whole layers.
+ *
+ * <p>Items are merged into the newest layer. A new layer is started when the newest layer
+ * has received {@code maxItemsPerLayer} merges, or when it is older than the layer
+ * duration, whichever comes first. When a new layer would exceed {@code maxLayers}, the
+ * oldest layer is discarded. When a layer duration is configured, layers older than
+ * {@code maxLayers} durations are discarded as well. Discarding a layer is a constant time
+ * operation, and the memory held never exceeds {@code maxLayers} filters of the
+ * {@link Shape}, however many items are merged.</p>
+ *
+ * <p>Each call to a {@code merge} method counts as one item. An item is reported by
+ * {@code contains} if any single layer contains it, so the filter answers "was this item
+ * merged within the window" for a window of between {@code maxLayers - 1} and
+ * {@code maxLayers} layers.</p>
+ *
+ * <p>The bit map and index views ({@link #forEachBitMap(LongPredicate)},
+ * {@link #forEachIndex(IntPredicate)}, {@link #cardinality()}) describe the union of the
+ * layers.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 4.6
+ */
+public final class LayeredBloomFilter implements BloomFilter {
+
+    /**
+     * A layer and the bookkeeping used to decide when to start the next one.
+     */
+    private static final class Layer {
+        final SimpleBloomFilter filter;
+        final long created;
+        int items;
+
+        Layer(final SimpleBloomFilter filter, final long created, final int items) {
+            this.filter = filter;
+            this.created = created;
+            this.items = items;
+        }
+
+        Layer copy() {
+            return new Layer(filter.copy(), created, items);
+        }
+    }
+
+    /**
+     * The Shape of each layer.
+     */
+    private final Shape shape;
+
+    /**
+     * The maximum number of layers.
+     */
+    private final int maxLayers;
+
+    /**
+     * The number of merges after which a new layer is started.
+     */
+    private final int maxItemsPerLayer;
+
+    /**
+     * The age in nanoseconds after which a new layer is started, or 0 for no time limit.
+     */
+    private final long layerDuration;
+
+    /**
+     * The source of {@link System#nanoTime()} style timestamps.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The layers, oldest first. Never empty.
+     */
+    private final ArrayDeque<Layer> layers;
+
+    /**
+     * Creates an empty filter that starts a new layer every {@code maxItemsPerLayer} merges.
+     *
+     * @param shape the shape of each layer.
+     * @param maxLayers the maximum number of layers.
+     * @param maxItemsPerLayer the number of merges held by each layer.
+     * @throws IllegalArgumentException if {@code maxLayers} or {@code maxItemsPerLayer} is less than 1.
+     */
+    public LayeredBloomFilter(final Shape shape, final int maxLayers, final int maxItemsPerLayer) {
+        this(shape, maxLayers, maxItemsPerLayer, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates an empty filter that starts a new layer every {@code maxItemsPerLayer} merges or
+     * every {@code layerDuration}, whichever comes first, and so remembers items for between
+     * {@code (maxLayers - 1) * layerDuration} and {@code maxLayers * layerDuration}.
+     *
+     * @param shape the shape of each layer.
+     * @param maxLayers the maximum number of layers.
+     * @param maxItemsPerLayer the number of merges held by each layer; {@link Integer#MAX_VALUE}
+     *        to rotate by time only.
+     * @param layerDuration the time span covered by each layer; 0 to rotate by count only.
+     * @param unit the unit of {@code layerDuration}.
+     * @throws IllegalArgumentException if {@code maxLayers} or {@code maxItemsPerLayer} is less
+     *         than 1, or {@code layerDuration} is negative.
+     */
+    public LayeredBloomFilter(final Shape shape, final int maxLayers, final int maxItemsPerLayer,
+            final long layerDuration, final TimeUnit unit) {
+        this(shape, maxLayers, maxItemsPerLayer, layerDuration, unit, System::nanoTime);
+    }
+
+    /**
+     * Creates an empty filter using the specified clock.
+     *
+     * @param shape the shape of each layer.
+     * @param maxLayers the maximum number of layers.
+     * @param maxItemsPerLayer the number of merges held by each layer.
+     * @param layerDuration the time span covered by each layer; 0 to rotate by count only.
+     * @param unit the unit of {@code layerDuration}.
+     * @param clock the source of nanosecond timestamps.
+     */
+    LayeredBloomFilter(final Shape shape, final int maxLayers, final int maxItemsPerLayer,
+            final long layerDuration, final TimeUnit unit, final LongSupplier clock) {
+        Objects.requireNonNull(shape, "shape");
+        Objects.requireNonNull(unit, "unit");
+        if (maxLayers < 1) {
+            throw new IllegalArgumentException("maxLayers must be at least 1: " + maxLayers);
+        }
+        if (maxItemsPerLayer < 1) {
+            throw new IllegalArgumentException("maxItemsPerLayer must be at least 1: " + maxItemsPerLayer);
+        }
+        if (layerDuration < 0) {
+            throw new IllegalArgumentException("layerDuration must not be negative: " + layerDuration);
+        }
+        this.shape = shape;
+        this.maxLayers = maxLayers;
+        this.maxItemsPerLayer = maxItemsPerLayer;
+        this.layerDuration = unit.toNanos(layerDuration);
+        this.clock = clock;
+        this.layers = new ArrayDeque<>(maxLayers);
+        layers.add(newLayer(clock.getAsLong()));
+    }
+
+    /**
+     * Copy constructor for {@code copy()} use.
+     * @param source
+     */
+    private LayeredBloomFilter(final LayeredBloomFilter source) {
+        this.shape = source.shape;
+        this.maxLayers = source.maxLayers;
+        this.maxItemsPerLayer = source.maxItemsPerLayer;
+        this.layerDuration = source.layerDuration;
+        this.clock = source.clock;
+        this.layers = new ArrayDeque<>(maxLayers);
+        for (final Layer layer : source.layers) {
+            layers.add(layer.copy());
+        }
+    }
+
+    private Layer newLayer(final long now) {
+        return new Layer(new SimpleBloomFilter(shape), now, 0);
+    }
+
+    /**
+     * Discards the layers that have outlived the window. Does nothing when rotating by count
+     * only. The newest layer is replaced by an empty one if it has expired.
+     *
+     * @param now the current time.
+     */
+    private void expire(final long now) {
+        if (layerDuration == 0) {
+            return;
+        }
+        final long window = layerDuration > Long.MAX_VALUE / maxLayers ? Long.MAX_VALUE : layerDuration * maxLayers;
+        while (now - layers.peekFirst().created >= window) {
+            layers.removeFirst();
+            if (layers.isEmpty()) {
+                layers.add(newLayer(now));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the layer to merge the next item into, starting a new layer if the newest is
+     * full or too old.
+     *
+     * @return the current layer.
+     */
+    private Layer target() {
+        final long now = clock.getAsLong();
+        expire(now);
+        final Layer last = layers.peekLast();
+        if (last.items >= maxItemsPerLayer || layerDuration != 0 && now - last.created >= layerDuration) {
+            return addLayer(now);
+        }
+        return last;
+    }
+
+    private Layer addLayer(final long now) {
+        if (layers.size() == maxLayers) {
+            layers.removeFirst();
+        }
+        final Layer layer = newLayer(now);
+        layers.addLast(layer);
+        return layer;
+    }
+
+    /**
+     * Starts a new, empty layer now, discarding the oldest if the maximum number of layers
+     * is reached.
+     */
+    public void next() {
+        addLayer(clock.getAsLong());
+    }
+
+    /**
+     * Discards the layers that have outlived the window. This happens on every
+     * {@code merge} and {@code contains}; call it to release memory while the filter is idle.
+     */
+    public void cleanup() {
+        expire(clock.getAsLong());
+    }
+
+    /**
+     * Gets the number of layers currently held, including the newest, possibly empty, layer.
+     *
+     * @return the number of layers.
+     */
+    public int getDepth() {
+        return layers.size();
+    }
+
+    /**
+     * Gets the layer at the specified depth, where 0 is the oldest layer.
+     *
+     * @param depth the depth of the layer.
+     * @return the layer; changes to it are reflected in this filter.
+     * @throws IndexOutOfBoundsException if {@code depth} is not in {@code [0, getDepth())}.
+     */
+    public BloomFilter get(final int depth) {
+        if (depth < 0 || depth >= layers.size()) {
+            throw new IndexOutOfBoundsException(String.format("Depth %s is not in [0,%s)", depth, layers.size()));
+        }
+        final Iterator<Layer> it = layers.iterator();
+        for (int i = 0; i < depth; i++) {
+            it.next();
+        }
+        return it.next().filter;
+    }
+
+    /**
+     * Applies the predicate to each layer, oldest first, until it returns {@code false}.
+     *
+     * @param predicate the predicate to apply.
+     * @return {@code false} if the predicate returned {@code false} for any layer.
+     */
+    public boolean forEachBloomFilter(final Predicate<BloomFilter> predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        for (final Layer layer : layers) {
+            if (!predicate.test(layer.filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a filter holding the union of the layers.
+     *
+     * @return a new filter.
+     */
+    public SimpleBloomFilter flatten() {
+        final SimpleBloomFilter result = new SimpleBloomFilter(shape);
+        for (final Layer layer : layers) {
+            result.merge((BitMapProducer) layer.filter);
+        }
+        return result;
+    }
+
+    @Override
+    public LayeredBloomFilter copy() {
+        return new LayeredBloomFilter(this);
+    }
+
+    @Override
+    public void clear() {
+        layers.clear();
+        layers.add(newLayer(clock.getAsLong()));
+    }
+
+    @Override
+    public int characteristics() {
+        return 0;
+    }
+
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public boolean merge(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        final Layer layer = target();
+        layer.filter.merge(indexProducer);
+        layer.items++;
+        return true;
+    }
+
+    @Override
+    public boolean merge(final BitMapProducer bitMapProducer) {
+        Objects.requireNonNull(bitMapProducer, "bitMapProducer");
+        final Layer layer = target();
+        layer.filter.merge(bitMapProducer);
+        layer.items++;
+        return true;
+    }
+
+    @Override
+    public boolean merge(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        return merge(hasher.indices(shape));
+    }
+
+    @Override
+    public boolean merge(final BloomFilter other) {
+        Objects.requireNonNull(other, "other");
+        final Layer layer = target();
+        layer.filter.merge(other);
+        layer.items++;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Returns {@code true} if any single layer contains all the indices.</p>
+     */
+    @Override
+    public boolean contains(final IndexProducer indexProducer) {
+        Objects.requireNonNull(indexProducer, "indexProducer");
+        cleanup();
+        // read the producer once, it is checked against each layer
+        final int[] indices = indexProducer.asIndexArray();
+        final IndexProducer producer = IndexProducer.fromIndexArray(indices);
+        final Iterator<Layer> it = layers.descendingIterator();
+        while (it.hasNext()) {
+            if (it.next().filter.contains(producer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Returns {@code true} if any single layer contains all the bits.</p>
+     */
+    @Override
+    public boolean contains(final BitMapProducer bitMapProducer) {
+        Objects.requireNonNull(bitMapProducer, "bitMapProducer");
+        cleanup();
+        final BitMapProducer producer = BitMapProducer.fromBitMapArray(bitMapProducer.asBitMapArray());
+        final Iterator<Layer> it = layers.descendingIterator();
+        while (it.hasNext()) {
+            if (it.next().filter.contains(producer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Returns {@code true} if any single layer contains the other filter.</p>
+     */
+    @Override
+    public boolean contains(final BloomFilter other) {
+        Objects.requireNonNull(other, "other");
+        return (other.characteristics() & SPARSE) != 0 ? contains((IndexProducer) other)
+            : contains((BitMapProducer) other);
+    }
+
+    @Override
+    public int cardinality() {
+        if (layers.size() == 1) {
+            return layers.peekFirst().filter.cardinality();
+        }
+        return SetOperations.cardinality(this);
+    }
+
+    @Override
+    public boolean forEachIndex(final IntPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return IndexProducer.fromBitMapProducer(this).forEachIndex(consumer);
+    }
+
+    @Override
+    public boolean forEachBitMap(final LongPredicate consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        if (layers.size() == 1) {
+            return layers.peekFirst().filter.forEachBitMap(consumer);
+        }
+        return flatten().forEachBitMap(consumer);
+    }
+
+    @Override
+    public long[] asBitMapArray() {
+        return flatten().asBitMapArray();
+    }
+}
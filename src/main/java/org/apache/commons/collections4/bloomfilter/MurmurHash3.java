@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Creates {@link EnhancedDoubleHasher}s from the 128-bit x64 variant of
+ * <a href="https://github.com/aappleby/smhasher">MurmurHash3</a> with a seed of zero.
+ *
+ * <p>The two 64-bit halves of the hash become the initial and increment values of the hasher, so
+ * {@code MurmurHash3.hasher(data)} produces the same indices as
+ * {@code new EnhancedDoubleHasher(h[0], h[1])} where {@code h} is the result of
+ * {@code org.apache.commons.codec.digest.MurmurHash3.hash128x64(data)}. The data is read in
+ * place: no intermediate arrays are created.</p>
+ *
+ * <p>This is a non-cryptographic hash and must not be used where an adversary controls the
+ * input and collisions matter.</p>
+ *
+ * @since 4.6
+ */
+public final class MurmurHash3 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int R1 = 31;
+    private static final int R2 = 27;
+    private static final int R3 = 33;
+    private static final int M = 5;
+    private static final int N1 = 0x52dce729;
+    private static final int N2 = 0x38495ab5;
+
+    /**
+     * Creates a hasher from all the bytes of an array.
+     *
+     * @param data the bytes to hash.
+     * @return the hasher.
+     */
+    public static EnhancedDoubleHasher hasher(final byte[] data) {
+        Objects.requireNonNull(data, "data");
+        return hasher(data, 0, data.length);
+    }
+
+    /**
+     * Creates a hasher from a range of bytes of an array.
+     *
+     * @param data the bytes to hash.
+     * @param offset the first byte to hash.
+     * @param length the number of bytes to hash.
+     * @return the hasher.
+     * @throws IndexOutOfBoundsException if the range is outside the array.
+     */
+    public static EnhancedDoubleHasher hasher(final byte[] data, final int offset, final int length) {
+        Objects.requireNonNull(data, "data");
+        if (offset < 0 || length < 0 || length > data.length - offset) {
+            throw new IndexOutOfBoundsException(String.format("Range [%s, %s + %s) is out of bounds for length %s",
+                    offset, offset, length, data.length));
+        }
+        long h1 = 0;
+        long h2 = 0;
+        final int blocks = length >> 4;
+        int index = offset;
+        if (blocks > 0) {
+            // a heap buffer reads whole longs, and the wrapper does not escape
+            final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < blocks; i++) {
+                final long k1 = buffer.getLong(index);
+                final long k2 = buffer.getLong(index + 8);
+                index += 16;
+                h1 ^= mixK1(k1);
+                h1 = (Long.rotateLeft(h1, R2) + h2) * M + N1;
+                h2 ^= mixK2(k2);
+                h2 = (Long.rotateLeft(h2, R1) + h1) * M + N2;
+            }
+        }
+        // tail: the remaining bytes, little-endian, in k1 then k2
+        final int remaining = length & 15;
+        if (remaining > 8) {
+            h2 ^= mixK2(getLittleEndianLong(data, index + 8, remaining - 8));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(getLittleEndianLong(data, index, Math.min(remaining, 8)));
+        }
+        return finish(h1, h2, length);
+    }
+
+    /**
+     * Creates a hasher from the remaining bytes of a buffer. The position, limit and byte order of
+     * the buffer are not changed. Heap and direct buffers are read in place.
+     *
+     * @param data the bytes to hash, from the position to the limit.
+     * @return the hasher.
+     */
+    public static EnhancedDoubleHasher hasher(final ByteBuffer data) {
+        Objects.requireNonNull(data, "data");
+        final boolean reverse = data.order() != ByteOrder.LITTLE_ENDIAN;
+        final int offset = data.position();
+        final int length = data.remaining();
+        long h1 = 0;
+        long h2 = 0;
+        final int blocks = length >> 4;
+        int index = offset;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = data.getLong(index);
+            long k2 = data.getLong(index + 8);
+            if (reverse) {
+                k1 = Long.reverseBytes(k1);
+                k2 = Long.reverseBytes(k2);
+            }
+            index += 16;
+            h1 ^= mixK1(k1);
+            h1 = (Long.rotateLeft(h1, R2) + h2) * M + N1;
+            h2 ^= mixK2(k2);
+            h2 = (Long.rotateLeft(h2, R1) + h1) * M + N2;
+        }
+        final int remaining = length & 15;
+        if (remaining > 8) {
+            h2 ^= mixK2(getLittleEndianLong(data, index + 8, remaining - 8));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(getLittleEndianLong(data, index, Math.min(remaining, 8)));
+        }
+        return finish(h1, h2, length);
+    }
+
+    /**
+     * Creates a hasher from the characters of a sequence.
+     *
+     * <p>Each {@code char} is hashed as two bytes in little-endian order, so the result is that of
+     * hashing {@code chars.toString().getBytes(StandardCharsets.UTF_16LE)}. The characters are
+     * not encoded to UTF-8 first; the indices therefore differ from those of hashing the UTF-8
+     * bytes of the same string.</p>
+     *
+     * @param chars the characters to hash.
+     * @return the hasher.
+     */
+    public static EnhancedDoubleHasher hasher(final CharSequence chars) {
+        Objects.requireNonNull(chars, "chars");
+        final int count = chars.length();
+        long h1 = 0;
+        long h2 = 0;
+        // 8 chars per 16 byte block
+        final int blocks = count >> 3;
+        int index = 0;
+        for (int i = 0; i < blocks; i++) {
+            final long k1 = chars.charAt(index)
+                | (long) chars.charAt(index + 1) << 16
+                | (long) chars.charAt(index + 2) << 32
+                | (long) chars.charAt(index + 3) << 48;
+            final long k2 = chars.charAt(index + 4)
+                | (long) chars.charAt(index + 5) << 16
+                | (long) chars.charAt(index + 6) << 32
+                | (long) chars.charAt(index + 7) << 48;
+            index += 8;
+            h1 ^= mixK1(k1);
+            h1 = (Long.rotateLeft(h1, R2) + h2) * M + N1;
+            h2 ^= mixK2(k2);
+            h2 = (Long.rotateLeft(h2, R1) + h1) * M + N2;
+        }
+        final int remaining = count & 7;
+        if (remaining > 4) {
+            h2 ^= mixK2(getLittleEndianLong(chars, index + 4, remaining - 4));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(getLittleEndianLong(chars, index, Math.min(remaining, 4)));
+        }
+        return finish(h1, h2, count * 2);
+    }
+
+    /**
+     * Creates a hasher from the eight bytes of a {@code long} in little-endian order.
+     *
+     * @param value the value to hash.
+     * @return the hasher.
+     */
+    public static EnhancedDoubleHasher hasher(final long value) {
+        return finish(mixK1(value), 0, Long.BYTES);
+    }
+
+    /**
+     * Creates a hasher from the four bytes of an {@code int} in little-endian order.
+     *
+     * @param value the value to hash.
+     * @return the hasher.
+     */
+    public static EnhancedDoubleHasher hasher(final int value) {
+        return finish(mixK1(value & 0xffffffffL), 0, Integer.BYTES);
+    }
+
+    private static long mixK1(final long k1) {
+        return Long.rotateLeft(k1 * C1, R1) * C2;
+    }
+
+    private static long mixK2(final long k2) {
+        return Long.rotateLeft(k2 * C2, R3) * C1;
+    }
+
+    /**
+     * Applies the final mix to the hash state and creates the hasher.
+     *
+     * @param h1 the first half of the state.
+     * @param h2 the second half of the state.
+     * @param length the number of bytes hashed.
+     * @return the hasher.
+     */
+    private static EnhancedDoubleHasher finish(long h1, long h2, final int length) {
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new EnhancedDoubleHasher(h1, h2);
+    }
+
+    private static long fmix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long getLittleEndianLong(final byte[] data, final int index, final int length) {
+        long result = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            result = result << 8 | data[index + i] & 0xffL;
+        }
+        return result;
+    }
+
+    private static long getLittleEndianLong(final ByteBuffer data, final int index, final int length) {
+        long result = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            result = result << 8 | data.get(index + i) & 0xffL;
+        }
+        return result;
+    }
+
+    private static long getLittleEndianLong(final CharSequence chars, final int index, final int length) {
+        long result = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            result = result << 16 | chars.charAt(index + i);
+        }
+        return result;
+    }
+
+    /**
+     * Do not instantiate.
+     */
+    private MurmurHash3() {
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A Bloom filter that grows as items are added, so its capacity need not be known in advance.
+ *
+ * <p>The filter is a chain of {@link SimpleBloomFilter}s. Items are added to the newest
+ * sub-filter; once it holds the number of items its shape was designed for a new sub-filter is
+ * started, with {@code growthFactor} times the capacity and {@code tighteningRatio} times the
+ * false positive probability of the previous one. An item is present if any sub-filter contains it.
+ * With a first sub-filter probability of {@code p * (1 - tighteningRatio)} the probabilities of
+ * the sub-filters sum to less than {@code p}, so the false positive probability of the whole filter
+ * stays below {@code p} however many items are added.</p>
+ *
+ * <p>Each sub-filter has its own shape, so items are described by a {@link Hasher} that is asked
+ * for the indices of every shape. An item that the filter already appears to contain is not added
+ * again, so repeated items do not use up capacity. The fill of each sub-filter is tracked by
+ * counting the items added to it, which equals its {@link BloomFilter#estimateN() estimateN()}
+ * without the cost of counting its bits after every addition.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @see LayeredBloomFilter
+ * @since 4.6
+ */
+public final class ScalableBloomFilter {
+
+    /**
+     * The default factor by which the capacity of each sub-filter exceeds that of the previous one.
+     */
+    public static final int DEFAULT_GROWTH_FACTOR = 2;
+
+    /**
+     * The default factor by which the false positive probability of each sub-filter is below that
+     * of the previous one. Ratios of 0.8 to 0.9 use the fewest bits per item when the filter grows
+     * to many sub-filters.
+     */
+    public static final double DEFAULT_TIGHTENING_RATIO = 0.8;
+
+    /**
+     * A sub-filter and the items added to it.
+     */
+    private static final class Layer {
+        private final SimpleBloomFilter filter;
+        private final int capacity;
+        private final double probability;
+        private int count;
+
+        Layer(final int capacity, final double probability) {
+            this.filter = new SimpleBloomFilter(Shape.fromNP(capacity, probability));
+            this.capacity = capacity;
+            this.probability = probability;
+        }
+
+        Layer(final Layer source) {
+            this.filter = source.filter.copy();
+            this.capacity = source.capacity;
+            this.probability = source.probability;
+            this.count = source.count;
+        }
+    }
+
+    private final int initialCapacity;
+
+    private final double probability;
+
+    private final int growthFactor;
+
+    private final double tighteningRatio;
+
+    private final List<Layer> layers;
+
+    /**
+     * The newest layer, which items are added to.
+     */
+    private Layer active;
+
+    private long size;
+
+    /**
+     * Creates an empty filter with the {@link #DEFAULT_GROWTH_FACTOR} and the
+     * {@link #DEFAULT_TIGHTENING_RATIO}.
+     *
+     * @param initialCapacity the number of items the first sub-filter holds.
+     * @param probability the bound of the false positive probability of the filter.
+     * @throws IllegalArgumentException if {@code initialCapacity < 1} or if {@code probability} is not
+     * in the range {@code (0, 1)}.
+     */
+    public ScalableBloomFilter(final int initialCapacity, final double probability) {
+        this(initialCapacity, probability, DEFAULT_GROWTH_FACTOR, DEFAULT_TIGHTENING_RATIO);
+    }
+
+    /**
+     * Creates an empty filter.
+     *
+     * <p>A larger growth factor needs fewer sub-filters, and so fewer lookups, for a number of items
+     * but leaves more of the newest sub-filter unused. A smaller tightening ratio needs fewer bits per
+     * item in the first sub-filters and more in later ones.</p>
+     *
+     * @param initialCapacity the number of items the first sub-filter holds.
+     * @param probability the bound of the false positive probability of the filter.
+     * @param growthFactor the factor by which the capacity of each sub-filter exceeds that of the
+     * previous one.
+     * @param tighteningRatio the factor by which the false positive probability of each sub-filter is
+     * below that of the previous one.
+     * @throws IllegalArgumentException if {@code initialCapacity < 1}, if {@code probability} or
+     * {@code tighteningRatio} is not in the range {@code (0, 1)}, or if {@code growthFactor < 1}.
+     */
+    public ScalableBloomFilter(final int initialCapacity, final double probability, final int growthFactor,
+            final double tighteningRatio) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be greater than 0: " + initialCapacity);
+        }
+        // Negated to catch NaN
+        if (!(probability > 0 && probability < 1)) {
+            throw new IllegalArgumentException("Probability must be greater than 0 and less than 1: " + probability);
+        }
+        if (growthFactor < 1) {
+            throw new IllegalArgumentException("Growth factor must be greater than 0: " + growthFactor);
+        }
+        if (!(tighteningRatio > 0 && tighteningRatio < 1)) {
+            throw new IllegalArgumentException(
+                "Tightening ratio must be greater than 0 and less than 1: " + tighteningRatio);
+        }
+        this.initialCapacity = initialCapacity;
+        this.probability = probability;
+        this.growthFactor = growthFactor;
+        this.tighteningRatio = tighteningRatio;
+        this.layers = new ArrayList<>();
+        clear();
+    }
+
+    /**
+     * Copy constructor for {@code copy()} use.
+     * @param source
+     */
+    private ScalableBloomFilter(final ScalableBloomFilter source) {
+        this.initialCapacity = source.initialCapacity;
+        this.probability = source.probability;
+        this.growthFactor = source.growthFactor;
+        this.tighteningRatio = source.tighteningRatio;
+        this.layers = new ArrayList<>(source.layers.size());
+        for (final Layer layer : source.layers) {
+            layers.add(new Layer(layer));
+        }
+        this.active = layers.get(layers.size() - 1);
+        this.size = source.size;
+    }
+
+    /**
+     * Creates a copy of this filter.
+     *
+     * @return a copy of this filter.
+     */
+    public ScalableBloomFilter copy() {
+        return new ScalableBloomFilter(this);
+    }
+
+    /**
+     * Gets the number of items the first sub-filter holds.
+     *
+     * @return the initial capacity.
+     */
+    public int getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    /**
+     * Gets the factor by which the capacity of each sub-filter exceeds that of the previous one.
+     *
+     * @return the growth factor.
+     */
+    public int getGrowthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * Gets the factor by which the false positive probability of each sub-filter is below that of
+     * the previous one.
+     *
+     * @return the tightening ratio.
+     */
+    public double getTighteningRatio() {
+        return tighteningRatio;
+    }
+
+    /**
+     * Gets the bound of the false positive probability of the filter.
+     *
+     * @return the probability the filter was created with.
+     */
+    public double getMaximumProbability() {
+        return probability;
+    }
+
+    /**
+     * Gets the false positive probability of the filter for the items added: the probability that
+     * at least one sub-filter contains an absent item. This is always below
+     * {@link #getMaximumProbability()}.
+     *
+     * @return the false positive probability.
+     */
+    public double getProbability() {
+        double absent = 1;
+        for (final Layer layer : layers) {
+            absent *= 1 - layer.filter.getShape().getProbability(layer.count);
+        }
+        return 1 - absent;
+    }
+
+    /**
+     * Gets the number of sub-filters.
+     *
+     * @return the number of sub-filters, at least 1.
+     */
+    public int getDepth() {
+        return layers.size();
+    }
+
+    /**
+     * Gets the shape of the sub-filter that items are added to.
+     *
+     * @return the shape of the newest sub-filter.
+     */
+    public Shape getShape() {
+        return active.filter.getShape();
+    }
+
+    /**
+     * Gets the number of items added, not counting those that the filter already appeared to
+     * contain.
+     *
+     * @return the number of items.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if no items have been added.
+     *
+     * @return true if the filter is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Estimates the number of items in the filter from the enabled bits of each sub-filter. This
+     * counts the bits of every sub-filter.
+     *
+     * @return the estimated number of items.
+     * @see BloomFilter#estimateN()
+     */
+    public long estimateN() {
+        long n = 0;
+        for (final Layer layer : layers) {
+            n += layer.filter.estimateN();
+        }
+        return n;
+    }
+
+    /**
+     * Removes all items and sub-filters, leaving a single empty sub-filter of the initial capacity.
+     */
+    public void clear() {
+        layers.clear();
+        active = new Layer(initialCapacity, probability * (1 - tighteningRatio));
+        layers.add(active);
+        size = 0;
+    }
+
+    /**
+     * Adds an item. The item is not added if the filter already contains it, or appears to.
+     *
+     * @param hasher the hasher describing the item.
+     * @return {@code true} if the item was added, {@code false} if the filter already contained it.
+     * @throws IllegalArgumentException if a new sub-filter is needed and its shape would have more
+     * than {@code Integer.MAX_VALUE} bits.
+     */
+    public boolean add(final Hasher hasher) {
+        if (contains(hasher)) {
+            return false;
+        }
+        if (active.count >= active.capacity) {
+            final int capacity = (int) Math.min(Integer.MAX_VALUE, (long) active.capacity * growthFactor);
+            active = new Layer(capacity, active.probability * tighteningRatio);
+            layers.add(active);
+        }
+        active.filter.merge(hasher);
+        active.count++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if any sub-filter contains the item.
+     *
+     * @param hasher the hasher describing the item.
+     * @return {@code true} if the item may have been added, {@code false} if it was not.
+     */
+    public boolean contains(final Hasher hasher) {
+        Objects.requireNonNull(hasher, "hasher");
+        // the newest sub-filters are the largest and hold most of the items
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).filter.contains(hasher)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Processes the sub-filters, oldest first, until the predicate returns {@code false}. Changes
+     * made to a sub-filter through the predicate are not reflected in {@link #size()}.
+     *
+     * @param bloomFilterPredicate the predicate to apply to each sub-filter.
+     * @return {@code false} if the predicate returned {@code false}.
+     */
+    public boolean forEachBloomFilter(final Predicate<BloomFilter> bloomFilterPredicate) {
+        for (final Layer layer : layers) {
+            if (!bloomFilterPredicate.test(layer.filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -16,15 +16,195 @@
  */
 package org.apache.commons.collections4.bloomfilter;
 
+import java.util.List;
+import java.util.Objects;
 import java.util.function.LongBinaryOperator;
 
 /**
  * Implementations of set operations on BitMapProducers.
  *
+ * <p>When both operands are filters that hold their bit maps in an array, such as
+ * {@link SimpleBloomFilter} and {@link BlockedBloomFilter}, the operations read the arrays in
+ * place in simple loops that the JIT compiler can unroll, rather than visiting each pair of bit
+ * maps through a callback.</p>
+ *
  * @since 4.5
  */
 public final class SetOperations {
 
+    /**
+     * Gets the bit maps of a producer that holds them in an array, without copying them.
+     *
+     * @param producer the producer.
+     * @return the bit maps, or {@code null} if the producer does not hold them in an array.
+     */
+    private static long[] getBitMaps(final BitMapProducer producer) {
+        if (producer instanceof SimpleBloomFilter) {
+            return ((SimpleBloomFilter) producer).getBitMaps();
+        }
+        if (producer instanceof BlockedBloomFilter) {
+            return ((BlockedBloomFilter) producer).getBitMaps();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the bit maps of a producer, copying them only if the producer does not hold them in
+     * an array.
+     *
+     * @param producer the producer.
+     * @return the bit maps, which must not be modified.
+     */
+    private static long[] getBitMapsOrCopy(final BitMapProducer producer) {
+        final long[] bitMaps = getBitMaps(producer);
+        return bitMaps == null ? producer.asBitMapArray() : bitMaps;
+    }
+
+    /**
+     * Counts the enabled bits of the bit maps from an index onwards.
+     *
+     * @param x the bit maps.
+     * @param from the first bit map to count.
+     * @return the number of enabled bits.
+     */
+    private static int cardinality(final long[] x, final int from) {
+        // independent sums so that consecutive bit counts do not wait on each other
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = from;
+        for (; i < x.length - 3; i += 4) {
+            c0 += Long.bitCount(x[i]);
+            c1 += Long.bitCount(x[i + 1]);
+            c2 += Long.bitCount(x[i + 2]);
+            c3 += Long.bitCount(x[i + 3]);
+        }
+        for (; i < x.length; i++) {
+            c0 += Long.bitCount(x[i]);
+        }
+        return c0 + c1 + c2 + c3;
+    }
+
+    /**
+     * Calculates the cardinality of the {@code AND} of two arrays of bit maps. Missing bit maps
+     * of the shorter array are zero.
+     *
+     * @param x the first bit maps.
+     * @param y the second bit maps.
+     * @return the cardinality of the {@code AND}.
+     */
+    private static int andCardinality(final long[] x, final long[] y) {
+        final int length = Math.min(x.length, y.length);
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = 0;
+        for (; i < length - 3; i += 4) {
+            c0 += Long.bitCount(x[i] & y[i]);
+            c1 += Long.bitCount(x[i + 1] & y[i + 1]);
+            c2 += Long.bitCount(x[i + 2] & y[i + 2]);
+            c3 += Long.bitCount(x[i + 3] & y[i + 3]);
+        }
+        for (; i < length; i++) {
+            c0 += Long.bitCount(x[i] & y[i]);
+        }
+        return c0 + c1 + c2 + c3;
+    }
+
+    /**
+     * Calculates the cardinality of the {@code OR} of two arrays of bit maps. Missing bit maps
+     * of the shorter array are zero.
+     *
+     * @param x the first bit maps.
+     * @param y the second bit maps.
+     * @return the cardinality of the {@code OR}.
+     */
+    private static int orCardinality(final long[] x, final long[] y) {
+        final int length = Math.min(x.length, y.length);
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = 0;
+        for (; i < length - 3; i += 4) {
+            c0 += Long.bitCount(x[i] | y[i]);
+            c1 += Long.bitCount(x[i + 1] | y[i + 1]);
+            c2 += Long.bitCount(x[i + 2] | y[i + 2]);
+            c3 += Long.bitCount(x[i + 3] | y[i + 3]);
+        }
+        for (; i < length; i++) {
+            c0 += Long.bitCount(x[i] | y[i]);
+        }
+        return c0 + c1 + c2 + c3 + cardinality(x.length > length ? x : y, length);
+    }
+
+    /**
+     * Calculates the cardinality of the {@code XOR} of two arrays of bit maps. Missing bit maps
+     * of the shorter array are zero.
+     *
+     * @param x the first bit maps.
+     * @param y the second bit maps.
+     * @return the cardinality of the {@code XOR}.
+     */
+    private static int xorCardinality(final long[] x, final long[] y) {
+        final int length = Math.min(x.length, y.length);
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = 0;
+        for (; i < length - 3; i += 4) {
+            c0 += Long.bitCount(x[i] ^ y[i]);
+            c1 += Long.bitCount(x[i + 1] ^ y[i + 1]);
+            c2 += Long.bitCount(x[i + 2] ^ y[i + 2]);
+            c3 += Long.bitCount(x[i + 3] ^ y[i + 3]);
+        }
+        for (; i < length; i++) {
+            c0 += Long.bitCount(x[i] ^ y[i]);
+        }
+        return c0 + c1 + c2 + c3 + cardinality(x.length > length ? x : y, length);
+    }
+
+    /**
+     * Calculates the Jaccard similarity of two arrays of bit maps in one pass. Missing bit maps
+     * of the shorter array are zero.
+     *
+     * @param x the first bit maps.
+     * @param y the second bit maps.
+     * @return the Jaccard similarity.
+     */
+    private static double jaccardSimilarity(final long[] x, final long[] y) {
+        final int length = Math.min(x.length, y.length);
+        int and0 = 0;
+        int and1 = 0;
+        int and2 = 0;
+        int and3 = 0;
+        int or0 = 0;
+        int or1 = 0;
+        int or2 = 0;
+        int or3 = 0;
+        int i = 0;
+        for (; i < length - 3; i += 4) {
+            and0 += Long.bitCount(x[i] & y[i]);
+            and1 += Long.bitCount(x[i + 1] & y[i + 1]);
+            and2 += Long.bitCount(x[i + 2] & y[i + 2]);
+            and3 += Long.bitCount(x[i + 3] & y[i + 3]);
+            or0 += Long.bitCount(x[i] | y[i]);
+            or1 += Long.bitCount(x[i + 1] | y[i + 1]);
+            or2 += Long.bitCount(x[i + 2] | y[i + 2]);
+            or3 += Long.bitCount(x[i + 3] | y[i + 3]);
+        }
+        for (; i < length; i++) {
+            and0 += Long.bitCount(x[i] & y[i]);
+            or0 += Long.bitCount(x[i] | y[i]);
+        }
+        final int intersection = and0 + and1 + and2 + and3;
+        return intersection == 0 ? 0
+            : intersection / (double) (or0 + or1 + or2 + or3 + cardinality(x.length > length ? x : y, length));
+    }
+
     /**
      * Calculates the cardinality of the result of a LongBinaryOperator using the
      * {@code BitMapProducer.makePredicate} method.
@@ -50,6 +230,10 @@ public final class SetOperations {
      * @return the cardinality of the bit maps produced by the producer.
      */
     public static int cardinality(final BitMapProducer producer) {
+        final long[] bitMaps = getBitMaps(producer);
+        if (bitMaps != null) {
+            return cardinality(bitMaps, 0);
+        }
         final int[] cardinality = new int[1];
         producer.forEachBitMap(l -> {
             cardinality[0] += Long.bitCount(l);
@@ -65,6 +249,11 @@ public final class SetOperations {
      * @return the cardinality of the {@code AND} of the filters.
      */
     public static int andCardinality(final BitMapProducer first, final BitMapProducer second) {
+        final long[] firstBitMaps = getBitMaps(first);
+        final long[] secondBitMaps = getBitMaps(second);
+        if (firstBitMaps != null && secondBitMaps != null) {
+            return andCardinality(firstBitMaps, secondBitMaps);
+        }
         return cardinality(first, second, (x, y) -> x & y);
     }
 
@@ -75,6 +264,11 @@ public final class SetOperations {
      * @return the cardinality of the {@code OR} of the filters.
      */
     public static int orCardinality(final BitMapProducer first, final BitMapProducer second) {
+        final long[] firstBitMaps = getBitMaps(first);
+        final long[] secondBitMaps = getBitMaps(second);
+        if (firstBitMaps != null && secondBitMaps != null) {
+            return orCardinality(firstBitMaps, secondBitMaps);
+        }
         return cardinality(first, second, (x, y) -> x | y);
     }
 
@@ -85,6 +279,11 @@ public final class SetOperations {
      * @return the cardinality of the {@code XOR} of the filters.
      */
     public static int xorCardinality(final BitMapProducer first, final BitMapProducer second) {
+        final long[] firstBitMaps = getBitMaps(first);
+        final long[] secondBitMaps = getBitMaps(second);
+        if (firstBitMaps != null && secondBitMaps != null) {
+            return xorCardinality(firstBitMaps, secondBitMaps);
+        }
         return cardinality(first, second, (x, y) -> x ^ y);
     }
 
@@ -173,6 +372,11 @@ public final class SetOperations {
      * @return the Jaccard similarity.
      */
     public static double jaccardSimilarity(final BitMapProducer first, final BitMapProducer second) {
+        final long[] firstBitMaps = getBitMaps(first);
+        final long[] secondBitMaps = getBitMaps(second);
+        if (firstBitMaps != null && secondBitMaps != null) {
+            return jaccardSimilarity(firstBitMaps, secondBitMaps);
+        }
         final int[] cardinality = new int[2];
         first.forEachBitMapPair(second, (x, y) -> {
             cardinality[0] += Long.bitCount(x & y);
@@ -183,6 +387,65 @@ public final class SetOperations {
         return intersection == 0 ? 0 : intersection / (double) cardinality[1];
     }
 
+    /**
+     * Calculates the Cosine similarity between a query Bloom filter and each of a list of Bloom
+     * filters.
+     *
+     * <p>The results are those of {@link #cosineSimilarity(BloomFilter, BloomFilter)} for each
+     * candidate, but the bit maps and cardinality of the query are only read once. This suits a
+     * nearest-neighbour search over many filters.</p>
+     *
+     * @param query the query Bloom filter.
+     * @param candidates the Bloom filters to compare with the query.
+     * @return the Cosine similarity of the query with each candidate, in the order of the list.
+     * @since 4.6
+     */
+    public static double[] cosineSimilarity(final BloomFilter query, final List<? extends BloomFilter> candidates) {
+        Objects.requireNonNull(query, "query");
+        Objects.requireNonNull(candidates, "candidates");
+        final long[] queryBitMaps = getBitMapsOrCopy(query);
+        final BitMapProducer queryProducer = BitMapProducer.fromBitMapArray(queryBitMaps);
+        final double queryCardinality = query.cardinality();
+        final double[] result = new double[candidates.size()];
+        int i = 0;
+        for (final BloomFilter candidate : candidates) {
+            final long[] bitMaps = getBitMaps(candidate);
+            final int numerator = bitMaps == null ? andCardinality(queryProducer, candidate)
+                : andCardinality(queryBitMaps, bitMaps);
+            result[i++] = numerator == 0 ? 0 : numerator / Math.sqrt(queryCardinality * candidate.cardinality());
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the Jaccard similarity between a query BitMapProducer and each of a list of
+     * BitMapProducers.
+     *
+     * <p>The results are those of {@link #jaccardSimilarity(BitMapProducer, BitMapProducer)} for
+     * each candidate, but the bit maps of the query are only read once. This suits a
+     * nearest-neighbour search over many filters.</p>
+     *
+     * @param query the query BitMapProducer.
+     * @param candidates the BitMapProducers to compare with the query.
+     * @return the Jaccard similarity of the query with each candidate, in the order of the list.
+     * @since 4.6
+     */
+    public static double[] jaccardSimilarity(final BitMapProducer query,
+            final List<? extends BitMapProducer> candidates) {
+        Objects.requireNonNull(query, "query");
+        Objects.requireNonNull(candidates, "candidates");
+        final long[] queryBitMaps = getBitMapsOrCopy(query);
+        final BitMapProducer queryProducer = BitMapProducer.fromBitMapArray(queryBitMaps);
+        final double[] result = new double[candidates.size()];
+        int i = 0;
+        for (final BitMapProducer candidate : candidates) {
+            final long[] bitMaps = getBitMaps(candidate);
+            result[i++] = bitMaps == null ? jaccardSimilarity(queryProducer, candidate)
+                : jaccardSimilarity(queryBitMaps, bitMaps);
+        }
+        return result;
+    }
+
     /**
      * Do not instantiate.
      */
@@ -184,6 +184,64 @@ public final class Shape {
                 numberOfHashFunctions);
     }
 
+    /**
+     * Calculates the probability of false positives ({@code p}) of a blocked Bloom filter with this
+     * shape, in which all the bits of an item are enabled within a single block of
+     * {@code bitsPerBlock} bits, given numberOfItems ({@code n}).
+     *
+     * <p>The items are spread over {@code b = m / bitsPerBlock} blocks, so the number of items that
+     * share a block follows a Poisson distribution with mean {@code n / b}. The probability is the
+     * false-positive probability of a block averaged over that distribution:</p>
+     * <pre>p = sum_i Poisson(i; n / b) * pow(1 - pow(1 - 1 / bitsPerBlock, k * i), k)</pre>
+     *
+     * <p>This is higher than {@link #getProbability(int)} for the same shape, as the blocks that
+     * receive more than the average number of items contribute more false positives than the
+     * others save.</p>
+     *
+     * @param numberOfItems the number of items hashed into the Bloom filter.
+     * @param bitsPerBlock the number of bits in each block.
+     * @return the probability of false positives.
+     * @throws IllegalArgumentException if {@code numberOfItems < 0} or {@code bitsPerBlock} is not in
+     * the range {@code [1, numberOfBits]}.
+     * @see BlockedBloomFilter
+     * @since 4.6
+     */
+    public double getBlockedProbability(final int numberOfItems, final int bitsPerBlock) {
+        if (numberOfItems < 0) {
+            throw new IllegalArgumentException("Number of items must be greater than or equal to 0: " + numberOfItems);
+        }
+        if (bitsPerBlock < 1 || bitsPerBlock > numberOfBits) {
+            throw new IllegalArgumentException(String.format("Bits per block must be in the range [1, %s]: %s",
+                    numberOfBits, bitsPerBlock));
+        }
+        if (numberOfItems == 0) {
+            return 0;
+        }
+        final double lambda = (double) numberOfItems * bitsPerBlock / numberOfBits;
+        // k * ln(1 - 1 / bitsPerBlock): a block holding i items has a bit still clear with
+        // probability exp(i * logClear)
+        final double logClear = numberOfHashFunctions * Math.log1p(-1.0 / bitsPerBlock);
+        // Sum outwards from the mode with weights relative to it, so that large means neither
+        // underflow exp(-lambda) nor require summing from zero. Normalising by the total weight
+        // accounts for the truncated tails.
+        final int mode = (int) lambda;
+        double total = 0;
+        double sum = 0;
+        double weight = 1;
+        for (int i = mode; weight > 1e-20; i++) {
+            total += weight;
+            sum += weight * Math.pow(-Math.expm1(i * logClear), numberOfHashFunctions);
+            weight *= lambda / (i + 1);
+        }
+        weight = 1;
+        for (int i = mode; i > 0 && weight > 1e-20; i--) {
+            weight *= i / lambda;
+            total += weight;
+            sum += weight * Math.pow(-Math.expm1((i - 1) * logClear), numberOfHashFunctions);
+        }
+        return sum / total;
+    }
+
     @Override
     public String toString() {
         return String.format("Shape[k=%s m=%s]", numberOfHashFunctions, numberOfBits);
@@ -379,6 +437,86 @@ public final class Shape {
         return shape;
     }
 
+    /**
+     * Constructs the smallest configuration for a blocked Bloom filter, with blocks of
+     * {@code bitsPerBlock} bits, whose {@link #getBlockedProbability(int, int) blocked probability}
+     * for the specified number of items ({@code n}) does not exceed the desired probability.
+     *
+     * <p>The number of bits ({@code m}) is a multiple of {@code bitsPerBlock}, and the number of
+     * hash functions ({@code k}) is the one with the lowest blocked probability for those bits.
+     * A blocked filter needs more bits than {@link #fromNP(int, double)} for the same probability;
+     * the difference grows as the desired probability decreases.</p>
+     *
+     * @param numberOfItems Number of items to be placed in the filter
+     * @param probability The desired false-positive probability in the range {@code (0, 1)}
+     * @param bitsPerBlock the number of bits in each block.
+     * @return a valid Shape
+     * @throws IllegalArgumentException if {@code numberOfItems < 1}, if the desired probability
+     * is not in the range {@code (0, 1)}, if {@code bitsPerBlock < 1} or if the filter would need more
+     * than {@code Integer.MAX_VALUE} bits.
+     * @see BlockedBloomFilter
+     * @since 4.6
+     */
+    public static Shape fromNPBlocked(final int numberOfItems, final double probability, final int bitsPerBlock) {
+        checkNumberOfItems(numberOfItems);
+        checkProbability(probability);
+        if (bitsPerBlock < 1) {
+            throw new IllegalArgumentException("Bits per block must be greater than 0: " + bitsPerBlock);
+        }
+        // an unblocked filter is the lower bound
+        final double m = Math.ceil(numberOfItems * Math.log(probability) / DENOMINATOR);
+        long low = Math.max(1, (long) Math.ceil(m / bitsPerBlock)) - 1;
+        // grow until the probability is met, then search back for the fewest blocks
+        long high = low + 1;
+        Shape shape = blockedShape(numberOfItems, high, bitsPerBlock);
+        while (shape.getBlockedProbability(numberOfItems, bitsPerBlock) > probability) {
+            low = high;
+            high += Math.max(1, high >> 3);
+            shape = blockedShape(numberOfItems, high, bitsPerBlock);
+        }
+        while (high - low > 1) {
+            final long mid = (low + high) >>> 1;
+            final Shape candidate = blockedShape(numberOfItems, mid, bitsPerBlock);
+            if (candidate.getBlockedProbability(numberOfItems, bitsPerBlock) > probability) {
+                low = mid;
+            } else {
+                high = mid;
+                shape = candidate;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Creates the blocked shape with the specified number of blocks and the number of hash
+     * functions that minimizes the blocked probability.
+     *
+     * @param numberOfItems the number of items in the filter.
+     * @param blocks the number of blocks.
+     * @param bitsPerBlock the number of bits in each block.
+     * @return the shape.
+     * @throws IllegalArgumentException if the filter would need more than {@code Integer.MAX_VALUE} bits.
+     */
+    private static Shape blockedShape(final int numberOfItems, final long blocks, final int bitsPerBlock) {
+        final long numberOfBits = blocks * bitsPerBlock;
+        if (numberOfBits > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Resulting filter has more than " + Integer.MAX_VALUE + " bits: " + numberOfBits);
+        }
+        // the probability falls then rises as k grows
+        Shape best = new Shape(1, (int) numberOfBits);
+        double bestProbability = best.getBlockedProbability(numberOfItems, bitsPerBlock);
+        for (int k = 2; k <= bitsPerBlock; k++) {
+            final Shape shape = new Shape(k, (int) numberOfBits);
+            final double p = shape.getBlockedProbability(numberOfItems, bitsPerBlock);
+            if (p >= bestProbability) {
+                break;
+            }
+            best = shape;
+            bestProbability = p;
+        }
+        return best;
+    }
+
     /**
      * Check number of items is strictly positive.
      *
@@ -76,6 +76,16 @@ public final class SimpleBloomFilter implements BloomFilter {
         return Arrays.copyOf(bitMap, bitMap.length);
     }
 
+    /**
+     * Gets the bit maps without copying them, for use by {@link SetOperations}. The array must
+     * not be modified.
+     *
+     * @return the bit maps of this filter.
+     */
+    long[] getBitMaps() {
+        return bitMap;
+    }
+
     @Override
     public boolean forEachBitMapPair(final BitMapProducer other, final LongBiPredicate func) {
         final CountingLongPredicate p = new CountingLongPredicate(bitMap, func);
@@ -136,6 +146,53 @@ public final class SimpleBloomFilter implements BloomFilter {
         return merge(hasher.indices(shape));
     }
 
+    @Override
+    public boolean mergeAll(final long[] initial, final long[] increment) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        BatchHasher.checkLengths(initial, increment);
+        final int k = shape.getNumberOfHashFunctions();
+        // the indices of EnhancedDoubleHasher.indices(Shape), inlined
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        for (int i = 0; i < initial.length; i++) {
+            int index = cursor.start(initial[i], increment[i]);
+            for (int j = 0; j < k; j++) {
+                BitMap.set(bitMap, index);
+                index = cursor.next();
+            }
+        }
+        cardinality = -1;
+        return true;
+    }
+
+    @Override
+    public int containsEach(final long[] initial, final long[] increment, final boolean[] results) {
+        Objects.requireNonNull(initial, "initial");
+        Objects.requireNonNull(increment, "increment");
+        BatchHasher.checkLengths(initial, increment);
+        BatchHasher.checkResults(initial, results);
+        final int k = shape.getNumberOfHashFunctions();
+        // the indices of EnhancedDoubleHasher.indices(Shape), inlined to stop at the first miss
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        int count = 0;
+        for (int i = 0; i < initial.length; i++) {
+            int index = cursor.start(initial[i], increment[i]);
+            boolean found = true;
+            for (int j = 0; j < k; j++) {
+                if (!BitMap.contains(bitMap, index)) {
+                    found = false;
+                    break;
+                }
+                index = cursor.next();
+            }
+            results[i] = found;
+            if (found) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Override
     public boolean merge(final BloomFilter other) {
         Objects.requireNonNull(other, "other");
@@ -16,28 +16,68 @@
  */
 package org.apache.commons.collections4.bloomfilter;
 
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.TreeSet;
 import java.util.function.IntPredicate;
 import java.util.function.LongPredicate;
 
 /**
- * A bloom filter using a TreeSet of integers to track enabled bits. This is a standard
+ * A bloom filter using a sorted array of integers to track enabled bits. This is a standard
  * implementation and should work well for most low cardinality Bloom filters.
+ *
+ * <p>Each enabled bit costs four bytes. Merging an item that is already present, testing
+ * containment and producing bit maps do not allocate; merging new bits inserts them into the
+ * array in a single pass from the end, growing the array when needed.</p>
  * @since 4.5
  */
 public final class SparseBloomFilter implements BloomFilter {
 
+    private static final int[] EMPTY = {};
+
+    /**
+     * The greatest length of {@link #pending} kept between merges, beyond the number of hash
+     * functions of the shape. A larger scratch array, left by merging a large filter, is released.
+     */
+    private static final int RETAINED_PENDING = 64;
+
     /**
-     * The bitSet that defines this BloomFilter.
+     * The enabled bit indices in ascending order. Only the first {@code size} are used.
      */
-    private final TreeSet<Integer> indices;
+    private int[] indices;
+
+    /**
+     * The number of enabled bits.
+     */
+    private int size;
 
     /**
      * The shape of this BloomFilter.
      */
     private final Shape shape;
 
+    /**
+     * Scratch space holding the indices of the merge in progress.
+     */
+    private int[] pending = EMPTY;
+
+    /**
+     * The number of indices in {@link #pending}.
+     */
+    private int pendingSize;
+
+    /**
+     * The bit map index of the next call to {@link #collectBitMap(long)}.
+     */
+    private int bitMapIndex;
+
+    // Predicates created once so the producers can be consumed without allocating
+
+    private final IntPredicate collectIndex = this::collectIndex;
+
+    private final LongPredicate collectBitMap = this::collectBitMap;
+
+    private final IntPredicate containsIndex = this::containsIndex;
+
     /**
      * Constructs an empty BitSetBloomFilter.
      *
@@ -46,51 +86,144 @@ public final class SparseBloomFilter implements BloomFilter {
     public SparseBloomFilter(final Shape shape) {
         Objects.requireNonNull(shape, "shape");
         this.shape = shape;
-        this.indices = new TreeSet<>();
+        this.indices = EMPTY;
     }
 
     private SparseBloomFilter(final SparseBloomFilter source) {
         shape = source.shape;
-        indices = new TreeSet<>(source.indices);
+        indices = Arrays.copyOf(source.indices, source.size);
+        size = source.size;
     }
 
     @Override
     public long[] asBitMapArray() {
         final long[] result = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
-        for (final int i : indices) {
-            BitMap.set(result, i);
+        for (int i = 0; i < size; i++) {
+            BitMap.set(result, indices[i]);
         }
         return result;
     }
 
+    @Override
+    public int[] asIndexArray() {
+        return Arrays.copyOf(indices, size);
+    }
+
     @Override
     public SparseBloomFilter copy() {
         return new SparseBloomFilter(this);
     }
 
     /**
-     * Adds the index to the indices.
+     * Appends an index to the pending merge.
      * @param idx the index to add.
      * @return {@code true} always
+     * @throws IllegalArgumentException if the index is outside the shape.
+     */
+    private boolean collectIndex(final int idx) {
+        if (idx >= shape.getNumberOfBits()) {
+            throw new IllegalArgumentException(String.format("Value in list %s is greater than maximum value (%s)",
+                    idx, shape.getNumberOfBits() - 1));
+        }
+        if (idx < 0) {
+            throw new IllegalArgumentException(String.format("Value in list %s is less than 0", idx));
+        }
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(16, pendingSize + (pendingSize >> 1)));
+        }
+        pending[pendingSize++] = idx;
+        return true;
+    }
+
+    /**
+     * Appends the enabled bits of the next bit map to the pending merge.
+     * @param bitMap the bit map.
+     * @return {@code true} always
+     * @throws IllegalArgumentException if a bit is outside the shape.
      */
-    private boolean add(final int idx) {
-        indices.add(idx);
+    private boolean collectBitMap(final long bitMap) {
+        final int offset = bitMapIndex++ * Long.SIZE;
+        long word = bitMap;
+        while (word != 0) {
+            collectIndex(offset + Long.numberOfTrailingZeros(word));
+            word &= word - 1;
+        }
         return true;
     }
 
+    /**
+     * Adds the sorted, distinct {@code pending} indices that are not yet enabled.
+     */
+    private void mergePending() {
+        final int[] p = pending;
+        int n = pendingSize;
+        pendingSize = 0;
+        // sort and remove duplicates
+        Arrays.sort(p, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || p[unique - 1] != p[i]) {
+                p[unique++] = p[i];
+            }
+        }
+        n = unique;
+        // count the indices to insert, searching from the last match as both arrays are sorted
+        int missing = 0;
+        int from = 0;
+        for (int i = 0; i < n; i++) {
+            final int pos = Arrays.binarySearch(indices, from, size, p[i]);
+            if (pos < 0) {
+                missing++;
+                from = -pos - 1;
+            } else {
+                from = pos + 1;
+            }
+        }
+        if (missing == 0) {
+            return;
+        }
+        final int newSize = size + missing;
+        if (newSize > indices.length) {
+            indices = Arrays.copyOf(indices, Math.max(newSize, size + (size >> 1)));
+        }
+        // insert from the end, moving each run of existing indices once with a block copy
+        final int[] a = indices;
+        int end = size;
+        int w = newSize;
+        for (int j = n - 1; j >= 0 && w != end; j--) {
+            final int pos = Arrays.binarySearch(a, 0, end, p[j]);
+            if (pos >= 0) {
+                continue;
+            }
+            final int insert = -pos - 1;
+            final int length = end - insert;
+            w -= length;
+            System.arraycopy(a, insert, a, w, length);
+            a[--w] = p[j];
+            end = insert;
+        }
+        size = newSize;
+    }
+
+    /**
+     * Releases the scratch array if a large merge grew it past what the merge of a hasher needs.
+     */
+    private void releasePending() {
+        pendingSize = 0;
+        if (pending.length > Math.max(RETAINED_PENDING, shape.getNumberOfHashFunctions())) {
+            pending = EMPTY;
+        }
+    }
+
     @Override
     public boolean merge(final IndexProducer indexProducer) {
         Objects.requireNonNull(indexProducer, "indexProducer");
-        indexProducer.forEachIndex(this::add);
-        if (!this.indices.isEmpty()) {
-            if (this.indices.last() >= shape.getNumberOfBits()) {
-                throw new IllegalArgumentException(String.format("Value in list %s is greater than maximum value (%s)",
-                        this.indices.last(), shape.getNumberOfBits() - 1));
-            }
-            if (this.indices.first() < 0) {
-                throw new IllegalArgumentException(
-                        String.format("Value in list %s is less than 0", this.indices.first()));
-            }
+        pendingSize = 0;
+        try {
+            indexProducer.forEachIndex(collectIndex);
+            mergePending();
+        } finally {
+            releasePending();
         }
         return true;
     }
@@ -98,7 +231,15 @@ public final class SparseBloomFilter implements BloomFilter {
     @Override
     public boolean merge(final BitMapProducer bitMapProducer) {
         Objects.requireNonNull(bitMapProducer, "bitMapProducer");
-        return this.merge(IndexProducer.fromBitMapProducer(bitMapProducer));
+        pendingSize = 0;
+        bitMapIndex = 0;
+        try {
+            bitMapProducer.forEachBitMap(collectBitMap);
+            mergePending();
+        } finally {
+            releasePending();
+        }
+        return true;
     }
 
     @Override
@@ -111,14 +252,17 @@ public final class SparseBloomFilter implements BloomFilter {
     @Override
     public boolean merge(final BloomFilter other) {
         Objects.requireNonNull(other, "other");
-        final IndexProducer producer = (other.characteristics() & SPARSE) != 0 ? (IndexProducer) other : IndexProducer.fromBitMapProducer(other);
-        merge(producer);
+        if ((other.characteristics() & SPARSE) != 0) {
+            merge((IndexProducer) other);
+        } else {
+            merge((BitMapProducer) other);
+        }
         return true;
     }
 
     @Override
     public void clear() {
-        indices.clear();
+        size = 0;
     }
 
     @Override
@@ -133,14 +277,14 @@ public final class SparseBloomFilter implements BloomFilter {
 
     @Override
     public int cardinality() {
-        return indices.size();
+        return size;
     }
 
     @Override
     public boolean forEachIndex(final IntPredicate consumer) {
         Objects.requireNonNull(consumer, "consumer");
-        for (final int value : indices) {
-            if (!consumer.test(value)) {
+        for (int i = 0; i < size; i++) {
+            if (!consumer.test(indices[i])) {
                 return false;
             }
         }
@@ -159,7 +303,8 @@ public final class SparseBloomFilter implements BloomFilter {
         long bitMap = 0;
         // the bitmap we are working on
         int idx = 0;
-        for (final int i : indices) {
+        for (int j = 0; j < size; j++) {
+            final int i = indices[j];
             while (BitMap.getLongIndex(i) != idx) {
                 if (!consumer.test(bitMap)) {
                     return false;
@@ -185,13 +330,55 @@ public final class SparseBloomFilter implements BloomFilter {
         return true;
     }
 
+    private boolean containsIndex(final int idx) {
+        return Arrays.binarySearch(indices, 0, size, idx) >= 0;
+    }
+
+    /**
+     * Tests that the enabled bits of successive bit maps are all enabled in this filter. The
+     * cursor belongs to one call of {@link #contains(BitMapProducer)}, so that queries do not
+     * change the filter.
+     */
+    private final class BitMapContains implements LongPredicate {
+
+        /**
+         * The bit map index of the next call to {@link #test(long)}.
+         */
+        private int bitMapIndex;
+
+        /**
+         * The first position of {@link #indices} not yet passed.
+         */
+        private int searchFrom;
+
+        /**
+         * Tests that the enabled bits of the next bit map are all enabled in this filter.
+         * @param bitMap the bit map.
+         * @return {@code true} if all the bits are enabled.
+         */
+        @Override
+        public boolean test(final long bitMap) {
+            final int offset = bitMapIndex++ * Long.SIZE;
+            long word = bitMap;
+            while (word != 0) {
+                final int pos = Arrays.binarySearch(indices, searchFrom, size, offset + Long.numberOfTrailingZeros(word));
+                if (pos < 0) {
+                    return false;
+                }
+                searchFrom = pos + 1;
+                word &= word - 1;
+            }
+            return true;
+        }
+    }
+
     @Override
     public boolean contains(final IndexProducer indexProducer) {
-        return indexProducer.forEachIndex(indices::contains);
+        return indexProducer.forEachIndex(containsIndex);
     }
 
     @Override
     public boolean contains(final BitMapProducer bitMapProducer) {
-        return contains(IndexProducer.fromBitMapProducer(bitMapProducer));
+        return bitMapProducer.forEachBitMap(new BitMapContains());
     }
 }
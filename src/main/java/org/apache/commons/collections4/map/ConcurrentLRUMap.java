@@ -0,0 +1,781 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.collections4.BoundedMap;
+import org.apache.commons.collections4.MapIterator;
+
+/**
+ * A thread-safe {@code Map} implementation with a fixed maximum size which removes
+ * the least recently used entry if an entry is added when full.
+ * <p>
+ * This is a concurrent counterpart to {@link LRUMap}. Like {@code LRUMap}, the
+ * least recently used algorithm works on the get and put operations only, and
+ * the {@link #removeLRU(Map.Entry)} hook may veto an eviction, subject to the
+ * scanUntilRemovable flag.
+ * </p>
+ * <p>
+ * Reads do not take a lock. A {@link #get(Object) get} looks the entry up in a
+ * {@link ConcurrentHashMap} and records the access in one of several small ring
+ * buffers, chosen by thread. The buffered accesses are replayed onto the recency
+ * list in batches, by whichever thread finds the lock free when a buffer fills up,
+ * and before every write. If a buffer is full when a read is recorded the access
+ * is dropped, so under heavy contention the recency order is an approximation;
+ * an entry that is read often is still very unlikely to be evicted.
+ * </p>
+ * <p>
+ * Writes, that is {@link #put(Object, Object) put}, {@link #remove(Object) remove}
+ * and {@link #clear() clear}, are serialized by a single lock, which is also held
+ * while {@link #removeLRU(Map.Entry)} is called.
+ * </p>
+ * <p>
+ * The iterators of the map and its views are weakly consistent, never throw a
+ * {@link java.util.ConcurrentModificationException} and, unlike those of
+ * {@code LRUMap}, do not return the entries in recency order. Iteration does not
+ * change the order. Null keys and values are not permitted.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see LRUMap
+ * @since 4.6
+ */
+public class ConcurrentLRUMap<K, V> extends AbstractMap<K, V> implements BoundedMap<K, V> {
+
+    /** Default maximum size */
+    protected static final int DEFAULT_MAX_SIZE = 100;
+
+    /** The number of accesses a read buffer holds, a power of two */
+    private static final int BUFFER_SIZE = 16;
+    /** The number of pending accesses in a buffer that trigger a drain */
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+    /** The maximum number of read buffers */
+    private static final int MAXIMUM_BUFFERS = 128;
+
+    /** The entries, by key */
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    /** The read buffers */
+    private final ReadBuffer<K, V>[] buffers;
+    /** Guards the recency list and all writes */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** The least recently used entry, guarded by the lock */
+    private Node<K, V> head;
+    /** The most recently used entry, guarded by the lock */
+    private Node<K, V> tail;
+    /** Maximum size */
+    private final int maxSize;
+    /** Scan for removable entries */
+    private final boolean scanUntilRemovable;
+    /** Entry set */
+    private transient EntrySet entrySet;
+    /** Key set */
+    private transient KeySet keySet;
+    /** Values */
+    private transient Values values;
+
+    /**
+     * Constructs a new empty map with a maximum size of 100.
+     */
+    public ConcurrentLRUMap() {
+        this(DEFAULT_MAX_SIZE, false);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified maximum size.
+     *
+     * @param maxSize  the maximum size of the map
+     * @throws IllegalArgumentException if the maximum size is less than one
+     */
+    public ConcurrentLRUMap(final int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified maximum size.
+     *
+     * @param maxSize  the maximum size of the map
+     * @param scanUntilRemovable  scan until a removable entry is found, default false
+     * @throws IllegalArgumentException if the maximum size is less than one
+     */
+    public ConcurrentLRUMap(final int maxSize, final boolean scanUntilRemovable) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("ConcurrentLRUMap max size must be greater than 0");
+        }
+        this.maxSize = maxSize;
+        this.scanUntilRemovable = scanUntilRemovable;
+        data = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+        final int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAXIMUM_BUFFERS);
+        final int count = processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+        @SuppressWarnings("unchecked")
+        final ReadBuffer<K, V>[] newBuffers = (ReadBuffer<K, V>[]) new ReadBuffer<?, ?>[count];
+        for (int i = 0; i < count; i++) {
+            newBuffers[i] = new ReadBuffer<>();
+        }
+        buffers = newBuffers;
+    }
+
+    /**
+     * Constructor copying elements from another map.
+     * <p>
+     * The maximum size is set from the map's size.
+     * </p>
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map is null
+     * @throws IllegalArgumentException if the map is empty
+     */
+    public ConcurrentLRUMap(final Map<? extends K, ? extends V> map) {
+        this(map.size(), false);
+        putAll(map);
+    }
+
+    /**
+     * Gets the value mapped to the key specified, recording the access.
+     *
+     * @param key  the key
+     * @return the mapped value, null if no match
+     */
+    @Override
+    public V get(final Object key) {
+        final Node<K, V> node = key == null ? null : data.get(key);
+        if (node == null) {
+            return null;
+        }
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * Checks whether the map contains the specified key, without changing the order.
+     *
+     * @param key  the key to search for
+     * @return true if the map contains the key
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return key != null && data.containsKey(key);
+    }
+
+    /**
+     * Checks whether the map contains the specified value, without changing the order.
+     *
+     * @param value  the value to search for
+     * @return true if the map contains the value
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (final Node<K, V> node : data.values()) {
+            if (value.equals(node.value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts a key-value mapping into this map, making it the most recently used.
+     * If the map is full, the least recently used entry is first offered to
+     * {@link #removeLRU(Map.Entry)}.
+     *
+     * @param key  the key to add
+     * @param value  the value to add
+     * @return the value previously mapped to this key, null if none
+     * @throws NullPointerException if the key or value is null
+     */
+    @Override
+    public V put(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        lock.lock();
+        try {
+            drainBuffers();
+            final Node<K, V> existing = data.get(key);
+            if (existing != null) {
+                final V old = existing.value;
+                existing.value = value;
+                moveToTail(existing);
+                return old;
+            }
+            if (isFull()) {
+                evict();
+            }
+            final Node<K, V> node = new Node<>(key, value);
+            data.put(key, node);
+            linkLast(node);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the specified mapping from this map.
+     *
+     * @param key  the mapping to remove
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    @Override
+    public V remove(final Object key) {
+        if (key == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            drainBuffers();
+            final Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears the map.
+     */
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            drainBuffers();
+            data.clear();
+            for (Node<K, V> node = head; node != null; node = node.after) {
+                node.linked = false;
+            }
+            head = null;
+            tail = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the size of the map.
+     *
+     * @return the size
+     */
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Checks whether the map is currently empty.
+     *
+     * @return true if the map is currently size zero
+     */
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns true if this map is full and no new mappings can be added.
+     *
+     * @return {@code true} if the map is full
+     */
+    @Override
+    public boolean isFull() {
+        return data.size() >= maxSize;
+    }
+
+    /**
+     * Gets the maximum size of the map (the bound).
+     *
+     * @return the maximum number of elements the map can hold
+     */
+    @Override
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Whether this ConcurrentLRUMap will scan until a removable entry is found when the
+     * map is full.
+     *
+     * @return true if this map scans
+     */
+    public boolean isScanUntilRemovable() {
+        return scanUntilRemovable;
+    }
+
+    /**
+     * Subclass method to control removal of the least recently used entry from the map.
+     * <p>
+     * This method exists for subclasses to override, with the same semantics as
+     * {@link LRUMap#removeLRU(AbstractLinkedMap.LinkEntry)}. A subclass may release
+     * resources held by the entry, or return false to keep it. If the scanUntilRemovable
+     * flag is true, the next least recently used entry is then passed to this method and
+     * so on; otherwise the map will exceed the maximum size.
+     * </p>
+     * <p>
+     * The method is called while the lock guarding all writes is held, so it should be
+     * quick and must not write to this map.
+     * </p>
+     *
+     * @param entry  the entry to be removed
+     * @return {@code true}
+     */
+    protected boolean removeLRU(final Map.Entry<K, V> entry) {
+        return true;
+    }
+
+    /**
+     * Evicts the least recently used entry the {@link #removeLRU(Map.Entry)} hook accepts.
+     */
+    private void evict() {
+        Node<K, V> candidate = head;
+        if (scanUntilRemovable) {
+            while (candidate != null && !removeLRU(candidate)) {
+                candidate = candidate.after;
+            }
+        } else if (candidate != null && !removeLRU(candidate)) {
+            candidate = null;
+        }
+        if (candidate != null) {
+            data.remove(candidate.key);
+            unlink(candidate);
+        }
+    }
+
+    /**
+     * Records a read, draining the buffer when it fills up if no other thread holds the lock.
+     *
+     * @param node  the node read
+     */
+    private void afterRead(final Node<K, V> node) {
+        final long id = Thread.currentThread().getId();
+        final ReadBuffer<K, V> buffer = buffers[(int) (id * 0x9E3779B97F4A7C15L >>> 32) & buffers.length - 1];
+        if (buffer.offer(node) >= DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays the buffered reads onto the recency list. Must hold the lock.
+     */
+    private void drainBuffers() {
+        for (final ReadBuffer<K, V> buffer : buffers) {
+            long head = buffer.readCount;
+            final long tail = buffer.writeCount.get();
+            for (; head < tail; head++) {
+                final int index = (int) head & BUFFER_SIZE - 1;
+                final Node<K, V> node = buffer.slots.get(index);
+                if (node == null) {
+                    // claimed but not yet written, picked up by the next drain
+                    break;
+                }
+                buffer.slots.lazySet(index, null);
+                if (node.linked) {
+                    moveToTail(node);
+                }
+            }
+            buffer.readCount = head;
+        }
+    }
+
+    private void linkLast(final Node<K, V> node) {
+        node.before = tail;
+        node.after = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.after = node;
+        }
+        tail = node;
+        node.linked = true;
+    }
+
+    private void unlink(final Node<K, V> node) {
+        if (node.before == null) {
+            head = node.after;
+        } else {
+            node.before.after = node.after;
+        }
+        if (node.after == null) {
+            tail = node.before;
+        } else {
+            node.after.before = node.before;
+        }
+        node.before = null;
+        node.after = null;
+        node.linked = false;
+    }
+
+    private void moveToTail(final Node<K, V> node) {
+        if (node != tail) {
+            unlink(node);
+            linkLast(node);
+        }
+    }
+
+    /**
+     * Gets a weakly consistent iterator over the map, which does not change the order.
+     *
+     * @return the map iterator
+     */
+    @Override
+    public MapIterator<K, V> mapIterator() {
+        return new LRUMapIterator();
+    }
+
+    /**
+     * Gets the entrySet view of the map.
+     *
+     * @return the entrySet view
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Gets the keySet view of the map.
+     *
+     * @return the keySet view
+     */
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) {
+            keySet = new KeySet();
+        }
+        return keySet;
+    }
+
+    /**
+     * Gets the values view of the map.
+     *
+     * @return the values view
+     */
+    @Override
+    public Collection<V> values() {
+        if (values == null) {
+            values = new Values();
+        }
+        return values;
+    }
+
+    /**
+     * An entry of the map and link of the recency list.
+     */
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        volatile V value;
+        /** Whether the node is in the recency list, guarded by the lock */
+        boolean linked;
+        /** The less recently used node, guarded by the lock */
+        Node<K, V> before;
+        /** The more recently used node, guarded by the lock */
+        Node<K, V> after;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            Objects.requireNonNull(value, "value");
+            final V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && value.equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A lossy ring buffer of reads. Any thread may offer, only the lock holder drains.
+     */
+    private static final class ReadBuffer<K, V> {
+        final AtomicReferenceArray<Node<K, V>> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        /** The number of slots claimed by readers */
+        final AtomicLong writeCount = new AtomicLong();
+        /** The number of slots drained, written only by the lock holder */
+        volatile long readCount;
+
+        /**
+         * Records a read unless the buffer is full or another reader won the slot.
+         *
+         * @param node  the node read
+         * @return the number of pending reads
+         */
+        int offer(final Node<K, V> node) {
+            final long tail = writeCount.get();
+            final int pending = (int) (tail - readCount);
+            if (pending >= BUFFER_SIZE) {
+                return pending;
+            }
+            if (writeCount.compareAndSet(tail, tail + 1)) {
+                slots.lazySet((int) tail & BUFFER_SIZE - 1, node);
+                return pending + 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Base iterator over the nodes, which removes through the map.
+     */
+    private abstract class NodeIterator {
+
+        private final Iterator<Node<K, V>> iterator = data.values().iterator();
+        private Node<K, V> last;
+
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        protected Node<K, V> nextNode() {
+            last = iterator.next();
+            return last;
+        }
+
+        protected Node<K, V> currentNode(final String message) {
+            if (last == null) {
+                throw new IllegalStateException(message);
+            }
+            return last;
+        }
+
+        public void remove() {
+            ConcurrentLRUMap.this.remove(currentNode(AbstractHashedMap.REMOVE_INVALID).key);
+            last = null;
+        }
+    }
+
+    /**
+     * MapIterator implementation.
+     */
+    private final class LRUMapIterator extends NodeIterator implements MapIterator<K, V> {
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+
+        @Override
+        public K getKey() {
+            return currentNode(AbstractHashedMap.GETKEY_INVALID).key;
+        }
+
+        @Override
+        public V getValue() {
+            return currentNode(AbstractHashedMap.GETVALUE_INVALID).value;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            return currentNode(AbstractHashedMap.SETVALUE_INVALID).setValue(value);
+        }
+    }
+
+    /**
+     * EntrySet implementation.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return ConcurrentLRUMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLRUMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            final Node<K, V> node = entry.getKey() == null ? null : data.get(entry.getKey());
+            return node != null && node.value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            lock.lock();
+            try {
+                if (!contains(entry)) {
+                    return false;
+                }
+                ConcurrentLRUMap.this.remove(entry.getKey());
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * EntrySet iterator.
+     */
+    private final class EntryIterator extends NodeIterator implements Iterator<Map.Entry<K, V>> {
+
+        @Override
+        public Map.Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    /**
+     * KeySet implementation.
+     */
+    private final class KeySet extends AbstractSet<K> {
+
+        @Override
+        public int size() {
+            return ConcurrentLRUMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLRUMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object key) {
+            return containsKey(key);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            return ConcurrentLRUMap.this.remove(key) != null;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+    }
+
+    /**
+     * KeySet iterator.
+     */
+    private final class KeyIterator extends NodeIterator implements Iterator<K> {
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    /**
+     * Values implementation.
+     */
+    private final class Values extends AbstractCollection<V> {
+
+        @Override
+        public int size() {
+            return ConcurrentLRUMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLRUMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object value) {
+            return containsValue(value);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+    }
+
+    /**
+     * Values iterator.
+     */
+    private final class ValueIterator extends NodeIterator implements Iterator<V> {
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
+    }
+}
@@ -0,0 +1,909 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.commons.collections4.IterableMap;
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.iterators.EmptyMapIterator;
+import org.apache.commons.collections4.keyvalue.AbstractMapEntry;
+
+/**
+ * A {@code Map} implementation keyed by primitive {@code int} values.
+ * <p>
+ * Mappings are held in two parallel arrays using open addressing with linear
+ * probing, so no entry object is allocated per mapping and no key is boxed by
+ * {@link #get(int)}, {@link #put(int, Object)}, {@link #containsKey(int)} or
+ * {@link #remove(int)}. The {@code Map} methods taking {@code Integer} keys,
+ * the {@link MapIterator} and the collection views are fully supported, but box
+ * keys on demand.
+ * </p>
+ * <p>
+ * Null keys are not permitted, null values are.
+ * </p>
+ * <p>
+ * <strong>Note that IntObjectHashMap is not synchronized and is not thread-safe.</strong>
+ * If you wish to use this map from multiple threads concurrently, you must use
+ * appropriate synchronization. The simplest approach is to wrap this map
+ * using {@link java.util.Collections#synchronizedMap(Map)}. This class may throw
+ * exceptions when accessed by concurrent threads without synchronization.
+ * </p>
+ *
+ * @param <V> the type of the values in this map
+ * @see LongObjectHashMap
+ * @since 4.6
+ */
+public class IntObjectHashMap<V> extends AbstractMap<Integer, V>
+        implements IterableMap<Integer, V>, Serializable, Cloneable {
+
+    /** Serialisation version */
+    private static final long serialVersionUID = 6287468927380235196L;
+
+    /** The default number of mappings held before resizing */
+    protected static final int DEFAULT_EXPECTED_SIZE = 8;
+    /** The default load factor */
+    protected static final float DEFAULT_LOAD_FACTOR = 0.5f;
+    /** The maximum capacity allowed */
+    protected static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** Stands in for a null value, as a null slot marks an empty slot */
+    private static final Object NULL = new Object();
+
+    /** Load factor, normally 0.5 */
+    private final float loadFactor;
+    /** The keys, meaningful only where the value slot is occupied */
+    private transient int[] keys;
+    /** The values, null where the slot is empty */
+    private transient Object[] values;
+    /** The size of the map */
+    private transient int size;
+    /** Size at which to rehash */
+    private transient int threshold;
+    /** Modification count for iterators */
+    private transient int modCount;
+    /** Entry set */
+    private transient EntrySet entrySet;
+    /** Key set */
+    private transient KeySet keySet;
+    /** Values */
+    private transient Values valuesView;
+
+    /**
+     * Constructs a new empty map with default size and load factor.
+     */
+    public IntObjectHashMap() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new, empty map able to hold the specified number of
+     * mappings without resizing.
+     *
+     * @param expectedSize  the number of mappings expected
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public IntObjectHashMap(final int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new, empty map able to hold the specified number of
+     * mappings without resizing, with the specified load factor.
+     *
+     * @param expectedSize  the number of mappings expected
+     * @param loadFactor  the load factor, between zero and one exclusive
+     * @throws IllegalArgumentException if the expected size is negative
+     * @throws IllegalArgumentException if the load factor is not between zero and one
+     */
+    public IntObjectHashMap(final int expectedSize, final float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        if (loadFactor <= 0.0f || loadFactor >= 1.0f || Float.isNaN(loadFactor)) {
+            throw new IllegalArgumentException("Load factor must be greater than 0 and less than 1");
+        }
+        this.loadFactor = loadFactor;
+        allocate(calculateCapacity(expectedSize, loadFactor));
+    }
+
+    /**
+     * Constructor copying elements from another map.
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map or any of its keys is null
+     */
+    public IntObjectHashMap(final Map<? extends Integer, ? extends V> map) {
+        this(map.size(), DEFAULT_LOAD_FACTOR);
+        putAll(map);
+    }
+
+    /**
+     * Spreads the bits of a key so that sequential keys do not form runs in the table.
+     *
+     * @param key  the key
+     * @return the mixed hash
+     */
+    static int hash(final int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * Calculates the power of two table size able to hold the given number of mappings.
+     *
+     * @param expectedSize  the number of mappings
+     * @param loadFactor  the load factor
+     * @return the table size
+     */
+    private static int calculateCapacity(final int expectedSize, final float loadFactor) {
+        final long needed = (long) Math.ceil(expectedSize / (double) loadFactor);
+        if (needed >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return needed <= 2 ? 2 : Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        // always leave one slot empty so that probing terminates
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    private static Object maskNull(final Object value) {
+        return value == null ? NULL : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unmaskNull(final Object value) {
+        return value == NULL ? null : (V) value;
+    }
+
+    /**
+     * Finds the slot holding the key.
+     *
+     * @param key  the key to find
+     * @return the slot, or -1 if the key is not mapped
+     */
+    private int slotOf(final int key) {
+        final int[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = values.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = slot + 1 & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value mapped to the key specified.
+     *
+     * @param key  the key
+     * @return the mapped value, null if no match
+     */
+    public V get(final int key) {
+        final int[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = values.length - 1;
+        int slot = hash(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return unmaskNull(value);
+            }
+            slot = slot + 1 & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value mapped to the key specified.
+     *
+     * @param key  the key
+     * @return the mapped value, null if no match
+     */
+    @Override
+    public V get(final Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    /**
+     * Checks whether the map contains the specified key.
+     *
+     * @param key  the key to search for
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final int key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Checks whether the map contains the specified key.
+     *
+     * @param key  the key to search for
+     * @return true if the map contains the key
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    /**
+     * Checks whether the map contains the specified value.
+     *
+     * @param value  the value to search for
+     * @return true if the map contains the value
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        final Object masked = maskNull(value);
+        for (final Object candidate : values) {
+            if (candidate != null && (candidate == masked || candidate.equals(masked))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts a key-value mapping into this map.
+     *
+     * @param key  the key to add
+     * @param value  the value to add
+     * @return the value previously mapped to this key, null if none
+     * @throws IllegalStateException if the map is at its maximum capacity
+     */
+    public V put(final int key, final V value) {
+        final int[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = values.length - 1;
+        int slot = hash(key) & mask;
+        Object current;
+        while ((current = values[slot]) != null) {
+            if (keys[slot] == key) {
+                values[slot] = maskNull(value);
+                return unmaskNull(current);
+            }
+            slot = slot + 1 & mask;
+        }
+        if (size == threshold && values.length == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Map is at its maximum capacity");
+        }
+        keys[slot] = key;
+        values[slot] = maskNull(value);
+        modCount++;
+        if (++size > threshold) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Puts a key-value mapping into this map.
+     *
+     * @param key  the key to add
+     * @param value  the value to add
+     * @return the value previously mapped to this key, null if none
+     * @throws NullPointerException if the key is null
+     */
+    @Override
+    public V put(final Integer key, final V value) {
+        return put(Objects.requireNonNull(key, "key").intValue(), value);
+    }
+
+    /**
+     * Puts all the values from the specified map into this map.
+     *
+     * @param map  the map to add
+     * @throws NullPointerException if the map or any of its keys is null
+     */
+    @Override
+    public void putAll(final Map<? extends Integer, ? extends V> map) {
+        ensureCapacity(size + map.size());
+        if (map instanceof IntObjectHashMap) {
+            @SuppressWarnings("unchecked")
+            final IntObjectHashMap<? extends V> other = (IntObjectHashMap<? extends V>) map;
+            final int[] otherKeys = other.keys;
+            final Object[] otherValues = other.values;
+            for (int i = 0; i < otherValues.length; i++) {
+                if (otherValues[i] != null) {
+                    put(otherKeys[i], IntObjectHashMap.<V>unmaskNull(otherValues[i]));
+                }
+            }
+        } else {
+            for (final Map.Entry<? extends Integer, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes the specified mapping from this map.
+     *
+     * @param key  the mapping to remove
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V remove(final int key) {
+        final int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        final V old = unmaskNull(values[slot]);
+        removeSlot(slot, null);
+        return old;
+    }
+
+    /**
+     * Removes the specified mapping from this map.
+     *
+     * @param key  the mapping to remove
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    @Override
+    public V remove(final Object key) {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    /**
+     * Empties the slot and shifts back any later entries of the probe run which
+     * could no longer be reached across the gap.
+     *
+     * @param slot  the occupied slot to empty
+     * @param iterator  the iterator performing the removal, or null
+     */
+    private void removeSlot(final int slot, final HashIterator iterator) {
+        final int[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = values.length - 1;
+        int gap = slot;
+        int next = slot;
+        Object value;
+        while ((value = values[next = next + 1 & mask]) != null) {
+            final int key = keys[next];
+            final int home = hash(key) & mask;
+            // the entry may fill the gap unless its home lies cyclically in (gap, next]
+            if (gap <= next ? gap >= home || home > next : gap >= home && home > next) {
+                if (iterator != null && next < slot && gap >= slot) {
+                    // wrapped around from the unvisited part of the table into the visited part
+                    iterator.addWrapped(key);
+                }
+                keys[gap] = key;
+                values[gap] = value;
+                gap = next;
+            }
+        }
+        values[gap] = null;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Clears the map, resetting the size to zero and nullifying references
+     * to avoid garbage collection issues.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Gets the size of the map.
+     *
+     * @return the size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is currently empty.
+     *
+     * @return true if the map is currently size zero
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Changes the size of the table so that it can hold the given number of
+     * mappings without resizing.
+     *
+     * @param expectedSize  the number of mappings expected
+     */
+    private void ensureCapacity(final int expectedSize) {
+        final int capacity = calculateCapacity(expectedSize, loadFactor);
+        if (capacity > values.length) {
+            rehash(capacity);
+        }
+    }
+
+    private void rehash(final int newCapacity) {
+        final int[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(newCapacity);
+        final int[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = newCapacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            final Object value = oldValues[i];
+            if (value != null) {
+                final int key = oldKeys[i];
+                int slot = hash(key) & mask;
+                while (values[slot] != null) {
+                    slot = slot + 1 & mask;
+                }
+                keys[slot] = key;
+                values[slot] = value;
+            }
+        }
+        modCount++;
+    }
+
+    /**
+     * Gets an iterator over the map.
+     * <p>
+     * Each call to {@code next()} boxes the key; {@code getValue()} and
+     * {@code setValue()} read and write the table directly.
+     * </p>
+     *
+     * @return the map iterator
+     */
+    @Override
+    public MapIterator<Integer, V> mapIterator() {
+        if (size == 0) {
+            return EmptyMapIterator.<Integer, V>emptyMapIterator();
+        }
+        return new IntMapIterator();
+    }
+
+    /**
+     * Gets the entrySet view of the map.
+     * Changes made to the view affect this map.
+     *
+     * @return the entrySet view
+     */
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Gets the keySet view of the map.
+     * Changes made to the view affect this map.
+     *
+     * @return the keySet view
+     */
+    @Override
+    public Set<Integer> keySet() {
+        if (keySet == null) {
+            keySet = new KeySet();
+        }
+        return keySet;
+    }
+
+    /**
+     * Gets the values view of the map.
+     * Changes made to the view affect this map.
+     *
+     * @return the values view
+     */
+    @Override
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new Values();
+        }
+        return valuesView;
+    }
+
+    /**
+     * Gets the standard Map hashCode without boxing the keys.
+     *
+     * @return the hash code defined in the Map interface
+     */
+    @Override
+    public int hashCode() {
+        int total = 0;
+        for (int i = 0; i < values.length; i++) {
+            final Object value = values[i];
+            if (value != null) {
+                total += Integer.hashCode(keys[i]) ^ (value == NULL ? 0 : value.hashCode());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Clones the map without cloning the values.
+     *
+     * @return a shallow clone
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public IntObjectHashMap<V> clone() {
+        try {
+            final IntObjectHashMap<V> cloned = (IntObjectHashMap<V>) super.clone();
+            cloned.keys = keys.clone();
+            cloned.values = values.clone();
+            cloned.modCount = 0;
+            cloned.entrySet = null;
+            cloned.keySet = null;
+            cloned.valuesView = null;
+            return cloned;
+        } catch (final CloneNotSupportedException ex) {
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Write the map out using a custom routine.
+     *
+     * @param out  the output stream
+     * @throws IOException if an error occurs while writing to the stream
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                out.writeInt(keys[i]);
+                out.writeObject(unmaskNull(values[i]));
+            }
+        }
+    }
+
+    /**
+     * Read the map in using a custom routine.
+     *
+     * @param in the input stream
+     * @throws IOException if an error occurs while reading from the stream
+     * @throws ClassNotFoundException if an object read from the stream can not be loaded
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        final int size = in.readInt();
+        allocate(calculateCapacity(size, loadFactor));
+        for (int i = 0; i < size; i++) {
+            final int key = in.readInt();
+            put(key, (V) in.readObject());
+        }
+    }
+
+    /**
+     * Base iterator, walking the table from the last slot to the first.
+     * <p>
+     * Removing an entry shifts later entries of its probe run back into the gap.
+     * An entry shifted from the start of the table, not yet visited, into the end,
+     * already visited, is remembered and returned once the table is exhausted.
+     * </p>
+     */
+    private abstract class HashIterator {
+
+        /** The slot most recently examined */
+        private int slot = values.length;
+        /** The number of entries still to return */
+        private int remaining = size;
+        /** Keys moved behind the cursor by removals */
+        private int[] wrapped;
+        /** The number of wrapped keys */
+        private int wrappedCount;
+        /** The slot of the last returned entry, -1 if it was a wrapped key */
+        private int lastSlot = -1;
+        /** The last returned key */
+        private int lastKey;
+        /** Whether there is a last returned entry */
+        private boolean canRemove;
+        /** The modification count expected */
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        protected int nextKey() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (remaining == 0) {
+                throw new NoSuchElementException(AbstractHashedMap.NO_NEXT_ENTRY);
+            }
+            remaining--;
+            canRemove = true;
+            final Object[] values = IntObjectHashMap.this.values;
+            while (--slot >= 0) {
+                if (values[slot] != null) {
+                    lastSlot = slot;
+                    lastKey = keys[slot];
+                    return lastKey;
+                }
+            }
+            slot = 0;
+            lastSlot = -1;
+            lastKey = wrapped[--wrappedCount];
+            return lastKey;
+        }
+
+        protected int currentKey() {
+            checkCurrent(AbstractHashedMap.GETKEY_INVALID);
+            return lastKey;
+        }
+
+        protected V currentValue() {
+            checkCurrent(AbstractHashedMap.GETVALUE_INVALID);
+            return lastSlot >= 0 ? unmaskNull(values[lastSlot]) : get(lastKey);
+        }
+
+        protected V setCurrentValue(final V value) {
+            checkCurrent(AbstractHashedMap.SETVALUE_INVALID);
+            if (lastSlot >= 0) {
+                final V old = unmaskNull(values[lastSlot]);
+                values[lastSlot] = maskNull(value);
+                return old;
+            }
+            return put(lastKey, value);
+        }
+
+        private void checkCurrent(final String message) {
+            if (!canRemove) {
+                throw new IllegalStateException(message);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        void addWrapped(final int key) {
+            if (wrapped == null) {
+                wrapped = new int[4];
+            } else if (wrappedCount == wrapped.length) {
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            }
+            wrapped[wrappedCount++] = key;
+        }
+
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException(AbstractHashedMap.REMOVE_INVALID);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastSlot >= 0) {
+                removeSlot(lastSlot, this);
+            } else {
+                IntObjectHashMap.this.remove(lastKey);
+            }
+            canRemove = false;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public String toString() {
+            if (canRemove) {
+                return "Iterator[" + lastKey + "=" + currentValue() + "]";
+            }
+            return "Iterator[]";
+        }
+    }
+
+    /**
+     * MapIterator implementation.
+     */
+    private final class IntMapIterator extends HashIterator implements MapIterator<Integer, V> {
+
+        @Override
+        public Integer next() {
+            return Integer.valueOf(nextKey());
+        }
+
+        @Override
+        public Integer getKey() {
+            return Integer.valueOf(currentKey());
+        }
+
+        @Override
+        public V getValue() {
+            return currentValue();
+        }
+
+        @Override
+        public V setValue(final V value) {
+            return setCurrentValue(value);
+        }
+    }
+
+    /**
+     * An entry returned by the entry set iterator, writing through to the map.
+     */
+    private final class IntEntry extends AbstractMapEntry<Integer, V> {
+
+        IntEntry(final int key, final V value) {
+            super(Integer.valueOf(key), value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            put(getKey().intValue(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * EntrySet implementation.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<Integer, V>> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            IntObjectHashMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object entry) {
+            if (entry instanceof Map.Entry) {
+                final Map.Entry<?, ?> e = (Map.Entry<?, ?>) entry;
+                final Object key = e.getKey();
+                if (key instanceof Integer) {
+                    final int slot = slotOf(((Integer) key).intValue());
+                    return slot >= 0 && Objects.equals(unmaskNull(values[slot]), e.getValue());
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!contains(obj)) {
+                return false;
+            }
+            IntObjectHashMap.this.remove(((Map.Entry<?, ?>) obj).getKey());
+            return true;
+        }
+
+        @Override
+        public Iterator<Map.Entry<Integer, V>> iterator() {
+            return new EntrySetIterator();
+        }
+    }
+
+    /**
+     * EntrySet iterator.
+     */
+    private final class EntrySetIterator extends HashIterator implements Iterator<Map.Entry<Integer, V>> {
+
+        @Override
+        public Map.Entry<Integer, V> next() {
+            final int key = nextKey();
+            return new IntEntry(key, currentValue());
+        }
+    }
+
+    /**
+     * KeySet implementation.
+     */
+    private final class KeySet extends AbstractSet<Integer> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            IntObjectHashMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object key) {
+            return containsKey(key);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            if (!containsKey(key)) {
+                return false;
+            }
+            IntObjectHashMap.this.remove(key);
+            return true;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new KeySetIterator();
+        }
+    }
+
+    /**
+     * KeySet iterator.
+     */
+    private final class KeySetIterator extends HashIterator implements Iterator<Integer> {
+
+        @Override
+        public Integer next() {
+            return Integer.valueOf(nextKey());
+        }
+    }
+
+    /**
+     * Values implementation.
+     */
+    private final class Values extends AbstractCollection<V> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            IntObjectHashMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object value) {
+            return containsValue(value);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValuesIterator();
+        }
+    }
+
+    /**
+     * Values iterator.
+     */
+    private final class ValuesIterator extends HashIterator implements Iterator<V> {
+
+        @Override
+        public V next() {
+            nextKey();
+            return currentValue();
+        }
+    }
+}
@@ -22,10 +22,12 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,6 +48,13 @@ import java.util.concurrent.TimeUnit;
  * When invoking methods that involve accessing the entire map contents (i.e
  * {@link #containsValue(Object)}, {@link #entrySet()}, etc.) this decorator
  * removes all expired entries prior to actually completing the invocation.
+ * The expiration times are indexed by a min-heap, so only the entries that are
+ * actually due are visited, and checking a map with nothing due costs O(1).
+ * </p>
+ * <p>
+ * Expired entries are otherwise only removed when the map is used. To reclaim
+ * them from an idle map, a periodic sweep can be scheduled with
+ * {@link #scheduleSweep(ScheduledExecutorService, long, TimeUnit)}.
  * </p>
  * <p>
  * <strong>Note that {@link PassiveExpiringMap} is not synchronized and is not
@@ -198,6 +207,12 @@ public class PassiveExpiringMap<K, V>
     /** map used to manage expiration times for the actual map entries. */
     private final Map<Object, Long> expirationMap = new HashMap<>();
 
+    /**
+     * The expiration times of the entries that can expire, soonest first. Entries
+     * whose time no longer matches {@link #expirationMap} are stale and skipped.
+     */
+    private transient PriorityQueue<Deadline> expirationQueue = new PriorityQueue<>();
+
     /** the policy used to determine time-to-live values for map entries. */
     private final ExpirationPolicy<K, V> expiringPolicy;
 
@@ -328,6 +343,7 @@ public class PassiveExpiringMap<K, V>
     public void clear() {
         super.clear();
         expirationMap.clear();
+        expirationQueue.clear();
     }
 
     /**
@@ -432,6 +448,10 @@ public class PassiveExpiringMap<K, V>
         // record expiration time of new entry
         final long expirationTime = expiringPolicy.expirationTime(key, value);
         expirationMap.put(key, Long.valueOf(expirationTime));
+        if (expirationTime >= 0) {
+            expirationQueue.add(new Deadline(key, expirationTime));
+            compactExpirationQueue();
+        }
 
         return super.put(key, value);
     }
@@ -450,7 +470,9 @@ public class PassiveExpiringMap<K, V>
      */
     @Override
     public V remove(final Object key) {
-        expirationMap.remove(key);
+        if (expirationMap.remove(key) != null) {
+            compactExpirationQueue();
+        }
         return super.remove(key);
     }
 
@@ -458,26 +480,90 @@ public class PassiveExpiringMap<K, V>
      * Removes all entries in the map whose expiration time is less than
      * {@code now}. The exceptions are entries with negative expiration
      * times; those entries are never removed.
+     * <p>
+     * Only the deadlines that are due are taken from the queue. A deadline is
+     * acted on only if it is still the recorded expiration time of its key.
+     * </p>
      *
      * @see #isExpired(long, Long)
      */
     private void removeAllExpired(final long nowMillis) {
-        final Iterator<Map.Entry<Object, Long>> iter = expirationMap.entrySet().iterator();
-        while (iter.hasNext()) {
-            final Map.Entry<Object, Long> expirationEntry = iter.next();
-            if (isExpired(nowMillis, expirationEntry.getValue())) {
+        Deadline deadline;
+        while ((deadline = expirationQueue.peek()) != null && nowMillis >= deadline.time) {
+            expirationQueue.poll();
+            final Long expirationTimeObject = expirationMap.get(deadline.key);
+            if (expirationTimeObject != null && expirationTimeObject.longValue() == deadline.time) {
                 // remove entry from collection
-                super.remove(expirationEntry.getKey());
+                super.remove(deadline.key);
                 // remove entry from expiration map
-                iter.remove();
+                expirationMap.remove(deadline.key);
             }
         }
     }
 
+    /**
+     * Rebuilds the queue if too many stale deadlines have built up from replaced
+     * and removed keys, so that the deadlines do not keep those keys reachable.
+     */
+    private void compactExpirationQueue() {
+        if (expirationQueue.size() > 2 * expirationMap.size() + 16) {
+            rebuildExpirationQueue();
+        }
+    }
+
+    /**
+     * Rebuilds the queue from the expiration map, dropping stale deadlines.
+     */
+    private void rebuildExpirationQueue() {
+        final PriorityQueue<Deadline> queue = new PriorityQueue<>(Math.max(1, expirationMap.size()));
+        for (final Map.Entry<Object, Long> entry : expirationMap.entrySet()) {
+            final long expirationTime = entry.getValue().longValue();
+            if (expirationTime >= 0) {
+                queue.add(new Deadline(entry.getKey(), expirationTime));
+            }
+        }
+        expirationQueue = queue;
+    }
+
+    /**
+     * Schedules a periodic removal of all expired entries, so that the memory they
+     * hold is reclaimed even if the map is not used.
+     * <p>
+     * The sweep synchronizes on this map. As the map is not thread-safe, every other
+     * access to it must then synchronize on the map as well, for example with
+     * {@code synchronized (map) { ... }}. Wrapping this map with
+     * {@link java.util.Collections#synchronizedMap(Map)} is not enough, as the wrapper
+     * locks itself rather than this map.
+     * </p>
+     *
+     * @param executor the executor to run the sweep on, must not be null.
+     * @param period the delay between the end of one sweep and the start of the next.
+     * @param timeUnit the unit of time for the {@code period} parameter, must
+     *        not be null.
+     * @return the future of the sweep, which may be used to cancel it.
+     * @throws NullPointerException if the executor or time unit is null.
+     * @throws IllegalArgumentException if the period is not positive.
+     * @since 4.6
+     */
+    public ScheduledFuture<?> scheduleSweep(final ScheduledExecutorService executor, final long period,
+                                            final TimeUnit timeUnit) {
+        Objects.requireNonNull(executor, "executor");
+        Objects.requireNonNull(timeUnit, "timeUnit");
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return executor.scheduleWithFixedDelay(() -> {
+            synchronized (this) {
+                removeAllExpired(now());
+            }
+        }, period, period, timeUnit);
+    }
+
     /**
      * Removes the entry with the given key if the entry's expiration time is
      * less than {@code now}. If the entry has a negative expiration time,
-     * the entry is never removed.
+     * the entry is never removed. The removal goes through {@link #remove(Object)},
+     * which compacts the queue.
      */
     private void removeIfExpired(final Object key, final long nowMillis) {
         final Long expirationTimeObject = expirationMap.get(key);
@@ -509,6 +595,7 @@ public class PassiveExpiringMap<K, V>
         throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         map = (Map<K, V>) in.readObject(); // (1)
+        rebuildExpirationQueue();
     }
 
     /**
@@ -532,4 +619,26 @@ public class PassiveExpiringMap<K, V>
         removeAllExpired(now());
         return super.values();
     }
+
+    /**
+     * The expiration time of a key, ordered by time.
+     */
+    private static final class Deadline implements Comparable<Deadline> {
+
+        /** The key, as recorded in the expiration map. */
+        final Object key;
+
+        /** The expiration time in milliseconds. */
+        final long time;
+
+        Deadline(final Object key, final long time) {
+            this.key = key;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(final Deadline other) {
+            return Long.compare(time, other.time);
+        }
+    }
 }
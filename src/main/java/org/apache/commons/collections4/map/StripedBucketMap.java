@@ -0,0 +1,805 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.collections4.IterableMap;
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.keyvalue.AbstractMapEntry;
+
+/**
+ * A thread-safe {@code Map} that stripes its locks like {@link StaticBucketMap},
+ * but lets each stripe grow its own hash table.
+ * <p>
+ * The keys are divided between a fixed number of stripes by the high bits of
+ * their hash. Each stripe is an independently resized hash table guarded by its
+ * own monitor, so writers to different stripes never contend, and a map which
+ * grows far beyond its initial capacity does not degrade into long chains.
+ * </p>
+ * <p>
+ * Reads take no lock at all. The chains of a table are immutable apart from the
+ * values, and are published with volatile writes, so {@link #get(Object) get},
+ * {@link #containsKey(Object) containsKey} and iteration always see a consistent
+ * chain, even while the stripe is being resized.
+ * </p>
+ * <p>
+ * {@link #putIfAbsent(Object, Object) putIfAbsent}, {@link #remove(Object, Object)}
+ * and the two {@code replace} methods are atomic. Bulk operations, such as
+ * {@link #putAll(Map) putAll}, {@link #clear() clear} or the {@code removeAll}
+ * operation of the collection views, are <i>not</i> atomic: they are applied one
+ * stripe at a time, and concurrent readers may see them partly done. The results of
+ * {@link #size()} and {@link #isEmpty()} are likewise out-of-date as soon as they are
+ * produced.
+ * </p>
+ * <p>
+ * The iterators returned by {@link #mapIterator()} and the collection views are
+ * weakly consistent. They <i>never</i> raise a
+ * {@link java.util.ConcurrentModificationException}, return each mapping at most
+ * once, and may or may not reflect changes made after they were created.
+ * </p>
+ * <p>
+ * Null keys and values are permitted.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see StaticBucketMap
+ * @since 4.6
+ */
+public class StripedBucketMap<K, V> extends AbstractMap<K, V> implements IterableMap<K, V> {
+
+    /** The default total capacity */
+    private static final int DEFAULT_CAPACITY = 64;
+    /** The maximum number of stripes */
+    private static final int MAXIMUM_STRIPES = 1 << 16;
+    /** The maximum capacity of a single stripe */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    /** The load factor of every stripe */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** The stripes, where the actual data is held */
+    private final Stripe<K, V>[] stripes;
+    /** The shift which moves the stripe bits of a hash to the bottom */
+    private final int stripeShift;
+    /** Entry set */
+    private transient EntrySet entrySet;
+    /** Key set */
+    private transient KeySet keySet;
+    /** Values */
+    private transient Values values;
+
+    /**
+     * Constructs a new empty map with the default capacity and four stripes
+     * for every available processor.
+     */
+    public StripedBucketMap() {
+        this(DEFAULT_CAPACITY, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Constructs a new empty map with the specified initial capacity and the
+     * default number of stripes.
+     *
+     * @param initialCapacity  the number of mappings to hold before any stripe resizes
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public StripedBucketMap(final int initialCapacity) {
+        this(initialCapacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Constructs a new empty map with the specified initial capacity and number
+     * of stripes.
+     * <p>
+     * The number of stripes is rounded up to a power of two; it bounds the number
+     * of writers that can proceed without contention and is never changed.
+     * </p>
+     *
+     * @param initialCapacity  the number of mappings to hold before any stripe resizes
+     * @param concurrencyLevel  the number of stripes
+     * @throws IllegalArgumentException if the initial capacity is negative
+     * @throws IllegalArgumentException if the concurrency level is less than one
+     */
+    public StripedBucketMap(final int initialCapacity, final int concurrencyLevel) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity must not be negative");
+        }
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Concurrency level must be at least one");
+        }
+        final int stripeCount = powerOfTwo(Math.min(concurrencyLevel, MAXIMUM_STRIPES));
+        stripeShift = 32 - Integer.numberOfTrailingZeros(stripeCount);
+        final int perStripe = powerOfTwo((int) Math.min(MAXIMUM_CAPACITY,
+            (long) Math.ceil((double) initialCapacity / stripeCount / LOAD_FACTOR)));
+        @SuppressWarnings("unchecked")
+        final Stripe<K, V>[] newStripes = (Stripe<K, V>[]) new Stripe<?, ?>[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            newStripes[i] = new Stripe<>(Math.max(2, perStripe));
+        }
+        stripes = newStripes;
+    }
+
+    /**
+     * Constructor copying elements from another map.
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map is null
+     */
+    public StripedBucketMap(final Map<? extends K, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    private static int powerOfTwo(final int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Spreads the hash code of a key so that both the stripe, taken from the high
+     * bits, and the bucket, taken from the low bits, depend on all of its bits.
+     *
+     * @param key  the key, may be null
+     * @return the spread hash
+     */
+    static int hash(final Object key) {
+        if (key == null) {
+            return 0;
+        }
+        final int h = key.hashCode() * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    private Stripe<K, V> stripeFor(final int hash) {
+        // a shift of 32 leaves the hash unchanged, the mask then selects the only stripe
+        return stripes[hash >>> stripeShift & stripes.length - 1];
+    }
+
+    private static boolean eq(final Object key, final Object other) {
+        return key == other || key != null && key.equals(other);
+    }
+
+    /**
+     * Gets the current size of the map.
+     * The value is computed fresh each time the method is called.
+     *
+     * @return the current size
+     */
+    @Override
+    public int size() {
+        long count = 0;
+        for (final Stripe<K, V> stripe : stripes) {
+            count += stripe.count;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    /**
+     * Checks if the size is currently zero.
+     *
+     * @return true if empty
+     */
+    @Override
+    public boolean isEmpty() {
+        for (final Stripe<K, V> stripe : stripes) {
+            if (stripe.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value associated with the key, without locking.
+     *
+     * @param key  the key to retrieve
+     * @return the associated value
+     */
+    @Override
+    public V get(final Object key) {
+        final Node<K, V> node = getNode(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Checks if the map contains the specified key, without locking.
+     *
+     * @param key  the key to check
+     * @return true if found
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return getNode(key) != null;
+    }
+
+    private Node<K, V> getNode(final Object key) {
+        final int hash = hash(key);
+        final AtomicReferenceArray<Node<K, V>> table = stripeFor(hash).table;
+        for (Node<K, V> node = table.get(hash & table.length() - 1); node != null; node = node.next) {
+            if (node.hash == hash && eq(key, node.key)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the map contains the specified value, without locking.
+     *
+     * @param value  the value to check
+     * @return true if found
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        for (final Stripe<K, V> stripe : stripes) {
+            final AtomicReferenceArray<Node<K, V>> table = stripe.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<K, V> node = table.get(i); node != null; node = node.next) {
+                    if (eq(value, node.value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts a new key value mapping into the map.
+     *
+     * @param key  the key to use
+     * @param value  the value to use
+     * @return the previous mapping for the key
+     */
+    @Override
+    public V put(final K key, final V value) {
+        final int hash = hash(key);
+        return stripeFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Atomically puts a mapping if the key is absent or mapped to null.
+     *
+     * @param key  the key to use
+     * @param value  the value to use
+     * @return the previous mapping for the key
+     */
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        final int hash = hash(key);
+        return stripeFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * Removes the specified key from the map.
+     *
+     * @param key  the key to remove
+     * @return the previous value at this key
+     */
+    @Override
+    public V remove(final Object key) {
+        final int hash = hash(key);
+        final Node<K, V> node = stripeFor(hash).remove(key, hash, null, false);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Atomically removes the key if it is mapped to the specified value.
+     *
+     * @param key  the key to remove
+     * @param value  the value the key must be mapped to
+     * @return true if the mapping was removed
+     */
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        final int hash = hash(key);
+        return stripeFor(hash).remove(key, hash, value, true) != null;
+    }
+
+    /**
+     * Atomically replaces the value of the key if it is mapped.
+     *
+     * @param key  the key to replace
+     * @param value  the new value
+     * @return the previous value, null if the key was not mapped
+     */
+    @Override
+    public V replace(final K key, final V value) {
+        final int hash = hash(key);
+        final Node<K, V> node = stripeFor(hash).replace(key, hash, null, value, false);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Atomically replaces the value of the key if it is mapped to the expected value.
+     *
+     * @param key  the key to replace
+     * @param oldValue  the value the key must be mapped to
+     * @param newValue  the new value
+     * @return true if the value was replaced
+     */
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        final int hash = hash(key);
+        return stripeFor(hash).replace(key, hash, oldValue, newValue, true) != null;
+    }
+
+    /**
+     * Puts each mapping of the specified map into this map, one at a time.
+     * This is not atomic.
+     *
+     * @param map  the map of entries to add
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> map) {
+        for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Clears the map of all entries, one stripe at a time.
+     * This is not atomic.
+     */
+    @Override
+    public void clear() {
+        for (final Stripe<K, V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Gets a weakly consistent iterator over the map.
+     *
+     * @return the map iterator
+     */
+    @Override
+    public MapIterator<K, V> mapIterator() {
+        return new StripedMapIterator();
+    }
+
+    /**
+     * Gets the entry set.
+     *
+     * @return the entry set
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Gets the key set.
+     *
+     * @return the key set
+     */
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) {
+            keySet = new KeySet();
+        }
+        return keySet;
+    }
+
+    /**
+     * Gets the values.
+     *
+     * @return the values
+     */
+    @Override
+    public Collection<V> values() {
+        if (values == null) {
+            values = new Values();
+        }
+        return values;
+    }
+
+    /**
+     * A link in a chain. Only the value is mutable, and it is only written under
+     * the lock of the stripe, so a removal copies the part of the chain before the
+     * removed node rather than unlinking it.
+     */
+    static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        final Node<K, V> next;
+
+        Node(final int hash, final K key, final V value, final Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A hash table holding the keys whose hashes share the same high bits.
+     * All writes synchronize on the stripe.
+     */
+    static final class Stripe<K, V> {
+
+        /** The buckets, replaced as a whole when the stripe is resized */
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        /** The number of mappings in the stripe */
+        volatile int count;
+        /** The count at which the stripe is resized */
+        private int threshold;
+
+        Stripe(final int capacity) {
+            table = new AtomicReferenceArray<>(capacity);
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        synchronized V put(final K key, final int hash, final V value, final boolean onlyIfAbsent) {
+            AtomicReferenceArray<Node<K, V>> table = this.table;
+            int index = hash & table.length() - 1;
+            Node<K, V> first = table.get(index);
+            for (Node<K, V> node = first; node != null; node = node.next) {
+                if (node.hash == hash && eq(key, node.key)) {
+                    final V old = node.value;
+                    if (!onlyIfAbsent || old == null) {
+                        node.value = value;
+                    }
+                    return old;
+                }
+            }
+            if (count >= threshold && resize()) {
+                table = this.table;
+                index = hash & table.length() - 1;
+                first = table.get(index);
+            }
+            table.set(index, new Node<>(hash, key, value, first));
+            count = count + 1;
+            return null;
+        }
+
+        synchronized Node<K, V> remove(final Object key, final int hash, final Object value, final boolean matchValue) {
+            final AtomicReferenceArray<Node<K, V>> table = this.table;
+            final int index = hash & table.length() - 1;
+            final Node<K, V> first = table.get(index);
+            for (Node<K, V> node = first; node != null; node = node.next) {
+                if (node.hash == hash && eq(key, node.key)) {
+                    if (matchValue && !eq(value, node.value)) {
+                        return null;
+                    }
+                    Node<K, V> head = node.next;
+                    for (Node<K, V> p = first; p != node; p = p.next) {
+                        head = new Node<>(p.hash, p.key, p.value, head);
+                    }
+                    table.set(index, head);
+                    count = count - 1;
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Replaces the value of a mapping, returning a node holding the old value.
+         */
+        synchronized Node<K, V> replace(final K key, final int hash, final V oldValue, final V newValue,
+                final boolean matchValue) {
+            final AtomicReferenceArray<Node<K, V>> table = this.table;
+            for (Node<K, V> node = table.get(hash & table.length() - 1); node != null; node = node.next) {
+                if (node.hash == hash && eq(key, node.key)) {
+                    final V old = node.value;
+                    if (matchValue && !eq(oldValue, old)) {
+                        return null;
+                    }
+                    node.value = newValue;
+                    return new Node<>(hash, key, old, null);
+                }
+            }
+            return null;
+        }
+
+        synchronized void clear() {
+            if (count != 0) {
+                table = new AtomicReferenceArray<>(table.length());
+                count = 0;
+            }
+        }
+
+        /**
+         * Doubles the table. Nodes at the end of a chain that stay together are reused,
+         * the others are copied, so readers of the old table are not disturbed.
+         *
+         * @return false if the table is already at its maximum capacity
+         */
+        private boolean resize() {
+            final AtomicReferenceArray<Node<K, V>> oldTable = table;
+            final int oldCapacity = oldTable.length();
+            if (oldCapacity >= MAXIMUM_CAPACITY) {
+                return false;
+            }
+            final int newCapacity = oldCapacity << 1;
+            final int mask = newCapacity - 1;
+            @SuppressWarnings("unchecked")
+            final Node<K, V>[] newTable = (Node<K, V>[]) new Node<?, ?>[newCapacity];
+            for (int i = 0; i < oldCapacity; i++) {
+                final Node<K, V> first = oldTable.get(i);
+                if (first == null) {
+                    continue;
+                }
+                Node<K, V> lastRun = first;
+                int lastIndex = first.hash & mask;
+                for (Node<K, V> node = first.next; node != null; node = node.next) {
+                    final int index = node.hash & mask;
+                    if (index != lastIndex) {
+                        lastIndex = index;
+                        lastRun = node;
+                    }
+                }
+                newTable[lastIndex] = lastRun;
+                for (Node<K, V> node = first; node != lastRun; node = node.next) {
+                    final int index = node.hash & mask;
+                    newTable[index] = new Node<>(node.hash, node.key, node.value, newTable[index]);
+                }
+            }
+            threshold = (int) (newCapacity * LOAD_FACTOR);
+            table = new AtomicReferenceArray<>(newTable);
+            return true;
+        }
+    }
+
+    /**
+     * Base iterator, walking the stripes in turn and each bucket of the table
+     * a stripe had when the iterator reached it.
+     */
+    private abstract class BaseIterator {
+
+        /** The next stripe to visit */
+        private int stripeIndex;
+        /** The table being walked */
+        private AtomicReferenceArray<Node<K, V>> table;
+        /** The next bucket to visit */
+        private int bucketIndex;
+        /** The next node */
+        private Node<K, V> next;
+        /** The last returned node */
+        private Node<K, V> last;
+
+        BaseIterator() {
+            advance();
+        }
+
+        private void advance() {
+            while (next == null) {
+                if (table != null && bucketIndex < table.length()) {
+                    next = table.get(bucketIndex++);
+                } else if (stripeIndex < stripes.length) {
+                    table = stripes[stripeIndex++].table;
+                    bucketIndex = 0;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        protected Node<K, V> nextNode() {
+            final Node<K, V> node = next;
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            next = node.next;
+            advance();
+            last = node;
+            return node;
+        }
+
+        protected Node<K, V> currentNode(final String message) {
+            if (last == null) {
+                throw new IllegalStateException(message);
+            }
+            return last;
+        }
+
+        public void remove() {
+            StripedBucketMap.this.remove(currentNode(AbstractHashedMap.REMOVE_INVALID).key);
+            last = null;
+        }
+    }
+
+    /**
+     * MapIterator implementation.
+     */
+    private final class StripedMapIterator extends BaseIterator implements MapIterator<K, V> {
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+
+        @Override
+        public K getKey() {
+            return currentNode(AbstractHashedMap.GETKEY_INVALID).key;
+        }
+
+        @Override
+        public V getValue() {
+            return currentNode(AbstractHashedMap.GETVALUE_INVALID).value;
+        }
+
+        /**
+         * Sets the value by putting it into the map, so that it is visible even if
+         * the node returned by the iterator has since been copied by a removal.
+         */
+        @Override
+        public V setValue(final V value) {
+            return put(currentNode(AbstractHashedMap.SETVALUE_INVALID).key, value);
+        }
+    }
+
+    /**
+     * An entry returned by the entry set iterator, writing through to the map.
+     */
+    private final class StripedEntry extends AbstractMapEntry<K, V> {
+
+        StripedEntry(final K key, final V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * EntrySet implementation.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return StripedBucketMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            StripedBucketMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            final Node<K, V> node = getNode(entry.getKey());
+            return node != null && eq(entry.getValue(), node.value);
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            return StripedBucketMap.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * EntrySet iterator.
+     */
+    private final class EntryIterator extends BaseIterator implements Iterator<Map.Entry<K, V>> {
+
+        @Override
+        public Map.Entry<K, V> next() {
+            final Node<K, V> node = nextNode();
+            return new StripedEntry(node.key, node.value);
+        }
+    }
+
+    /**
+     * KeySet implementation.
+     */
+    private final class KeySet extends AbstractSet<K> {
+
+        @Override
+        public int size() {
+            return StripedBucketMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            StripedBucketMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object key) {
+            return containsKey(key);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            final int hash = hash(key);
+            return stripeFor(hash).remove(key, hash, null, false) != null;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+    }
+
+    /**
+     * KeySet iterator.
+     */
+    private final class KeyIterator extends BaseIterator implements Iterator<K> {
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    /**
+     * Values implementation.
+     */
+    private final class Values extends AbstractCollection<V> {
+
+        @Override
+        public int size() {
+            return StripedBucketMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            StripedBucketMap.this.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+    }
+
+    /**
+     * Values iterator.
+     */
+    private final class ValueIterator extends BaseIterator implements Iterator<V> {
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.collections4.OrderedMapIterator;
 
@@ -133,12 +134,7 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         // The only place to store a key with a length
         // of zero bits is the root node
         if (lengthInBits == 0) {
-            if (root.isEmpty()) {
-                incrementSize();
-            } else {
-                incrementModCount();
-            }
-            return root.setKeyValue(key, value);
+            return putRoot(key, value);
         }
 
         final TrieEntry<K, V> found = getNearestEntryForKey(key, lengthInBits);
@@ -165,13 +161,7 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
                 // store such a Key is the root Node!
 
                 /* NULL BIT KEY */
-                if (root.isEmpty()) {
-                    incrementSize();
-                } else {
-                    incrementModCount();
-                }
-                return root.setKeyValue(key, value);
-
+                return putRoot(key, value);
             }
             if (KeyAnalyzer.isEqualBitKey(bitIndex) && found != root) { // NOPMD
                 incrementModCount();
@@ -182,6 +172,21 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         throw new IllegalArgumentException("Failed to put: " + key + " -> " + value + ", " + bitIndex);
     }
 
+    /**
+     * Stores a key whose bits are all zero in the root.
+     */
+    private V putRoot(final K key, final V value) {
+        if (!root.isEmpty()) {
+            incrementModCount();
+            return root.setKeyValue(key, value);
+        }
+        incrementSize();
+        final V oldValue = root.setKeyValue(key, value);
+        // the uplink to the root now leads to a key
+        updateKeyCounts(root.predecessor);
+        return oldValue;
+    }
+
     /**
      * Adds the given {@link TrieEntry} to the {@link org.apache.commons.collections4.Trie}.
      */
@@ -217,6 +222,7 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
                     path.right = entry;
                 }
 
+                updateKeyCounts(entry);
                 return entry;
             }
 
@@ -476,7 +482,12 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         }
 
         decrementSize();
-        return h.setKeyValue(null, null);
+        final V oldValue = h.setKeyValue(null, null);
+        if (h == root) {
+            // the uplink to the root no longer leads to a key
+            updateKeyCounts(root.predecessor);
+        }
+        return oldValue;
     }
 
     /**
@@ -509,6 +520,7 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
             child.predecessor = parent;
         }
 
+        updateKeyCounts(parent);
     }
 
     /**
@@ -527,6 +539,8 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         }
 
         final TrieEntry<K, V> p = h.predecessor;
+        // the lowest entry whose links change
+        final TrieEntry<K, V> lowest = p.parent != h ? p.parent : p;
 
         // Set P's bitIndex
         p.bitIndex = h.bitIndex;
@@ -584,14 +598,39 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         p.right = h.right;
 
         // Make sure that if h was pointing to any uplinks,
-        // p now points to them.
-        if (isValidUplink(p.left, p)) {
+        // p now points to them. This includes an uplink to
+        // the empty root, which may later get a key.
+        if (p.left.bitIndex <= p.bitIndex) {
             p.left.predecessor = p;
         }
 
-        if (isValidUplink(p.right, p)) {
+        if (p.right.bitIndex <= p.bitIndex) {
             p.right.predecessor = p;
         }
+
+        updateKeyCounts(lowest);
+    }
+
+    /**
+     * Recomputes the number of keys below an entry and below each of its parents, after the
+     * links below the entry changed.
+     */
+    private void updateKeyCounts(TrieEntry<K, V> entry) {
+        while (entry != null && entry != root) {
+            entry.keyCount = keyCount(entry, entry.left) + keyCount(entry, entry.right);
+            entry = entry.parent;
+        }
+    }
+
+    /**
+     * Returns the number of keys reached through a link of an entry.
+     */
+    private static int keyCount(final TrieEntry<?, ?> entry, final TrieEntry<?, ?> child) {
+        if (child.bitIndex > entry.bitIndex) {
+            return child.keyCount;
+        }
+        // an uplink, which leads to a single key unless it is the empty root
+        return child.isEmpty() ? 0 : 1;
     }
 
     /**
@@ -742,6 +781,14 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         return followLeft(root);
     }
 
+    /**
+     * Returns the root entry, which holds the empty key if any. Its left child is the top of
+     * the tree, or the root itself if no other key is stored.
+     */
+    TrieEntry<K, V> getRoot() {
+        return root;
+    }
+
     /**
      * Goes left through the tree until it finds a valid node.
      */
@@ -811,11 +858,149 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         return new TrieMapIterator();
     }
 
+    /**
+     * Copies the mappings of this {@link org.apache.commons.collections4.Trie} into an immutable
+     * {@link PackedTrie}, which holds them in arrays with a fraction of the memory. Later changes
+     * to this trie are not reflected in the copy.
+     *
+     * @return an immutable copy of this trie
+     * @since 4.6
+     */
+    public PackedTrie<K, V> freeze() {
+        return PackedTrie.of(getKeyAnalyzer(), this);
+    }
+
     @Override
     public SortedMap<K, V> prefixMap(final K key) {
         return getPrefixMapByBits(key, 0, lengthInBits(key));
     }
 
+    /**
+     * Returns a view of this {@link org.apache.commons.collections4.Trie} of all elements whose
+     * keys start with the leading bits of the given key. For keys of fixed length, such as those
+     * of the {@link org.apache.commons.collections4.trie.analyzer.IntegerKeyAnalyzer}, this is the
+     * only useful prefix map: for a network address and a prefix length it holds the addresses of
+     * the network.
+     *
+     * @param key  the key whose leading bits are the prefix
+     * @param lengthInBits  the number of leading bits of the key in the prefix
+     * @return a {@link SortedMap} view of this {@link org.apache.commons.collections4.Trie} with all
+     *   elements whose key starts with the prefix
+     * @throws IllegalArgumentException if {@code lengthInBits} is negative or greater than the
+     *   number of bits of the key
+     * @see #prefixMap(Object)
+     * @since 4.6
+     */
+    public SortedMap<K, V> prefixMap(final K key, final int lengthInBits) {
+        if (lengthInBits < 0) {
+            throw new IllegalArgumentException("lengthInBits must not be negative: " + lengthInBits);
+        }
+        return getPrefixMapByBits(key, 0, lengthInBits);
+    }
+
+    /**
+     * Returns the mapping whose key is the longest prefix of the given key, such as the most
+     * specific route for an address. This is a single search down the trie, with no view.
+     * <p>
+     * For example, if the {@link org.apache.commons.collections4.Trie} contains 'A', 'And' and
+     * 'Andreas', the longest prefix of 'Andrea' is 'And'.
+     * </p>
+     *
+     * @param key  the key whose prefixes are looked up
+     * @return the mapping whose key is the longest prefix of the key, possibly the key itself,
+     *   or null if no key is a prefix of the key
+     * @throws NullPointerException if the key is null
+     * @since 4.6
+     */
+    public Map.Entry<K, V> longestPrefixOf(final K key) {
+        Objects.requireNonNull(key, "key");
+        final int lengthInBits = lengthInBits(key);
+        TrieEntry<K, V> longest = longerPrefix(null, root, key);
+        TrieEntry<K, V> current = root.left;
+        TrieEntry<K, V> path = root;
+        while (current.bitIndex > path.bitIndex) {
+            path = current;
+            if (!isBitSet(key, current.bitIndex, lengthInBits)) {
+                current = current.left;
+            } else {
+                // A prefix that ends before this bit has zero bits from its end on,
+                // so it is the leftmost key on the other side.
+                if (longest == null || lengthInBits(longest.key) < current.bitIndex) {
+                    longest = longerPrefix(longest, followLeft(current), key);
+                }
+                current = current.right;
+            }
+        }
+        return longerPrefix(longest, current, key);
+    }
+
+    /**
+     * Returns the candidate if its key is a prefix of the key longer than the longest found so
+     * far, otherwise the longest.
+     */
+    private TrieEntry<K, V> longerPrefix(final TrieEntry<K, V> longest, final TrieEntry<K, V> candidate,
+                                         final K key) {
+        if (candidate.isEmpty() || candidate == longest) {
+            return longest;
+        }
+        final int lengthInBits = lengthInBits(candidate.key);
+        if (longest != null && lengthInBits <= lengthInBits(longest.key)) {
+            return longest;
+        }
+        return getKeyAnalyzer().isPrefix(candidate.key, 0, lengthInBits, key) ? candidate : longest;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation reads the number of keys kept in the trie nodes, so it takes time in
+     * proportion to the depth of the trie rather than to the number of keys counted.
+     * </p>
+     */
+    @Override
+    public int countWithPrefix(final K key) {
+        final int lengthInBits = lengthInBits(key);
+        if (lengthInBits == 0) {
+            return size();
+        }
+        final TrieEntry<K, V> entry = subtree(key, 0, lengthInBits);
+        if (entry == null) {
+            return 0;
+        }
+        return lengthInBits > entry.bitIndex ? 1 : entry.keyCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation walks the subtree of the prefix directly.
+     * </p>
+     */
+    @Override
+    public void forEachWithPrefix(final K key, final BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action, "action");
+        final int lengthInBits = lengthInBits(key);
+        if (lengthInBits == 0) {
+            forEach(action);
+            return;
+        }
+        final TrieEntry<K, V> subtree = subtree(key, 0, lengthInBits);
+        if (subtree == null) {
+            return;
+        }
+        if (lengthInBits > subtree.bitIndex) {
+            action.accept(subtree.getKey(), subtree.getValue());
+            return;
+        }
+        final int expectedModCount = modCount;
+        for (TrieEntry<K, V> entry = followLeft(subtree); entry != null; entry = nextEntryInSubtree(entry, subtree)) {
+            action.accept(entry.getKey(), entry.getValue());
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
     /**
      * Returns a view of this {@link org.apache.commons.collections4.Trie} of all elements that are prefixed
      * by the number of bits in the given Key.
@@ -1284,6 +1469,9 @@ abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> {
         /** The entry who uplinks to this entry. */
         protected TrieEntry<K, V> predecessor;
 
+        /** The number of keys reached through the uplinks below this entry. */
+        int keyCount;
+
         public TrieEntry(final K key, final V value, final int bitIndex) {
             super(key, value);
 
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.Map;
+
+/**
+ * A PATRICIA {@link org.apache.commons.collections4.Trie} for keys of any type, analyzed by a
+ * given {@link KeyAnalyzer}. With the analyzers of binary keys, such as
+ * {@link org.apache.commons.collections4.trie.analyzer.ByteArrayKeyAnalyzer ByteArrayKeyAnalyzer},
+ * {@link org.apache.commons.collections4.trie.analyzer.LongKeyAnalyzer LongKeyAnalyzer} and
+ * {@link org.apache.commons.collections4.trie.analyzer.InetAddressKeyAnalyzer InetAddressKeyAnalyzer},
+ * IP prefixes, UUIDs and binary tokens can be held without converting them to strings, and the
+ * keys are compared a whole 64-bit word at a time.
+ * <p>
+ * Keys of fixed length are best searched by the leading bits of a key with
+ * {@link #prefixMap(Object, int)}.
+ * </p>
+ * <p>
+ * Keys are equal if the analyzer compares them as equal, so arrays can be used as keys; the
+ * {@link #equals(Object)} and {@link #hashCode()} methods of the map, however, use the
+ * {@code equals} and {@code hashCode} methods of the keys.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see PatriciaTrie
+ * @since 4.6
+ */
+public class BinaryTrie<K, V> extends AbstractPatriciaTrie<K, V> {
+
+    private static final long serialVersionUID = -2237420616516416416L;
+
+    /**
+     * Constructs an empty trie.
+     *
+     * @param keyAnalyzer  the analyzer of the keys
+     * @throws NullPointerException if the analyzer is null
+     */
+    public BinaryTrie(final KeyAnalyzer<? super K> keyAnalyzer) {
+        super(keyAnalyzer);
+    }
+
+    /**
+     * Constructs a trie holding the mappings of a map.
+     *
+     * @param keyAnalyzer  the analyzer of the keys
+     * @param m  the mappings to copy
+     * @throws NullPointerException if the analyzer or the map is null
+     */
+    public BinaryTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> m) {
+        super(keyAnalyzer, m);
+    }
+}
@@ -0,0 +1,1026 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.keyvalue.AbstractMapEntry;
+
+/**
+ * A thread-safe {@link org.apache.commons.collections4.Trie} whose reads take no locks.
+ * <p>
+ * The trie is a persistent crit-bit tree: its nodes are never changed once built. A writer copies
+ * the nodes on the path to the changed key, which is a number of nodes in proportion to the depth
+ * of the trie, and publishes the new root with a single compare-and-set, retrying if another
+ * writer published first. A reader reads the root once and searches the tree it leads to, so it
+ * never waits for a writer and never sees half of a change.
+ * </p>
+ * <p>
+ * Every read therefore works on a snapshot. The iterators of the views, including those of
+ * {@link #prefixMap(Object)}, iterate over the snapshot taken when they are created: they never
+ * throw {@link java.util.ConcurrentModificationException} and do not reflect later changes. The
+ * views themselves are live, and take a new snapshot for each call. Removing through an iterator,
+ * or setting the value of an entry, writes to the trie.
+ * </p>
+ * <p>
+ * The atomic operations of {@link ConcurrentMap} are supported; the functions given to
+ * {@link #compute(Object, java.util.function.BiFunction) compute} and the like may be applied more
+ * than once when writers contend. Bulk operations such as {@link #putAll(Map)} and clearing a view
+ * are not atomic. Null keys and values are not permitted.
+ * </p>
+ * <p>
+ * Each entry takes a leaf node and a branch node. Branches also hold the number of keys below
+ * them, so that {@link #size()} and {@link #countWithPrefix(Object)}, and the size of a view,
+ * take time in proportion to the depth of the trie.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see PatriciaTrie
+ * @since 4.6
+ */
+public final class ConcurrentPatriciaTrie<K, V> extends AbstractBitwiseTrie<K, V> implements ConcurrentMap<K, V> {
+
+    private static final long serialVersionUID = 2838401839187361538L;
+
+    /** Updates the root. */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentPatriciaTrie, Node> ROOT =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrentPatriciaTrie.class, Node.class, "root");
+
+    /**
+     * Returns the leaf at an index in a snapshot.
+     */
+    private static <K, V> Leaf<K, V> leafAt(Node<K, V> node, int index) {
+        while (node instanceof Branch) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            final int leftSize = branch.left.size();
+            if (index < leftSize) {
+                node = branch.left;
+            } else {
+                index -= leftSize;
+                node = branch.right;
+            }
+        }
+        return (Leaf<K, V>) node;
+    }
+
+    /**
+     * Returns the number of keys in a snapshot.
+     */
+    private static int size(final Node<?, ?> root) {
+        return root == null ? 0 : root.size();
+    }
+
+    /** The root of the current snapshot, or null if the trie is empty. */
+    private transient volatile Node<K, V> root;
+
+    /**
+     * Constructs an empty trie.
+     *
+     * @param keyAnalyzer  the analyzer of the keys
+     * @throws NullPointerException if the analyzer is null
+     */
+    public ConcurrentPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer) {
+        super(keyAnalyzer);
+    }
+
+    /**
+     * Constructs a trie holding the mappings of a map.
+     *
+     * @param keyAnalyzer  the analyzer of the keys
+     * @param m  the mappings to copy
+     * @throws NullPointerException if the analyzer or the map is null, or the map holds a null
+     *   key or value
+     */
+    public ConcurrentPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> m) {
+        super(keyAnalyzer);
+        putAll(m);
+    }
+
+    /**
+     * Returns the leaf reached by following the bits of a key, which is the only leaf that may
+     * hold the key.
+     */
+    private Leaf<K, V> closestLeaf(Node<K, V> node, final K key, final int lengthInBits) {
+        if (node == null) {
+            return null;
+        }
+        while (node instanceof Branch) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            node = isBitSet(key, branch.bitIndex, lengthInBits) ? branch.right : branch.left;
+        }
+        return (Leaf<K, V>) node;
+    }
+
+    /**
+     * Returns the leaf of a key in a snapshot, or null.
+     */
+    private Leaf<K, V> getLeaf(final Node<K, V> root, final Object k) {
+        final K key = castKey(k);
+        if (key == null) {
+            return null;
+        }
+        final Leaf<K, V> leaf = closestLeaf(root, key, lengthInBits(key));
+        return leaf != null && compareKeys(key, leaf.key) ? leaf : null;
+    }
+
+    /**
+     * Returns the index of the first key in a snapshot that is equal to or greater than a key.
+     */
+    private int ceilingIndex(final Node<K, V> root, final K key) {
+        final int lengthInBits = lengthInBits(key);
+        final Leaf<K, V> closest = closestLeaf(root, key, lengthInBits);
+        if (closest == null) {
+            return 0;
+        }
+        // keys that cannot be told apart take the same place
+        final int bitIndex = bitIndex(key, closest.key);
+        final int limit = KeyAnalyzer.isValidBitIndex(bitIndex) ? bitIndex : Integer.MAX_VALUE;
+        int index = 0;
+        Node<K, V> node = root;
+        while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < limit) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            if (isBitSet(key, branch.bitIndex, lengthInBits)) {
+                index += branch.left.size();
+                node = branch.right;
+            } else {
+                node = branch.left;
+            }
+        }
+        // the keys below differ from the key at the critical bit, so they are all less or all greater
+        if (limit != Integer.MAX_VALUE && isBitSet(key, bitIndex, lengthInBits)) {
+            index += node.size();
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of a key in a snapshot, or -1.
+     */
+    private int indexOf(final Node<K, V> root, final K key) {
+        Objects.requireNonNull(key, "key");
+        final int index = ceilingIndex(root, key);
+        return index < size(root) && compareKeys(key, leafAt(root, index).key) ? index : -1;
+    }
+
+    /**
+     * Returns the indices {@code [from, to)} of the keys of a snapshot that start with a prefix.
+     */
+    private int[] prefixIndices(final Node<K, V> root, final K prefix) {
+        final int lengthInBits = lengthInBits(prefix);
+        int from = 0;
+        Node<K, V> node = root;
+        while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < lengthInBits) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            if (isBitSet(prefix, branch.bitIndex, lengthInBits)) {
+                from += branch.left.size();
+                node = branch.right;
+            } else {
+                node = branch.left;
+            }
+        }
+        // all the keys below share the bits of the prefix, so one of them tells if they start with it
+        if (node == null || !getKeyAnalyzer().isPrefix(prefix, 0, lengthInBits, leafAt(node, 0).key)) {
+            return new int[] {from, from};
+        }
+        return new int[] {from, from + node.size()};
+    }
+
+    /**
+     * Atomically replaces the leaf of a key.
+     * <p>
+     * The function is given the leaf of the key in the current snapshot, or null, and returns
+     * the new leaf, null to remove the key, or the same leaf to leave the trie as it is. It is
+     * applied again if another writer changes the trie in the meantime.
+     * </p>
+     *
+     * @return the leaf that the function was last given
+     */
+    private Leaf<K, V> update(final K key, final UnaryOperator<Leaf<K, V>> function) {
+        final int lengthInBits = lengthInBits(key);
+        while (true) {
+            final Node<K, V> current = root;
+            final Leaf<K, V> closest = closestLeaf(current, key, lengthInBits);
+            final Leaf<K, V> old = closest != null && compareKeys(key, closest.key) ? closest : null;
+            final Leaf<K, V> leaf = function.apply(old);
+            if (leaf == old) {
+                return old;
+            }
+            final Node<K, V> updated = leaf == null ? remove(current, key, lengthInBits)
+                : insert(current, leaf, lengthInBits, closest);
+            if (ROOT.compareAndSet(this, current, updated)) {
+                return old;
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of a snapshot with a leaf added, or replacing the leaf of its key.
+     */
+    private Node<K, V> insert(final Node<K, V> root, final Leaf<K, V> leaf, final int lengthInBits,
+                              final Leaf<K, V> closest) {
+        if (root == null) {
+            return leaf;
+        }
+        final int bitIndex = bitIndex(leaf.key, closest.key);
+        final boolean split = KeyAnalyzer.isValidBitIndex(bitIndex);
+        // a key that cannot be told apart from the closest replaces it
+        final int limit = split ? bitIndex : Integer.MAX_VALUE;
+        final List<Branch<K, V>> path = new ArrayList<>();
+        Node<K, V> node = root;
+        while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < limit) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            path.add(branch);
+            node = isBitSet(leaf.key, branch.bitIndex, lengthInBits) ? branch.right : branch.left;
+        }
+        Node<K, V> replacement = leaf;
+        if (split) {
+            replacement = isBitSet(leaf.key, bitIndex, lengthInBits) ? new Branch<>(bitIndex, node, leaf)
+                : new Branch<>(bitIndex, leaf, node);
+        }
+        return copyPath(path, path.size(), leaf.key, lengthInBits, replacement);
+    }
+
+    /**
+     * Returns a copy of a snapshot without the leaf of a key, which it must hold.
+     */
+    private Node<K, V> remove(final Node<K, V> root, final K key, final int lengthInBits) {
+        final List<Branch<K, V>> path = new ArrayList<>();
+        Node<K, V> node = root;
+        while (node instanceof Branch) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            path.add(branch);
+            node = isBitSet(key, branch.bitIndex, lengthInBits) ? branch.right : branch.left;
+        }
+        if (path.isEmpty()) {
+            return null;
+        }
+        // the sibling of the leaf takes the place of their parent
+        final Branch<K, V> parent = path.get(path.size() - 1);
+        final Node<K, V> sibling = isBitSet(key, parent.bitIndex, lengthInBits) ? parent.left : parent.right;
+        return copyPath(path, path.size() - 1, key, lengthInBits, sibling);
+    }
+
+    /**
+     * Copies the first branches of a path, from the bottom up, with a new node at the end.
+     */
+    private Node<K, V> copyPath(final List<Branch<K, V>> path, final int length, final K key,
+                                final int lengthInBits, Node<K, V> node) {
+        for (int i = length - 1; i >= 0; i--) {
+            final Branch<K, V> branch = path.get(i);
+            node = isBitSet(key, branch.bitIndex, lengthInBits) ? new Branch<>(branch.bitIndex, branch.left, node)
+                : new Branch<>(branch.bitIndex, node, branch.right);
+        }
+        return node;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Leaf<K, V> leaf = getLeaf(root, key);
+        return leaf != null ? leaf.value : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return getLeaf(root, key) != null;
+    }
+
+    @Override
+    public V put(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        final Leaf<K, V> leaf = new Leaf<>(key, value);
+        final Leaf<K, V> old = update(key, current -> leaf);
+        return old != null ? old.value : null;
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        final Leaf<K, V> leaf = new Leaf<>(key, value);
+        final Leaf<K, V> old = update(key, current -> current != null ? current : leaf);
+        return old != null ? old.value : null;
+    }
+
+    @Override
+    public V remove(final Object k) {
+        final K key = castKey(k);
+        if (key == null) {
+            return null;
+        }
+        final Leaf<K, V> old = update(key, current -> null);
+        return old != null ? old.value : null;
+    }
+
+    @Override
+    public boolean remove(final Object k, final Object value) {
+        final K key = castKey(k);
+        if (key == null || value == null) {
+            return false;
+        }
+        final Leaf<K, V> old = update(key, current -> current != null && current.value.equals(value) ? null : current);
+        return old != null && old.value.equals(value);
+    }
+
+    @Override
+    public V replace(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        final Leaf<K, V> old = update(key, current -> current != null ? new Leaf<>(current.key, value) : null);
+        return old != null ? old.value : null;
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(oldValue, "oldValue");
+        Objects.requireNonNull(newValue, "newValue");
+        final Leaf<K, V> old = update(key,
+            current -> current != null && current.value.equals(oldValue) ? new Leaf<>(current.key, newValue) : current);
+        return old != null && old.value.equals(oldValue);
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(new RangeMap(null, null, null));
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new KeySet(new RangeMap(null, null, null));
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return getKeyAnalyzer();
+    }
+
+    @Override
+    public K firstKey() {
+        final Node<K, V> snapshot = root;
+        if (snapshot == null) {
+            throw new NoSuchElementException();
+        }
+        return leafAt(snapshot, 0).key;
+    }
+
+    @Override
+    public K lastKey() {
+        final Node<K, V> snapshot = root;
+        if (snapshot == null) {
+            throw new NoSuchElementException();
+        }
+        return leafAt(snapshot, snapshot.size() - 1).key;
+    }
+
+    @Override
+    public K nextKey(final K key) {
+        final Node<K, V> snapshot = root;
+        final int index = indexOf(snapshot, key);
+        return index < 0 || index + 1 == size(snapshot) ? null : leafAt(snapshot, index + 1).key;
+    }
+
+    @Override
+    public K previousKey(final K key) {
+        final Node<K, V> snapshot = root;
+        final int index = indexOf(snapshot, key);
+        return index <= 0 ? null : leafAt(snapshot, index - 1).key;
+    }
+
+    @Override
+    public OrderedMapIterator<K, V> mapIterator() {
+        return new SnapshotMapIterator(root);
+    }
+
+    @Override
+    public SortedMap<K, V> prefixMap(final K key) {
+        if (lengthInBits(key) == 0) {
+            return this;
+        }
+        return new RangeMap(null, null, key);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(final K toKey) {
+        return new RangeMap(null, Objects.requireNonNull(toKey, "toKey"), null);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+        Objects.requireNonNull(fromKey, "fromKey");
+        Objects.requireNonNull(toKey, "toKey");
+        if (getKeyAnalyzer().compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new RangeMap(fromKey, toKey, null);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(final K fromKey) {
+        return new RangeMap(Objects.requireNonNull(fromKey, "fromKey"), null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation reads the number of keys kept in the branches of the current snapshot.
+     * </p>
+     */
+    @Override
+    public int countWithPrefix(final K key) {
+        final Node<K, V> snapshot = root;
+        if (lengthInBits(key) == 0) {
+            return size(snapshot);
+        }
+        final int[] indices = prefixIndices(snapshot, key);
+        return indices[1] - indices[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation visits the elements of the current snapshot.
+     * </p>
+     */
+    @Override
+    public void forEachWithPrefix(final K key, final BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action, "action");
+        final Node<K, V> snapshot = root;
+        final int[] indices = lengthInBits(key) == 0 ? new int[] {0, size(snapshot)} : prefixIndices(snapshot, key);
+        final Iterator<Leaf<K, V>> it = new LeafIterator(snapshot, indices[0], indices[1]);
+        while (it.hasNext()) {
+            final Leaf<K, V> leaf = it.next();
+            action.accept(leaf.key, leaf.value);
+        }
+    }
+
+    /**
+     * Writes the content to the stream for serialization.
+     */
+    private void writeObject(final ObjectOutputStream stream) throws IOException {
+        stream.defaultWriteObject();
+        final Node<K, V> snapshot = root;
+        stream.writeInt(size(snapshot));
+        final Iterator<Leaf<K, V>> it = new LeafIterator(snapshot, 0, size(snapshot));
+        while (it.hasNext()) {
+            final Leaf<K, V> leaf = it.next();
+            stream.writeObject(leaf.key);
+            stream.writeObject(leaf.value);
+        }
+    }
+
+    /**
+     * Reads the content of the stream.
+     */
+    @SuppressWarnings("unchecked") // This will fail at runtime if the stream is incorrect
+    private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        final int size = stream.readInt();
+        for (int i = 0; i < size; i++) {
+            final K k = (K) stream.readObject();
+            final V v = (V) stream.readObject();
+            put(k, v);
+        }
+    }
+
+    /**
+     * A node of the tree.
+     */
+    private abstract static class Node<K, V> {
+
+        /**
+         * Returns the number of leaves below and including this node.
+         */
+        abstract int size();
+    }
+
+    /**
+     * A mapping.
+     */
+    private static final class Leaf<K, V> extends Node<K, V> {
+
+        final K key;
+
+        final V value;
+
+        Leaf(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+    }
+
+    /**
+     * A node whose keys on the left have a zero at its bit index and keys on the right a one;
+     * all of its keys have the same bits before the bit index.
+     */
+    private static final class Branch<K, V> extends Node<K, V> {
+
+        final int bitIndex;
+
+        final Node<K, V> left;
+
+        final Node<K, V> right;
+
+        final int size;
+
+        Branch(final int bitIndex, final Node<K, V> left, final Node<K, V> right) {
+            this.bitIndex = bitIndex;
+            this.left = left;
+            this.right = right;
+            this.size = left.size() + right.size();
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A live view of the mappings with keys in {@code [fromKey, toKey)} that start with a prefix.
+     * Any of the bounds and the prefix may be null.
+     */
+    private final class RangeMap extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+        private final K fromKey;
+
+        private final K toKey;
+
+        private final K prefix;
+
+        RangeMap(final K fromKey, final K toKey, final K prefix) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Returns the indices {@code [from, to)} of the keys of this view in a snapshot.
+         */
+        int[] indices(final Node<K, V> snapshot) {
+            int from = fromKey == null ? 0 : ceilingIndex(snapshot, fromKey);
+            int to = toKey == null ? ConcurrentPatriciaTrie.size(snapshot) : ceilingIndex(snapshot, toKey);
+            if (prefix != null) {
+                final int[] prefixIndices = prefixIndices(snapshot, prefix);
+                from = Math.max(from, prefixIndices[0]);
+                to = Math.min(to, prefixIndices[1]);
+            }
+            return new int[] {from, Math.max(from, to)};
+        }
+
+        boolean inRange(final K key) {
+            final KeyAnalyzer<? super K> keyAnalyzer = getKeyAnalyzer();
+            return (fromKey == null || keyAnalyzer.compare(key, fromKey) >= 0)
+                && (toKey == null || keyAnalyzer.compare(key, toKey) < 0)
+                && (prefix == null || keyAnalyzer.isPrefix(prefix, 0, lengthInBits(prefix), key));
+        }
+
+        private void checkBound(final K key) {
+            Objects.requireNonNull(key, "key");
+            final KeyAnalyzer<? super K> keyAnalyzer = getKeyAnalyzer();
+            if (fromKey != null && keyAnalyzer.compare(key, fromKey) < 0
+                    || toKey != null && keyAnalyzer.compare(key, toKey) > 0) {
+                throw new IllegalArgumentException("Key is out of range: " + key);
+            }
+        }
+
+        @Override
+        public int size() {
+            final int[] indices = indices(root);
+            return indices[1] - indices[0];
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public V get(final Object key) {
+            final K k = castKey(key);
+            return k != null && inRange(k) ? ConcurrentPatriciaTrie.this.get(k) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            final K k = castKey(key);
+            return k != null && inRange(k) && ConcurrentPatriciaTrie.this.containsKey(k);
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            Objects.requireNonNull(key, "key");
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("Key is out of range: " + key);
+            }
+            return ConcurrentPatriciaTrie.this.put(key, value);
+        }
+
+        @Override
+        public V remove(final Object key) {
+            final K k = castKey(key);
+            return k != null && inRange(k) ? ConcurrentPatriciaTrie.this.remove(k) : null;
+        }
+
+        @Override
+        public void clear() {
+            final Iterator<K> it = keySet().iterator();
+            while (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return new KeySet(this);
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return getKeyAnalyzer();
+        }
+
+        @Override
+        public K firstKey() {
+            final Node<K, V> snapshot = root;
+            final int[] indices = indices(snapshot);
+            if (indices[0] == indices[1]) {
+                throw new NoSuchElementException();
+            }
+            return leafAt(snapshot, indices[0]).key;
+        }
+
+        @Override
+        public K lastKey() {
+            final Node<K, V> snapshot = root;
+            final int[] indices = indices(snapshot);
+            if (indices[0] == indices[1]) {
+                throw new NoSuchElementException();
+            }
+            return leafAt(snapshot, indices[1] - 1).key;
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(final K toKey) {
+            checkBound(toKey);
+            return new RangeMap(fromKey, toKey, prefix);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+            checkBound(fromKey);
+            checkBound(toKey);
+            if (getKeyAnalyzer().compare(fromKey, toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new RangeMap(fromKey, toKey, prefix);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(final K fromKey) {
+            checkBound(fromKey);
+            return new RangeMap(fromKey, toKey, prefix);
+        }
+    }
+
+    /**
+     * Iterates in order over the leaves with indices in {@code [from, to)} of a snapshot.
+     */
+    private class LeafIterator implements Iterator<Leaf<K, V>> {
+
+        /** The branches whose right side is still to be visited, lowest first. */
+        private final Deque<Branch<K, V>> stack = new ArrayDeque<>();
+
+        private int remaining;
+
+        private Leaf<K, V> next;
+
+        private Leaf<K, V> last;
+
+        LeafIterator(final Node<K, V> snapshot, final int from, final int to) {
+            remaining = to - from;
+            if (remaining > 0) {
+                Node<K, V> node = snapshot;
+                int index = from;
+                while (node instanceof Branch) {
+                    final Branch<K, V> branch = (Branch<K, V>) node;
+                    final int leftSize = branch.left.size();
+                    if (index < leftSize) {
+                        stack.push(branch);
+                        node = branch.left;
+                    } else {
+                        index -= leftSize;
+                        node = branch.right;
+                    }
+                }
+                next = (Leaf<K, V>) node;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Leaf<K, V> next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            if (--remaining > 0) {
+                Node<K, V> node = stack.pop().right;
+                while (node instanceof Branch) {
+                    final Branch<K, V> branch = (Branch<K, V>) node;
+                    stack.push(branch);
+                    node = branch.left;
+                }
+                next = (Leaf<K, V>) node;
+            }
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentPatriciaTrie.this.remove(last.key);
+            last = null;
+        }
+    }
+
+    /**
+     * An entry whose {@link #setValue(Object)} writes to the trie.
+     */
+    private final class TrieMapEntry extends AbstractMapEntry<K, V> {
+
+        TrieMapEntry(final Leaf<K, V> leaf) {
+            super(leaf.key, leaf.value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            Objects.requireNonNull(value, "value");
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        private final RangeMap range;
+
+        EntrySet(final RangeMap range) {
+            this.range = range;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            final Node<K, V> snapshot = root;
+            final int[] indices = range.indices(snapshot);
+            final LeafIterator it = new LeafIterator(snapshot, indices[0], indices[1]);
+            return new Iterator<Map.Entry<K, V>>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    return new TrieMapEntry(it.next());
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final V value = range.get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final K key = castKey(entry.getKey());
+            return key != null && range.inRange(key) && ConcurrentPatriciaTrie.this.remove(key, entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            range.clear();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+
+        private final RangeMap range;
+
+        KeySet(final RangeMap range) {
+            this.range = range;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            final Node<K, V> snapshot = root;
+            final int[] indices = range.indices(snapshot);
+            final LeafIterator it = new LeafIterator(snapshot, indices[0], indices[1]);
+            return new Iterator<K>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    return it.next().key;
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return range.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            return range.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            range.clear();
+        }
+    }
+
+    /**
+     * An {@link OrderedMapIterator} over a snapshot of the trie.
+     */
+    private final class SnapshotMapIterator implements OrderedMapIterator<K, V> {
+
+        private final Node<K, V> snapshot;
+
+        /** The index of the next key to return from {@link #next()}. */
+        private int next;
+
+        /** The last mapping returned, or null. */
+        private Leaf<K, V> current;
+
+        SnapshotMapIterator(final Node<K, V> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size(snapshot);
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = leafAt(snapshot, next++);
+            return current.key;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public K previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            current = leafAt(snapshot, --next);
+            return current.key;
+        }
+
+        @Override
+        public K getKey() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.key;
+        }
+
+        @Override
+        public V getValue() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.value;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            Objects.requireNonNull(value, "value");
+            current = new Leaf<>(current.key, value);
+            return put(current.key, value);
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentPatriciaTrie.this.remove(current.key);
+            current = null;
+        }
+    }
+}
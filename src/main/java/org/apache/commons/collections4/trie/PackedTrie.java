@@ -0,0 +1,789 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.Unmodifiable;
+import org.apache.commons.collections4.keyvalue.UnmodifiableMapEntry;
+
+/**
+ * An immutable {@link org.apache.commons.collections4.Trie} packed into arrays, for dictionaries
+ * that are built once and then only read.
+ * <p>
+ * The keys and values are held in two arrays in key order, and the PATRICIA tree over the keys
+ * in a single {@code int} array: each of the {@code n - 1} internal nodes holds the index of the
+ * bit it tests and the position of its right child, and the left child of a node immediately
+ * follows it. The entries need no objects of their own, so an entry costs four references and
+ * ints, about 16 bytes, rather than the {@code TrieEntry} of about 40 bytes of a
+ * {@link PatriciaTrie}. A lookup walks forward through one array, testing one bit of the key at
+ * each node, and compares the whole key once at the end.
+ * </p>
+ * <p>
+ * Range and prefix views are index ranges of the arrays and are found by binary search. They are
+ * immutable, and as for the other tries a range view of a view rejects bounds outside that view.
+ * </p>
+ * <p>
+ * The {@link KeyAnalyzer} must order keys by their bits, as the analyzers of the
+ * {@link PatriciaTrie} do, and must tell every pair of keys apart by their bits.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see AbstractPatriciaTrie#freeze()
+ * @since 4.6
+ */
+public final class PackedTrie<K, V> extends AbstractBitwiseTrie<K, V> implements Unmodifiable {
+
+    private static final long serialVersionUID = 2387613560234891757L;
+
+    /** Marks a node whose right child is a leaf, in the word holding its bit index. */
+    private static final int RIGHT_LEAF = Integer.MIN_VALUE;
+
+    /**
+     * Creates a trie holding the mappings of a map. The mappings of a {@link PatriciaTrie} are
+     * copied in order; those of other maps are sorted by the bits of their keys.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @param keyAnalyzer the analyzer of the keys
+     * @param map the mappings to copy
+     * @return the trie
+     * @throws NullPointerException if the analyzer, the map or one of its keys is null
+     * @throws IllegalArgumentException if the analyzer cannot tell two of the keys apart
+     */
+    public static <K, V> PackedTrie<K, V> of(final KeyAnalyzer<? super K> keyAnalyzer,
+            final Map<? extends K, ? extends V> map) {
+        return new PackedTrie<>(keyAnalyzer, map);
+    }
+
+    private final Object[] keys;
+
+    private final Object[] values;
+
+    /**
+     * The internal nodes in preorder, two words each: the bit index, with {@link #RIGHT_LEAF}
+     * set if the right child is a leaf, and the position of the right child. The right child of
+     * a node whose left child is a leaf is the next node.
+     */
+    private final int[] nodes;
+
+    private PackedTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> map) {
+        super(keyAnalyzer);
+        final int size = map.size();
+        keys = new Object[size];
+        values = new Object[size];
+        int i = 0;
+        for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            keys[i] = Objects.requireNonNull(entry.getKey(), "key");
+            values[i++] = entry.getValue();
+        }
+        int[] critBits = critBits();
+        if (critBits == null) {
+            sort();
+            critBits = critBits();
+        }
+        nodes = critBits.length == 0 ? critBits : pack(critBits);
+    }
+
+    /**
+     * Gets the index of the first bit that differs between each key and the next.
+     *
+     * @return the bit indices, or null if the keys are out of order
+     * @throws IllegalArgumentException if two keys cannot be told apart
+     */
+    private int[] critBits() {
+        final int[] critBits = new int[Math.max(0, keys.length - 1)];
+        for (int i = 0; i < critBits.length; i++) {
+            final K key = key(i);
+            final K next = key(i + 1);
+            final int bitIndex = bitIndex(key, next);
+            if (!KeyAnalyzer.isValidBitIndex(bitIndex)) {
+                throw new IllegalArgumentException(
+                    "Keys cannot be told apart by their bits: " + key + ", " + next + ", " + bitIndex);
+            }
+            if (isBitSet(key, bitIndex, lengthInBits(key))) {
+                return null;
+            }
+            critBits[i] = bitIndex;
+        }
+        return critBits;
+    }
+
+    /**
+     * Sorts the mappings by the bits of their keys.
+     */
+    private void sort() {
+        final Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final K key = key(a);
+            final int bitIndex = bitIndex(key, key(b));
+            if (!KeyAnalyzer.isValidBitIndex(bitIndex)) {
+                return 0;
+            }
+            return isBitSet(key, bitIndex, lengthInBits(key)) ? 1 : -1;
+        });
+        final Object[] sortedKeys = new Object[keys.length];
+        final Object[] sortedValues = new Object[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        System.arraycopy(sortedKeys, 0, keys, 0, keys.length);
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+    }
+
+    /**
+     * Builds the PATRICIA tree of the sorted keys. Internal node {@code i} separates keys
+     * {@code i} and {@code i + 1} and tests the first bit in which they differ; the tree is the
+     * Cartesian tree of those bit indices, with the smallest at the root.
+     *
+     * @param critBits the bit index of each internal node
+     * @return the packed nodes
+     */
+    private static int[] pack(final int[] critBits) {
+        final int n = critBits.length;
+        final int[] left = new int[n];
+        final int[] right = new int[n];
+        Arrays.fill(left, -1);
+        Arrays.fill(right, -1);
+        // the right spine of the tree of the nodes seen so far
+        final int[] stack = new int[n];
+        int top = -1;
+        for (int i = 0; i < n; i++) {
+            int last = -1;
+            while (top >= 0 && critBits[stack[top]] > critBits[i]) {
+                last = stack[top--];
+            }
+            left[i] = last;
+            if (top >= 0) {
+                right[stack[top]] = i;
+            }
+            stack[++top] = i;
+        }
+        // emit in preorder from the root, the bottom of the stack, with the first key of each
+        // pending subtree on a second stack
+        final int[] firstKeys = new int[n];
+        final int[] packed = new int[2 * n];
+        top = 0;
+        int position = 0;
+        while (top >= 0) {
+            final int node = stack[top];
+            final int firstKey = firstKeys[top--];
+            // the left subtree has one internal node fewer than it has keys
+            packed[2 * position] = right[node] < 0 ? critBits[node] | RIGHT_LEAF : critBits[node];
+            packed[2 * position + 1] = position + 1 + node - firstKey;
+            if (right[node] >= 0) {
+                stack[++top] = right[node];
+                firstKeys[top] = node + 1;
+            }
+            if (left[node] >= 0) {
+                stack[++top] = left[node];
+                firstKeys[top] = firstKey;
+            }
+            position++;
+        }
+        return packed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(final int index) {
+        return (K) keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(final int index) {
+        return (V) values[index];
+    }
+
+    /**
+     * Walks the tree to the only key that can equal the given key.
+     *
+     * @param key the key, which may be null
+     * @return the index of the key in the arrays, which must not be empty
+     */
+    private int findKey(final K key) {
+        if (nodes.length == 0) {
+            return 0;
+        }
+        final int lengthInBits = lengthInBits(key);
+        int position = 0;
+        int index = 0;
+        while (true) {
+            final int word = nodes[2 * position];
+            final int rightPosition = nodes[2 * position + 1];
+            if (isBitSet(key, word & ~RIGHT_LEAF, lengthInBits)) {
+                // skip the keys of the left subtree
+                index += rightPosition - position;
+                if (word < 0) {
+                    return index;
+                }
+                position = rightPosition;
+            } else {
+                if (rightPosition == position + 1) {
+                    return index;
+                }
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Finds a key.
+     *
+     * @param key the key
+     * @return the index of the key, or -1 if it is not present
+     */
+    private int indexOf(final Object key) {
+        if (keys.length == 0 || key == null) {
+            return -1;
+        }
+        final K k = castKey(key);
+        final int index = findKey(k);
+        return compareKeys(k, key(index)) ? index : -1;
+    }
+
+    /**
+     * Finds the first key that is equal to or greater than a key.
+     *
+     * @param key the key
+     * @return the index of the key, or the number of keys if all are less
+     */
+    private int ceilingIndex(final K key) {
+        Objects.requireNonNull(key, "key");
+        final Comparator<? super K> comparator = getKeyAnalyzer();
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(key(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first key from an index that does not start with a prefix.
+     *
+     * @param prefix the prefix
+     * @param from the index of the first key with the prefix
+     * @return the index after the last key with the prefix
+     */
+    private int prefixEnd(final K prefix, final int from) {
+        final int lengthInBits = lengthInBits(prefix);
+        final KeyAnalyzer<? super K> keyAnalyzer = getKeyAnalyzer();
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keyAnalyzer.isPrefix(prefix, 0, lengthInBits, key(mid))) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the {@link java.util.Map.Entry} whose key is closest in a bitwise XOR metric to the
+     * given key. This is NOT lexicographic closeness.
+     *
+     * @param key the key to use in the search
+     * @return the entry whose key is closest in a bitwise XOR metric to the provided key, or null
+     *   if the trie is empty
+     * @see AbstractPatriciaTrie#select(Object)
+     */
+    public Map.Entry<K, V> select(final K key) {
+        if (keys.length == 0) {
+            return null;
+        }
+        final int index = findKey(key);
+        return new UnmodifiableMapEntry<>(key(index), value(index));
+    }
+
+    /**
+     * Returns the key that is closest in a bitwise XOR metric to the provided key. This is NOT
+     * lexicographic closeness.
+     *
+     * @param key the key to use in the search
+     * @return the key that is closest in a bitwise XOR metric to the provided key, or null if the
+     *   trie is empty
+     * @see #select(Object)
+     */
+    public K selectKey(final K key) {
+        return keys.length == 0 ? null : key(findKey(key));
+    }
+
+    /**
+     * Returns the value whose key is closest in a bitwise XOR metric to the provided key. This is
+     * NOT lexicographic closeness.
+     *
+     * @param key the key to use in the search
+     * @return the value whose key is closest in a bitwise XOR metric to the provided key, or null
+     *   if the trie is empty
+     * @see #select(Object)
+     */
+    public V selectValue(final K key) {
+        return keys.length == 0 ? null : value(findKey(key));
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public V get(final Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(0, keys.length);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new KeySet(0, keys.length);
+    }
+
+    @Override
+    public V put(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> m) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public V remove(final Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return getKeyAnalyzer();
+    }
+
+    @Override
+    public K firstKey() {
+        return firstKey(0, keys.length);
+    }
+
+    @Override
+    public K lastKey() {
+        return lastKey(0, keys.length);
+    }
+
+    @Override
+    public K nextKey(final K key) {
+        Objects.requireNonNull(key, "key");
+        final int index = indexOf(key);
+        return index < 0 || index + 1 == keys.length ? null : key(index + 1);
+    }
+
+    @Override
+    public K previousKey(final K key) {
+        Objects.requireNonNull(key, "key");
+        final int index = indexOf(key);
+        return index <= 0 ? null : key(index - 1);
+    }
+
+    @Override
+    public OrderedMapIterator<K, V> mapIterator() {
+        return new PackedMapIterator();
+    }
+
+    @Override
+    public SortedMap<K, V> prefixMap(final K key) {
+        if (lengthInBits(key) == 0) {
+            return this;
+        }
+        final int from = ceilingIndex(key);
+        return new RangeMap(from, prefixEnd(key, from), null, null, key);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(final K toKey) {
+        return new RangeMap(0, ceilingIndex(toKey), null, toKey, null);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+        return subMap(fromKey, toKey, null);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(final K fromKey) {
+        return new RangeMap(ceilingIndex(fromKey), keys.length, fromKey, null, null);
+    }
+
+    private K firstKey(final int from, final int to) {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return key(from);
+    }
+
+    private K lastKey(final int from, final int to) {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return key(to - 1);
+    }
+
+    private SortedMap<K, V> subMap(final K fromKey, final K toKey, final K prefix) {
+        if (getKeyAnalyzer().compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new RangeMap(ceilingIndex(fromKey), ceilingIndex(toKey), fromKey, toKey, prefix);
+    }
+
+    /**
+     * An immutable view of the mappings with indices in {@code [from, to)}. The keys that bound
+     * the view are kept to reject the bounds of its own views that lie outside it.
+     */
+    private final class RangeMap extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+        private final int from;
+
+        private final int to;
+
+        /** The inclusive lower bound, or null if there is none. */
+        private final K fromKey;
+
+        /** The exclusive upper bound, or null if there is none. */
+        private final K toKey;
+
+        /** The prefix of all the keys, or null if there is none. */
+        private final K prefix;
+
+        RangeMap(final int from, final int to, final K fromKey, final K toKey, final K prefix) {
+            this.from = from;
+            this.to = to;
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Checks that a key may bound a view of this view.
+         *
+         * @param key the key.
+         * @throws IllegalArgumentException if the key is outside this view.
+         */
+        private void checkBound(final K key) {
+            Objects.requireNonNull(key, "key");
+            final KeyAnalyzer<? super K> keyAnalyzer = getKeyAnalyzer();
+            if (fromKey != null && keyAnalyzer.compare(key, fromKey) < 0
+                    || toKey != null && keyAnalyzer.compare(key, toKey) > 0
+                    || prefix != null && !keyAnalyzer.isPrefix(prefix, 0, lengthInBits(prefix), key)) {
+                throw new IllegalArgumentException("Key is out of range: " + key);
+            }
+        }
+
+        private boolean inRange(final int index) {
+            return index >= from && index < to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return from == to;
+        }
+
+        @Override
+        public V get(final Object key) {
+            final int index = indexOf(key);
+            return inRange(index) ? value(index) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return inRange(indexOf(key));
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(from, to);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return new KeySet(from, to);
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putAll(final Map<? extends K, ? extends V> m) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V remove(final Object key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return getKeyAnalyzer();
+        }
+
+        @Override
+        public K firstKey() {
+            return PackedTrie.this.firstKey(from, to);
+        }
+
+        @Override
+        public K lastKey() {
+            return PackedTrie.this.lastKey(from, to);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(final K toKey) {
+            checkBound(toKey);
+            return new RangeMap(from, ceilingIndex(toKey), fromKey, toKey, prefix);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+            checkBound(fromKey);
+            checkBound(toKey);
+            return PackedTrie.this.subMap(fromKey, toKey, prefix);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(final K fromKey) {
+            checkBound(fromKey);
+            return new RangeMap(ceilingIndex(fromKey), to, fromKey, toKey, prefix);
+        }
+    }
+
+    /**
+     * Iterates over the indices in {@code [from, to)}.
+     */
+    private abstract class RangeIterator<E> implements Iterator<E> {
+
+        private int next;
+
+        private final int to;
+
+        RangeIterator(final int from, final int to) {
+            this.next = from;
+            this.to = to;
+        }
+
+        abstract E get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public E next() {
+            if (next >= to) {
+                throw new NoSuchElementException();
+            }
+            return get(next++);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        private final int from;
+
+        private final int to;
+
+        EntrySet(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new RangeIterator<Map.Entry<K, V>>(from, to) {
+                @Override
+                Map.Entry<K, V> get(final int index) {
+                    return new UnmodifiableMapEntry<>(key(index), value(index));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final int index = indexOf(entry.getKey());
+            return index >= from && index < to && compare(values[index], entry.getValue());
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+
+        private final int from;
+
+        private final int to;
+
+        KeySet(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new RangeIterator<K>(from, to) {
+                @Override
+                K get(final int index) {
+                    return key(index);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            final int index = indexOf(o);
+            return index >= from && index < to;
+        }
+    }
+
+    /**
+     * An {@link OrderedMapIterator} over the whole trie.
+     */
+    private final class PackedMapIterator implements OrderedMapIterator<K, V> {
+
+        /** The index of the next key to return from {@link #next()}. */
+        private int next;
+
+        /** The index of the last key returned, or -1. */
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public K next() {
+            if (next >= keys.length) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return key(current);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public K previous() {
+            if (next <= 0) {
+                throw new NoSuchElementException();
+            }
+            current = --next;
+            return key(current);
+        }
+
+        @Override
+        public K getKey() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            return key(current);
+        }
+
+        @Override
+        public V getValue() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            return value(current);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
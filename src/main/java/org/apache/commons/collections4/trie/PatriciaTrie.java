@@ -16,7 +16,11 @@
  */
 package org.apache.commons.collections4.trie;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
 
 import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
 
@@ -74,4 +78,127 @@ public class PatriciaTrie<V> extends AbstractPatriciaTrie<String, V> {
         super(new StringKeyAnalyzer(), m);
     }
 
+    /**
+     * Updates a row of the edit distances between the prefixes of a key and a string, for one
+     * more character of the string.
+     *
+     * @return the least distance in the row
+     */
+    private static int nextRow(final String key, final int[] row, final char c) {
+        int diagonal = row[0];
+        int min = ++row[0];
+        for (int i = 1; i < row.length; i++) {
+            final int above = row[i];
+            row[i] = Math.min(Math.min(above, row[i - 1]) + 1, diagonal + (key.charAt(i - 1) == c ? 0 : 1));
+            diagonal = above;
+            min = Math.min(min, row[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns a new map of the mappings whose keys are within a Levenshtein distance of the given
+     * key: the least number of characters to insert, delete or substitute to turn one into the
+     * other. This is a typo tolerant lookup.
+     * <p>
+     * The search walks the trie computing a row of distances for each character of the prefix
+     * shared by a subtree, and skips the subtree when no distance in the row is within the
+     * bound. Its cost depends on the number of keys near the given key rather than on the size
+     * of the trie.
+     * </p>
+     * <p>
+     * For example, if the {@link org.apache.commons.collections4.Trie} contains 'Anna', 'Anne'
+     * and 'Andrea', the keys within a distance of 1 of 'Ann' are 'Anna' and 'Anne'.
+     * </p>
+     *
+     * @param key  the key to compare the keys with
+     * @param maxDistance  the greatest distance of the keys to return
+     * @return a new map of the mappings whose keys are within the distance of the key
+     * @throws NullPointerException if the key is null
+     * @throws IllegalArgumentException if {@code maxDistance} is negative
+     * @since 4.6
+     */
+    public SortedMap<String, V> fuzzyMap(final String key, final int maxDistance) {
+        Objects.requireNonNull(key, "key");
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative: " + maxDistance);
+        }
+        final PatriciaTrie<V> result = new PatriciaTrie<>();
+        final int[] first = new int[key.length() + 1];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = i;
+        }
+        final int[] scratch = new int[first.length];
+        final TrieEntry<String, V> root = getRoot();
+        final Deque<FuzzyStep<V>> stack = new ArrayDeque<>();
+        stack.push(new FuzzyStep<>(root.left, root.bitIndex, 0, first));
+        while (!stack.isEmpty()) {
+            final FuzzyStep<V> step = stack.pop();
+            final TrieEntry<String, V> entry = step.entry;
+            if (entry.bitIndex <= step.parentBitIndex) {
+                // an uplink, which reaches each key once: finish the row on the rest of the key
+                if (!entry.isEmpty() && withinDistance(key, step.row, step.depth, entry.key, maxDistance, scratch)) {
+                    result.put(entry.key, entry.value);
+                }
+                continue;
+            }
+            // the keys below share the bits before the bit index of the entry, and so its characters
+            final int shared = Math.min(entry.bitIndex / StringKeyAnalyzer.LENGTH, entry.key.length());
+            int depth = step.depth;
+            int[] row = step.row;
+            int min = 0;
+            if (depth < shared) {
+                row = row.clone();
+                // a key shorter than the entry's reads as padded with zero characters, so stop at one
+                while (depth < shared && entry.key.charAt(depth) != 0 && min <= maxDistance) {
+                    min = nextRow(key, row, entry.key.charAt(depth++));
+                }
+            }
+            if (min <= maxDistance) {
+                stack.push(new FuzzyStep<>(entry.right, entry.bitIndex, depth, row));
+                stack.push(new FuzzyStep<>(entry.left, entry.bitIndex, depth, row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells if a string is within a distance of the key, given the row of distances for its
+     * first characters.
+     */
+    private static boolean withinDistance(final String key, final int[] row, final int depth, final String string,
+                                          final int maxDistance, final int[] scratch) {
+        System.arraycopy(row, 0, scratch, 0, row.length);
+        for (int i = depth; i < string.length(); i++) {
+            if (nextRow(key, scratch, string.charAt(i)) > maxDistance) {
+                return false;
+            }
+        }
+        return scratch[key.length()] <= maxDistance;
+    }
+
+    /**
+     * An entry to visit in {@link #fuzzyMap(String, int)}, with the row of distances for the
+     * characters shared by the keys below it.
+     */
+    private static final class FuzzyStep<V> {
+
+        final TrieEntry<String, V> entry;
+
+        /** The bit index of the entry leading here, which tells an uplink. */
+        final int parentBitIndex;
+
+        /** The number of characters the row is for. */
+        final int depth;
+
+        final int[] row;
+
+        FuzzyStep(final TrieEntry<String, V> entry, final int parentBitIndex, final int depth, final int[] row) {
+            this.entry = entry;
+            this.parentBitIndex = parentBitIndex;
+            this.depth = depth;
+            this.row = row;
+        }
+    }
+
 }
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.collections4.OrderedMapIterator;
 import org.apache.commons.collections4.Trie;
@@ -165,6 +166,16 @@ public class UnmodifiableTrie<K, V> implements Trie<K, V>, Serializable, Unmodif
         return Collections.unmodifiableSortedMap(delegate.prefixMap(key));
     }
 
+    @Override
+    public int countWithPrefix(final K key) {
+        return delegate.countWithPrefix(key);
+    }
+
+    @Override
+    public void forEachWithPrefix(final K key, final BiConsumer<? super K, ? super V> action) {
+        delegate.forEachWithPrefix(key, action);
+    }
+
     @Override
     public Comparator<? super K> comparator() {
         return delegate.comparator();
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for keys that are sequences of bytes, most significant bit first.
+ * <p>
+ * Keys are compared 64 bits at a time: the bits are gathered into a {@code long} and the first
+ * difference is found with {@link Long#numberOfLeadingZeros(long)}. Bits past the end of a key are
+ * zero, so keys that differ only by trailing zero bytes cannot be told apart.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ */
+abstract class AbstractByteKeyAnalyzer<K> extends KeyAnalyzer<K> {
+
+    private static final long serialVersionUID = -3364357387366335346L;
+
+    /** The number of bits per byte. */
+    static final int LENGTH = Byte.SIZE;
+
+    /**
+     * Returns the number of bytes of a key.
+     *
+     * @param key the key, not null
+     * @return the number of bytes
+     */
+    abstract int length(K key);
+
+    /**
+     * Returns a byte of a key.
+     *
+     * @param key the key, not null
+     * @param index the index of the byte, less than the length of the key
+     * @return the byte as an unsigned value
+     */
+    abstract int byteAt(K key, int index);
+
+    /**
+     * Returns up to 64 bits of a key, starting at a bit, as the high bits of a {@code long}. The bits
+     * at and past the limit, and past the end of the key, are zero.
+     *
+     * @param key the key, may be null
+     * @param fromBit the index of the first bit
+     * @param toBit the limit of the bits
+     * @return the bits
+     */
+    final long word(final K key, final int fromBit, final int toBit) {
+        if (key == null || fromBit >= toBit) {
+            return 0;
+        }
+        final int first = fromBit >>> 3;
+        final int shift = fromBit & 7;
+        final int end = Math.min(length(key), (toBit + 7) >>> 3);
+        long word = 0;
+        for (int i = first; i < first + 8; i++) {
+            word = word << 8 | (i < end ? byteAt(key, i) : 0);
+        }
+        if (shift != 0 && first + 8 < end) {
+            word = word << shift | byteAt(key, first + 8) >>> LENGTH - shift;
+        } else {
+            word <<= shift;
+        }
+        final int bits = toBit - fromBit;
+        return bits < Long.SIZE ? word & -1L << Long.SIZE - bits : word;
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return LENGTH;
+    }
+
+    @Override
+    public int lengthInBits(final K key) {
+        return key != null ? length(key) * LENGTH : 0;
+    }
+
+    @Override
+    public boolean isBitSet(final K key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= length(key) * LENGTH) {
+            return false;
+        }
+        return (byteAt(key, bitIndex >>> 3) & 0x80 >>> (bitIndex & 7)) != 0;
+    }
+
+    @Override
+    public int bitIndex(final K key, final int offsetInBits, final int lengthInBits,
+                        final K other, final int otherOffsetInBits, final int otherLengthInBits) {
+        final int length = Math.max(lengthInBits, otherLengthInBits);
+        boolean allNull = true;
+        for (int i = 0; i < length; i += Long.SIZE) {
+            final long word = word(key, offsetInBits + i, offsetInBits + lengthInBits);
+            final long otherWord = word(other, otherOffsetInBits + i, otherOffsetInBits + otherLengthInBits);
+            if (word != otherWord) {
+                return i + Long.numberOfLeadingZeros(word ^ otherWord);
+            }
+            if (word != 0) {
+                allNull = false;
+            }
+        }
+        return allNull ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+    }
+
+    /**
+     * Tests whether the bits of a key start with the given bits. As bits past the end of a key are
+     * zero, a key shorter than the prefix starts with it if the extra bits of the prefix are zero,
+     * which agrees with {@link #bitIndex(Object, int, int, Object, int, int)}.
+     */
+    @Override
+    public boolean isPrefix(final K prefix, final int offsetInBits, final int lengthInBits, final K key) {
+        for (int i = 0; i < lengthInBits; i += Long.SIZE) {
+            if (word(prefix, offsetInBits + i, offsetInBits + lengthInBits) != word(key, i, lengthInBits)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the keys as unsigned bytes; a key that is a prefix of another is the lesser. This is
+     * the order of the bits of the keys.
+     */
+    @Override
+    public int compare(final K o1, final K o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        }
+        if (o2 == null) {
+            return 1;
+        }
+        final int length = Math.min(length(o1), length(o2)) * LENGTH;
+        for (int i = 0; i < length; i += Long.SIZE) {
+            final int result = Long.compareUnsigned(word(o1, i, length), word(o2, i, length));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(length(o1), length(o2));
+    }
+}
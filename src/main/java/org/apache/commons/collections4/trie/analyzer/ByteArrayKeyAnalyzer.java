@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+/**
+ * A {@link org.apache.commons.collections4.trie.KeyAnalyzer KeyAnalyzer} for {@code byte[]}
+ * keys, such as UUIDs, hashes and IP addresses, most significant bit first.
+ * <p>
+ * Keys are compared 64 bits at a time. They are ordered as unsigned bytes, and keys that differ
+ * only by trailing zero bytes cannot be told apart: a trie should hold keys of one length, or
+ * keys none of which is another followed by zeros. Keys must not be modified while they are in
+ * a trie.
+ * </p>
+ *
+ * @since 4.6
+ */
+public class ByteArrayKeyAnalyzer extends AbstractByteKeyAnalyzer<byte[]> {
+
+    private static final long serialVersionUID = 5276428553826412582L;
+
+    /** A singleton instance of {@link ByteArrayKeyAnalyzer}. */
+    public static final ByteArrayKeyAnalyzer INSTANCE = new ByteArrayKeyAnalyzer();
+
+    @Override
+    int length(final byte[] key) {
+        return key.length;
+    }
+
+    @Override
+    int byteAt(final byte[] key, final int index) {
+        return key[index] & 0xFF;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link org.apache.commons.collections4.trie.KeyAnalyzer KeyAnalyzer} for {@link ByteBuffer}
+ * keys, most significant bit first. The key of a buffer is its remaining bytes, from its position
+ * to its limit, as for {@link ByteBuffer#equals(Object)}; the bytes are read with absolute gets,
+ * so heap and direct buffers can be used without copying.
+ * <p>
+ * Keys are compared 64 bits at a time. They are ordered as unsigned bytes, unlike
+ * {@link ByteBuffer#compareTo(ByteBuffer)}, and keys that differ only by trailing zero bytes
+ * cannot be told apart. Neither the bytes nor the position and limit of a key may change while it
+ * is in a trie.
+ * </p>
+ *
+ * @since 4.6
+ */
+public class ByteBufferKeyAnalyzer extends AbstractByteKeyAnalyzer<ByteBuffer> {
+
+    private static final long serialVersionUID = -1588469011829183757L;
+
+    /** A singleton instance of {@link ByteBufferKeyAnalyzer}. */
+    public static final ByteBufferKeyAnalyzer INSTANCE = new ByteBufferKeyAnalyzer();
+
+    @Override
+    int length(final ByteBuffer key) {
+        return key.remaining();
+    }
+
+    @Override
+    int byteAt(final ByteBuffer key, final int index) {
+        return key.get(key.position() + index) & 0xFF;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import java.net.InetAddress;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for {@link InetAddress} keys, analyzed as the bytes of their raw address:
+ * 32 bits for IPv4 and 128 bits for IPv6, most significant bit first. A prefix map of an address
+ * and a number of bits holds the addresses of a network, for example
+ * {@code prefixMap(InetAddress.getByName("10.1.0.0"), 16)} for {@code 10.1.0.0/16}.
+ * <p>
+ * The bits are compared 64 at a time, as for {@link ByteArrayKeyAnalyzer}, but each call copies
+ * the raw address. Where lookups are frequent, a trie keyed by the raw addresses with the
+ * {@link ByteArrayKeyAnalyzer} avoids the copies. A trie should hold addresses of one family: an
+ * IPv4 address cannot be told apart from the IPv6 address that starts with the same four bytes
+ * followed by zeros.
+ * </p>
+ *
+ * @since 4.6
+ */
+public class InetAddressKeyAnalyzer extends KeyAnalyzer<InetAddress> {
+
+    private static final long serialVersionUID = 3208549366541829312L;
+
+    /** A singleton instance of {@link InetAddressKeyAnalyzer}. */
+    public static final InetAddressKeyAnalyzer INSTANCE = new InetAddressKeyAnalyzer();
+
+    private static final ByteArrayKeyAnalyzer BYTES = ByteArrayKeyAnalyzer.INSTANCE;
+
+    private static byte[] address(final InetAddress key) {
+        return key != null ? key.getAddress() : null;
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return AbstractByteKeyAnalyzer.LENGTH;
+    }
+
+    @Override
+    public int lengthInBits(final InetAddress key) {
+        return BYTES.lengthInBits(address(key));
+    }
+
+    @Override
+    public boolean isBitSet(final InetAddress key, final int bitIndex, final int lengthInBits) {
+        return BYTES.isBitSet(address(key), bitIndex, lengthInBits);
+    }
+
+    @Override
+    public int bitIndex(final InetAddress key, final int offsetInBits, final int lengthInBits,
+                        final InetAddress other, final int otherOffsetInBits, final int otherLengthInBits) {
+        return BYTES.bitIndex(address(key), offsetInBits, lengthInBits,
+                              address(other), otherOffsetInBits, otherLengthInBits);
+    }
+
+    @Override
+    public boolean isPrefix(final InetAddress prefix, final int offsetInBits, final int lengthInBits,
+                            final InetAddress key) {
+        return BYTES.isPrefix(address(prefix), offsetInBits, lengthInBits, address(key));
+    }
+
+    /**
+     * Compares the raw addresses as unsigned bytes; IPv4 addresses, being shorter, come before the
+     * IPv6 addresses that start with the same bytes.
+     */
+    @Override
+    public int compare(final InetAddress o1, final InetAddress o2) {
+        return BYTES.compare(address(o1), address(o2));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for {@link Integer} keys of 32 bits, most significant bit first.
+ * <p>
+ * The sign bit is inverted, so that the order of the bits is the numeric order of the keys. A
+ * prefix of a key is its leading bits, so a prefix map of a key and a number of bits holds the keys
+ * that share those bits, as for a network address and its prefix length. The first bit in
+ * which two keys differ is found with a single comparison.
+ * </p>
+ *
+ * @since 4.6
+ */
+public class IntegerKeyAnalyzer extends KeyAnalyzer<Integer> {
+
+    private static final long serialVersionUID = 4928519203184672719L;
+
+    /** A singleton instance of {@link IntegerKeyAnalyzer}. */
+    public static final IntegerKeyAnalyzer INSTANCE = new IntegerKeyAnalyzer();
+
+    /** The number of bits of a key. */
+    public static final int LENGTH = Integer.SIZE;
+
+    /**
+     * Returns bits of a key, starting at a bit, as the high bits of an {@code int}.
+     */
+    private static int bits(final Integer key, final int offsetInBits, final int lengthInBits) {
+        if (key == null || lengthInBits <= 0) {
+            return 0;
+        }
+        return (key ^ Integer.MIN_VALUE) << offsetInBits & -1 << LENGTH - lengthInBits;
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return 1;
+    }
+
+    @Override
+    public int lengthInBits(final Integer key) {
+        return key != null ? LENGTH : 0;
+    }
+
+    @Override
+    public boolean isBitSet(final Integer key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= LENGTH) {
+            return false;
+        }
+        return (key ^ Integer.MIN_VALUE) << bitIndex < 0;
+    }
+
+    @Override
+    public int bitIndex(final Integer key, final int offsetInBits, final int lengthInBits,
+                        final Integer other, final int otherOffsetInBits, final int otherLengthInBits) {
+        final int bits = bits(key, offsetInBits, lengthInBits);
+        final int otherBits = bits(other, otherOffsetInBits, otherLengthInBits);
+        if (bits != otherBits) {
+            return Integer.numberOfLeadingZeros(bits ^ otherBits);
+        }
+        return bits == 0 ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+    }
+
+    @Override
+    public boolean isPrefix(final Integer prefix, final int offsetInBits, final int lengthInBits, final Integer key) {
+        return bits(prefix, offsetInBits, lengthInBits) == bits(key, 0, lengthInBits);
+    }
+
+    @Override
+    public int compare(final Integer o1, final Integer o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        }
+        if (o2 == null) {
+            return 1;
+        }
+        return Integer.compare(o1, o2);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for {@link Long} keys of 64 bits, most significant bit first.
+ * <p>
+ * The sign bit is inverted, so that the order of the bits is the numeric order of the keys. A
+ * prefix of a key is its leading bits, so a prefix map of a key and a number of bits holds the keys
+ * that share those bits, as for a network address and its prefix length. The first bit in
+ * which two keys differ is found with a single comparison.
+ * </p>
+ *
+ * @since 4.6
+ */
+public class LongKeyAnalyzer extends KeyAnalyzer<Long> {
+
+    private static final long serialVersionUID = -6305786281424227373L;
+
+    /** A singleton instance of {@link LongKeyAnalyzer}. */
+    public static final LongKeyAnalyzer INSTANCE = new LongKeyAnalyzer();
+
+    /** The number of bits of a key. */
+    public static final int LENGTH = Long.SIZE;
+
+    /**
+     * Returns bits of a key, starting at a bit, as the high bits of a {@code long}.
+     */
+    private static long bits(final Long key, final int offsetInBits, final int lengthInBits) {
+        if (key == null || lengthInBits <= 0) {
+            return 0;
+        }
+        return (key ^ Long.MIN_VALUE) << offsetInBits & -1L << LENGTH - lengthInBits;
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return 1;
+    }
+
+    @Override
+    public int lengthInBits(final Long key) {
+        return key != null ? LENGTH : 0;
+    }
+
+    @Override
+    public boolean isBitSet(final Long key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= LENGTH) {
+            return false;
+        }
+        return (key ^ Long.MIN_VALUE) << bitIndex < 0;
+    }
+
+    @Override
+    public int bitIndex(final Long key, final int offsetInBits, final int lengthInBits,
+                        final Long other, final int otherOffsetInBits, final int otherLengthInBits) {
+        final long bits = bits(key, offsetInBits, lengthInBits);
+        final long otherBits = bits(other, otherOffsetInBits, otherLengthInBits);
+        if (bits != otherBits) {
+            return Long.numberOfLeadingZeros(bits ^ otherBits);
+        }
+        return bits == 0 ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+    }
+
+    @Override
+    public boolean isPrefix(final Long prefix, final int offsetInBits, final int lengthInBits, final Long key) {
+        return bits(prefix, offsetInBits, lengthInBits) == bits(key, 0, lengthInBits);
+    }
+
+    @Override
+    public int compare(final Long o1, final Long o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        }
+        if (o2 == null) {
+            return 1;
+        }
+        return Long.compare(o1, o2);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.apache.commons.collections4.bloomfilter.SparseBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares merging and testing pre-computed hashes one {@link EnhancedDoubleHasher} at a time
+ * with the batch {@link BloomFilter#mergeAll(long[], long[])} and
+ * {@link BloomFilter#containsEach(long[], long[], boolean[])} methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class BatchHashingTest {
+
+    /** The number of items per batch. */
+    static final int ITEMS = 1024;
+
+    @Param({"SimpleBloomFilter", "SparseBloomFilter"})
+    private String implementation;
+
+    private BloomFilter filter;
+
+    private long[] initial;
+
+    private long[] increment;
+
+    private boolean[] results;
+
+    @Setup
+    public void setup() {
+        final Shape shape = Shape.fromKM(7, 1_000_000);
+        switch (implementation) {
+        case "SimpleBloomFilter":
+            filter = new SimpleBloomFilter(shape);
+            break;
+        case "SparseBloomFilter":
+            filter = new SparseBloomFilter(shape);
+            break;
+        default:
+            throw new IllegalArgumentException(implementation);
+        }
+        final Random random = new Random(42);
+        initial = new long[ITEMS];
+        increment = new long[ITEMS];
+        results = new boolean[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            initial[i] = random.nextLong();
+            increment[i] = random.nextLong();
+        }
+        // half of the items are present
+        for (int i = 0; i < ITEMS; i += 2) {
+            filter.merge(new EnhancedDoubleHasher(initial[i], increment[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public boolean testMergeEach() {
+        boolean result = true;
+        for (int i = 0; i < ITEMS; i++) {
+            result &= filter.merge(new EnhancedDoubleHasher(initial[i], increment[i]));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public boolean testMergeAll() {
+        return filter.mergeAll(initial, increment);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int testContainsEachHasher() {
+        int count = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            results[i] = filter.contains(new EnhancedDoubleHasher(initial[i], increment[i]));
+            if (results[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int testContainsEach() {
+        return filter.containsEach(initial, increment, results);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BitSlicedBloomFilterIndex;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares finding the filters that contain an item with a {@link BitSlicedBloomFilterIndex}
+ * against calling {@code contains} on every filter. Each filter holds 1000 items at a false
+ * positive probability of 1%; half the lookups are for items of one filter and half for absent
+ * items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(value = 3, jvmArgs = "-Xmx2g")
+public class BitSlicedBloomFilterIndexTest {
+
+    /** The number of lookups per invocation. */
+    static final int LOOKUPS = 64;
+
+    static final int ITEMS_PER_FILTER = 1000;
+
+    @Param({"1000", "20000"})
+    private int filters;
+
+    private SimpleBloomFilter[] array;
+
+    private BitSlicedBloomFilterIndex index;
+
+    private Hasher[] lookups;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final Shape shape = Shape.fromNP(ITEMS_PER_FILTER, 0.01);
+        array = new SimpleBloomFilter[filters];
+        index = new BitSlicedBloomFilterIndex(shape, filters);
+        lookups = new Hasher[LOOKUPS];
+        for (int i = 0; i < filters; i++) {
+            array[i] = new SimpleBloomFilter(shape);
+            for (int j = 0; j < ITEMS_PER_FILTER; j++) {
+                final Hasher hasher = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+                array[i].merge(hasher);
+                if (j == 0 && i < LOOKUPS / 2) {
+                    lookups[i] = hasher;
+                }
+            }
+            index.add(array[i]);
+        }
+        for (int i = LOOKUPS / 2; i < LOOKUPS; i++) {
+            lookups[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testIndexSearch() {
+        int count = 0;
+        for (final Hasher hasher : lookups) {
+            count += index.search(hasher).length;
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testLinearScan() {
+        int count = 0;
+        for (final Hasher hasher : lookups) {
+            for (final SimpleBloomFilter filter : array) {
+                if (filter.contains(hasher)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BlockedBloomFilter;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares lookups in a {@link SimpleBloomFilter} with those in {@link BlockedBloomFilter}s of 64
+ * and 512 bit blocks, each sized for the same number of items and false-positive probability.
+ * Filters much larger than the caches show the cost of the memory accesses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Fork(value = 3, jvmArgs = "-Xmx2g")
+public class BlockedBloomFilterTest {
+
+    /** The number of hashers looked up per invocation, enough that their bits do not stay cached. */
+    static final int LOOKUPS = 1 << 18;
+
+    @Param({"SimpleBloomFilter", "BlockedBloomFilter512", "BlockedBloomFilter64"})
+    private String implementation;
+
+    @Param({"100000", "20000000"})
+    private int items;
+
+    private BloomFilter filter;
+
+    /** Hash pairs of items in the filter: initial values at even positions, increments at odd. */
+    private long[] present;
+
+    /** Hash pairs of items not added to the filter. */
+    private long[] absent;
+
+    @Setup
+    public void setup() {
+        final double probability = 0.01;
+        switch (implementation) {
+        case "SimpleBloomFilter":
+            filter = new SimpleBloomFilter(Shape.fromNP(items, probability));
+            break;
+        case "BlockedBloomFilter512":
+            filter = new BlockedBloomFilter(Shape.fromNPBlocked(items, probability, 512), 512);
+            break;
+        case "BlockedBloomFilter64":
+            filter = new BlockedBloomFilter(Shape.fromNPBlocked(items, probability, 64), 64);
+            break;
+        default:
+            throw new IllegalArgumentException(implementation);
+        }
+        final Random random = new Random(42);
+        present = new long[LOOKUPS * 2];
+        absent = new long[LOOKUPS * 2];
+        for (int i = 0; i < items; i++) {
+            final long initial = random.nextLong();
+            final long increment = random.nextLong();
+            filter.merge(new EnhancedDoubleHasher(initial, increment));
+            if (i < LOOKUPS) {
+                present[i * 2] = initial;
+                present[i * 2 + 1] = increment;
+            }
+        }
+        for (int i = 0; i < absent.length; i++) {
+            absent[i] = random.nextLong();
+        }
+    }
+
+    private int contains(final long[] hashes) {
+        int count = 0;
+        for (int i = 0; i < hashes.length; i += 2) {
+            if (filter.contains(new EnhancedDoubleHasher(hashes[i], hashes[i + 1]))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testContainsPresent() {
+        return contains(present);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testContainsAbsent() {
+        return contains(absent);
+    }
+}
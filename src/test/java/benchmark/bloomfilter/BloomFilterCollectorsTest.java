@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.BloomFilterCollectors;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares building a Bloom filter of a million items in a loop with collecting a sequential and
+ * a parallel stream. The parallel stream uses the common fork-join pool, so its speed up is bounded
+ * by the number of available processors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class BloomFilterCollectorsTest {
+
+    static final int ITEMS = 1_000_000;
+
+    private final Shape shape = Shape.fromNP(ITEMS, 0.01);
+
+    private Hasher[] items;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        items = new Hasher[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public BloomFilter testLoop() {
+        final BloomFilter filter = new SimpleBloomFilter(shape);
+        for (final Hasher hasher : items) {
+            filter.merge(hasher);
+        }
+        return filter;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public BloomFilter testSequentialStream() {
+        return Arrays.stream(items).collect(BloomFilterCollectors.toBloomFilter(shape));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public BloomFilter testParallelStream() {
+        return Arrays.stream(items).parallel().collect(BloomFilterCollectors.toBloomFilter(shape));
+    }
+}
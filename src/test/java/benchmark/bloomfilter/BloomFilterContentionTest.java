@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.ConcurrentBloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the Bloom filters used as a shared dedup filter: every thread shares one filter.
+ * <p>
+ * The baseline is a {@link SimpleBloomFilter} guarded by its own monitor, which is how
+ * callers share the non thread-safe implementation today. Run with {@code -t} to vary
+ * the number of threads; all available processors are used by default.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+@Fork(3)
+public class BloomFilterContentionTest {
+
+    /** The number of pre-computed hashers; a power of 2. */
+    private static final int HASHERS = 4096;
+
+    @Param({"ConcurrentBloomFilter", "SynchronizedSimpleBloomFilter"})
+    private String implementation;
+
+    @Param({"1000000"})
+    private int numberOfBits;
+
+    @Param({"7"})
+    private int numberOfHashFunctions;
+
+    private BloomFilter filter;
+
+    private boolean synchronize;
+
+    private Hasher[] hashers;
+
+    @Setup
+    public void setup() {
+        final Shape shape = Shape.fromKM(numberOfHashFunctions, numberOfBits);
+        switch (implementation) {
+        case "ConcurrentBloomFilter":
+            filter = new ConcurrentBloomFilter(shape);
+            break;
+        case "SynchronizedSimpleBloomFilter":
+            filter = new SimpleBloomFilter(shape);
+            synchronize = true;
+            break;
+        default:
+            throw new IllegalArgumentException(implementation);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        hashers = new Hasher[HASHERS];
+        for (int i = 0; i < HASHERS; i++) {
+            hashers[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            // half of the hashers are present so contains sees both hits and misses
+            if ((i & 1) == 0) {
+                filter.merge(hashers[i]);
+            }
+        }
+    }
+
+    private Hasher nextHasher() {
+        return hashers[ThreadLocalRandom.current().nextInt(HASHERS)];
+    }
+
+    @Benchmark
+    public boolean testMerge() {
+        final Hasher hasher = nextHasher();
+        if (synchronize) {
+            synchronized (filter) {
+                return filter.merge(hasher);
+            }
+        }
+        return filter.merge(hasher);
+    }
+
+    @Benchmark
+    public boolean testContains() {
+        final Hasher hasher = nextHasher();
+        if (synchronize) {
+            synchronized (filter) {
+                return filter.contains(hasher);
+            }
+        }
+        return filter.contains(hasher);
+    }
+
+    /**
+     * The check-then-merge of a dedup filter.
+     */
+    @Benchmark
+    public boolean testContainsOrMerge() {
+        final Hasher hasher = nextHasher();
+        if (synchronize) {
+            synchronized (filter) {
+                return filter.contains(hasher) || !filter.merge(hasher);
+            }
+        }
+        return filter.contains(hasher) || !filter.merge(hasher);
+    }
+
+    @Benchmark
+    public int testCardinality() {
+        if (synchronize) {
+            synchronized (filter) {
+                return filter.cardinality();
+            }
+        }
+        return filter.cardinality();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public boolean testMixedContains() {
+        return testContains();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean testMixedMerge() {
+        return testMerge();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.ArrayCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.CompactCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.CountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares a {@link CompactCountingBloomFilter} with 4 bit counters against an
+ * {@link ArrayCountingBloomFilter} of the same shape: item updates and lookups, extracting the
+ * bit maps, and adding one filter to another.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class CompactCountingBloomFilterTest {
+
+    /** The number of operations per invocation. */
+    static final int OPERATIONS = 1024;
+
+    @Param({"CompactCountingBloomFilter", "ArrayCountingBloomFilter"})
+    private String implementation;
+
+    @Param({"100000"})
+    private int items;
+
+    private Hasher[] members;
+
+    private CountingBloomFilter filter;
+
+    private CountingBloomFilter other;
+
+    private long sink;
+
+    private CountingBloomFilter create(final Shape shape) {
+        return "CompactCountingBloomFilter".equals(implementation) ? new CompactCountingBloomFilter(shape)
+            : new ArrayCountingBloomFilter(shape);
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final Shape shape = Shape.fromNP(items, 0.01);
+        filter = create(shape);
+        other = create(shape);
+        members = new Hasher[items];
+        for (int i = 0; i < items; i++) {
+            members[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            filter.merge(members[i]);
+            if ((i & 7) == 0) {
+                other.merge(members[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public boolean testRemoveAndMerge() {
+        boolean result = true;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final Hasher hasher = members[i * 97 % items];
+            result &= filter.remove(hasher);
+            result &= filter.merge(hasher);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int testContains() {
+        int count = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            if (filter.contains(members[i * 997 % items])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long testForEachBitMap() {
+        filter.forEachBitMap(word -> {
+            sink ^= word;
+            return true;
+        });
+        return sink;
+    }
+
+    @Benchmark
+    public boolean testAddAndSubtract() {
+        return filter.add(other) & filter.subtract(other);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.ArrayCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.ConcurrentCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.CountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the counting Bloom filters under contention: every thread shares one filter.
+ * <p>
+ * The baseline is an {@link ArrayCountingBloomFilter} guarded by its own monitor, which is
+ * how callers share the non thread-safe implementation today. Run with {@code -t} to vary
+ * the number of threads; all available processors are used by default.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+@Fork(3)
+public class CountingBloomFilterContentionTest {
+
+    /** The number of pre-computed hashers; a power of 2. */
+    private static final int HASHERS = 4096;
+
+    @Param({"ConcurrentCountingBloomFilter", "SynchronizedArrayCountingBloomFilter"})
+    private String implementation;
+
+    @Param({"1000000"})
+    private int numberOfBits;
+
+    @Param({"7"})
+    private int numberOfHashFunctions;
+
+    private CountingBloomFilter filter;
+
+    private boolean synchronize;
+
+    private Hasher[] hashers;
+
+    @Setup
+    public void setup() {
+        final Shape shape = Shape.fromKM(numberOfHashFunctions, numberOfBits);
+        switch (implementation) {
+        case "ConcurrentCountingBloomFilter":
+            filter = new ConcurrentCountingBloomFilter(shape);
+            break;
+        case "SynchronizedArrayCountingBloomFilter":
+            filter = new ArrayCountingBloomFilter(shape);
+            synchronize = true;
+            break;
+        default:
+            throw new IllegalArgumentException(implementation);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        hashers = new Hasher[HASHERS];
+        for (int i = 0; i < HASHERS; i++) {
+            hashers[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            // half of the hashers are present so contains sees both hits and misses
+            if ((i & 1) == 0) {
+                filter.merge(hashers[i]);
+            }
+        }
+    }
+
+    private Hasher nextHasher() {
+        return hashers[ThreadLocalRandom.current().nextInt(HASHERS)];
+    }
+
+    @Benchmark
+    public boolean testMerge() {
+        final Hasher hasher = nextHasher();
+        if (synchronize) {
+            synchronized (filter) {
+                return filter.merge(hasher);
+            }
+        }
+        return filter.merge(hasher);
+    }
+
+    /**
+     * Merges then removes the same item, leaving the counts as they were found.
+     */
+    @Benchmark
+    public boolean testMergeRemove() {
+        final Hasher hasher = nextHasher();
+        if (synchronize) {
+            synchronized (filter) {
+                filter.merge(hasher);
+            }
+            synchronized (filter) {
+                return filter.remove(hasher);
+            }
+        }
+        filter.merge(hasher);
+        return filter.remove(hasher);
+    }
+
+    @Benchmark
+    public boolean testContains() {
+        final Hasher hasher = nextHasher();
+        if (synchronize) {
+            synchronized (filter) {
+                return filter.contains(hasher);
+            }
+        }
+        return filter.contains(hasher);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public boolean testMixedContains() {
+        return testContains();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean testMixedMergeRemove() {
+        return testMergeRemove();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.ArrayCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.CuckooFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares a {@link CuckooFilter} with an {@link ArrayCountingBloomFilter} of about the same
+ * false-positive probability as sets with high churn: each replace operation removes a member and
+ * adds a new one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(value = 3, jvmArgs = "-Xmx2g")
+public class CuckooFilterTest {
+
+    /** The number of operations per invocation. */
+    static final int OPERATIONS = 1024;
+
+    @Param({"CuckooFilter", "ArrayCountingBloomFilter"})
+    private String implementation;
+
+    @Param({"1000000"})
+    private int items;
+
+    /** The members; each replace removes one and stores its replacement in its place. */
+    private Hasher[] members;
+
+    private Hasher[] absent;
+
+    private int next;
+
+    private Random random;
+
+    private CuckooFilter cuckoo;
+
+    private ArrayCountingBloomFilter counting;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        cuckoo = new CuckooFilter(items);
+        // the same probability as a full cuckoo filter
+        counting = new ArrayCountingBloomFilter(Shape.fromNP(items, cuckoo.getProbability()));
+        members = new Hasher[items];
+        for (int i = 0; i < items; i++) {
+            members[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            if ("CuckooFilter".equals(implementation)) {
+                cuckoo.add(members[i]);
+            } else {
+                counting.merge(members[i]);
+            }
+        }
+        absent = new Hasher[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            absent[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public boolean testReplace() {
+        boolean result = true;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final int slot = next;
+            next = next + 1 == items ? 0 : next + 1;
+            final Hasher replacement = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            if ("CuckooFilter".equals(implementation)) {
+                result &= cuckoo.remove(members[slot]);
+                result &= cuckoo.add(replacement);
+            } else {
+                result &= counting.remove(members[slot]);
+                result &= counting.merge(replacement);
+            }
+            members[slot] = replacement;
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int testContainsPresent() {
+        int count = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final Hasher hasher = members[i * 997 % items];
+            if ("CuckooFilter".equals(implementation) ? cuckoo.contains(hasher) : counting.contains(hasher)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int testContainsAbsent() {
+        int count = 0;
+        for (final Hasher hasher : absent) {
+            if ("CuckooFilter".equals(implementation) ? cuckoo.contains(hasher) : counting.contains(hasher)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
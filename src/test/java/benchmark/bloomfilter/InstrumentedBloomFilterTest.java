@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.InstrumentedBloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the overhead of an {@link InstrumentedBloomFilter} over the {@link SimpleBloomFilter}
+ * it decorates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class InstrumentedBloomFilterTest {
+
+    /** The number of operations per invocation. */
+    static final int OPERATIONS = 1024;
+
+    @Param({"SimpleBloomFilter", "InstrumentedBloomFilter"})
+    private String implementation;
+
+    private BloomFilter filter;
+
+    private Hasher[] hashers;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final Shape shape = Shape.fromNP(100_000, 0.01);
+        final SimpleBloomFilter simple = new SimpleBloomFilter(shape);
+        filter = "SimpleBloomFilter".equals(implementation) ? simple : new InstrumentedBloomFilter(simple);
+        hashers = new Hasher[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            hashers[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            if ((i & 1) == 0) {
+                filter.merge(hashers[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int testContains() {
+        int count = 0;
+        for (final Hasher hasher : hashers) {
+            if (filter.contains(hasher)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public boolean testMerge() {
+        boolean result = true;
+        for (final Hasher hasher : hashers) {
+            result &= filter.merge(hasher);
+        }
+        return result;
+    }
+}
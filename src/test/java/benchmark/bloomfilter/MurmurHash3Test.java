@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.MurmurHash3;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares testing a filter with the built-in {@link MurmurHash3} hashers against hashing with
+ * commons-codec and copying the result into the byte array of an {@link EnhancedDoubleHasher}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class MurmurHash3Test {
+
+    @Param({"8", "64", "1024"})
+    private int length;
+
+    private BloomFilter filter;
+
+    private byte[] bytes;
+
+    private ByteBuffer direct;
+
+    private String string;
+
+    @Setup
+    public void setup() {
+        filter = new SimpleBloomFilter(Shape.fromKM(7, 1_000_000));
+        final Random random = new Random(42);
+        bytes = new byte[length];
+        random.nextBytes(bytes);
+        direct = ByteBuffer.allocateDirect(length);
+        direct.put(bytes);
+        direct.flip();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        string = sb.toString();
+    }
+
+    private static EnhancedDoubleHasher codecHasher(final byte[] data) {
+        final long[] hash = org.apache.commons.codec.digest.MurmurHash3.hash128x64(data);
+        final byte[] copy = new byte[Long.BYTES * 2];
+        for (int i = 0; i < Long.BYTES; i++) {
+            copy[i] = (byte) (hash[0] >>> (56 - i * 8));
+            copy[i + Long.BYTES] = (byte) (hash[1] >>> (56 - i * 8));
+        }
+        return new EnhancedDoubleHasher(copy);
+    }
+
+    @Benchmark
+    public boolean testCodecByteArray() {
+        return filter.contains(codecHasher(bytes));
+    }
+
+    @Benchmark
+    public boolean testByteArray() {
+        return filter.contains(MurmurHash3.hasher(bytes));
+    }
+
+    @Benchmark
+    public boolean testCodecDirectBuffer() {
+        final byte[] data = new byte[direct.remaining()];
+        direct.duplicate().get(data);
+        return filter.contains(codecHasher(data));
+    }
+
+    @Benchmark
+    public boolean testDirectBuffer() {
+        return filter.contains(MurmurHash3.hasher(direct));
+    }
+
+    @Benchmark
+    public boolean testCodecString() {
+        return filter.contains(codecHasher(string.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public boolean testString() {
+        return filter.contains(MurmurHash3.hasher(string));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.ScalableBloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares a {@link ScalableBloomFilter} started at 1000 items with a {@link SimpleBloomFilter}
+ * sized up front for all the items, both at a false positive probability of 1%. Each invocation
+ * adds the items to an empty filter, or tests as many absent items against a full one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class ScalableBloomFilterTest {
+
+    static final int ITEMS = 100_000;
+
+    static final int INITIAL_CAPACITY = 1000;
+
+    static final double PROBABILITY = 0.01;
+
+    @Param({"scalable", "simple"})
+    private String implementation;
+
+    private Hasher[] items;
+
+    private Hasher[] absent;
+
+    private ScalableBloomFilter scalable;
+
+    private SimpleBloomFilter simple;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        items = new Hasher[ITEMS];
+        absent = new Hasher[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            absent[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        }
+        scalable = new ScalableBloomFilter(INITIAL_CAPACITY, PROBABILITY);
+        simple = new SimpleBloomFilter(Shape.fromNP(ITEMS, PROBABILITY));
+        fill();
+    }
+
+    private int fill() {
+        int added = 0;
+        switch (implementation) {
+        case "scalable":
+            scalable.clear();
+            for (final Hasher hasher : items) {
+                if (scalable.add(hasher)) {
+                    added++;
+                }
+            }
+            break;
+        case "simple":
+            simple.clear();
+            for (final Hasher hasher : items) {
+                simple.merge(hasher);
+                added++;
+            }
+            break;
+        default:
+            throw new IllegalStateException(implementation);
+        }
+        return added;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int testAdd() {
+        return fill();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int testContainsAbsent() {
+        int count = 0;
+        if ("scalable".equals(implementation)) {
+            for (final Hasher hasher : absent) {
+                if (scalable.contains(hasher)) {
+                    count++;
+                }
+            }
+        } else {
+            for (final Hasher hasher : absent) {
+                if (simple.contains(hasher)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
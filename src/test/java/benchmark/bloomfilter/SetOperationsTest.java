@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.SetOperations;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares {@link SetOperations} on {@link SimpleBloomFilter}s, which read the bit map arrays in
+ * place, with the same bit maps from a {@link BitMapProducer}, which visits each pair of bit maps
+ * through a callback. Also measures a nearest-neighbour scan over a list of filters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class SetOperationsTest {
+
+    /** The number of candidates in the nearest-neighbour scan. */
+    static final int CANDIDATES = 1000;
+
+    @Param({"1024", "65536"})
+    private int numberOfBits;
+
+    private SimpleBloomFilter filter1;
+
+    private SimpleBloomFilter filter2;
+
+    private BitMapProducer producer1;
+
+    private BitMapProducer producer2;
+
+    private List<BloomFilter> candidates;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final Shape shape = Shape.fromKM(7, numberOfBits);
+        final int items = numberOfBits / 20;
+        filter1 = randomFilter(random, shape, items);
+        filter2 = randomFilter(random, shape, items);
+        producer1 = BitMapProducer.fromBitMapArray(filter1.asBitMapArray());
+        producer2 = BitMapProducer.fromBitMapArray(filter2.asBitMapArray());
+        candidates = new ArrayList<>();
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidates.add(randomFilter(random, shape, items));
+        }
+    }
+
+    private static SimpleBloomFilter randomFilter(final Random random, final Shape shape, final int items) {
+        final SimpleBloomFilter filter = new SimpleBloomFilter(shape);
+        for (int i = 0; i < items; i++) {
+            filter.merge(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()));
+        }
+        return filter;
+    }
+
+    @Benchmark
+    public int testAndCardinalityArrays() {
+        return SetOperations.andCardinality(filter1, filter2);
+    }
+
+    @Benchmark
+    public int testAndCardinalityProducers() {
+        return SetOperations.andCardinality(producer1, producer2);
+    }
+
+    @Benchmark
+    public double testJaccardSimilarityArrays() {
+        return SetOperations.jaccardSimilarity(filter1, filter2);
+    }
+
+    @Benchmark
+    public double testJaccardSimilarityProducers() {
+        return SetOperations.jaccardSimilarity(producer1, producer2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double[] testCosineSimilarityBatch() {
+        return SetOperations.cosineSimilarity(filter1, candidates);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double testCosineSimilarityEach() {
+        double best = 0;
+        for (final BloomFilter candidate : candidates) {
+            best = Math.max(best, SetOperations.cosineSimilarity(producer1, candidate));
+        }
+        return best;
+    }
+}
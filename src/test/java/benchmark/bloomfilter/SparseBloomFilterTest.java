@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.bloomfilter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.IndexProducer;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.apache.commons.collections4.bloomfilter.SparseBloomFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link SparseBloomFilter} with {@link SimpleBloomFilter} on a large, sparsely
+ * populated shape. Run with {@code -prof gc} to see the allocation rate of each operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class SparseBloomFilterTest {
+
+    /** The number of pre-computed items; a power of 2. */
+    private static final int ITEMS = 1024;
+
+    @Param({"SparseBloomFilter", "SimpleBloomFilter"})
+    private String implementation;
+
+    /** The number of items merged into the filter. */
+    @Param({"10", "1000"})
+    private int size;
+
+    private Shape shape;
+
+    private BloomFilter filter;
+
+    private IndexProducer[] present;
+
+    private IndexProducer[] absent;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        shape = Shape.fromKM(7, 10_000_000);
+        filter = createFilter();
+        final Random random = new Random(42);
+        present = new IndexProducer[ITEMS];
+        absent = new IndexProducer[ITEMS];
+        final Hasher[] hashers = new Hasher[size];
+        for (int i = 0; i < size; i++) {
+            hashers[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            filter.merge(hashers[i]);
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            // materialize the indices so hashing is not measured
+            present[i] = IndexProducer.fromIndexArray(hashers[i % size].indices(shape).asIndexArray());
+            absent[i] = IndexProducer.fromIndexArray(
+                new EnhancedDoubleHasher(random.nextLong(), random.nextLong()).indices(shape).asIndexArray());
+        }
+    }
+
+    private BloomFilter createFilter() {
+        switch (implementation) {
+        case "SparseBloomFilter":
+            return new SparseBloomFilter(shape);
+        case "SimpleBloomFilter":
+            return new SimpleBloomFilter(shape);
+        default:
+            throw new IllegalArgumentException(implementation);
+        }
+    }
+
+    private int nextItem() {
+        return next++ & (ITEMS - 1);
+    }
+
+    @Benchmark
+    public boolean testContainsHit() {
+        return filter.contains(present[nextItem()]);
+    }
+
+    @Benchmark
+    public boolean testContainsMiss() {
+        return filter.contains(absent[nextItem()]);
+    }
+
+    @Benchmark
+    public boolean testMergePresent() {
+        return filter.merge(present[nextItem()]);
+    }
+
+    /**
+     * Builds a filter of {@code size} items from empty.
+     */
+    @Benchmark
+    public BloomFilter testBuild() {
+        final BloomFilter bf = createFilter();
+        for (int i = 0; i < size; i++) {
+            bf.merge(present[i]);
+        }
+        return bf;
+    }
+
+    @Benchmark
+    public void testForEachIndex(final Blackhole bh) {
+        filter.forEachIndex(i -> {
+            bh.consume(i);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.map;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.map.ConcurrentLRUMap;
+import org.apache.commons.collections4.map.LRUMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link ConcurrentLRUMap} with a synchronized {@link LRUMap} used as a cache
+ * shared by all threads. Run with {@code -t} to vary the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+@Fork(3)
+public class ConcurrentLRUMapTest {
+
+    @Param({"ConcurrentLRUMap", "SynchronizedLRUMap"})
+    private String implementation;
+
+    @Param({"10000"})
+    private int maxSize;
+
+    private Map<Integer, Integer> map;
+
+    private Integer[] keys;
+
+    @Setup
+    public void setup() {
+        if ("ConcurrentLRUMap".equals(implementation)) {
+            map = new ConcurrentLRUMap<>(maxSize);
+        } else {
+            map = Collections.synchronizedMap(new LRUMap<>(maxSize));
+        }
+        // twice as many keys as fit, so that some lookups miss and evict
+        keys = new Integer[maxSize * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Integer.valueOf(i);
+            if (i < maxSize) {
+                map.put(keys[i], keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Lookups which all hit.
+     */
+    @Benchmark
+    public void testGetHit(final Blackhole bh) {
+        bh.consume(map.get(keys[ThreadLocalRandom.current().nextInt(maxSize)]));
+    }
+
+    /**
+     * A cache access: a lookup that loads and puts the value on a miss.
+     * The key is skewed towards the small end of the range so that most lookups hit.
+     */
+    @Benchmark
+    public void testGetOrPut(final Blackhole bh) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Integer key = keys[random.nextInt(random.nextInt(keys.length) + 1)];
+        final Integer value = map.get(key);
+        if (value == null) {
+            map.put(key, key);
+        }
+        bh.consume(value);
+    }
+}
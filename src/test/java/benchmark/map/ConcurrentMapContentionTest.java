@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.map;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.map.StaticBucketMap;
+import org.apache.commons.collections4.map.StripedBucketMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the thread-safe maps under contention: every thread shares one map.
+ * <p>
+ * The map is sized far beyond the default capacity of {@link StaticBucketMap}, which
+ * never rehashes. Run with {@code -t} to vary the number of threads; all available
+ * processors are used by default.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+@Fork(3)
+public class ConcurrentMapContentionTest {
+
+    @Param({"StripedBucketMap", "StaticBucketMap", "ConcurrentHashMap", "SynchronizedHashMap"})
+    private String implementation;
+
+    @Param({"100000"})
+    private int size;
+
+    private Map<Integer, Integer> map;
+
+    private Integer[] keys;
+
+    @Setup
+    public void setup() {
+        map = createMap(implementation);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = Integer.valueOf(i);
+            map.put(keys[i], keys[i]);
+        }
+    }
+
+    static Map<Integer, Integer> createMap(final String name) {
+        switch (name) {
+        case "StripedBucketMap":
+            return new StripedBucketMap<>();
+        case "StaticBucketMap":
+            return new StaticBucketMap<>();
+        case "ConcurrentHashMap":
+            return new ConcurrentHashMap<>();
+        case "SynchronizedHashMap":
+            return Collections.synchronizedMap(new HashMap<>());
+        default:
+            throw new IllegalArgumentException(name);
+        }
+    }
+
+    private Integer randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    @Benchmark
+    public void testGet(final Blackhole bh) {
+        bh.consume(map.get(randomKey()));
+    }
+
+    @Benchmark
+    public void testPut(final Blackhole bh) {
+        final Integer key = randomKey();
+        bh.consume(map.put(key, key));
+    }
+
+    /**
+     * Nine reads for every write.
+     */
+    @Benchmark
+    public void testReadMostly(final Blackhole bh) {
+        final Integer key = randomKey();
+        if (key.intValue() % 10 == 0) {
+            bh.consume(map.put(key, key));
+        } else {
+            bh.consume(map.get(key));
+        }
+    }
+
+    /**
+     * Removes a key and puts it back, so that writers also change the structure of the map.
+     */
+    @Benchmark
+    public void testRemovePut(final Blackhole bh) {
+        final Integer key = randomKey();
+        bh.consume(map.remove(key));
+        bh.consume(map.put(key, key));
+    }
+}
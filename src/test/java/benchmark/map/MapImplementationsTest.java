@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.map;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.IterableMap;
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.map.Flat3Map;
+import org.apache.commons.collections4.map.HashedMap;
+import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.collections4.map.LinkedMap;
+import org.apache.commons.collections4.map.PassiveExpiringMap;
+import org.apache.commons.collections4.map.ReferenceMap;
+import org.apache.commons.collections4.map.StaticBucketMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the hot paths of the {@code org.apache.commons.collections4.map} implementations
+ * against {@link HashMap} and {@link LinkedHashMap}.
+ * <p>
+ * Every lookup benchmark performs {@link #OPERATIONS} operations per invocation over a
+ * pre-computed array of keys so the cost of producing the keys is not measured.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class MapImplementationsTest {
+
+    /** The number of operations performed by each benchmark invocation. */
+    static final int OPERATIONS = 1024;
+
+    @Param({"HashMap", "LinkedHashMap", "HashedMap", "LinkedMap", "LRUMap", "Flat3Map", "ReferenceMap",
+        "StaticBucketMap", "PassiveExpiringMap"})
+    private String implementation;
+
+    @Param({"3", "100", "10000"})
+    private int size;
+
+    /**
+     * The key distribution: {@code sequential} integers, {@code random} integers,
+     * {@code string} keys, or {@code colliding} keys sharing a small number of hash codes.
+     */
+    @Param({"sequential", "random", "string", "colliding"})
+    private String distribution;
+
+    private Map<Object, Object> map;
+
+    /** Keys present in the map, in lookup order. */
+    private Object[] hits;
+
+    /** Keys absent from the map, in lookup order. */
+    private Object[] misses;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final Object[] keys = createKeys(random, size + OPERATIONS);
+        map = createMap(implementation, size);
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], keys[i]);
+        }
+        hits = new Object[OPERATIONS];
+        misses = new Object[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            hits[i] = keys[random.nextInt(size)];
+            misses[i] = keys[size + i];
+        }
+    }
+
+    private Object[] createKeys(final Random random, final int count) {
+        final Set<Object> unique = new HashSet<>();
+        final Object[] keys = new Object[count];
+        int i = 0;
+        while (i < count) {
+            final Object key;
+            switch (distribution) {
+            case "sequential":
+                key = Integer.valueOf(i);
+                break;
+            case "random":
+                key = Integer.valueOf(random.nextInt());
+                break;
+            case "string":
+                key = "key-" + Long.toHexString(random.nextLong());
+                break;
+            case "colliding":
+                key = new CollidingKey(random.nextInt());
+                break;
+            default:
+                throw new IllegalArgumentException(distribution);
+            }
+            if (unique.add(key)) {
+                keys[i++] = key;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Creates an empty map of the named implementation able to hold {@code size} entries
+     * without evicting.
+     *
+     * @param name the simple class name of the implementation
+     * @param size the number of entries the map will hold
+     * @return a new map
+     */
+    static Map<Object, Object> createMap(final String name, final int size) {
+        switch (name) {
+        case "HashMap":
+            return new HashMap<>();
+        case "LinkedHashMap":
+            return new LinkedHashMap<>();
+        case "HashedMap":
+            return new HashedMap<>();
+        case "LinkedMap":
+            return new LinkedMap<>();
+        case "LRUMap":
+            // room for the benchmarks that insert before removing
+            return new LRUMap<>(size * 2);
+        case "Flat3Map":
+            return new Flat3Map<>();
+        case "ReferenceMap":
+            return new ReferenceMap<>();
+        case "StaticBucketMap":
+            return new StaticBucketMap<>(size);
+        case "PassiveExpiringMap":
+            return new PassiveExpiringMap<>(-1L);
+        default:
+            throw new IllegalArgumentException(name);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void testGetHit(final Blackhole bh) {
+        final Map<Object, Object> m = map;
+        for (final Object key : hits) {
+            bh.consume(m.get(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void testGetMiss(final Blackhole bh) {
+        final Map<Object, Object> m = map;
+        for (final Object key : misses) {
+            bh.consume(m.get(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void testContainsKeyHit(final Blackhole bh) {
+        final Map<Object, Object> m = map;
+        for (final Object key : hits) {
+            bh.consume(m.containsKey(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void testPutExisting(final Blackhole bh) {
+        final Map<Object, Object> m = map;
+        for (final Object key : hits) {
+            bh.consume(m.put(key, key));
+        }
+    }
+
+    /**
+     * Inserts absent keys then removes them again, leaving the map as it was found.
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void testPutRemove(final Blackhole bh) {
+        final Map<Object, Object> m = map;
+        final Object[] keys = misses;
+        for (int i = 0; i < keys.length; i++) {
+            bh.consume(m.put(keys[i], keys[i]));
+            if ((i & 1) == 1) {
+                bh.consume(m.remove(keys[i - 1]));
+                bh.consume(m.remove(keys[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void testRemoveMiss(final Blackhole bh) {
+        final Map<Object, Object> m = map;
+        for (final Object key : misses) {
+            bh.consume(m.remove(key));
+        }
+    }
+
+    @Benchmark
+    public void testIterateEntrySet(final Blackhole bh) {
+        for (final Map.Entry<Object, Object> entry : map.entrySet()) {
+            bh.consume(entry.getKey());
+            bh.consume(entry.getValue());
+        }
+    }
+
+    /**
+     * Iterates with a {@link MapIterator} where the map supports one, otherwise falls back to
+     * the entry set so the JDK maps provide the baseline.
+     */
+    @Benchmark
+    public void testIterateMapIterator(final Blackhole bh) {
+        if (map instanceof IterableMap) {
+            final MapIterator<Object, Object> it = ((IterableMap<Object, Object>) map).mapIterator();
+            while (it.hasNext()) {
+                bh.consume(it.next());
+                bh.consume(it.getValue());
+            }
+        } else {
+            testIterateEntrySet(bh);
+        }
+    }
+
+    /**
+     * A key whose hash code is drawn from a small range so buckets degrade into chains.
+     */
+    static final class CollidingKey {
+        private final int value;
+
+        CollidingKey(final int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value & 0x3f;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey) obj).value == value;
+        }
+    }
+}
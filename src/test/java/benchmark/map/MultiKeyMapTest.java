@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.map;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.keyvalue.MultiKey;
+import org.apache.commons.collections4.map.MultiKeyMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the two key methods of {@link MultiKeyMap}, which avoid creating a {@link MultiKey}
+ * per lookup, against a {@link HashMap} keyed by {@link MultiKey}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class MultiKeyMapTest {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private MultiKeyMap<Integer, Integer> multiKeyMap;
+
+    private Map<MultiKey<Integer>, Integer> hashMap;
+
+    private Integer[] first;
+
+    private Integer[] second;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        multiKeyMap = new MultiKeyMap<>();
+        hashMap = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            final Integer k1 = Integer.valueOf(i);
+            final Integer k2 = Integer.valueOf(i * 31);
+            multiKeyMap.put(k1, k2, k1);
+            hashMap.put(new MultiKey<>(k1, k2), k1);
+        }
+        // half of the lookups hit, half miss on the second key
+        first = new Integer[MapImplementationsTest.OPERATIONS];
+        second = new Integer[MapImplementationsTest.OPERATIONS];
+        for (int i = 0; i < first.length; i++) {
+            final int k = random.nextInt(size);
+            first[i] = Integer.valueOf(k);
+            second[i] = Integer.valueOf((i & 1) == 0 ? k * 31 : k * 31 + 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MapImplementationsTest.OPERATIONS)
+    public void testMultiKeyMapGet(final Blackhole bh) {
+        for (int i = 0; i < first.length; i++) {
+            bh.consume(multiKeyMap.get(first[i], second[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MapImplementationsTest.OPERATIONS)
+    public void testHashMapGet(final Blackhole bh) {
+        for (int i = 0; i < first.length; i++) {
+            bh.consume(hashMap.get(new MultiKey<>(first[i], second[i])));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MapImplementationsTest.OPERATIONS)
+    public void testMultiKeyMapPutRemove(final Blackhole bh) {
+        for (int i = 0; i < first.length; i++) {
+            final Integer k2 = Integer.valueOf(-1 - i);
+            bh.consume(multiKeyMap.put(first[i], k2, first[i]));
+            bh.consume(multiKeyMap.removeMultiKey(first[i], k2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MapImplementationsTest.OPERATIONS)
+    public void testHashMapPutRemove(final Blackhole bh) {
+        for (int i = 0; i < first.length; i++) {
+            final Integer k2 = Integer.valueOf(-1 - i);
+            bh.consume(hashMap.put(new MultiKey<>(first[i], k2), first[i]));
+            bh.consume(hashMap.remove(new MultiKey<>(first[i], k2)));
+        }
+    }
+
+    @Benchmark
+    public void testMultiKeyMapIterate(final Blackhole bh) {
+        final MapIterator<MultiKey<? extends Integer>, Integer> it = multiKeyMap.mapIterator();
+        while (it.hasNext()) {
+            bh.consume(it.next());
+            bh.consume(it.getValue());
+        }
+    }
+
+    @Benchmark
+    public void testHashMapIterate(final Blackhole bh) {
+        for (final Map.Entry<MultiKey<Integer>, Integer> entry : hashMap.entrySet()) {
+            bh.consume(entry.getKey());
+            bh.consume(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.trie;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.trie.BinaryTrie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.apache.commons.collections4.trie.analyzer.ByteArrayKeyAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares lookups of 16 byte keys, such as UUIDs, in a {@link BinaryTrie} of {@code byte[]}
+ * keys with lookups of the same keys as hexadecimal strings in a {@link PatriciaTrie}, which
+ * includes the cost of converting a key to a string. Half the lookups are for absent keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(value = 3, jvmArgs = "-Xmx2g")
+public class BinaryTrieTest {
+
+    /** The number of lookups per invocation. */
+    static final int LOOKUPS = 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Param({"100000"})
+    private int size;
+
+    private BinaryTrie<byte[], Integer> binary;
+
+    private PatriciaTrie<Integer> patricia;
+
+    private byte[][] lookups;
+
+    private static String toHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[bytes[i] >>> 4 & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        binary = new BinaryTrie<>(ByteArrayKeyAnalyzer.INSTANCE);
+        patricia = new PatriciaTrie<>();
+        lookups = new byte[LOOKUPS][];
+        for (int i = 0; i < size; i++) {
+            final byte[] key = new byte[16];
+            random.nextBytes(key);
+            binary.put(key, i);
+            patricia.put(toHex(key), i);
+            if (i < LOOKUPS / 2) {
+                lookups[i] = key.clone();
+            }
+        }
+        for (int i = LOOKUPS / 2; i < LOOKUPS; i++) {
+            lookups[i] = new byte[16];
+            random.nextBytes(lookups[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testBinaryGet() {
+        int count = 0;
+        for (final byte[] key : lookups) {
+            if (binary.get(key) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testHexStringGet() {
+        int count = 0;
+        for (final byte[] key : lookups) {
+            if (patricia.get(toHex(key)) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
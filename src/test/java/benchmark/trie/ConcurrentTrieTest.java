@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.trie;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.ConcurrentPatriciaTrie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares an autocomplete workload of 99% reads and 1% writes, run by several threads, on a
+ * {@link PatriciaTrie} guarded by a {@link ReentrantReadWriteLock} and on a
+ * {@link ConcurrentPatriciaTrie}. A read takes the first keys of the prefix map of a short
+ * prefix; a write replaces the value of an existing key, so that the size stays the same.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@Threads(4)
+@Fork(3)
+public class ConcurrentTrieTest {
+
+    /** The number of operations per invocation, one of which is a write. */
+    static final int OPERATIONS = 100;
+
+    /** The number of completions taken from a prefix map. */
+    static final int COMPLETIONS = 8;
+
+    @State(Scope.Thread)
+    public static class Operations {
+
+        private final Random random = new Random();
+
+        private final String[] prefixes = new String[OPERATIONS];
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < OPERATIONS; i++) {
+                prefixes[i] = randomWord(random, 3);
+            }
+        }
+    }
+
+    @Param({"locked", "concurrent"})
+    private String implementation;
+
+    @Param({"100000"})
+    private int size;
+
+    private Trie<String, Integer> trie;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] keys;
+
+    private static String randomWord(final Random random, final int maxLength) {
+        final char[] chars = new char[1 + random.nextInt(maxLength)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(8));
+        }
+        return new String(chars);
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        trie = "locked".equals(implementation) ? new PatriciaTrie<>()
+            : new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        while (trie.size() < size) {
+            trie.put(randomWord(random, 10), trie.size());
+        }
+        keys = trie.keySet().toArray(new String[0]);
+    }
+
+    private int complete(final String prefix) {
+        int total = 0;
+        final Iterator<String> it = trie.prefixMap(prefix).keySet().iterator();
+        for (int i = 0; i < COMPLETIONS && it.hasNext(); i++) {
+            total += it.next().length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int testReadMostly(final Operations operations) {
+        final boolean locked = "locked".equals(implementation);
+        int total = 0;
+        for (final String prefix : operations.prefixes) {
+            if (locked) {
+                lock.readLock().lock();
+                try {
+                    total += complete(prefix);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            } else {
+                total += complete(prefix);
+            }
+        }
+        final String key = keys[operations.random.nextInt(keys.length)];
+        if (locked) {
+            lock.writeLock().lock();
+            try {
+                trie.put(key, total);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else {
+            trie.put(key, total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.trie;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares typo tolerant lookups in a {@link PatriciaTrie} by scanning all the keys and computing
+ * their Levenshtein distance, stopping a key early once no distance in a row is within the bound,
+ * with {@link PatriciaTrie#fuzzyMap(String, int)}. The keys are random words of 4 to 12 letters;
+ * a query is a key with one typo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class FuzzySearchTest {
+
+    /** The number of queries per invocation. */
+    static final int QUERIES = 16;
+
+    @Param({"scan", "trie"})
+    private String implementation;
+
+    @Param({"1", "2"})
+    private int maxDistance;
+
+    @Param({"100000"})
+    private int size;
+
+    private PatriciaTrie<Integer> trie;
+
+    private String[] queries;
+
+    private static String randomWord(final Random random) {
+        final char[] chars = new char[4 + random.nextInt(9)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static boolean withinDistance(final String a, final String b, final int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int min = i;
+            for (int j = 1; j <= b.length(); j++) {
+                current[j] = Math.min(Math.min(previous[j], current[j - 1]) + 1,
+                    previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+                min = Math.min(min, current[j]);
+            }
+            if (min > maxDistance) {
+                return false;
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxDistance;
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        trie = new PatriciaTrie<>();
+        while (trie.size() < size) {
+            trie.put(randomWord(random), trie.size());
+        }
+        final String[] keys = trie.keySet().toArray(new String[0]);
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            final char[] chars = keys[random.nextInt(keys.length)].toCharArray();
+            chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(chars);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int testFuzzySearch() {
+        int count = 0;
+        for (final String query : queries) {
+            if ("trie".equals(implementation)) {
+                count += trie.fuzzyMap(query, maxDistance).size();
+            } else {
+                for (final String key : trie.keySet()) {
+                    if (withinDistance(query, key, maxDistance)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.trie;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares lookups in a {@link PatriciaTrie} with lookups in the
+ * {@link org.apache.commons.collections4.trie.PackedTrie} it freezes into. The keys are random
+ * words of 4 to 12 lower case letters; half the lookups are for absent keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(value = 3, jvmArgs = "-Xmx2g")
+public class PackedTrieTest {
+
+    /** The number of lookups per invocation. */
+    static final int LOOKUPS = 1024;
+
+    @Param({"patricia", "packed"})
+    private String implementation;
+
+    @Param({"1000000"})
+    private int size;
+
+    private Trie<String, Integer> trie;
+
+    private String[] lookups;
+
+    private String[] prefixes;
+
+    private static String randomWord(final Random random) {
+        final char[] chars = new char[4 + random.nextInt(9)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> patricia = new PatriciaTrie<>();
+        final String[] present = new String[LOOKUPS / 2];
+        for (int i = 0; i < size; i++) {
+            final String word = randomWord(random);
+            patricia.put(word, i);
+            if (i < present.length) {
+                present[i] = word;
+            }
+        }
+        lookups = new String[LOOKUPS];
+        prefixes = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = i < present.length ? present[i] : randomWord(random);
+            prefixes[i] = randomWord(random).substring(0, 3);
+        }
+        switch (implementation) {
+        case "patricia":
+            trie = patricia;
+            break;
+        case "packed":
+            trie = patricia.freeze();
+            break;
+        default:
+            throw new IllegalStateException(implementation);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testGet() {
+        int count = 0;
+        for (final String key : lookups) {
+            if (trie.get(key) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int testPrefixMapSize() {
+        int count = 0;
+        for (final String prefix : prefixes) {
+            count += trie.prefixMap(prefix).size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark.trie;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.trie.PatriciaTrie;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares prefix queries on a {@link PatriciaTrie} through prefix map views with the direct
+ * {@link PatriciaTrie#longestPrefixOf(String)} and {@link PatriciaTrie#countWithPrefix(String)}.
+ * The keys are random words of 1 to 8 letters out of 4, so that words have many prefixes in the
+ * trie; the view based longest prefix match looks up each prefix of the word in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(3)
+public class PrefixQueryTest {
+
+    /** The number of queries per invocation. */
+    static final int QUERIES = 1024;
+
+    @Param({"view", "direct"})
+    private String implementation;
+
+    @Param({"100000"})
+    private int size;
+
+    private PatriciaTrie<Integer> trie;
+
+    private String[] words;
+
+    private String[] prefixes;
+
+    private static String randomWord(final Random random, final int maxLength) {
+        final char[] chars = new char[1 + random.nextInt(maxLength)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(chars);
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        trie = new PatriciaTrie<>();
+        while (trie.size() < size) {
+            trie.put(randomWord(random, 12), trie.size());
+        }
+        words = new String[QUERIES];
+        prefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            words[i] = randomWord(random, 16);
+            prefixes[i] = randomWord(random, 6);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int testLongestPrefixOf() {
+        int total = 0;
+        for (final String word : words) {
+            if ("direct".equals(implementation)) {
+                final Map.Entry<String, Integer> entry = trie.longestPrefixOf(word);
+                total += entry == null ? 0 : entry.getKey().length();
+            } else {
+                for (int length = word.length(); length >= 0; length--) {
+                    final String prefix = word.substring(0, length);
+                    if (trie.prefixMap(prefix).containsKey(prefix)) {
+                        total += length;
+                        break;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int testCountWithPrefix() {
+        int total = 0;
+        for (final String prefix : prefixes) {
+            total += "direct".equals(implementation) ? trie.countWithPrefix(prefix) : trie.prefixMap(prefix).size();
+        }
+        return total;
+    }
+}
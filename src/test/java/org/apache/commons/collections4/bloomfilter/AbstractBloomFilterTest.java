@@ -24,8 +24,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -421,6 +423,46 @@ public abstract class AbstractBloomFilterTest<T extends BloomFilter> {
         assertEquals(BitMap.numberOfBitMaps(getTestShape().getNumberOfBits()), idx[0]);
     }
 
+    @Test
+    public void testMergeAllAndContainsEach() {
+        final Shape shape = Shape.fromKM(7, 500);
+        final Random random = new Random(42);
+        final long[] initial = new long[50];
+        final long[] increment = new long[50];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = random.nextLong();
+            increment[i] = random.nextLong();
+        }
+        final T batch = createEmptyFilter(shape);
+        assertTrue(batch.mergeAll(Arrays.copyOf(initial, 25), Arrays.copyOf(increment, 25)));
+        final T single = createEmptyFilter(shape);
+        for (int i = 0; i < 25; i++) {
+            single.merge(new EnhancedDoubleHasher(initial[i], increment[i]));
+        }
+        assertArrayEquals(single.asBitMapArray(), batch.asBitMapArray());
+
+        final boolean[] results = new boolean[initial.length + 1];
+        int expected = 0;
+        for (int i = 0; i < initial.length; i++) {
+            if (single.contains(new EnhancedDoubleHasher(initial[i], increment[i]))) {
+                expected++;
+            }
+        }
+        assertEquals(expected, batch.containsEach(initial, increment, results));
+        for (int i = 0; i < initial.length; i++) {
+            assertEquals(single.contains(new EnhancedDoubleHasher(initial[i], increment[i])), results[i]);
+        }
+        for (int i = 0; i < 25; i++) {
+            assertTrue(results[i]);
+        }
+        assertFalse(results[initial.length]);
+
+        assertThrows(IllegalArgumentException.class, () -> batch.mergeAll(new long[2], new long[1]));
+        assertThrows(IllegalArgumentException.class, () -> batch.containsEach(new long[2], new long[1], new boolean[2]));
+        assertThrows(IllegalArgumentException.class, () -> batch.containsEach(new long[2], new long[2], new boolean[1]));
+        assertEquals(0, batch.containsEach(new long[0], new long[0], new boolean[0]));
+    }
+
     /**
      * Testing class returns the value as the only value.
      */
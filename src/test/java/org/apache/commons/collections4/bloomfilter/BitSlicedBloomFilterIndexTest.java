@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link BitSlicedBloomFilterIndex}.
+ */
+public class BitSlicedBloomFilterIndexTest {
+
+    private final Shape shape = Shape.fromKM(5, 500);
+
+    private static Hasher randomHasher(final Random random) {
+        return new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+    }
+
+    private BloomFilter randomFilter(final Random random, final List<Hasher> items) {
+        final BloomFilter filter = new SimpleBloomFilter(shape);
+        final int count = random.nextInt(30);
+        for (int i = 0; i < count; i++) {
+            final Hasher hasher = randomHasher(random);
+            items.add(hasher);
+            filter.merge(hasher);
+        }
+        return filter;
+    }
+
+    /**
+     * Finds the matches by testing each filter in turn.
+     */
+    private static int[] linearSearch(final BloomFilter[] filters, final Hasher hasher) {
+        final List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < filters.length; i++) {
+            if (filters[i] != null && filters[i].contains(hasher)) {
+                result.add(i);
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testSearchMatchesLinearScan() {
+        final Random random = new Random(42);
+        final List<Hasher> items = new ArrayList<>();
+        // more than one word per slice, and growth from the default capacity
+        final BloomFilter[] filters = new BloomFilter[300];
+        final BitSlicedBloomFilterIndex index = new BitSlicedBloomFilterIndex(shape);
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = randomFilter(random, items);
+            assertEquals(i, index.add(filters[i]));
+        }
+        assertEquals(filters.length, index.size());
+        for (int i = 0; i < 200; i++) {
+            final Hasher hasher = items.get(random.nextInt(items.size()));
+            final int[] expected = linearSearch(filters, hasher);
+            assertTrue(expected.length > 0);
+            assertArrayEquals(expected, index.search(hasher));
+        }
+        for (int i = 0; i < 200; i++) {
+            final Hasher hasher = randomHasher(random);
+            assertArrayEquals(linearSearch(filters, hasher), index.search(hasher));
+        }
+    }
+
+    @Test
+    public void testRemoveAndReplace() {
+        final Random random = new Random(42);
+        final List<Hasher> items = new ArrayList<>();
+        final BloomFilter[] filters = new BloomFilter[150];
+        final BitSlicedBloomFilterIndex index = new BitSlicedBloomFilterIndex(shape, 10);
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = randomFilter(random, items);
+            index.add(filters[i]);
+        }
+        for (int i = 0; i < filters.length; i += 3) {
+            assertTrue(index.remove(i));
+            assertFalse(index.remove(i));
+            assertFalse(index.contains(i));
+            filters[i] = null;
+        }
+        for (int i = 1; i < filters.length; i += 3) {
+            filters[i] = randomFilter(random, items);
+            index.replace(i, filters[i]);
+        }
+        assertEquals(100, index.size());
+        for (final Hasher hasher : items) {
+            assertArrayEquals(linearSearch(filters, hasher), index.search(hasher));
+        }
+        // removed ids are reused, smallest first
+        final BloomFilter filter = randomFilter(random, items);
+        assertEquals(0, index.add(filter));
+        assertEquals(3, index.add(filter));
+        assertThrows(IllegalArgumentException.class, () -> index.replace(6, filter));
+        assertThrows(IllegalArgumentException.class, () -> index.replace(-1, filter));
+        assertFalse(index.remove(filters.length));
+    }
+
+    @Test
+    public void testFailureLeavesIndexUnchanged() {
+        final BitSlicedBloomFilterIndex index = new BitSlicedBloomFilterIndex(shape, 64);
+        final BloomFilter from1 = new SimpleBloomFilter(shape);
+        from1.merge(TestingHashers.FROM1);
+        for (int i = 0; i < 64; i++) {
+            index.add(from1);
+        }
+        // a filter of the index shape with a valid index before an index out of the shape
+        final DefaultBloomFilterTest.AbstractDefaultBloomFilter bad = new DefaultBloomFilterTest.SparseDefaultBloomFilter(shape);
+        bad.indices.add(100);
+        bad.indices.add(shape.getNumberOfBits());
+        assertThrows(IllegalArgumentException.class, () -> index.add(bad));
+        assertEquals(64, index.size());
+        assertFalse(index.contains(64));
+        assertArrayEquals(new int[0], index.search(IndexProducer.fromIndexArray(100)));
+        assertThrows(IllegalArgumentException.class, () -> index.replace(5, bad));
+        assertTrue(index.contains(5));
+        assertEquals(64, index.search(TestingHashers.FROM1).length);
+        assertArrayEquals(new int[0], index.search(IndexProducer.fromIndexArray(100)));
+        // the ids are unchanged
+        assertEquals(64, index.add(from1));
+        assertEquals(65, index.size());
+    }
+
+    @Test
+    public void testSearchWithFilter() {
+        final BitSlicedBloomFilterIndex index = new BitSlicedBloomFilterIndex(shape);
+        final BloomFilter from1 = new SimpleBloomFilter(shape);
+        from1.merge(TestingHashers.FROM1);
+        final BloomFilter both = TestingHashers.populateFromHashersFrom1AndFrom11(new SimpleBloomFilter(shape));
+        index.add(from1);
+        index.add(both);
+        index.add(new SparseBloomFilter(shape));
+        assertArrayEquals(new int[] {0, 1}, index.search(from1));
+        assertArrayEquals(new int[] {1}, index.search(both));
+        assertArrayEquals(new int[] {1}, index.search(TestingHashers.FROM11));
+        // no indices matches every filter
+        assertArrayEquals(new int[] {0, 1, 2}, index.search(IndexProducer.fromIndexArray()));
+        assertArrayEquals(new int[0], index.search(IndexProducer.fromIndexArray(499)));
+        assertThrows(IllegalArgumentException.class, () -> index.search(IndexProducer.fromIndexArray(500)));
+        index.clear();
+        assertTrue(index.isEmpty());
+        assertArrayEquals(new int[0], index.search(from1));
+        assertEquals(0, index.add(both));
+    }
+
+    @Test
+    public void testNestedSearch() {
+        final BitSlicedBloomFilterIndex index = new BitSlicedBloomFilterIndex(shape);
+        final BloomFilter from1 = new SimpleBloomFilter(shape);
+        from1.merge(TestingHashers.FROM1);
+        final BloomFilter from11 = new SimpleBloomFilter(shape);
+        from11.merge(TestingHashers.FROM11);
+        index.add(from1);
+        index.add(from11);
+        final int[] indices = from1.asIndexArray();
+        // a search made while another is in progress does not change the matches of the first
+        final IndexProducer outer = consumer -> consumer.test(indices[0])
+            && index.search(from11).length == 1 && IndexProducer.fromIndexArray(indices).forEachIndex(consumer);
+        assertArrayEquals(new int[] {0}, index.search(outer));
+    }
+
+    @Test
+    public void testConstructorAndShape() {
+        assertThrows(NullPointerException.class, () -> new BitSlicedBloomFilterIndex(null));
+        assertThrows(IllegalArgumentException.class, () -> new BitSlicedBloomFilterIndex(shape, 0));
+        final BitSlicedBloomFilterIndex index = new BitSlicedBloomFilterIndex(shape);
+        assertEquals(shape, index.getShape());
+        assertThrows(NullPointerException.class, () -> index.add(null));
+        assertThrows(IllegalArgumentException.class,
+            () -> index.add(new SimpleBloomFilter(Shape.fromKM(5, 501))));
+        assertThrows(IllegalArgumentException.class,
+            () -> index.add(new SimpleBloomFilter(Shape.fromKM(4, 500))));
+        assertTrue(index.isEmpty());
+    }
+}
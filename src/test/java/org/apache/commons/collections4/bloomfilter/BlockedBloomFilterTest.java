@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for the {@link BlockedBloomFilter}.
+ */
+public class BlockedBloomFilterTest {
+
+    private static Hasher randomHasher(final Random random) {
+        return new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {64, 128, 512})
+    public void testItemBitsInOneBlock(final int bitsPerBlock) {
+        final Shape shape = Shape.fromKM(7, 1 << 16);
+        final Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            final BlockedBloomFilter filter = new BlockedBloomFilter(shape, bitsPerBlock);
+            final Hasher hasher = randomHasher(random);
+            filter.merge(hasher);
+            assertTrue(filter.contains(hasher));
+            final int[] indices = filter.asIndexArray();
+            assertTrue(indices.length > 0 && indices.length <= shape.getNumberOfHashFunctions());
+            final int block = indices[0] / bitsPerBlock;
+            for (final int index : indices) {
+                assertEquals(block, index / bitsPerBlock);
+            }
+            // the first index of the hasher is enabled unchanged
+            assertTrue(filter.contains(IndexProducer.fromIndexArray(hasher.indices(shape).asIndexArray()[0])));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {32, 64, 128, 512})
+    public void testEnhancedDoubleHasherMatchesIndices(final int bitsPerBlock) {
+        final Random random = new Random(42);
+        // whole blocks and a partial final block
+        for (final Shape shape : new Shape[] {Shape.fromKM(7, 1 << 12), Shape.fromKM(10, 1000), Shape.fromKM(3, 4000)}) {
+            for (int i = 0; i < 200; i++) {
+                final EnhancedDoubleHasher hasher = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+                // a different class is consumed through its index producer
+                final Hasher indices = hasher::indices;
+                final BlockedBloomFilter inlined = new BlockedBloomFilter(shape, bitsPerBlock);
+                final BlockedBloomFilter produced = new BlockedBloomFilter(shape, bitsPerBlock);
+                inlined.merge(hasher);
+                produced.merge(indices);
+                assertArrayEquals(produced.asBitMapArray(), inlined.asBitMapArray());
+                assertTrue(inlined.contains(indices));
+                assertTrue(produced.contains(hasher));
+            }
+        }
+    }
+
+    @Test
+    public void testMergeAndContains() {
+        final Shape shape = Shape.fromNPBlocked(1000, 0.01, BlockedBloomFilter.DEFAULT_BITS_PER_BLOCK);
+        final BlockedBloomFilter filter = new BlockedBloomFilter(shape);
+        final Random random = new Random(42);
+        final Hasher[] hashers = new Hasher[1000];
+        for (int i = 0; i < hashers.length; i++) {
+            hashers[i] = randomHasher(random);
+            filter.merge(hashers[i]);
+        }
+        for (final Hasher hasher : hashers) {
+            assertTrue(filter.contains(hasher));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.contains(randomHasher(random))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, () -> "Too many false positives");
+    }
+
+    @Test
+    public void testFalsePositiveRateMatchesShape() {
+        final int n = 20_000;
+        final Shape shape = Shape.fromNPBlocked(n, 0.01, BlockedBloomFilter.DEFAULT_BITS_PER_BLOCK);
+        final BlockedBloomFilter filter = new BlockedBloomFilter(shape);
+        final Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            filter.merge(randomHasher(random));
+        }
+        final int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) {
+            if (filter.contains(randomHasher(random))) {
+                falsePositives++;
+            }
+        }
+        final double expected = shape.getBlockedProbability(n, BlockedBloomFilter.DEFAULT_BITS_PER_BLOCK);
+        final double actual = (double) falsePositives / trials;
+        assertEquals(expected, actual, expected * 0.2);
+        // the unblocked calculation under-estimates the blocked filter
+        assertTrue(actual > shape.getProbability(n));
+    }
+
+    @Test
+    public void testGetBlockedProbability() {
+        final Shape shape = Shape.fromKM(7, 1 << 20);
+        assertEquals(0, shape.getBlockedProbability(0, 512));
+        double previous = 1;
+        for (final int bitsPerBlock : new int[] {64, 128, 256, 512, 1024}) {
+            final double p = shape.getBlockedProbability(100_000, bitsPerBlock);
+            assertTrue(p > shape.getProbability(100_000));
+            assertTrue(p < previous);
+            previous = p;
+        }
+        // large blocks converge on the unblocked probability
+        assertEquals(shape.getProbability(100_000), shape.getBlockedProbability(100_000, 1 << 16), 1e-4);
+        // many items per block do not underflow
+        final double full = Shape.fromKM(3, 1024).getBlockedProbability(100_000, 1024);
+        assertEquals(1.0, full, 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> shape.getBlockedProbability(-1, 512));
+        assertThrows(IllegalArgumentException.class, () -> shape.getBlockedProbability(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> shape.getBlockedProbability(1, (1 << 20) + 1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.1, 0.01, 0.001, 0.0001})
+    public void testFromNPBlocked(final double p) {
+        final int n = 50_000;
+        for (final int bitsPerBlock : new int[] {64, 512}) {
+            final Shape shape = Shape.fromNPBlocked(n, p, bitsPerBlock);
+            assertEquals(0, shape.getNumberOfBits() % bitsPerBlock);
+            assertTrue(shape.getBlockedProbability(n, bitsPerBlock) <= p);
+            assertTrue(shape.getNumberOfBits() >= Shape.fromNP(n, p).getNumberOfBits());
+            // one block fewer does not meet the probability with any number of hash functions
+            final int fewer = shape.getNumberOfBits() - bitsPerBlock;
+            for (int k = 1; k <= 30; k++) {
+                assertTrue(Shape.fromKM(k, fewer).getBlockedProbability(n, bitsPerBlock) > p);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> Shape.fromNPBlocked(0, p, 512));
+        assertThrows(IllegalArgumentException.class, () -> Shape.fromNPBlocked(n, p, 0));
+        assertThrows(IllegalArgumentException.class, () -> Shape.fromNPBlocked(n, 0, 512));
+        assertThrows(IllegalArgumentException.class, () -> Shape.fromNPBlocked(Integer.MAX_VALUE, 1e-9, 512));
+    }
+
+    @Test
+    public void testPartialFinalBlock() {
+        // 100 bits: one block of 64 and a final block of 36
+        final Shape shape = Shape.fromKM(5, 100);
+        final BlockedBloomFilter filter = new BlockedBloomFilter(shape, 64);
+        final Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            final Hasher hasher = randomHasher(random);
+            final BlockedBloomFilter single = new BlockedBloomFilter(shape, 64);
+            single.merge(hasher);
+            final int[] indices = single.asIndexArray();
+            final int block = indices[0] / 64;
+            for (final int index : indices) {
+                assertTrue(index < 100);
+                assertEquals(block, index / 64);
+            }
+            filter.merge(hasher);
+            assertTrue(filter.contains(hasher));
+        }
+    }
+
+    @Test
+    public void testConstructor() {
+        final Shape shape = Shape.fromKM(3, 100);
+        assertEquals(64, new BlockedBloomFilter(shape).getBitsPerBlock());
+        assertEquals(512, new BlockedBloomFilter(Shape.fromKM(3, 10_000)).getBitsPerBlock());
+        assertEquals(32, new BlockedBloomFilter(shape, 32).getBitsPerBlock());
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(shape, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(shape, 48));
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(shape, 128));
+    }
+
+    @Test
+    public void testMergeWithBadHasher() {
+        final Shape shape = Shape.fromKM(3, 1024);
+        final BlockedBloomFilter filter = new BlockedBloomFilter(shape);
+        assertThrows(IllegalArgumentException.class, () -> filter.merge((Hasher) s -> IndexProducer.fromIndexArray(1024)));
+        assertThrows(IllegalArgumentException.class, () -> filter.merge((Hasher) s -> IndexProducer.fromIndexArray(-1)));
+        assertThrows(IllegalArgumentException.class, () -> filter.contains((Hasher) s -> IndexProducer.fromIndexArray(1024)));
+    }
+
+    @Test
+    public void testNestedContains() {
+        final Shape shape = Shape.fromKM(2, 128);
+        final BlockedBloomFilter filter = new BlockedBloomFilter(shape, 64);
+        filter.merge((Hasher) s -> IndexProducer.fromIndexArray(1, 3));
+        filter.merge((Hasher) s -> IndexProducer.fromIndexArray(65, 65));
+        final Hasher inner = s -> IndexProducer.fromIndexArray(65, 65);
+        // a query made while another is in progress does not move the block of the first
+        final Hasher outer = s -> consumer -> consumer.test(1) && filter.contains(inner) && consumer.test(3);
+        assertTrue(filter.contains(outer));
+        assertEquals(3, filter.cardinality());
+    }
+
+    @Test
+    public void testMergeAllAndContainsEach() {
+        final Shape shape = Shape.fromKM(7, 1 << 14);
+        final Random random = new Random(42);
+        final long[] initial = new long[200];
+        final long[] increment = new long[200];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = random.nextLong();
+            increment[i] = random.nextLong();
+        }
+        final BlockedBloomFilter batch = new BlockedBloomFilter(shape);
+        final BlockedBloomFilter single = new BlockedBloomFilter(shape);
+        batch.mergeAll(initial, increment);
+        for (int i = 0; i < initial.length; i += 2) {
+            single.merge(new EnhancedDoubleHasher(initial[i], increment[i]));
+        }
+        assertFalse(single.contains(batch));
+        for (int i = 1; i < initial.length; i += 2) {
+            single.merge(new EnhancedDoubleHasher(initial[i], increment[i]));
+        }
+        assertArrayEquals(single.asBitMapArray(), batch.asBitMapArray());
+        final boolean[] results = new boolean[initial.length];
+        assertEquals(initial.length, batch.containsEach(initial, increment, results));
+    }
+
+    @Test
+    public void testBitViews() {
+        final Shape shape = Shape.fromKM(5, 1024);
+        final BlockedBloomFilter filter = new BlockedBloomFilter(shape, 64);
+        // index producers are merged as plain bits
+        filter.merge(IndexProducer.fromIndexArray(1, 100, 1000));
+        assertArrayEquals(new int[] {1, 100, 1000}, filter.asIndexArray());
+        assertEquals(3, filter.cardinality());
+        assertTrue(filter.contains(IndexProducer.fromIndexArray(100, 1000)));
+        assertFalse(filter.contains(IndexProducer.fromIndexArray(2)));
+
+        final Random random = new Random(42);
+        final BlockedBloomFilter other = new BlockedBloomFilter(shape, 64);
+        final Hasher hasher = randomHasher(random);
+        other.merge(hasher);
+        final BlockedBloomFilter copy = filter.copy();
+        copy.merge(other);
+        assertTrue(copy.contains(hasher));
+        assertTrue(copy.contains(other));
+        assertTrue(copy.contains(filter));
+        assertFalse(filter.contains(hasher));
+        assertEquals(filter.cardinality() + other.cardinality() - SetOperations.andCardinality(filter, other),
+                copy.cardinality());
+
+        final SimpleBloomFilter simple = new SimpleBloomFilter(shape);
+        simple.merge(copy);
+        assertArrayEquals(copy.asBitMapArray(), simple.asBitMapArray());
+
+        copy.clear();
+        assertEquals(0, copy.cardinality());
+        assertFalse(copy.contains(hasher));
+        assertThrows(IllegalArgumentException.class, () -> filter.merge(IndexProducer.fromIndexArray(1024)));
+        assertThrows(IllegalArgumentException.class,
+                () -> filter.merge(BitMapProducer.fromBitMapArray(new long[17])));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for the {@link BloomFilterCollectors}.
+ */
+public class BloomFilterCollectorsTest {
+
+    private final Shape shape = Shape.fromNP(10_000, 0.01);
+
+    private static List<Hasher> randomHashers(final int count) {
+        final Random random = new Random(42);
+        return IntStream.range(0, count)
+            .mapToObj(i -> (Hasher) new EnhancedDoubleHasher(random.nextLong(), random.nextLong()))
+            .collect(Collectors.toList());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testToBloomFilter(final boolean parallel) {
+        final List<Hasher> hashers = randomHashers(10_000);
+        final BloomFilter expected = new SimpleBloomFilter(shape);
+        hashers.forEach(expected::merge);
+        final BloomFilter actual = (parallel ? hashers.parallelStream() : hashers.stream())
+            .collect(BloomFilterCollectors.toBloomFilter(shape));
+        assertTrue(actual instanceof SimpleBloomFilter);
+        assertEquals(shape, actual.getShape());
+        assertArrayEquals(expected.asBitMapArray(), actual.asBitMapArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testToBloomFilterWithSupplier(final boolean parallel) {
+        final List<Hasher> hashers = randomHashers(10_000);
+        final SparseBloomFilter expected = new SparseBloomFilter(shape);
+        hashers.forEach(expected::merge);
+        final SparseBloomFilter actual = (parallel ? hashers.parallelStream() : hashers.stream())
+            .collect(BloomFilterCollectors.toBloomFilter(() -> new SparseBloomFilter(shape)));
+        assertArrayEquals(expected.asIndexArray(), actual.asIndexArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testToCountingBloomFilter(final boolean parallel) {
+        // repeated items so the counts exceed one
+        final List<Hasher> hashers = randomHashers(1000);
+        final CountingBloomFilter expected = new ArrayCountingBloomFilter(shape);
+        for (int i = 0; i < 5; i++) {
+            hashers.forEach(expected::merge);
+        }
+        final List<Hasher> repeated = IntStream.range(0, 5 * hashers.size())
+            .mapToObj(i -> hashers.get(i % hashers.size())).collect(Collectors.toList());
+        final CountingBloomFilter collected = (parallel ? repeated.parallelStream() : repeated.stream())
+            .collect(BloomFilterCollectors.toCountingBloomFilter(shape));
+        assertTrue(collected.isValid());
+        assertTrue(collected instanceof ArrayCountingBloomFilter);
+        final int[] expectedCounts = new int[shape.getNumberOfBits()];
+        expected.forEachCount((index, count) -> {
+            expectedCounts[index] = count;
+            return true;
+        });
+        final int[] actualCounts = new int[shape.getNumberOfBits()];
+        collected.forEachCount((index, count) -> {
+            actualCounts[index] = count;
+            return true;
+        });
+        assertArrayEquals(expectedCounts, actualCounts);
+    }
+
+    @Test
+    public void testMappedStream() {
+        final BloomFilter filter = LongStream.range(0, 1000).parallel().boxed()
+            .collect(Collectors.mapping(i -> new EnhancedDoubleHasher(i, 31 * i + 17),
+                BloomFilterCollectors.toBloomFilter(shape)));
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(filter.contains(new EnhancedDoubleHasher(i, 31 * i + 17)));
+        }
+    }
+
+    @Test
+    public void testEmptyStream() {
+        final BloomFilter filter = randomHashers(0).stream().collect(BloomFilterCollectors.toBloomFilter(shape));
+        assertEquals(0, filter.cardinality());
+    }
+
+    @Test
+    public void testNullArguments() {
+        assertThrows(NullPointerException.class, () -> BloomFilterCollectors.toBloomFilter((Shape) null));
+        assertThrows(NullPointerException.class,
+            () -> BloomFilterCollectors.toBloomFilter((Supplier<BloomFilter>) null));
+        assertThrows(NullPointerException.class, () -> BloomFilterCollectors.toCountingBloomFilter((Shape) null));
+        assertThrows(NullPointerException.class,
+            () -> BloomFilterCollectors.toCountingBloomFilter((Supplier<CountingBloomFilter>) null));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link BufferBloomFilter}.
+ */
+public class BufferBloomFilterTest extends AbstractBloomFilterTest<BufferBloomFilter> {
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    protected BufferBloomFilter createEmptyFilter(final Shape shape) {
+        return BufferBloomFilter.allocateDirect(shape);
+    }
+
+    @Test
+    public void testCreateAndReopen() throws IOException {
+        final Path file = tempDir.resolve("filter.bin");
+        final Shape shape = Shape.fromKM(5, 1000);
+        final BufferBloomFilter bf = BufferBloomFilter.create(file, shape);
+        final Hasher hasher = new IncrementingHasher(3, 7);
+        bf.merge(hasher);
+        bf.force();
+        assertEquals(BufferBloomFilter.bufferSize(shape), Files.size(file));
+
+        final BufferBloomFilter reopened = BufferBloomFilter.open(file);
+        assertEquals(shape, reopened.getShape());
+        assertTrue(reopened.contains(hasher));
+        assertEquals(bf.cardinality(), reopened.cardinality());
+        assertArrayEquals(bf.asBitMapArray(), reopened.asBitMapArray());
+
+        // both mappings share the file
+        final Hasher other = new IncrementingHasher(11, 13);
+        reopened.merge(other);
+        assertTrue(bf.contains(other));
+    }
+
+    @Test
+    public void testOpenReadOnly() throws IOException {
+        final Path file = tempDir.resolve("filter.bin");
+        final BufferBloomFilter bf = BufferBloomFilter.create(file, getTestShape());
+        bf.merge(new IncrementingHasher(1, 1));
+        bf.force();
+
+        final BufferBloomFilter readOnly = BufferBloomFilter.openReadOnly(file);
+        assertTrue(readOnly.isReadOnly());
+        assertFalse(bf.isReadOnly());
+        assertTrue(readOnly.contains(new IncrementingHasher(1, 1)));
+        assertThrows(ReadOnlyBufferException.class, () -> readOnly.merge(new IncrementingHasher(20, 1)));
+        // copies are writable
+        final BufferBloomFilter copy = readOnly.copy();
+        assertFalse(copy.isReadOnly());
+        copy.merge(new IncrementingHasher(20, 1));
+        assertEquals(17 + 17, copy.cardinality());
+        assertEquals(17, readOnly.cardinality());
+    }
+
+    @Test
+    public void testFileFormat() throws IOException {
+        final Path file = tempDir.resolve("filter.bin");
+        final BufferBloomFilter bf = BufferBloomFilter.create(file, getTestShape());
+        bf.merge(IndexProducer.fromIndexArray(0, 65, 71));
+        bf.force();
+        final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(BufferBloomFilter.HEADER_LENGTH + 2 * Long.BYTES, bytes.remaining());
+        assertEquals(BufferBloomFilter.MAGIC, bytes.getInt());
+        assertEquals(BufferBloomFilter.VERSION, bytes.getInt());
+        assertEquals(17, bytes.getInt());
+        assertEquals(72, bytes.getInt());
+        assertEquals(1L, bytes.getLong());
+        assertEquals((1L << 1) | (1L << 7), bytes.getLong());
+    }
+
+    @Test
+    public void testWrapAtPosition() {
+        final Shape shape = getTestShape();
+        final BufferBloomFilter source = createFilter(shape, new IncrementingHasher(1, 1));
+        final ByteBuffer buffer = ByteBuffer.allocate(3 + BufferBloomFilter.bufferSize(shape));
+        buffer.position(3);
+        final ByteBuffer header = ByteBuffer.allocate(BufferBloomFilter.HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(BufferBloomFilter.MAGIC).putInt(BufferBloomFilter.VERSION).putInt(17).putInt(72).flip();
+        buffer.put(header);
+        final ByteBuffer words = ByteBuffer.allocate(2 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        source.forEachBitMap(word -> {
+            words.putLong(word);
+            return true;
+        });
+        words.flip();
+        buffer.put(words);
+        buffer.position(3);
+
+        final BufferBloomFilter wrapped = BufferBloomFilter.wrap(buffer);
+        assertEquals(3, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        assertEquals(shape, wrapped.getShape());
+        assertArrayEquals(source.asBitMapArray(), wrapped.asBitMapArray());
+    }
+
+    @Test
+    public void testWrapInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> BufferBloomFilter.wrap(ByteBuffer.allocate(8)));
+        final ByteBuffer buffer = ByteBuffer.allocate(BufferBloomFilter.bufferSize(getTestShape()))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        assertThrows(IllegalArgumentException.class, () -> BufferBloomFilter.wrap(buffer));
+        buffer.putInt(0, BufferBloomFilter.MAGIC).putInt(4, BufferBloomFilter.VERSION + 1).putInt(8, 17).putInt(12, 72);
+        assertThrows(IllegalArgumentException.class, () -> BufferBloomFilter.wrap(buffer));
+        buffer.putInt(4, BufferBloomFilter.VERSION);
+        assertEquals(getTestShape(), BufferBloomFilter.wrap(buffer).getShape());
+        // too few bit maps
+        buffer.limit(buffer.capacity() - 1);
+        assertThrows(IllegalArgumentException.class, () -> BufferBloomFilter.wrap(buffer));
+    }
+}
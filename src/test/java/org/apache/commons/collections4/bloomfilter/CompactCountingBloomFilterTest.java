@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for the {@link CompactCountingBloomFilter}.
+ *
+ * <p>The counters saturate rather than overflow, so the overflow checks of
+ * {@link AbstractCountingBloomFilterTest} do not apply; the counting behaviour is tested here
+ * against a model of saturating counts.</p>
+ */
+public class CompactCountingBloomFilterTest extends AbstractBloomFilterTest<CompactCountingBloomFilter> {
+
+    @Override
+    protected CompactCountingBloomFilter createEmptyFilter(final Shape shape) {
+        return new CompactCountingBloomFilter(shape);
+    }
+
+    private static int[] getCounts(final CountingBloomFilter filter) {
+        final int[] counts = new int[filter.getShape().getNumberOfBits()];
+        filter.forEachCount((i, c) -> {
+            counts[i] = c;
+            return true;
+        });
+        return counts;
+    }
+
+    /**
+     * Applies a change to a model of saturating counts.
+     */
+    private static void update(final int[] model, final int idx, final int delta, final int max) {
+        if (model[idx] != max) {
+            model[idx] = Math.max(0, Math.min(max, model[idx] + delta));
+        }
+    }
+
+    private static long[] toBitMaps(final int[] counts) {
+        final long[] bitMaps = new long[BitMap.numberOfBitMaps(counts.length)];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                BitMap.set(bitMaps, i);
+            }
+        }
+        return bitMaps;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 8})
+    public void testMatchesModel(final int counterBits) {
+        // 200 bits is not a multiple of 64 or of the counters in a word
+        final Shape shape = Shape.fromKM(5, 200);
+        final CompactCountingBloomFilter filter = new CompactCountingBloomFilter(shape, counterBits);
+        final int max = filter.getMaximumCount();
+        final int[] model = new int[shape.getNumberOfBits()];
+        final Random random = new Random(counterBits);
+        for (int n = 0; n < 2000; n++) {
+            final int idx = random.nextInt(model.length);
+            final int delta = random.nextInt(3) + 1;
+            if (random.nextInt(3) == 0) {
+                filter.subtract(BitCountProducer.from(IndexProducer.fromIndexArray(idx)));
+                update(model, idx, -1, max);
+            } else {
+                filter.add(consumer -> consumer.test(idx, delta));
+                update(model, idx, delta, max);
+            }
+        }
+        assertArrayEquals(model, getCounts(filter));
+        assertArrayEquals(toBitMaps(model), filter.asBitMapArray());
+        assertArrayEquals(toBitMaps(model), BitMapProducer.fromIndexProducer(filter, model.length).asBitMapArray());
+        assertEquals((int) Arrays.stream(model).filter(c -> c != 0).count(), filter.cardinality());
+        for (int i = 0; i < model.length; i++) {
+            assertEquals(model[i] != 0, filter.contains(IndexProducer.fromIndexArray(i)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 8})
+    public void testSaturation(final int counterBits) {
+        final CompactCountingBloomFilter filter = new CompactCountingBloomFilter(getTestShape(), counterBits);
+        final int max = filter.getMaximumCount();
+        assertEquals((1 << counterBits) - 1, max);
+        assertTrue(filter.add(consumer -> consumer.test(3, Integer.MAX_VALUE)));
+        assertTrue(filter.add(consumer -> consumer.test(3, 1)));
+        assertEquals(max, getCounts(filter)[3]);
+        // a saturated count is never decremented
+        for (int i = 0; i < max + 2; i++) {
+            assertTrue(filter.remove(IndexProducer.fromIndexArray(3)));
+        }
+        assertEquals(max, getCounts(filter)[3]);
+        assertTrue(filter.isValid());
+        // adding the same amount as the maximum to a neighbour does not disturb the saturated count
+        assertTrue(filter.add(consumer -> consumer.test(2, max - 1)));
+        assertTrue(filter.add(consumer -> consumer.test(4, max)));
+        final int[] counts = getCounts(filter);
+        assertEquals(max - 1, counts[2]);
+        assertEquals(max, counts[3]);
+        assertEquals(max, counts[4]);
+    }
+
+    @Test
+    public void testUnderflow() {
+        final CompactCountingBloomFilter filter = createFilter(getTestShape(), TestingHashers.FROM1);
+        assertTrue(filter.isValid());
+        assertFalse(filter.remove(TestingHashers.FROM11));
+        assertFalse(filter.isValid());
+        // the counts stop at zero
+        final int[] counts = getCounts(filter);
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(i > 0 && i < 11 ? 1 : 0, counts[i], "Wrong value for " + i);
+        }
+        assertFalse(filter.contains(TestingHashers.FROM11));
+        // the invalid state is permanent
+        assertFalse(filter.merge(TestingHashers.FROM11));
+        assertFalse(filter.copy().isValid());
+    }
+
+    @Test
+    public void testCountsDuplicates() {
+        final CompactCountingBloomFilter filter = createFilter(getTestShape(), TestingHashers.FROM1);
+        assertTrue(filter.add(BitCountProducer.from(TestingHashers.FROM11.indices(getTestShape()))));
+        final int[] counts = getCounts(filter);
+        for (int i = 0; i < counts.length; i++) {
+            final int expected = i >= 1 && i < 28 ? i >= 11 && i < 18 ? 2 : 1 : 0;
+            assertEquals(expected, counts[i], "Wrong value for " + i);
+        }
+        assertEquals(27, filter.cardinality());
+        assertTrue(filter.remove(TestingHashers.FROM11));
+        assertTrue(filter.contains(TestingHashers.FROM1));
+        assertFalse(filter.contains(TestingHashers.FROM11));
+        assertEquals(17, filter.cardinality());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 8})
+    public void testWordAddAndSubtract(final int counterBits) {
+        final Shape shape = Shape.fromKM(5, 300);
+        final Random random = new Random(counterBits);
+        for (int n = 0; n < 50; n++) {
+            final CompactCountingBloomFilter a = new CompactCountingBloomFilter(shape, counterBits);
+            final CompactCountingBloomFilter b = new CompactCountingBloomFilter(shape, counterBits);
+            final int max = a.getMaximumCount();
+            for (int i = 0; i < shape.getNumberOfBits(); i++) {
+                final int idx = i;
+                final int ca = random.nextInt(max + 1);
+                final int cb = random.nextInt(max + 1);
+                a.add(consumer -> consumer.test(idx, ca));
+                b.add(consumer -> consumer.test(idx, cb));
+            }
+            // the word-parallel path must match the counter by counter path
+            final CompactCountingBloomFilter expected = a.copy();
+            expected.add(b::forEachCount);
+            final CompactCountingBloomFilter actual = a.copy();
+            actual.add(b);
+            assertArrayEquals(getCounts(expected), getCounts(actual));
+            assertEquals(expected.isValid(), actual.isValid());
+
+            final CompactCountingBloomFilter expected2 = a.copy();
+            expected2.subtract(b::forEachCount);
+            final CompactCountingBloomFilter actual2 = a.copy();
+            actual2.subtract(b);
+            assertArrayEquals(getCounts(expected2), getCounts(actual2));
+            assertEquals(expected2.isValid(), actual2.isValid());
+        }
+    }
+
+    @Test
+    public void testAddFromOtherCountingFilters() {
+        final CountingBloomFilter array = TestingHashers.populateFromHashersFrom1AndFrom11(
+            new ArrayCountingBloomFilter(getTestShape()));
+        final CompactCountingBloomFilter filter = createEmptyFilter(getTestShape());
+        assertTrue(filter.add(array));
+        assertArrayEquals(getCounts(array), getCounts(filter));
+        // a compact filter with a different counter size uses the general path
+        final CompactCountingBloomFilter small = new CompactCountingBloomFilter(getTestShape(), 2);
+        assertTrue(small.add(filter));
+        assertArrayEquals(getCounts(array), getCounts(small));
+        assertTrue(small.subtract(filter));
+        assertEquals(0, small.cardinality());
+        assertThrows(IllegalArgumentException.class,
+            () -> filter.merge(IndexProducer.fromIndexArray(getTestShape().getNumberOfBits())));
+    }
+
+    @Test
+    public void testConstructor() {
+        final CompactCountingBloomFilter filter = createEmptyFilter(getTestShape());
+        assertEquals(CompactCountingBloomFilter.DEFAULT_COUNTER_BITS, filter.getCounterBits());
+        assertEquals(15, filter.getMaximumCount());
+        assertThrows(NullPointerException.class, () -> new CompactCountingBloomFilter(null));
+        for (final int bits : new int[] {0, 1, 3, 16}) {
+            assertThrows(IllegalArgumentException.class, () -> new CompactCountingBloomFilter(getTestShape(), bits));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link ConcurrentBloomFilter}.
+ */
+public class ConcurrentBloomFilterTest extends AbstractBloomFilterTest<ConcurrentBloomFilter> {
+
+    private static final int THREADS = 4;
+
+    private static final int ITEMS = 2000;
+
+    @Override
+    protected ConcurrentBloomFilter createEmptyFilter(final Shape shape) {
+        return new ConcurrentBloomFilter(shape);
+    }
+
+    private static void runConcurrently(final IntConsumer task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                task.accept(id);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testConcurrentMergeMatchesSequential() throws InterruptedException {
+        final Shape shape = Shape.fromKM(5, 10000);
+        final ConcurrentBloomFilter concurrent = createEmptyFilter(shape);
+        runConcurrently(t -> {
+            for (int i = t; i < ITEMS; i += THREADS) {
+                concurrent.merge(new IncrementingHasher(i, i * 7 + 1));
+            }
+        });
+        final SimpleBloomFilter expected = new SimpleBloomFilter(shape);
+        for (int i = 0; i < ITEMS; i++) {
+            expected.merge(new IncrementingHasher(i, i * 7 + 1));
+        }
+        assertArrayEquals(expected.asBitMapArray(), concurrent.asBitMapArray());
+        assertEquals(expected.cardinality(), concurrent.cardinality());
+    }
+
+    @Test
+    public void testConcurrentContainsSeesCompletedMerges() throws InterruptedException {
+        final ConcurrentBloomFilter bf = createEmptyFilter(Shape.fromKM(5, 10000));
+        final AtomicInteger missing = new AtomicInteger();
+        runConcurrently(t -> {
+            for (int i = t; i < ITEMS; i += THREADS) {
+                final Hasher hasher = new IncrementingHasher(i, i * 7 + 1);
+                bf.merge(hasher);
+                if (!bf.contains(hasher)) {
+                    missing.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, missing.get());
+    }
+
+    @Test
+    public void testCardinalityAfterClearAndCopy() {
+        final ConcurrentBloomFilter bf = createEmptyFilter(getTestShape());
+        bf.merge(new IncrementingHasher(1, 1));
+        bf.merge(new IncrementingHasher(1, 1));
+        assertEquals(17, bf.cardinality());
+        final ConcurrentBloomFilter copy = bf.copy();
+        assertEquals(17, copy.cardinality());
+        bf.clear();
+        assertEquals(0, bf.cardinality());
+        assertEquals(17, copy.cardinality());
+        copy.merge(new IncrementingHasher(18, 1));
+        assertEquals(34, copy.cardinality());
+    }
+
+    @Test
+    public void testMergeInvalidBitMapProducer() {
+        final ConcurrentBloomFilter bf = createEmptyFilter(getTestShape());
+        // shape has 72 bits so the second map may only use the low 8 bits
+        assertThrows(IllegalArgumentException.class, () -> bf.merge(BitMapProducer.fromBitMapArray(1L, 1L << 8)));
+        assertThrows(IllegalArgumentException.class, () -> bf.merge(BitMapProducer.fromBitMapArray(1L, 1L, 1L)));
+        assertTrue(bf.contains(BitMapProducer.fromBitMapArray(1L)));
+    }
+}
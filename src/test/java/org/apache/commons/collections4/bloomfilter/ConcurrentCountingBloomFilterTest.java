@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link ConcurrentCountingBloomFilter}.
+ */
+public class ConcurrentCountingBloomFilterTest extends AbstractCountingBloomFilterTest<ConcurrentCountingBloomFilter> {
+
+    private static final int THREADS = 4;
+
+    private static final int ITEMS = 2000;
+
+    @Override
+    protected ConcurrentCountingBloomFilter createEmptyFilter(final Shape shape) {
+        return new ConcurrentCountingBloomFilter(shape);
+    }
+
+    private static void runConcurrently(final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                task.run();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testConcurrentMergeMatchesSequential() throws InterruptedException {
+        final Shape shape = getTestShape();
+        final ConcurrentCountingBloomFilter concurrent = createEmptyFilter(shape);
+        runConcurrently(() -> {
+            for (int i = 0; i < ITEMS; i++) {
+                concurrent.merge(new IncrementingHasher(i, i * 7 + 1));
+            }
+        });
+        final ArrayCountingBloomFilter expected = new ArrayCountingBloomFilter(shape);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < ITEMS; i++) {
+                expected.merge(new IncrementingHasher(i, i * 7 + 1));
+            }
+        }
+        assertTrue(concurrent.isValid());
+        final int[] actualCounts = new int[shape.getNumberOfBits()];
+        final int[] expectedCounts = new int[shape.getNumberOfBits()];
+        concurrent.forEachCount((i, c) -> {
+            actualCounts[i] = c;
+            return true;
+        });
+        expected.forEachCount((i, c) -> {
+            expectedCounts[i] = c;
+            return true;
+        });
+        assertArrayEquals(expectedCounts, actualCounts);
+    }
+
+    @Test
+    public void testConcurrentMergeAndRemove() throws InterruptedException {
+        final ConcurrentCountingBloomFilter bf = createEmptyFilter(getTestShape());
+        final AtomicInteger missing = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < ITEMS; i++) {
+                final Hasher hasher = new IncrementingHasher(i, i * 7 + 1);
+                bf.merge(hasher);
+                // no other thread can take away this thread's counts
+                if (!bf.contains(hasher)) {
+                    missing.incrementAndGet();
+                }
+                bf.remove(hasher);
+            }
+        });
+        assertEquals(0, missing.get());
+        assertTrue(bf.isValid());
+        assertEquals(0, bf.cardinality());
+    }
+
+    @Test
+    public void testConcurrentUnderflowIsInvalid() throws InterruptedException {
+        final ConcurrentCountingBloomFilter bf = createEmptyFilter(getTestShape());
+        final Hasher hasher = new IncrementingHasher(1, 1);
+        bf.merge(hasher);
+        // every thread removes the single merged item
+        runConcurrently(() -> bf.remove(hasher));
+        assertFalse(bf.isValid());
+        final ConcurrentCountingBloomFilter copy = bf.copy();
+        assertFalse(copy.isValid());
+        // the counts were not clamped so the complement of the removals restores them
+        for (int t = 0; t < THREADS; t++) {
+            bf.merge(hasher);
+        }
+        assertTrue(bf.contains(hasher));
+        bf.forEachCount((i, c) -> {
+            assertEquals(1, c);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for the {@link CuckooFilter}.
+ */
+public class CuckooFilterTest {
+
+    private static Hasher[] randomHashers(final Random random, final int count) {
+        final Hasher[] hashers = new Hasher[count];
+        for (int i = 0; i < count; i++) {
+            hashers[i] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        }
+        return hashers;
+    }
+
+    @Test
+    public void testAddContainsRemove() {
+        final CuckooFilter filter = new CuckooFilter(1000);
+        final Hasher hasher = new EnhancedDoubleHasher(1, 2);
+        assertTrue(filter.isEmpty());
+        assertFalse(filter.contains(hasher));
+        assertFalse(filter.remove(hasher));
+        assertTrue(filter.add(hasher));
+        assertTrue(filter.contains(hasher));
+        assertEquals(1, filter.size());
+        assertTrue(filter.remove(hasher));
+        assertFalse(filter.contains(hasher));
+        assertTrue(filter.isEmpty());
+    }
+
+    @Test
+    public void testDuplicates() {
+        final CuckooFilter filter = new CuckooFilter(1000);
+        final Hasher hasher = new EnhancedDoubleHasher(42, 17);
+        filter.add(hasher);
+        filter.add(hasher);
+        assertEquals(2, filter.size());
+        assertTrue(filter.remove(hasher));
+        assertTrue(filter.contains(hasher));
+        assertTrue(filter.remove(hasher));
+        assertFalse(filter.contains(hasher));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 10, 12, 16})
+    public void testFillToCapacity(final int fingerprintBits) {
+        final int capacity = 20_000;
+        final CuckooFilter filter = new CuckooFilter(capacity, fingerprintBits);
+        final Hasher[] hashers = randomHashers(new Random(fingerprintBits), capacity);
+        for (final Hasher hasher : hashers) {
+            assertTrue(filter.add(hasher));
+        }
+        assertEquals(capacity, filter.size());
+        for (final Hasher hasher : hashers) {
+            assertTrue(filter.contains(hasher));
+        }
+        // remove half and check the rest remain
+        for (int i = 0; i < capacity; i += 2) {
+            assertTrue(filter.remove(hashers[i]));
+        }
+        assertEquals(capacity / 2, filter.size());
+        for (int i = 1; i < capacity; i += 2) {
+            assertTrue(filter.contains(hashers[i]));
+        }
+    }
+
+    @Test
+    public void testFull() {
+        final CuckooFilter filter = new CuckooFilter(100, 8);
+        final Hasher[] hashers = randomHashers(new Random(42), 1000);
+        int added = 0;
+        while (added < hashers.length && filter.add(hashers[added])) {
+            added++;
+        }
+        assertTrue(added >= 100 && added < hashers.length);
+        assertEquals(added, filter.size());
+        assertFalse(filter.add(hashers[added]));
+        // the item displaced when the filter filled is not lost
+        for (int i = 0; i < added; i++) {
+            assertTrue(filter.contains(hashers[i]));
+        }
+        // removing makes room again
+        assertTrue(filter.remove(hashers[0]));
+        assertTrue(filter.remove(hashers[1]));
+        for (int i = 2; i < added; i++) {
+            assertTrue(filter.contains(hashers[i]));
+        }
+        assertTrue(filter.add(hashers[added]));
+        assertTrue(filter.contains(hashers[added]));
+    }
+
+    @Test
+    public void testChurn() {
+        final int capacity = 5000;
+        final CuckooFilter filter = new CuckooFilter(capacity);
+        final Random random = new Random(42);
+        final Hasher[] window = randomHashers(random, capacity);
+        for (final Hasher hasher : window) {
+            assertTrue(filter.add(hasher));
+        }
+        // replace the members many times over
+        for (int i = 0; i < capacity * 10; i++) {
+            final int slot = random.nextInt(capacity);
+            assertTrue(filter.remove(window[slot]));
+            window[slot] = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            assertTrue(filter.add(window[slot]));
+        }
+        assertEquals(capacity, filter.size());
+        for (final Hasher hasher : window) {
+            assertTrue(filter.contains(hasher));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveProbability() {
+        final int capacity = 50_000;
+        final CuckooFilter filter = new CuckooFilter(capacity);
+        final Random random = new Random(42);
+        for (final Hasher hasher : randomHashers(random, capacity)) {
+            filter.add(hasher);
+        }
+        final int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) {
+            if (filter.contains(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()))) {
+                falsePositives++;
+            }
+        }
+        final double actual = (double) falsePositives / trials;
+        final double bound = filter.getProbability();
+        assertTrue(actual <= bound, () -> actual + " > " + bound);
+        // the filter is 94% full
+        assertTrue(actual >= bound * 0.8, () -> actual + " < " + bound);
+    }
+
+    @Test
+    public void testCopyAndClear() {
+        final CuckooFilter filter = new CuckooFilter(100);
+        final Hasher hasher = new EnhancedDoubleHasher(3, 5);
+        filter.add(hasher);
+        final CuckooFilter copy = filter.copy();
+        copy.remove(hasher);
+        assertTrue(filter.contains(hasher));
+        assertFalse(copy.contains(hasher));
+        filter.clear();
+        assertFalse(filter.contains(hasher));
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    public void testConstructor() {
+        final CuckooFilter filter = new CuckooFilter(100);
+        assertEquals(100, filter.getCapacity());
+        assertEquals(CuckooFilter.DEFAULT_FINGERPRINT_BITS, filter.getFingerprintBits());
+        assertThrows(IllegalArgumentException.class, () -> new CuckooFilter(0));
+        assertThrows(IllegalArgumentException.class, () -> new CuckooFilter(100, 7));
+        assertThrows(IllegalArgumentException.class, () -> new CuckooFilter(100, 17));
+    }
+
+    @Test
+    public void testNestedContains() {
+        final CuckooFilter filter = new CuckooFilter(1000);
+        final Random random = new Random(42);
+        final Hasher hasher = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        final Hasher inner = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+        filter.add(hasher);
+        filter.add(inner);
+        final int[] indices = hasher.indices(Shape.fromKM(2, Integer.MAX_VALUE)).asIndexArray();
+        // a query made while another is in progress does not change the indices of the first
+        final Hasher outer = s -> consumer -> consumer.test(indices[0]) && filter.contains(inner)
+            && consumer.test(indices[1]);
+        assertTrue(filter.contains(outer));
+        assertTrue(filter.remove(outer));
+        assertFalse(filter.contains(hasher));
+        assertTrue(filter.contains(inner));
+    }
+
+    @Test
+    public void testBadHasher() {
+        final CuckooFilter filter = new CuckooFilter(100);
+        assertThrows(NullPointerException.class, () -> filter.add(null));
+        assertThrows(IllegalArgumentException.class, () -> filter.add(s -> IndexProducer.fromIndexArray(1)));
+        assertThrows(IllegalArgumentException.class, () -> filter.contains(s -> IndexProducer.fromIndexArray(-1, 1)));
+    }
+}
@@ -16,9 +16,12 @@
  */
 package org.apache.commons.collections4.bloomfilter;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -104,4 +107,51 @@ public class EnhancedDoubleHasherTest extends AbstractHasherTest {
             }
         }
     }
+
+    /**
+     * Computes the indices with the tetrahedral term directly, restarting the counter of the term
+     * after every {@code bits} indices.
+     */
+    private static int[] referenceIndices(final long initial, final long increment, final Shape shape) {
+        final long bits = shape.getNumberOfBits();
+        final int[] result = new int[shape.getNumberOfHashFunctions()];
+        long index = Long.remainderUnsigned(initial, bits);
+        long inc = Long.remainderUnsigned(increment, bits);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) index;
+            index = Math.floorMod(index - inc, bits);
+            inc = Math.floorMod(inc - i % bits, bits);
+        }
+        return result;
+    }
+
+    @Test
+    public void testFillIndices() {
+        final Random random = new Random(42);
+        // k > bits restarts the counter of the tetrahedral term
+        for (final Shape shape : new Shape[] {Shape.fromKM(7, 1000), Shape.fromKM(17, 72), Shape.fromKM(20, 7)}) {
+            final int[] indices = new int[shape.getNumberOfHashFunctions()];
+            for (int i = 0; i < 100; i++) {
+                final long initial = random.nextLong();
+                final long increment = random.nextLong();
+                final int[] expected = referenceIndices(initial, increment, shape);
+                EnhancedDoubleHasher.fillIndices(initial, increment, shape.getNumberOfBits(), indices);
+                assertArrayEquals(expected, indices);
+                assertArrayEquals(expected, new EnhancedDoubleHasher(initial, increment).indices(shape).asIndexArray());
+            }
+        }
+    }
+
+    @Test
+    public void testIndexCursorReuse() {
+        final Shape shape = Shape.fromKM(5, 100);
+        final EnhancedDoubleHasher.IndexCursor cursor = new EnhancedDoubleHasher.IndexCursor(shape.getNumberOfBits());
+        for (final long value : new long[] {1, -1, 42, Long.MIN_VALUE}) {
+            final int[] expected = referenceIndices(value, value * 31, shape);
+            assertEquals(expected[0], cursor.start(value, value * 31));
+            for (int i = 1; i < expected.length; i++) {
+                assertEquals(expected[i], cursor.next());
+            }
+        }
+    }
 }
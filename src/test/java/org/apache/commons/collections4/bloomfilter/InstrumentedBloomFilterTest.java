@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link InstrumentedBloomFilter}.
+ */
+public class InstrumentedBloomFilterTest extends AbstractBloomFilterTest<InstrumentedBloomFilter> {
+
+    @Override
+    protected InstrumentedBloomFilter createEmptyFilter(final Shape shape) {
+        return new InstrumentedBloomFilter(new SimpleBloomFilter(shape));
+    }
+
+    @Test
+    public void testCounts() {
+        final InstrumentedBloomFilter filter = createEmptyFilter(getTestShape());
+        BloomFilterStatistics statistics = filter.getStatistics();
+        assertEquals(0, statistics.getQueries());
+        assertEquals(0, statistics.getMerges());
+        assertEquals(0, statistics.getCardinality());
+        assertEquals(0, statistics.getPositiveRate());
+        assertEquals(0, statistics.getObservedProbability());
+        assertEquals(0, statistics.getExpectedProbability());
+
+        filter.merge(TestingHashers.FROM1);
+        filter.merge(new IncrementingHasher(40, 1));
+        filter.mergeAll(new long[] {1, 2, 3}, new long[] {4, 5, 6});
+        assertTrue(filter.contains(TestingHashers.FROM1));
+        assertFalse(filter.contains(TestingHashers.FROM11));
+        assertTrue(filter.contains(IndexProducer.fromIndexArray(1, 2)));
+        assertEquals(2, filter.containsEach(new long[] {1, 2, 9}, new long[] {4, 5, 9}, new boolean[3]));
+
+        statistics = filter.getStatistics();
+        assertEquals(6, statistics.getQueries());
+        assertEquals(4, statistics.getPositives());
+        assertEquals(5, statistics.getMerges());
+        assertEquals(5, statistics.getItems());
+        assertEquals(0, statistics.getRemoves());
+        assertEquals(0, statistics.getInvalidations());
+        assertTrue(statistics.isValid());
+        assertEquals(filter.cardinality(), statistics.getCardinality());
+        assertEquals(getTestShape(), statistics.getShape());
+        assertEquals(4.0 / 6, statistics.getPositiveRate());
+
+        // operations on the decorated filter are not counted
+        filter.getFilter().merge(TestingHashers.FROM11);
+        assertEquals(5, filter.getStatistics().getMerges());
+
+        filter.resetStatistics();
+        statistics = filter.getStatistics();
+        assertEquals(0, statistics.getQueries());
+        assertEquals(0, statistics.getMerges());
+        assertEquals(filter.cardinality(), statistics.getCardinality());
+    }
+
+    @Test
+    public void testProbabilities() {
+        final Shape shape = Shape.fromNP(1000, 0.01);
+        final InstrumentedBloomFilter filter = createEmptyFilter(shape);
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            filter.merge(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()));
+        }
+        int falsePositives = 0;
+        final int trials = 20000;
+        for (int i = 0; i < trials; i++) {
+            // the items are all absent, so every positive is false
+            if (filter.contains(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()))) {
+                filter.recordFalsePositive();
+                falsePositives++;
+            }
+        }
+        final BloomFilterStatistics statistics = filter.getStatistics();
+        assertEquals(falsePositives, statistics.getFalsePositives());
+        assertEquals((double) falsePositives / trials, statistics.getObservedProbability());
+        assertEquals(shape.getProbability(1000), statistics.getExpectedProbability());
+        assertEquals(filter.cardinality() / (double) shape.getNumberOfBits(), statistics.getFillRatio());
+        // the filter is filled as designed, so the estimates agree
+        assertEquals(0.01, statistics.getCurrentProbability(), 0.002);
+        assertEquals(0.01, statistics.getObservedProbability(), 0.003);
+        assertEquals(0, statistics.getEstimatedNDrift(), 50);
+        assertEquals(shape.estimateN(filter.cardinality()), statistics.getEstimatedN());
+        assertTrue(statistics.toString().contains("queries=20000"));
+    }
+
+    @Test
+    public void testClearResetsItems() {
+        final Shape shape = Shape.fromNP(1000, 0.01);
+        final InstrumentedBloomFilter filter = createEmptyFilter(shape);
+        final Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            filter.merge(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()));
+        }
+        filter.contains(TestingHashers.FROM1);
+        filter.clear();
+        BloomFilterStatistics statistics = filter.getStatistics();
+        assertEquals(0, statistics.getMerges());
+        assertEquals(0, statistics.getItems());
+        assertEquals(0, statistics.getCardinality());
+        assertEquals(0, statistics.getEstimatedNDrift());
+        assertEquals(0, statistics.getExpectedProbability());
+        // queries are kept
+        assertEquals(1, statistics.getQueries());
+        for (int i = 0; i < 100; i++) {
+            filter.merge(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()));
+        }
+        statistics = filter.getStatistics();
+        assertEquals(100, statistics.getItems());
+        assertEquals(shape.getProbability(100), statistics.getExpectedProbability());
+        assertEquals(0, statistics.getEstimatedNDrift(), 5);
+    }
+
+    @Test
+    public void testCopyHasNewCounts() {
+        final InstrumentedBloomFilter filter = createFilter(getTestShape(), TestingHashers.FROM1);
+        final InstrumentedBloomFilter copy = filter.copy();
+        assertNotSame(filter.getFilter(), copy.getFilter());
+        assertEquals(1, filter.getStatistics().getMerges());
+        assertEquals(0, copy.getStatistics().getMerges());
+        assertTrue(copy.contains(TestingHashers.FROM1));
+    }
+
+    @Test
+    public void testConstructor() {
+        assertThrows(NullPointerException.class, () -> new InstrumentedBloomFilter(null));
+        final BloomFilter simple = new SimpleBloomFilter(getTestShape());
+        assertSame(simple, new InstrumentedBloomFilter(simple).getFilter());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link InstrumentedCountingBloomFilter}.
+ */
+public class InstrumentedCountingBloomFilterTest
+        extends AbstractCountingBloomFilterTest<InstrumentedCountingBloomFilter> {
+
+    @Override
+    protected InstrumentedCountingBloomFilter createEmptyFilter(final Shape shape) {
+        return new InstrumentedCountingBloomFilter(new ArrayCountingBloomFilter(shape));
+    }
+
+    @Test
+    public void testCounts() {
+        final InstrumentedCountingBloomFilter filter = createEmptyFilter(getTestShape());
+        filter.merge(TestingHashers.FROM1);
+        filter.merge(TestingHashers.FROM11);
+        filter.add(BitCountProducer.from(TestingHashers.FROM1.indices(getTestShape())));
+        assertTrue(filter.remove(TestingHashers.FROM11));
+        assertTrue(filter.subtract(BitCountProducer.from(TestingHashers.FROM1.indices(getTestShape()))));
+        assertTrue(filter.contains(TestingHashers.FROM1));
+
+        BloomFilterStatistics statistics = filter.getStatistics();
+        assertEquals(3, statistics.getMerges());
+        assertEquals(2, statistics.getRemoves());
+        assertEquals(1, statistics.getItems());
+        assertEquals(1, statistics.getQueries());
+        assertEquals(1, statistics.getPositives());
+        assertEquals(0, statistics.getInvalidations());
+        assertTrue(statistics.isValid());
+        assertEquals(17, statistics.getCardinality());
+
+        // underflow, counted once although the filter stays invalid
+        assertFalse(filter.remove(TestingHashers.FROM11));
+        assertFalse(filter.merge(TestingHashers.FROM11));
+        assertFalse(filter.merge(TestingHashers.FROM1));
+        statistics = filter.getStatistics();
+        assertEquals(1, statistics.getInvalidations());
+        assertFalse(statistics.isValid());
+        assertFalse(filter.isValid());
+    }
+
+    @Test
+    public void testClearResetsItems() {
+        final InstrumentedCountingBloomFilter filter = createEmptyFilter(getTestShape());
+        filter.merge(TestingHashers.FROM1);
+        filter.merge(TestingHashers.FROM11);
+        assertTrue(filter.remove(TestingHashers.FROM11));
+        filter.clear();
+        BloomFilterStatistics statistics = filter.getStatistics();
+        assertEquals(0, statistics.getMerges());
+        assertEquals(0, statistics.getRemoves());
+        assertEquals(0, statistics.getItems());
+        assertEquals(0, statistics.getEstimatedNDrift());
+        assertEquals(0, statistics.getExpectedProbability());
+        filter.merge(TestingHashers.FROM11);
+        statistics = filter.getStatistics();
+        assertEquals(1, statistics.getItems());
+        assertEquals(getTestShape().getProbability(1), statistics.getExpectedProbability());
+    }
+
+    @Test
+    public void testSaturatedCounters() {
+        final Shape shape = getTestShape();
+        final InstrumentedCountingBloomFilter filter = new InstrumentedCountingBloomFilter(
+            new CompactCountingBloomFilter(shape, 2));
+        filter.merge(TestingHashers.FROM1);
+        filter.merge(TestingHashers.FROM1);
+        assertEquals(0, filter.getStatistics().getSaturatedCounters());
+        // 2 bit counters saturate at 3
+        filter.merge(TestingHashers.FROM1);
+        BloomFilterStatistics statistics = filter.getStatistics();
+        assertEquals(shape.getNumberOfHashFunctions(), statistics.getSaturatedCounters());
+        assertEquals(0, statistics.getInvalidations());
+        assertTrue(statistics.isValid());
+        assertTrue(statistics.toString().contains("saturatedCounters=" + shape.getNumberOfHashFunctions()));
+        // other filters have no saturated counters
+        statistics = createFilter(shape, TestingHashers.FROM1).getStatistics();
+        assertEquals(0, statistics.getSaturatedCounters());
+    }
+
+    @Test
+    public void testCopyHasNewCounts() {
+        final InstrumentedCountingBloomFilter filter = createFilter(getTestShape(), TestingHashers.FROM1);
+        final InstrumentedCountingBloomFilter copy = filter.copy();
+        assertEquals(1, filter.getStatistics().getMerges());
+        assertEquals(0, copy.getStatistics().getMerges());
+        assertTrue(copy.remove(TestingHashers.FROM1));
+        assertTrue(filter.contains(TestingHashers.FROM1));
+    }
+}
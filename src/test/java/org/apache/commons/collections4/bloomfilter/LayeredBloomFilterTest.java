@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link LayeredBloomFilter}.
+ */
+public class LayeredBloomFilterTest extends AbstractBloomFilterTest<LayeredBloomFilter> {
+
+    private final Shape shape = Shape.fromKM(5, 1000);
+
+    private long time;
+
+    @Override
+    protected LayeredBloomFilter createEmptyFilter(final Shape shape) {
+        // a single unbounded layer behaves as a standard filter
+        return new LayeredBloomFilter(shape, 10, Integer.MAX_VALUE);
+    }
+
+    private static Hasher item(final int i) {
+        return new IncrementingHasher(i, i * 31 + 7);
+    }
+
+    @Test
+    public void testConstructorArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new LayeredBloomFilter(shape, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new LayeredBloomFilter(shape, 1, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> new LayeredBloomFilter(shape, 1, 1, -1, TimeUnit.SECONDS));
+        assertThrows(NullPointerException.class, () -> new LayeredBloomFilter(null, 1, 1));
+    }
+
+    @Test
+    public void testRotateByCount() {
+        final LayeredBloomFilter bf = new LayeredBloomFilter(shape, 3, 10);
+        for (int i = 0; i < 30; i++) {
+            bf.merge(item(i));
+        }
+        assertEquals(3, bf.getDepth());
+        for (int i = 0; i < 30; i++) {
+            assertTrue(bf.contains(item(i)));
+        }
+        // the next item starts a fourth layer, discarding the first ten items
+        bf.merge(item(30));
+        assertEquals(3, bf.getDepth());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(bf.contains(item(i)));
+        }
+        for (int i = 10; i <= 30; i++) {
+            assertTrue(bf.contains(item(i)));
+        }
+        assertTrue(bf.get(2).contains(item(30)));
+        assertTrue(bf.get(0).contains(item(10)));
+        assertThrows(IndexOutOfBoundsException.class, () -> bf.get(3));
+    }
+
+    @Test
+    public void testMemoryBounded() {
+        final LayeredBloomFilter bf = new LayeredBloomFilter(shape, 4, 100);
+        for (int i = 0; i < 100_000; i++) {
+            bf.merge(item(i));
+            assertTrue(bf.getDepth() <= 4);
+        }
+        assertTrue(bf.contains(item(99_999)));
+        assertFalse(bf.contains(item(0)));
+    }
+
+    @Test
+    public void testRotateByTime() {
+        final LayeredBloomFilter bf = new LayeredBloomFilter(shape, 3, Integer.MAX_VALUE, 10, TimeUnit.NANOSECONDS,
+            () -> time);
+        time = 0;
+        bf.merge(item(0));
+        time = 9;
+        bf.merge(item(1));
+        assertEquals(1, bf.getDepth());
+        time = 10;
+        bf.merge(item(2));
+        assertEquals(2, bf.getDepth());
+        time = 25;
+        bf.merge(item(3));
+        assertEquals(3, bf.getDepth());
+        assertTrue(bf.contains(item(0)));
+        // the first layer, created at 0, leaves the 30ns window
+        time = 30;
+        assertFalse(bf.contains(item(0)));
+        assertFalse(bf.contains(item(1)));
+        assertTrue(bf.contains(item(2)));
+        assertTrue(bf.contains(item(3)));
+        assertEquals(2, bf.getDepth());
+        // an idle filter forgets everything
+        time = 1000;
+        bf.cleanup();
+        assertEquals(1, bf.getDepth());
+        assertFalse(bf.contains(item(3)));
+        assertEquals(0, bf.cardinality());
+    }
+
+    @Test
+    public void testContainsNeedsSingleLayer() {
+        final LayeredBloomFilter bf = new LayeredBloomFilter(shape, 3, 1);
+        bf.merge(IndexProducer.fromIndexArray(1, 2));
+        bf.merge(IndexProducer.fromIndexArray(3, 4));
+        assertTrue(bf.contains(IndexProducer.fromIndexArray(1, 2)));
+        assertTrue(bf.contains(IndexProducer.fromIndexArray(3)));
+        assertFalse(bf.contains(IndexProducer.fromIndexArray(2, 3)));
+        assertFalse(bf.contains(BitMapProducer.fromIndexProducer(IndexProducer.fromIndexArray(2, 3), 1000)));
+        assertTrue(bf.contains(BitMapProducer.fromIndexProducer(IndexProducer.fromIndexArray(3, 4), 1000)));
+        // the union views cover both layers
+        assertEquals(4, bf.cardinality());
+        assertArrayEquals(new int[] {1, 2, 3, 4}, bf.asIndexArray());
+        assertEquals(4, bf.flatten().cardinality());
+    }
+
+    @Test
+    public void testNextClearAndCopy() {
+        final LayeredBloomFilter bf = new LayeredBloomFilter(shape, 2, 100);
+        bf.merge(item(1));
+        bf.next();
+        bf.merge(item(2));
+        final LayeredBloomFilter copy = bf.copy();
+        bf.next();
+        assertFalse(bf.contains(item(1)));
+        assertTrue(copy.contains(item(1)));
+        assertEquals(2, copy.getDepth());
+        bf.clear();
+        assertEquals(1, bf.getDepth());
+        assertFalse(bf.contains(item(2)));
+        assertTrue(copy.contains(item(2)));
+        final int[] count = new int[1];
+        copy.forEachBloomFilter(f -> {
+            count[0]++;
+            return true;
+        });
+        assertEquals(2, count[0]);
+    }
+}
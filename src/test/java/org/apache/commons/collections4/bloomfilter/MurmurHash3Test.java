@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link MurmurHash3} hashers against the commons-codec implementation.
+ */
+public class MurmurHash3Test {
+
+    private static void assertHash(final long[] expected, final EnhancedDoubleHasher actual) {
+        assertEquals(expected[0], actual.getInitial(), "initial");
+        assertEquals(expected[1], actual.getIncrement(), "increment");
+    }
+
+    private static long[] codec(final byte[] data) {
+        return org.apache.commons.codec.digest.MurmurHash3.hash128x64(data);
+    }
+
+    @Test
+    public void testReferenceVectors() {
+        // the empty input with seed zero hashes to zero
+        assertHash(new long[] {0, 0}, MurmurHash3.hasher(new byte[0]));
+        final byte[] fox = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+        assertHash(new long[] {0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L}, MurmurHash3.hasher(fox));
+        assertHash(codec(fox), MurmurHash3.hasher(fox));
+    }
+
+    @Test
+    public void testByteArray() {
+        final Random random = new Random(42);
+        for (int length = 0; length <= 100; length++) {
+            final byte[] data = new byte[length];
+            random.nextBytes(data);
+            assertHash(codec(data), MurmurHash3.hasher(data));
+        }
+    }
+
+    @Test
+    public void testByteArrayRange() {
+        final Random random = new Random(42);
+        final byte[] data = new byte[64];
+        random.nextBytes(data);
+        for (int offset = 0; offset < 20; offset++) {
+            for (int length = 0; length <= data.length - offset; length++) {
+                final byte[] copy = new byte[length];
+                System.arraycopy(data, offset, copy, 0, length);
+                assertHash(codec(copy), MurmurHash3.hasher(data, offset, length));
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> MurmurHash3.hasher(data, -1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> MurmurHash3.hasher(data, 0, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> MurmurHash3.hasher(data, 60, 5));
+    }
+
+    @Test
+    public void testByteBuffer() {
+        final Random random = new Random(42);
+        for (int length = 0; length <= 100; length++) {
+            final byte[] data = new byte[length];
+            random.nextBytes(data);
+            final long[] expected = codec(data);
+            for (final ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                final ByteBuffer heap = ByteBuffer.wrap(data).order(order);
+                assertHash(expected, MurmurHash3.hasher(heap));
+                final ByteBuffer direct = ByteBuffer.allocateDirect(length + 7).order(order);
+                direct.position(3);
+                direct.put(data);
+                direct.position(3);
+                direct.limit(3 + length);
+                assertHash(expected, MurmurHash3.hasher(direct));
+                // the buffer is unchanged
+                assertEquals(3, direct.position());
+                assertEquals(3 + length, direct.limit());
+                assertEquals(order, direct.order());
+            }
+        }
+    }
+
+    @Test
+    public void testCharSequence() {
+        final Random random = new Random(42);
+        for (int length = 0; length <= 50; length++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                // avoid unpaired surrogates which the encoder would replace
+                sb.append((char) random.nextInt(Character.MIN_SURROGATE));
+            }
+            final String s = sb.toString();
+            final long[] expected = codec(s.getBytes(StandardCharsets.UTF_16LE));
+            assertHash(expected, MurmurHash3.hasher(s));
+            assertHash(expected, MurmurHash3.hasher(sb));
+        }
+    }
+
+    @Test
+    public void testPrimitives() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            final long l = random.nextLong();
+            assertHash(codec(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(l).array()),
+                    MurmurHash3.hasher(l));
+            final int n = random.nextInt();
+            assertHash(codec(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(n).array()),
+                    MurmurHash3.hasher(n));
+        }
+    }
+
+    @Test
+    public void testSameIndicesAsByteArrayHasher() {
+        final byte[] data = "Apache Commons Collections".getBytes(StandardCharsets.UTF_8);
+        final long[] h = codec(data);
+        final byte[] copy = ByteBuffer.allocate(16).putLong(h[0]).putLong(h[1]).array();
+        final Shape shape = Shape.fromKM(17, 1000);
+        final IndexProducer expected = new EnhancedDoubleHasher(copy).indices(shape);
+        final IndexProducer actual = MurmurHash3.hasher(data).indices(shape);
+        assertArrayEquals(expected.asIndexArray(), actual.asIndexArray());
+    }
+}
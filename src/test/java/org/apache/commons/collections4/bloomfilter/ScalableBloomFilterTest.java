@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.bloomfilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for the {@link ScalableBloomFilter}.
+ */
+public class ScalableBloomFilterTest {
+
+    private static Hasher randomHasher(final Random random) {
+        return new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+    }
+
+    private static int countFalsePositives(final ScalableBloomFilter filter, final Random random, final int queries) {
+        int falsePositives = 0;
+        for (int i = 0; i < queries; i++) {
+            if (filter.contains(randomHasher(random))) {
+                falsePositives++;
+            }
+        }
+        return falsePositives;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4})
+    public void testProbabilityStaysBounded(final int growthFactor) {
+        final Random random = new Random(42);
+        final double p = 0.01;
+        final ScalableBloomFilter filter = new ScalableBloomFilter(100, p, growthFactor, 0.8);
+        final List<Hasher> items = new ArrayList<>();
+        // fifty times the initial capacity
+        for (int i = 0; i < 5000; i++) {
+            final Hasher hasher = randomHasher(random);
+            if (filter.add(hasher)) {
+                items.add(hasher);
+            }
+        }
+        assertTrue(filter.getDepth() > 1);
+        assertEquals(items.size(), filter.size());
+        for (final Hasher hasher : items) {
+            assertTrue(filter.contains(hasher));
+        }
+        assertTrue(filter.getProbability() < p);
+        final int queries = 100_000;
+        // p is a bound, not the expected rate: allow for sampling error
+        assertTrue(countFalsePositives(filter, random, queries) < queries * p * 1.2);
+    }
+
+    @Test
+    public void testOverfilledFixedFilterExceedsProbability() {
+        final Random random = new Random(42);
+        final double p = 0.01;
+        final ScalableBloomFilter scalable = new ScalableBloomFilter(100, p);
+        final BloomFilter fixed = new SimpleBloomFilter(Shape.fromNP(100, p));
+        for (int i = 0; i < 1000; i++) {
+            final Hasher hasher = randomHasher(random);
+            scalable.add(hasher);
+            fixed.merge(hasher);
+        }
+        int fixedFalsePositives = 0;
+        final int queries = 10_000;
+        for (int i = 0; i < queries; i++) {
+            if (fixed.contains(randomHasher(random))) {
+                fixedFalsePositives++;
+            }
+        }
+        assertTrue(fixedFalsePositives > queries / 2);
+        assertTrue(countFalsePositives(scalable, random, queries) < queries * p);
+    }
+
+    @Test
+    public void testGrowth() {
+        final Random random = new Random(42);
+        final ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.1, 3, 0.5);
+        final Shape first = filter.getShape();
+        assertEquals(Shape.fromNP(10, 0.05), first);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(filter.add(randomHasher(random)));
+        }
+        assertEquals(1, filter.getDepth());
+        assertTrue(filter.add(randomHasher(random)));
+        assertEquals(2, filter.getDepth());
+        assertEquals(Shape.fromNP(30, 0.025), filter.getShape());
+        // some random items are false positives and are not added
+        while (filter.size() < 40) {
+            filter.add(randomHasher(random));
+        }
+        assertEquals(2, filter.getDepth());
+        while (filter.size() < 41) {
+            filter.add(randomHasher(random));
+        }
+        assertEquals(3, filter.getDepth());
+        assertEquals(Shape.fromNP(90, 0.0125), filter.getShape());
+        final List<Shape> shapes = new ArrayList<>();
+        filter.forEachBloomFilter(f -> shapes.add(f.getShape()));
+        assertEquals(3, shapes.size());
+        assertEquals(first, shapes.get(0));
+        final int[] visited = {0};
+        assertFalse(filter.forEachBloomFilter(f -> ++visited[0] < 2));
+        assertEquals(2, visited[0]);
+    }
+
+    @Test
+    public void testRepeatedItemsDoNotGrow() {
+        final ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+        final Hasher hasher = new EnhancedDoubleHasher(1, 2);
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.add(hasher));
+        for (int i = 0; i < 100; i++) {
+            assertFalse(filter.add(hasher));
+        }
+        assertEquals(1, filter.size());
+        assertEquals(1, filter.getDepth());
+        assertEquals(1, filter.estimateN());
+    }
+
+    @Test
+    public void testEstimateN() {
+        final Random random = new Random(42);
+        final ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 2000; i++) {
+            filter.add(randomHasher(random));
+        }
+        assertEquals(filter.size(), filter.estimateN(), filter.size() * 0.05);
+    }
+
+    @Test
+    public void testCopyAndClear() {
+        final Random random = new Random(42);
+        final ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+        final List<Hasher> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final Hasher hasher = randomHasher(random);
+            items.add(hasher);
+            filter.add(hasher);
+        }
+        final ScalableBloomFilter copy = filter.copy();
+        assertEquals(filter.size(), copy.size());
+        assertEquals(filter.getDepth(), copy.getDepth());
+        assertEquals(filter.getProbability(), copy.getProbability());
+        filter.clear();
+        assertTrue(filter.isEmpty());
+        assertEquals(1, filter.getDepth());
+        assertEquals(0, filter.getProbability());
+        for (final Hasher hasher : items) {
+            assertFalse(filter.contains(hasher));
+            assertTrue(copy.contains(hasher));
+        }
+        // the copy does not share sub-filters
+        final Hasher hasher = randomHasher(random);
+        copy.add(hasher);
+        assertFalse(filter.contains(hasher));
+        assertNotEquals(filter.size(), copy.size());
+    }
+
+    @Test
+    public void testConstructor() {
+        final ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+        assertEquals(10, filter.getInitialCapacity());
+        assertEquals(0.01, filter.getMaximumProbability());
+        assertEquals(ScalableBloomFilter.DEFAULT_GROWTH_FACTOR, filter.getGrowthFactor());
+        assertEquals(ScalableBloomFilter.DEFAULT_TIGHTENING_RATIO, filter.getTighteningRatio());
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 0.01, 0, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 0.01, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(10, 0.01, 2, 1));
+        assertThrows(NullPointerException.class, () -> filter.contains(null));
+    }
+}
@@ -16,8 +16,13 @@
  */
 package org.apache.commons.collections4.bloomfilter;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToIntBiFunction;
 
@@ -324,4 +329,82 @@ public class SetOperationsTest {
         assertEquals(SetOperations.jaccardDistance(p1, p2), SetOperations.jaccardDistance(p2, p1));
         assertEquals(SetOperations.jaccardSimilarity(p1, p2), SetOperations.jaccardSimilarity(p2, p1));
     }
+
+    private static BloomFilter randomFilter(final Random random, final Shape shape, final boolean blocked) {
+        final BloomFilter filter = blocked ? new BlockedBloomFilter(shape, 64) : new SimpleBloomFilter(shape);
+        final int items = random.nextInt(20);
+        for (int i = 0; i < items; i++) {
+            filter.merge(new EnhancedDoubleHasher(random.nextLong(), random.nextLong()));
+        }
+        return filter;
+    }
+
+    /**
+     * Tests that filters holding their bit maps in arrays give the same results as other producers
+     * of the same bit maps, including filters of different lengths.
+     */
+    @Test
+    public final void testArrayBackedFiltersMatchProducers() {
+        final Random random = new Random(42);
+        // lengths of 1 to 9 bit maps exercise the unrolled loops and their remainders
+        final int[] bits = {64, 130, 250, 320, 575};
+        for (int n = 0; n < 200; n++) {
+            final BloomFilter filter1 = randomFilter(random, Shape.fromKM(3, bits[random.nextInt(bits.length)]),
+                random.nextBoolean());
+            final BloomFilter filter2 = randomFilter(random, Shape.fromKM(3, bits[random.nextInt(bits.length)]),
+                random.nextBoolean());
+            final BitMapProducer producer1 = BitMapProducer.fromBitMapArray(filter1.asBitMapArray());
+            final BitMapProducer producer2 = BitMapProducer.fromBitMapArray(filter2.asBitMapArray());
+            assertEquals(SetOperations.cardinality(producer1), SetOperations.cardinality(filter1));
+            assertEquals(SetOperations.andCardinality(producer1, producer2), SetOperations.andCardinality(filter1, filter2));
+            assertEquals(SetOperations.orCardinality(producer1, producer2), SetOperations.orCardinality(filter1, filter2));
+            assertEquals(SetOperations.xorCardinality(producer1, producer2), SetOperations.xorCardinality(filter1, filter2));
+            assertEquals(SetOperations.jaccardSimilarity(producer1, producer2),
+                SetOperations.jaccardSimilarity(filter1, filter2));
+            assertEquals(SetOperations.cosineSimilarity(producer1, producer2),
+                SetOperations.cosineSimilarity(filter1, filter2));
+        }
+    }
+
+    @Test
+    public final void testBatchSimilarity() {
+        final Random random = new Random(42);
+        final Shape shape = Shape.fromKM(5, 300);
+        final BloomFilter query = randomFilter(random, shape, false);
+        final List<BloomFilter> candidates = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            // include filters that are not backed by arrays
+            final BloomFilter candidate = randomFilter(random, shape, i % 3 == 1);
+            if (i % 3 == 2) {
+                final BloomFilter sparse = new SparseBloomFilter(shape);
+                sparse.merge(candidate);
+                candidates.add(sparse);
+            } else {
+                candidates.add(candidate);
+            }
+        }
+        candidates.add(query.copy());
+        candidates.add(new SimpleBloomFilter(shape));
+        final double[] cosine = SetOperations.cosineSimilarity(query, candidates);
+        final double[] jaccard = SetOperations.jaccardSimilarity(query, candidates);
+        final double[] expectedCosine = new double[candidates.size()];
+        final double[] expectedJaccard = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            expectedCosine[i] = SetOperations.cosineSimilarity(query, candidates.get(i));
+            expectedJaccard[i] = SetOperations.jaccardSimilarity(query, candidates.get(i));
+        }
+        assertArrayEquals(expectedCosine, cosine);
+        assertArrayEquals(expectedJaccard, jaccard);
+        assertEquals(1.0, cosine[candidates.size() - 2], 1e-15);
+        assertEquals(1.0, jaccard[candidates.size() - 2]);
+        assertEquals(0.0, cosine[candidates.size() - 1]);
+        assertEquals(0.0, jaccard[candidates.size() - 1]);
+
+        // a query that is not backed by an array
+        final BloomFilter sparseQuery = new SparseBloomFilter(shape);
+        sparseQuery.merge(query);
+        assertArrayEquals(cosine, SetOperations.cosineSimilarity(sparseQuery, candidates));
+        assertArrayEquals(jaccard, SetOperations.jaccardSimilarity(sparseQuery, candidates));
+        assertEquals(0, SetOperations.jaccardSimilarity(query, Arrays.asList()).length);
+    }
 }
@@ -16,10 +16,14 @@
  */
 package org.apache.commons.collections4.bloomfilter;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -89,4 +93,85 @@ public class SparseBloomFilterTest extends AbstractBloomFilterTest<SparseBloomFi
         bf1.merge(bf2);
         assertTrue(bf2.forEachBitMapPair(bf1, (x, y) -> x == y));
     }
+
+    @Test
+    public void testMatchesSimpleBloomFilter() {
+        final Shape shape = Shape.fromKM(7, 5000);
+        final Random random = new Random(42);
+        final SparseBloomFilter sparse = createEmptyFilter(shape);
+        final SimpleBloomFilter simple = new SimpleBloomFilter(shape);
+        for (int i = 0; i < 300; i++) {
+            final Hasher hasher = new EnhancedDoubleHasher(random.nextLong(), random.nextLong());
+            sparse.merge(hasher);
+            simple.merge(hasher);
+            assertTrue(sparse.contains(hasher));
+            // merging a present item changes nothing
+            sparse.merge(hasher);
+            assertEquals(simple.cardinality(), sparse.cardinality());
+        }
+        assertArrayEquals(simple.asBitMapArray(), sparse.asBitMapArray());
+        assertArrayEquals(simple.asIndexArray(), sparse.asIndexArray());
+        assertTrue(sparse.contains((BitMapProducer) simple));
+        assertTrue(simple.contains((BitMapProducer) sparse));
+
+        // merge by bit maps and from another sparse filter
+        final SparseBloomFilter fromBitMaps = createEmptyFilter(shape);
+        fromBitMaps.merge((BitMapProducer) simple);
+        assertArrayEquals(sparse.asIndexArray(), fromBitMaps.asIndexArray());
+        final SparseBloomFilter fromSparse = createEmptyFilter(shape);
+        fromSparse.merge(sparse);
+        assertArrayEquals(sparse.asIndexArray(), fromSparse.asIndexArray());
+
+        final SparseBloomFilter other = createEmptyFilter(shape);
+        other.merge(IndexProducer.fromIndexArray(4999));
+        assertEquals(simple.contains(IndexProducer.fromIndexArray(4999)), sparse.contains((BitMapProducer) other));
+    }
+
+    @Test
+    public void testMergeUnsortedDuplicates() {
+        final SparseBloomFilter bf = createEmptyFilter(getTestShape());
+        bf.merge(IndexProducer.fromIndexArray(70, 3, 3, 64, 1, 70));
+        assertArrayEquals(new int[] {1, 3, 64, 70}, bf.asIndexArray());
+        bf.merge(IndexProducer.fromIndexArray(2, 71, 3, 0));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 64, 70, 71}, bf.asIndexArray());
+        assertFalse(bf.contains(IndexProducer.fromIndexArray(1, 4)));
+        assertFalse(bf.contains(BitMapProducer.fromBitMapArray(0b10010L)));
+        assertTrue(bf.contains(BitMapProducer.fromBitMapArray(0b1111L, 1L)));
+    }
+
+    @Test
+    public void testInvalidMergeLeavesFilterUnchanged() {
+        final SparseBloomFilter bf = createEmptyFilter(getTestShape());
+        bf.merge(IndexProducer.fromIndexArray(5));
+        assertThrows(IllegalArgumentException.class, () -> bf.merge(IndexProducer.fromIndexArray(1, 72)));
+        assertThrows(IllegalArgumentException.class, () -> bf.merge(IndexProducer.fromIndexArray(2, -1)));
+        assertThrows(IllegalArgumentException.class, () -> bf.merge(BitMapProducer.fromBitMapArray(1L, 1L << 8)));
+        assertArrayEquals(new int[] {5}, bf.asIndexArray());
+    }
+
+    @Test
+    public void testNestedContains() {
+        final SparseBloomFilter bf = createEmptyFilter(getTestShape());
+        bf.merge(IndexProducer.fromIndexArray(1, 3, 64, 70));
+        final BitMapProducer inner = BitMapProducer.fromBitMapArray(0b10L, 1L);
+        // a query made while another is in progress does not disturb it
+        assertTrue(bf.contains((BitMapProducer) consumer -> consumer.test(0b1010L) && bf.contains(inner)
+            && consumer.test(1L << 6 | 1L)));
+        assertFalse(bf.contains((BitMapProducer) consumer -> consumer.test(0b1010L) && bf.contains(inner)
+            && consumer.test(1L << 5)));
+    }
+
+    @Test
+    public void testLargeMergeReleasesScratchSpace() {
+        final Shape shape = Shape.fromKM(3, 100_000);
+        final SparseBloomFilter bf = new SparseBloomFilter(shape);
+        final int[] values = new int[50_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 2 * i;
+        }
+        bf.merge(IndexProducer.fromIndexArray(values));
+        bf.merge(IndexProducer.fromIndexArray(1, 3, 5));
+        assertEquals(values.length + 3, bf.cardinality());
+        assertTrue(bf.contains(IndexProducer.fromIndexArray(0, 1, 99_998)));
+    }
 }
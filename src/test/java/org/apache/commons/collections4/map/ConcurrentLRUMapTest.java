@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests.
+ */
+public class ConcurrentLRUMapTest<K, V> extends AbstractIterableMapTest<K, V> {
+
+    public ConcurrentLRUMapTest() {
+        super(ConcurrentLRUMapTest.class.getSimpleName());
+    }
+
+    @Override
+    public ConcurrentLRUMap<K, V> makeObject() {
+        return new ConcurrentLRUMap<>();
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValue() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public String[] ignoredTests() {
+        final String pre = "ConcurrentLRUMapTest.bulkTestMap";
+        final String post = ".testCollectionIteratorFailFast";
+        return new String[] {
+            pre + "EntrySet" + post,
+            pre + "KeySet" + post,
+            pre + "Values" + post
+        };
+    }
+
+    @Test
+    public void testConstructorArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLRUMap<>(0));
+        assertThrows(NullPointerException.class, () -> new ConcurrentLRUMap<>(null));
+        final ConcurrentLRUMap<String, String> map = new ConcurrentLRUMap<>(5, true);
+        assertEquals(5, map.maxSize());
+        assertTrue(map.isScanUntilRemovable());
+        assertFalse(new ConcurrentLRUMap<>().isScanUntilRemovable());
+    }
+
+    @Test
+    public void testLRU() {
+        final ConcurrentLRUMap<Integer, String> map = new ConcurrentLRUMap<>(3);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        assertTrue(map.isFull());
+        // reading 1 makes 2 the least recently used
+        assertEquals("a", map.get(1));
+        map.put(4, "d");
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey(2));
+        // putting an existing key makes it the most recently used
+        map.put(3, "C");
+        map.put(5, "e");
+        assertFalse(map.containsKey(1));
+        assertEquals("C", map.get(3));
+        // queries do not change the order
+        assertTrue(map.containsKey(4));
+        map.put(6, "f");
+        assertFalse(map.containsKey(4));
+    }
+
+    @Test
+    public void testManyReadsBetweenWrites() {
+        final ConcurrentLRUMap<Integer, Integer> map = new ConcurrentLRUMap<>(10);
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i);
+        }
+        // far more reads than the buffers hold, with 0 read last
+        for (int round = 0; round < 100; round++) {
+            for (int i = 9; i >= 0; i--) {
+                assertEquals(Integer.valueOf(i), map.get(i));
+            }
+        }
+        map.put(10, 10);
+        assertFalse(map.containsKey(9));
+        assertTrue(map.containsKey(0));
+    }
+
+    @Test
+    public void testRemoveLRUVeto() {
+        final ConcurrentLRUMap<Integer, String> keeping = new ConcurrentLRUMap<Integer, String>(2) {
+            @Override
+            protected boolean removeLRU(final Map.Entry<Integer, String> entry) {
+                return entry.getKey() != 1;
+            }
+        };
+        keeping.put(1, "a");
+        keeping.put(2, "b");
+        keeping.put(3, "c");
+        // without scanning the map exceeds its maximum size
+        assertEquals(3, keeping.size());
+
+        final List<Integer> offered = new ArrayList<>();
+        final ConcurrentLRUMap<Integer, String> scanning = new ConcurrentLRUMap<Integer, String>(2, true) {
+            @Override
+            protected boolean removeLRU(final Map.Entry<Integer, String> entry) {
+                offered.add(entry.getKey());
+                return entry.getKey() != 1;
+            }
+        };
+        scanning.put(1, "a");
+        scanning.put(2, "b");
+        scanning.put(3, "c");
+        assertEquals(2, scanning.size());
+        assertTrue(scanning.containsKey(1));
+        assertFalse(scanning.containsKey(2));
+        assertEquals(2, offered.size());
+        assertEquals(Integer.valueOf(1), offered.get(0));
+        assertEquals(Integer.valueOf(2), offered.get(1));
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        final ConcurrentLRUMap<Integer, String> map = new ConcurrentLRUMap<>(3);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.get(1);
+        assertEquals("a", map.remove(1));
+        map.put(3, "c");
+        map.put(4, "d");
+        map.put(5, "e");
+        assertFalse(map.containsKey(2));
+        map.clear();
+        assertTrue(map.isEmpty());
+        map.put(6, "f");
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final int maxSize = 100;
+        final ConcurrentLRUMap<Integer, Integer> map = new ConcurrentLRUMap<>(maxSize);
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        final List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            final Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 20000; i++) {
+                        final Integer key = (i * 31 + seed) % 300;
+                        final Integer value = map.get(key);
+                        if (value == null) {
+                            map.put(key, key);
+                        } else if (!value.equals(key)) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    failures.incrementAndGet();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, failures.get());
+        assertEquals(maxSize, map.size());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.collections4.MapIterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests.
+ */
+public class IntObjectHashMapTest<V> extends AbstractIterableMapTest<Integer, V> {
+
+    public IntObjectHashMapTest() {
+        super(IntObjectHashMapTest.class.getSimpleName());
+    }
+
+    @Override
+    public IntObjectHashMap<V> makeObject() {
+        return new IntObjectHashMap<>();
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public Integer[] getSampleKeys() {
+        return new Integer[] {
+            0, 1, 2, 3, -1, -2, Integer.MIN_VALUE, Integer.MAX_VALUE, 16, 32,
+            64, 128, 1 << 20, 1 << 30, 42, 12345, -98765, 0x7f7f7f7f
+        };
+    }
+
+    @Override
+    public Integer[] getOtherKeys() {
+        return new Integer[] {
+            4, 5, 6, 7, -3, -4, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1,
+            17, 33, 65, 129, 1 << 21, 1 << 29, 43, 12346
+        };
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        return "4.6";
+    }
+
+//    public void testCreate() throws Exception {
+//        resetEmpty();
+//        writeExternalFormToDisk((java.io.Serializable) map, "src/test/resources/org/apache/commons/collections4/data/test/IntObjectHashMap.emptyCollection.version4.6.obj");
+//        resetFull();
+//        writeExternalFormToDisk((java.io.Serializable) map, "src/test/resources/org/apache/commons/collections4/data/test/IntObjectHashMap.fullCollection.version4.6.obj");
+//    }
+
+    @Test
+    public void testPrimitiveMethods() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertNull(map.put(7, "seven"));
+        assertNull(map.put(-7, null));
+        assertEquals("seven", map.put(7, "SEVEN"));
+        assertEquals(2, map.size());
+        assertEquals("SEVEN", map.get(7));
+        assertNull(map.get(-7));
+        assertTrue(map.containsKey(-7));
+        assertTrue(map.containsValue(null));
+        assertFalse(map.containsKey(8));
+        assertNull(map.remove(8));
+        assertNull(map.remove(-7));
+        assertFalse(map.containsKey(-7));
+        assertEquals("SEVEN", map.remove(7));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testBoxedKeysOfOtherTypes() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(1, "one");
+        assertNull(map.get(Long.valueOf(1)));
+        assertFalse(map.containsKey("1"));
+        assertNull(map.remove(Long.valueOf(1)));
+        assertEquals(1, map.size());
+        assertThrows(NullPointerException.class, () -> map.put(null, "null"));
+    }
+
+    @Test
+    public void testConstructorArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(16, 0.0f));
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(16, 1.0f));
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(16, Float.NaN));
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>(0, 0.99f);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "v" + i);
+        }
+        assertEquals(1000, map.size());
+        assertEquals(map, new IntObjectHashMap<>(map));
+    }
+
+    @Test
+    public void testClone() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>(10);
+        map.put(1, "1");
+        final IntObjectHashMap<String> cloned = map.clone();
+        assertEquals(map.size(), cloned.size());
+        assertSame(map.get(1), cloned.get(1));
+        cloned.put(2, "2");
+        assertFalse(map.containsKey(2));
+    }
+
+    @Test
+    public void testRandomOperationsAgainstHashMap() {
+        final Random random = new Random(42);
+        final IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        final Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            // a small key range so that long probe runs are built and broken up
+            final int key = random.nextInt(512) * 1024;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), map.put(key, Integer.valueOf(i)));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    /**
+     * Removing through an iterator shifts entries back across the end of the table,
+     * none of which may be skipped or returned twice.
+     */
+    @Test
+    public void testIteratorRemoveVisitsEveryEntryOnce() {
+        final Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            final IntObjectHashMap<Integer> map = new IntObjectHashMap<>(8);
+            final Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 8; i++) {
+                final int key = random.nextInt(64);
+                map.put(key, Integer.valueOf(key));
+                expected.put(key, key);
+            }
+            final Map<Integer, Integer> original = new HashMap<>(expected);
+            final Map<Integer, Integer> seen = new HashMap<>();
+            final MapIterator<Integer, Integer> it = map.mapIterator();
+            while (it.hasNext()) {
+                final Integer key = it.next();
+                assertNull(seen.put(key, it.getValue()));
+                if (random.nextBoolean()) {
+                    it.remove();
+                    expected.remove(key);
+                } else {
+                    it.setValue(-key);
+                    expected.put(key, -key);
+                }
+            }
+            assertEquals(original, seen);
+            assertEquals(expected, map);
+        }
+    }
+
+    @Test
+    public void testEntrySetValueWritesThrough() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(3, "three");
+        final Iterator<Map.Entry<Integer, String>> it = map.entrySet().iterator();
+        final Map.Entry<Integer, String> entry = it.next();
+        assertEquals("three", entry.setValue("THREE"));
+        assertEquals("THREE", entry.getValue());
+        assertEquals("THREE", map.get(3));
+    }
+}
@@ -21,6 +21,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.collection.AbstractCollectionTest;
@@ -246,6 +249,86 @@ public class PassiveExpiringMapTest<K, V> extends AbstractMapTest<K, V> {
         assertEquals(3, m.size());
     }
 
+    @Test
+    public void testReplacedEntryKeepsLaterExpiration() throws InterruptedException {
+        // the value is the expiration time
+        final PassiveExpiringMap<String, Long> m = new PassiveExpiringMap<>((key, value) -> value.longValue());
+        final long now = System.currentTimeMillis();
+        m.put("a", Long.valueOf(now + 50));
+        m.put("a", Long.valueOf(now + 100_000));
+        m.put("b", Long.valueOf(now + 50));
+        m.remove("b");
+        m.put("b", Long.valueOf(-1));
+        m.put("c", Long.valueOf(now + 50));
+        Thread.sleep(100);
+        // the earlier expiration times of a and b are no longer current
+        assertEquals(2, m.size());
+        assertTrue(m.containsKey("a"));
+        assertTrue(m.containsKey("b"));
+        assertFalse(m.containsKey("c"));
+    }
+
+    @Test
+    public void testManyReplacedEntries() {
+        final PassiveExpiringMap<Integer, String> m = new PassiveExpiringMap<>(100_000L);
+        for (int i = 0; i < 10_000; i++) {
+            m.put(Integer.valueOf(i % 10), "v" + i);
+        }
+        assertEquals(10, m.size());
+        assertEquals("v9999", m.get(Integer.valueOf(9)));
+    }
+
+    @Test
+    public void testManyRemovedEntries() throws InterruptedException {
+        // the value is the expiration time
+        final PassiveExpiringMap<Integer, Long> m = new PassiveExpiringMap<>((key, value) -> value.longValue());
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            m.put(Integer.valueOf(i), Long.valueOf(i % 100 == 0 ? now + 100_000 : now + 500));
+        }
+        // removing most keys compacts their deadlines away; the others must still be kept
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 != 0 && i % 100 != 1) {
+                m.remove(Integer.valueOf(i));
+            }
+        }
+        assertEquals(20, m.size());
+        Thread.sleep(600);
+        assertEquals(10, m.size());
+        assertTrue(m.containsKey(Integer.valueOf(900)));
+        assertFalse(m.containsKey(Integer.valueOf(901)));
+    }
+
+    @Test
+    public void testScheduleSweep() throws InterruptedException {
+        final Map<String, String> decorated = new HashMap<>();
+        final PassiveExpiringMap<String, String> m = new PassiveExpiringMap<>(10L, decorated);
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            assertThrows(NullPointerException.class, () -> m.scheduleSweep(null, 1, TimeUnit.MILLISECONDS));
+            assertThrows(NullPointerException.class, () -> m.scheduleSweep(executor, 1, null));
+            assertThrows(IllegalArgumentException.class, () -> m.scheduleSweep(executor, 0, TimeUnit.MILLISECONDS));
+            synchronized (m) {
+                m.put("a", "b");
+                m.put("c", "d");
+            }
+            final ScheduledFuture<?> sweep = m.scheduleSweep(executor, 5, TimeUnit.MILLISECONDS);
+            // the map itself is never read, so only the sweep can empty it
+            final long deadline = System.currentTimeMillis() + 5000;
+            boolean empty = false;
+            while (!empty && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                synchronized (m) {
+                    empty = decorated.isEmpty();
+                }
+            }
+            assertTrue(empty);
+            sweep.cancel(false);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testZeroTimeToLive() {
         // item should not be available
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.MapIterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests.
+ * {@link StripedBucketMap}.
+ */
+public class StripedBucketMapTest<K, V> extends AbstractIterableMapTest<K, V> {
+
+    public StripedBucketMapTest() {
+        super(StripedBucketMapTest.class.getSimpleName());
+    }
+
+    @Override
+    public StripedBucketMap<K, V> makeObject() {
+        // few stripes and a tiny capacity so that the tests resize the stripes
+        return new StripedBucketMap<>(0, 4);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public String[] ignoredTests() {
+        final String pre = "StripedBucketMapTest.bulkTestMap";
+        final String post = ".testCollectionIteratorFailFast";
+        return new String[] {
+            pre + "EntrySet" + post,
+            pre + "KeySet" + post,
+            pre + "Values" + post
+        };
+    }
+
+    @Test
+    public void testConstructorArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedBucketMap<>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new StripedBucketMap<>(16, 0));
+        final StripedBucketMap<Integer, Integer> map = new StripedBucketMap<>(0, 1);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), map.get(i));
+        }
+    }
+
+    @Test
+    public void testAtomicOperations() {
+        final StripedBucketMap<String, String> map = new StripedBucketMap<>();
+        assertNull(map.putIfAbsent("a", "1"));
+        assertEquals("1", map.putIfAbsent("a", "2"));
+        assertFalse(map.replace("a", "2", "3"));
+        assertTrue(map.replace("a", "1", "3"));
+        assertEquals("3", map.replace("a", "4"));
+        assertNull(map.replace("b", "4"));
+        assertFalse(map.containsKey("b"));
+        assertFalse(map.remove("a", "3"));
+        assertTrue(map.remove("a", "4"));
+        assertTrue(map.isEmpty());
+        map.put("n", null);
+        assertNull(map.putIfAbsent("n", "5"));
+        assertEquals("5", map.get("n"));
+    }
+
+    @Test
+    public void testIteratorSurvivesResize() {
+        final StripedBucketMap<Integer, Integer> map = new StripedBucketMap<>(0, 2);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        int count = 0;
+        final MapIterator<Integer, Integer> it = map.mapIterator();
+        while (it.hasNext()) {
+            final Integer key = it.next();
+            assertEquals(key, it.getValue());
+            if (key < 1000) {
+                // grows the stripes while they are being walked
+                map.put(key + 1000, key + 1000);
+            }
+            count++;
+        }
+        assertTrue(count >= 100);
+        assertEquals(200, map.size());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        final StripedBucketMap<Integer, Integer> map = new StripedBucketMap<>(0, 8);
+        final int threads = 8;
+        final int perThread = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        final List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            final Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = base; i < base + perThread; i++) {
+                        map.put(i, i);
+                        if (!Integer.valueOf(i).equals(map.get(i))) {
+                            failures.incrementAndGet();
+                        }
+                        if ((i & 1) == 1 && map.remove(i - 1) == null) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    failures.incrementAndGet();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, failures.get());
+        assertEquals(threads * perThread / 2, map.size());
+        for (int i = 1; i < threads * perThread; i += 2) {
+            assertEquals(Integer.valueOf(i), map.get(i));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.collections4.trie.analyzer.ByteArrayKeyAnalyzer;
+import org.apache.commons.collections4.trie.analyzer.ByteBufferKeyAnalyzer;
+import org.apache.commons.collections4.trie.analyzer.InetAddressKeyAnalyzer;
+import org.apache.commons.collections4.trie.analyzer.IntegerKeyAnalyzer;
+import org.apache.commons.collections4.trie.analyzer.LongKeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link BinaryTrie} with the analyzers of binary keys, against a {@link TreeMap} ordered
+ * by the analyzer.
+ */
+public class BinaryTrieTest {
+
+    private static final int SIZE = 2000;
+
+    /**
+     * Fills a trie and a tree map with the same keys, then checks lookups, order, prefix maps and
+     * removals.
+     */
+    private static <K> void assertMatchesTreeMap(final KeyAnalyzer<K> analyzer, final List<K> keys) {
+        final BinaryTrie<K, Integer> trie = new BinaryTrie<>(analyzer);
+        final TreeMap<K, Integer> map = new TreeMap<>(analyzer);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(map.put(keys.get(i), i), trie.put(keys.get(i), i));
+        }
+        assertEquals(map.size(), trie.size());
+        assertEquals(new ArrayList<>(map.values()), new ArrayList<>(trie.values()));
+        final PackedTrie<K, Integer> packed = trie.freeze();
+        assertEquals(new ArrayList<>(map.values()), new ArrayList<>(packed.values()));
+        final Random random = new Random(42);
+        for (final K key : keys) {
+            assertEquals(map.get(key), trie.get(key));
+            assertEquals(map.get(key), packed.get(key));
+            assertEquals(map.get(key), trie.selectValue(key));
+            final int length = analyzer.lengthInBits(key);
+            final int bits = random.nextInt(length + 1);
+            final List<Integer> expected = new ArrayList<>();
+            for (final Map.Entry<K, Integer> entry : map.entrySet()) {
+                if (analyzer.isPrefix(key, 0, bits, entry.getKey())) {
+                    expected.add(entry.getValue());
+                }
+            }
+            assertEquals(expected, new ArrayList<>(trie.prefixMap(key, bits).values()));
+            assertEquals(expected.size(), trie.prefixMap(key, bits).size());
+        }
+        for (int i = 0; i < keys.size(); i += 2) {
+            assertEquals(map.remove(keys.get(i)), trie.remove(keys.get(i)));
+        }
+        assertEquals(new ArrayList<>(map.values()), new ArrayList<>(trie.values()));
+    }
+
+    @Test
+    public void testLongKeys() {
+        final Random random = new Random(42);
+        final List<Long> keys = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            keys.add(random.nextBoolean() ? random.nextLong() : random.nextInt(1000) - 500L);
+        }
+        assertMatchesTreeMap(LongKeyAnalyzer.INSTANCE, keys);
+    }
+
+    @Test
+    public void testIntegerKeys() {
+        final Random random = new Random(42);
+        final List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            keys.add(random.nextBoolean() ? random.nextInt() : random.nextInt(1000) - 500);
+        }
+        assertMatchesTreeMap(IntegerKeyAnalyzer.INSTANCE, keys);
+    }
+
+    @Test
+    public void testByteArrayKeys() {
+        final Random random = new Random(42);
+        final List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            final byte[] key = new byte[16];
+            random.nextBytes(key);
+            // share long prefixes
+            key[0] = (byte) random.nextInt(4);
+            keys.add(key);
+        }
+        assertMatchesTreeMap(ByteArrayKeyAnalyzer.INSTANCE, keys);
+        // arrays are looked up by content
+        final BinaryTrie<byte[], Integer> trie = new BinaryTrie<>(ByteArrayKeyAnalyzer.INSTANCE);
+        trie.put(new byte[] {1, 2, 3}, 1);
+        assertEquals(Integer.valueOf(1), trie.get(new byte[] {1, 2, 3}));
+        assertNull(trie.get(new byte[] {1, 2, 4}));
+        assertTrue(trie.containsKey(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void testByteBufferKeys() {
+        final Random random = new Random(42);
+        final List<ByteBuffer> keys = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            final byte[] key = new byte[1 + random.nextInt(12)];
+            random.nextBytes(key);
+            key[0] = (byte) random.nextInt(4);
+            // keys of different lengths must not differ only by trailing zero bytes
+            key[key.length - 1] |= 1;
+            keys.add(i % 2 == 0 ? ByteBuffer.wrap(key) : (ByteBuffer) ByteBuffer.allocateDirect(key.length).put(key)
+                .flip());
+        }
+        assertMatchesTreeMap(ByteBufferKeyAnalyzer.INSTANCE, keys);
+        // bits past the end of a key are zero
+        final BinaryTrie<ByteBuffer, Integer> trie = new BinaryTrie<>(ByteBufferKeyAnalyzer.INSTANCE);
+        trie.put(ByteBuffer.wrap(new byte[] {1}), 1);
+        assertEquals(Integer.valueOf(1), trie.put(ByteBuffer.wrap(new byte[] {1, 0}), 2));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    public void testInetAddressKeys() throws UnknownHostException {
+        final Random random = new Random(42);
+        final List<InetAddress> keys = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            final byte[] address = {10, (byte) random.nextInt(4), (byte) random.nextInt(256),
+                (byte) random.nextInt(256)};
+            keys.add(InetAddress.getByAddress(address));
+        }
+        assertMatchesTreeMap(InetAddressKeyAnalyzer.INSTANCE, keys);
+    }
+
+    @Test
+    public void testCidrLookup() throws UnknownHostException {
+        final BinaryTrie<InetAddress, String> trie = new BinaryTrie<>(InetAddressKeyAnalyzer.INSTANCE);
+        for (final String address : new String[] {"10.0.0.1", "10.1.0.1", "10.1.2.3", "10.1.255.255", "10.2.0.0",
+            "192.168.1.1"}) {
+            trie.put(InetAddress.getByName(address), address);
+        }
+        final SortedMap<InetAddress, String> network = trie.prefixMap(InetAddress.getByName("10.1.0.0"), 16);
+        assertEquals(Arrays.asList("10.1.0.1", "10.1.2.3", "10.1.255.255"), new ArrayList<>(network.values()));
+        assertEquals(InetAddress.getByName("10.1.0.1"), network.firstKey());
+        assertFalse(network.containsKey(InetAddress.getByName("10.2.0.0")));
+        assertEquals(5, trie.prefixMap(InetAddress.getByName("10.0.0.0"), 8).size());
+        assertEquals(1, trie.prefixMap(InetAddress.getByName("10.1.2.3"), 32).size());
+        assertSame(trie, trie.prefixMap(InetAddress.getByName("10.0.0.0"), 0));
+        assertThrows(IllegalArgumentException.class, () -> trie.prefixMap(InetAddress.getByName("10.0.0.0"), 33));
+        assertThrows(IllegalArgumentException.class, () -> trie.prefixMap(InetAddress.getByName("10.0.0.0"), -1));
+    }
+
+    @Test
+    public void testLongestPrefixMatch() {
+        // select finds the nearest key, which for integers holds the longest common prefix
+        final BinaryTrie<Integer, String> trie = new BinaryTrie<>(IntegerKeyAnalyzer.INSTANCE);
+        trie.put(0x0A000000, "a");
+        trie.put(0x0A010000, "b");
+        trie.put(0x0B000000, "c");
+        assertEquals("b", trie.selectValue(0x0A01FF00));
+        assertEquals("a", trie.selectValue(0x0A000001));
+        assertEquals("c", trie.selectValue(0x0BFFFFFF));
+    }
+
+    @Test
+    public void testCopyConstructor() {
+        final Map<Long, String> map = new TreeMap<>();
+        map.put(-1L, "minus one");
+        map.put(1L, "one");
+        map.put(Long.MIN_VALUE, "min");
+        final BinaryTrie<Long, String> trie = new BinaryTrie<>(LongKeyAnalyzer.INSTANCE, map);
+        assertEquals(map, trie);
+        assertEquals(Arrays.asList(Long.MIN_VALUE, -1L, 1L), new ArrayList<>(trie.keySet()));
+        assertThrows(NullPointerException.class, () -> new BinaryTrie<Long, String>(null));
+    }
+}
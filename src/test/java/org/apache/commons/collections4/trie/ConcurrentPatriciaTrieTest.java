@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.map.AbstractSortedMapTest;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Extension of {@link AbstractSortedMapTest} for exercising the
+ * {@link ConcurrentPatriciaTrie} implementation.
+ */
+public class ConcurrentPatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
+
+    public ConcurrentPatriciaTrieTest() {
+        super(ConcurrentPatriciaTrieTest.class.getSimpleName());
+    }
+
+    @Override
+    public SortedMap<String, V> makeObject() {
+        return new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValue() {
+        return false;
+    }
+
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        return "4.6";
+    }
+
+//    public void testCreate() throws Exception {
+//        resetEmpty();
+//        writeExternalFormToDisk((java.io.Serializable) map, "src/test/resources/org/apache/commons/collections4/data/test/ConcurrentPatriciaTrie.emptyCollection.version4.6.obj");
+//        resetFull();
+//        writeExternalFormToDisk((java.io.Serializable) map, "src/test/resources/org/apache/commons/collections4/data/test/ConcurrentPatriciaTrie.fullCollection.version4.6.obj");
+//    }
+
+    /**
+     * Creates short keys of few letters, so that many keys share prefixes.
+     */
+    private static String randomKey(final Random random) {
+        final char[] chars = new char[random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void testMatchesPatriciaTrie() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> expected = new PatriciaTrie<>();
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        for (int i = 0; i < 5000; i++) {
+            final String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), trie.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), trie.put(key, i));
+            }
+        }
+        assertEquals(expected.size(), trie.size());
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(trie.entrySet()));
+        assertEquals(expected.firstKey(), trie.firstKey());
+        assertEquals(expected.lastKey(), trie.lastKey());
+        for (int i = 0; i < 500; i++) {
+            final String key = randomKey(random);
+            final String other = randomKey(random);
+            assertEquals(expected.get(key), trie.get(key));
+            assertEquals(expected.containsKey(key) ? expected.nextKey(key) : null, trie.nextKey(key));
+            assertEquals(expected.containsKey(key) ? expected.previousKey(key) : null, trie.previousKey(key));
+            assertEquals(new ArrayList<>(expected.prefixMap(key).keySet()), new ArrayList<>(trie.prefixMap(key).keySet()));
+            assertEquals(expected.prefixMap(key).size(), trie.prefixMap(key).size());
+            assertEquals(expected.countWithPrefix(key), trie.countWithPrefix(key));
+            assertEquals(new ArrayList<>(expected.headMap(key).keySet()), new ArrayList<>(trie.headMap(key).keySet()));
+            assertEquals(new ArrayList<>(expected.tailMap(key).keySet()), new ArrayList<>(trie.tailMap(key).keySet()));
+            final String from = key.compareTo(other) <= 0 ? key : other;
+            final String to = key.compareTo(other) <= 0 ? other : key;
+            assertEquals(new ArrayList<>(expected.subMap(from, to).values()),
+                new ArrayList<>(trie.subMap(from, to).values()));
+            final List<String> visited = new ArrayList<>();
+            trie.forEachWithPrefix(key, (k, v) -> visited.add(k));
+            assertEquals(new ArrayList<>(expected.prefixMap(key).keySet()), visited);
+        }
+    }
+
+    @Test
+    public void testSnapshotIteration() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        for (final String key : new String[] {"Anna", "Andrea", "Andy", "Bob"}) {
+            trie.put(key, key.length());
+        }
+        final SortedMap<String, Integer> and = trie.prefixMap("And");
+        final Iterator<String> it = and.keySet().iterator();
+        assertEquals("Andrea", it.next());
+        trie.remove("Andy");
+        trie.put("Andreas", 7);
+        // the iterator keeps its snapshot, the view is live
+        assertEquals("Andy", it.next());
+        assertFalse(it.hasNext());
+        assertEquals(Arrays.asList("Andrea", "Andreas"), new ArrayList<>(and.keySet()));
+        assertEquals(2, trie.countWithPrefix("And"));
+        assertThrows(IllegalArgumentException.class, () -> and.put("Bob", 1));
+        assertNull(and.put("Andrew", 2));
+        assertEquals(3, and.size());
+        assertSame(trie, trie.prefixMap(""));
+    }
+
+    @Test
+    public void testEntryWritesThrough() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        trie.put("a", 1);
+        trie.put("b", 2);
+        final Map.Entry<String, Integer> entry = trie.entrySet().iterator().next();
+        assertEquals(Integer.valueOf(1), entry.setValue(10));
+        assertEquals(Integer.valueOf(10), trie.get("a"));
+        final OrderedMapIterator<String, Integer> it = trie.mapIterator();
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        assertEquals(Integer.valueOf(2), it.setValue(20));
+        assertEquals(Integer.valueOf(20), it.getValue());
+        assertEquals("b", it.previous());
+        it.remove();
+        assertThrows(IllegalStateException.class, it::getKey);
+        assertEquals("a", it.previous());
+        assertEquals(1, trie.size());
+        assertEquals(Integer.valueOf(10), trie.get("a"));
+    }
+
+    @Test
+    public void testAtomicOperations() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        assertNull(trie.putIfAbsent("a", 1));
+        assertEquals(Integer.valueOf(1), trie.putIfAbsent("a", 2));
+        assertFalse(trie.replace("a", 2, 3));
+        assertTrue(trie.replace("a", 1, 3));
+        assertNull(trie.replace("b", 1));
+        assertFalse(trie.containsKey("b"));
+        assertEquals(Integer.valueOf(3), trie.replace("a", 4));
+        assertFalse(trie.remove("a", 3));
+        assertTrue(trie.remove("a", 4));
+        assertTrue(trie.isEmpty());
+        assertEquals(Integer.valueOf(5), trie.merge("a", 5, Integer::sum));
+        assertEquals(Integer.valueOf(6), trie.merge("a", 1, Integer::sum));
+        assertNull(trie.compute("a", (k, v) -> null));
+        assertTrue(trie.isEmpty());
+        assertThrows(NullPointerException.class, () -> trie.put("a", null));
+        assertThrows(NullPointerException.class, () -> trie.put(null, 1));
+        assertNull(trie.get(null));
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        final int threads = 4;
+        final int updates = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    final Random random = new Random(id);
+                    for (int i = 0; i < updates; i++) {
+                        // shared counters, and keys of this thread only
+                        trie.merge("counter" + random.nextInt(8), 1, Integer::sum);
+                        trie.put("t" + id + "-" + i, i);
+                    }
+                } catch (final Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        final Thread reader = new Thread(() -> {
+            try {
+                start.await();
+                while (writers.stream().anyMatch(Thread::isAlive)) {
+                    // a snapshot is always sorted and consistent with its size
+                    final SortedMap<String, Integer> counters = trie.prefixMap("counter");
+                    final List<String> keys = new ArrayList<>(trie.keySet());
+                    for (int i = 1; i < keys.size(); i++) {
+                        assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+                    }
+                    assertTrue(counters.size() <= 8);
+                }
+            } catch (final Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        writers.forEach(Thread::start);
+        reader.start();
+        start.countDown();
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        int total = 0;
+        for (final int count : trie.prefixMap("counter").values()) {
+            total += count;
+        }
+        assertEquals(threads * updates, total);
+        assertEquals(threads * updates, trie.countWithPrefix("t"));
+        assertEquals(updates, trie.prefixMap("t0-").size());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.Unmodifiable;
+import org.apache.commons.collections4.map.AbstractSortedMapTest;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Extension of {@link AbstractSortedMapTest} for exercising the
+ * {@link PackedTrie} implementation.
+ */
+public class PackedTrieTest<V> extends AbstractSortedMapTest<String, V> {
+
+    public PackedTrieTest() {
+        super(PackedTrieTest.class.getSimpleName());
+    }
+
+    @Override
+    public Trie<String, V> makeObject() {
+        return new PatriciaTrie<V>().freeze();
+    }
+
+    @Override
+    public Trie<String, V> makeFullMap() {
+        final Trie<String, V> m = new PatriciaTrie<>();
+        addSampleMappings(m);
+        return ((PatriciaTrie<V>) m).freeze();
+    }
+
+    @Override
+    public boolean isPutChangeSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isPutAddSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isRemoveSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        return "4.6";
+    }
+
+//    public void testCreate() throws Exception {
+//        resetEmpty();
+//        writeExternalFormToDisk((java.io.Serializable) map, "src/test/resources/org/apache/commons/collections4/data/test/PackedTrie.emptyCollection.version4.6.obj");
+//        resetFull();
+//        writeExternalFormToDisk((java.io.Serializable) map, "src/test/resources/org/apache/commons/collections4/data/test/PackedTrie.fullCollection.version4.6.obj");
+//    }
+
+    private static PatriciaTrie<Integer> randomTrie(final Random random, final int size) {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        while (trie.size() < size) {
+            trie.put(randomKey(random), trie.size());
+        }
+        return trie;
+    }
+
+    /**
+     * Creates short keys of few letters, so that many keys share prefixes.
+     */
+    private static String randomKey(final Random random) {
+        final char[] chars = new char[random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void testUnmodifiable() {
+        assertTrue(makeObject() instanceof Unmodifiable);
+        assertTrue(makeFullMap() instanceof Unmodifiable);
+    }
+
+    @Test
+    public void testMatchesPatriciaTrie() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> trie = randomTrie(random, 3000);
+        final PackedTrie<String, Integer> packed = trie.freeze();
+        assertEquals(trie, packed);
+        assertEquals(new ArrayList<>(trie.keySet()), new ArrayList<>(packed.keySet()));
+        for (int i = 0; i < 2000; i++) {
+            final String key = randomKey(random);
+            assertEquals(trie.get(key), packed.get(key));
+            assertEquals(trie.containsKey(key), packed.containsKey(key));
+            assertEquals(key, trie.selectKey(key), packed.selectKey(key));
+            assertEquals(trie.select(key), packed.select(key));
+            assertEquals(trie.selectValue(key), packed.selectValue(key));
+            assertEquals(trie.nextKey(key), packed.nextKey(key));
+            assertEquals(trie.previousKey(key), packed.previousKey(key));
+            assertEquals(key, new ArrayList<>(trie.prefixMap(key).entrySet()),
+                new ArrayList<>(packed.prefixMap(key).entrySet()));
+            assertEquals(new ArrayList<>(trie.headMap(key).keySet()), new ArrayList<>(packed.headMap(key).keySet()));
+            assertEquals(new ArrayList<>(trie.tailMap(key).keySet()), new ArrayList<>(packed.tailMap(key).keySet()));
+            final String other = randomKey(random);
+            final String from = trie.comparator().compare(key, other) <= 0 ? key : other;
+            final String to = from == key ? other : key;
+            assertEquals(trie.subMap(from, to), packed.subMap(from, to));
+            assertEquals(new ArrayList<>(trie.subMap(from, to).keySet()),
+                new ArrayList<>(packed.subMap(from, to).keySet()));
+        }
+    }
+
+    @Test
+    public void testFromUnsortedMap() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> trie = randomTrie(random, 500);
+        final Map<String, Integer> map = new HashMap<>(trie);
+        final PackedTrie<String, Integer> packed = PackedTrie.of(StringKeyAnalyzer.INSTANCE, map);
+        assertEquals(trie, packed);
+        assertEquals(new ArrayList<>(trie.keySet()), new ArrayList<>(packed.keySet()));
+        for (final String key : trie.keySet()) {
+            assertEquals(trie.get(key), packed.get(key));
+        }
+    }
+
+    @Test
+    public void testPrefixMapViews() {
+        final PatriciaTrie<String> trie = new PatriciaTrie<>();
+        for (final String key : new String[] {"Anna", "Anael", "Analu", "Andreas", "Andrea", "Andres", "Anatole",
+            "Bob"}) {
+            trie.put(key, key.toLowerCase());
+        }
+        final PackedTrie<String, String> packed = trie.freeze();
+        final SortedMap<String, String> and = packed.prefixMap("And");
+        assertEquals(3, and.size());
+        assertEquals("Andrea", and.firstKey());
+        assertEquals("Andres", and.lastKey());
+        assertEquals("andreas", and.get("Andreas"));
+        assertNull(and.get("Anna"));
+        assertFalse(and.containsKey("Bob"));
+        // views of views must be bounded by keys in the view
+        assertEquals(2, and.headMap("Andres").size());
+        assertEquals(3, and.tailMap("And").size());
+        assertEquals(1, and.subMap("Andreas", "Andres").size());
+        assertThrows(IllegalArgumentException.class, () -> and.tailMap("A"));
+        assertThrows(IllegalArgumentException.class, () -> and.headMap("Bob"));
+        assertThrows(IllegalArgumentException.class, () -> and.subMap("Anna", "Andres"));
+        final SortedMap<String, String> head = and.headMap("Andres");
+        assertEquals(1, head.tailMap("Andreas").size());
+        assertThrows(IllegalArgumentException.class, () -> head.headMap("Andy"));
+        assertThrows(IllegalArgumentException.class, () -> head.tailMap("Anna"));
+        final SortedMap<String, String> range = packed.subMap("Anatole", "Andres");
+        assertEquals(Arrays.asList("Anatole", "Andrea", "Andreas"), new ArrayList<>(range.keySet()));
+        assertEquals(2, range.tailMap("Andrea").size());
+        assertEquals(3, range.headMap("Andres").size());
+        assertThrows(IllegalArgumentException.class, () -> range.headMap("Anna"));
+        assertThrows(IllegalArgumentException.class, () -> range.tailMap("Anael"));
+        assertThrows(IllegalArgumentException.class, () -> range.subMap("Andrea", "Bob"));
+        assertThrows(NullPointerException.class, () -> range.headMap(null));
+        assertTrue(packed.prefixMap("C").isEmpty());
+        assertThrows(java.util.NoSuchElementException.class, () -> packed.prefixMap("C").firstKey());
+        assertSame(packed, packed.prefixMap(""));
+        assertThrows(IllegalArgumentException.class, () -> packed.subMap("B", "A"));
+        assertThrows(UnsupportedOperationException.class, () -> and.put("Andy", "andy"));
+        assertThrows(UnsupportedOperationException.class, () -> and.remove("Andrea"));
+    }
+
+    @Test
+    public void testMapIterator() {
+        final PatriciaTrie<Integer> trie = randomTrie(new Random(42), 100);
+        final PackedTrie<String, Integer> packed = trie.freeze();
+        final OrderedMapIterator<String, Integer> it = packed.mapIterator();
+        final List<String> keys = new ArrayList<>();
+        while (it.hasNext()) {
+            keys.add(it.next());
+            assertEquals(trie.get(it.getKey()), it.getValue());
+        }
+        assertEquals(new ArrayList<>(trie.keySet()), keys);
+        assertEquals(keys.get(keys.size() - 1), it.previous());
+        assertEquals(keys.get(keys.size() - 2), it.previous());
+        assertThrows(UnsupportedOperationException.class, () -> it.setValue(0));
+        assertThrows(UnsupportedOperationException.class, it::remove);
+        assertThrows(IllegalStateException.class, () -> packed.mapIterator().getKey());
+    }
+
+    @Test
+    public void testKeysWithTheSameBits() {
+        final Map<String, Integer> map = new HashMap<>();
+        map.put("a", 1);
+        map.put("a\u0000", 2);
+        assertThrows(IllegalArgumentException.class, () -> PackedTrie.of(StringKeyAnalyzer.INSTANCE, map));
+        final Map<String, Integer> nullKey = new HashMap<>();
+        nullKey.put(null, 1);
+        assertThrows(NullPointerException.class, () -> PackedTrie.of(StringKeyAnalyzer.INSTANCE, nullKey));
+    }
+
+    @Test
+    public void testSmallTries() {
+        final PackedTrie<String, Integer> empty = new PatriciaTrie<Integer>().freeze();
+        assertNull(empty.select("a"));
+        assertNull(empty.selectKey("a"));
+        assertNull(empty.get("a"));
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        trie.put("", 0);
+        final PackedTrie<String, Integer> one = trie.freeze();
+        assertEquals(Integer.valueOf(0), one.get(""));
+        assertEquals("", one.selectKey("xyz"));
+        assertNull(one.get("a"));
+        trie.put("a", 1);
+        final PackedTrie<String, Integer> two = trie.freeze();
+        assertEquals(Integer.valueOf(0), two.get(""));
+        assertEquals(Integer.valueOf(1), two.get("a"));
+        assertNull(two.get("b"));
+        assertEquals("a", two.nextKey(""));
+        assertNull(two.nextKey("a"));
+    }
+}
@@ -16,13 +16,16 @@
  */
 package org.apache.commons.collections4.trie;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 
@@ -428,6 +431,185 @@ public class PatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
         assertEquals(Arrays.asList(2, 3, 7, 1), new ArrayList<>(trie.values()));
     }
 
+    @Test
+    public void testEmptyKeyAfterRemoval() {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        trie.put("aa", 1);
+        trie.put("bc", 2);
+        // "bc" takes the place of "aa", including its uplink to the empty root
+        trie.remove("aa");
+        trie.put("", 0);
+        assertEquals(2, trie.size());
+        assertEquals(Arrays.asList("", "bc"), new ArrayList<>(trie.keySet()));
+        assertEquals("", trie.firstKey());
+        assertEquals("bc", trie.nextKey(""));
+        assertEquals("", trie.previousKey("bc"));
+        assertEquals(2, trie.countWithPrefix(""));
+        assertEquals(1, trie.countWithPrefix("b"));
+        trie.remove("");
+        assertEquals(Arrays.asList("bc"), new ArrayList<>(trie.keySet()));
+    }
+
+    /**
+     * Creates short keys of few letters, so that many keys share prefixes.
+     */
+    private static String randomKey(final Random random) {
+        final char[] chars = new char[random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void testLongestPrefixOf() {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        assertNull(trie.longestPrefixOf("Andrea"));
+        trie.put("A", 1);
+        trie.put("And", 2);
+        trie.put("Andreas", 3);
+        trie.put("Anna", 4);
+        assertEquals("And", trie.longestPrefixOf("Andrea").getKey());
+        assertEquals(Integer.valueOf(2), trie.longestPrefixOf("Andrea").getValue());
+        assertEquals("Andreas", trie.longestPrefixOf("Andreas").getKey());
+        assertEquals("Andreas", trie.longestPrefixOf("Andreasson").getKey());
+        assertEquals("A", trie.longestPrefixOf("An").getKey());
+        assertNull(trie.longestPrefixOf("Bob"));
+        assertNull(trie.longestPrefixOf(""));
+        trie.put("", 0);
+        assertEquals("", trie.longestPrefixOf("Bob").getKey());
+        assertEquals("", trie.longestPrefixOf("").getKey());
+        Assertions.assertThrows(NullPointerException.class, () -> trie.longestPrefixOf(null));
+    }
+
+    @Test
+    public void testLongestPrefixOfMatchesBruteForce() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        for (int i = 0; i < 3000; i++) {
+            final String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                trie.remove(key);
+            } else {
+                trie.put(key, i);
+            }
+            final String search = randomKey(random) + randomKey(random);
+            String expected = null;
+            for (final String candidate : trie.keySet()) {
+                if (search.startsWith(candidate) && (expected == null || candidate.length() > expected.length())) {
+                    expected = candidate;
+                }
+            }
+            final Map.Entry<String, Integer> entry = trie.longestPrefixOf(search);
+            assertEquals(search, expected, entry == null ? null : entry.getKey());
+        }
+    }
+
+    @Test
+    public void testCountWithPrefix() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        for (int i = 0; i < 3000; i++) {
+            final String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                trie.remove(key);
+            } else {
+                trie.put(key, i);
+            }
+            final String prefix = randomKey(random);
+            int expected = 0;
+            for (final String candidate : trie.keySet()) {
+                if (candidate.startsWith(prefix)) {
+                    expected++;
+                }
+            }
+            assertEquals(prefix, expected, trie.countWithPrefix(prefix));
+            assertEquals(prefix, trie.prefixMap(prefix).size(), trie.countWithPrefix(prefix));
+        }
+        // the counts follow removals through the views and higherKey, which adds and removes a key
+        final String prefix = trie.firstKey() + "a";
+        final int count = trie.countWithPrefix(prefix);
+        trie.higherEntry(prefix + "zz");
+        assertEquals(count, trie.countWithPrefix(prefix));
+        trie.prefixMap(prefix).clear();
+        assertEquals(0, trie.countWithPrefix(prefix));
+        trie.clear();
+        assertEquals(0, trie.countWithPrefix("a"));
+        assertEquals(0, trie.countWithPrefix(""));
+    }
+
+    @Test
+    public void testForEachWithPrefix() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        for (int i = 0; i < 500; i++) {
+            trie.put(randomKey(random), i);
+        }
+        for (int i = 0; i < 200; i++) {
+            final String prefix = randomKey(random);
+            final List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+            trie.forEachWithPrefix(prefix, (k, v) -> entries.add(new AbstractMap.SimpleEntry<>(k, v)));
+            assertEquals(prefix, new ArrayList<>(trie.prefixMap(prefix).entrySet()), entries);
+        }
+        Assertions.assertThrows(NullPointerException.class, () -> trie.forEachWithPrefix("a", null));
+        Assertions.assertThrows(ConcurrentModificationException.class,
+            () -> trie.forEachWithPrefix("a", (k, v) -> trie.put(k + "x", v)));
+    }
+
+    private static int levenshtein(final String a, final String b) {
+        final int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                } else {
+                    d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1,
+                        d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    @Test
+    public void testFuzzyMap() {
+        final PatriciaTrie<String> trie = new PatriciaTrie<>();
+        for (final String key : new String[] {"", "Anna", "Anne", "Andrea", "Andreas", "Bob"}) {
+            trie.put(key, key);
+        }
+        assertEquals(Arrays.asList("Anna", "Anne"), new ArrayList<>(trie.fuzzyMap("Ann", 1).keySet()));
+        assertEquals(Arrays.asList("Andrea", "Andreas"), new ArrayList<>(trie.fuzzyMap("Andres", 1).values()));
+        assertEquals(Arrays.asList("Andrea"), new ArrayList<>(trie.fuzzyMap("Andrea", 0).keySet()));
+        assertEquals(Arrays.asList("", "Bob"), new ArrayList<>(trie.fuzzyMap("B", 2).keySet()));
+        assertTrue(trie.fuzzyMap("Xyz", 2).isEmpty());
+        assertEquals(trie, trie.fuzzyMap("", 7));
+        assertTrue(new PatriciaTrie<>().fuzzyMap("a", 1).isEmpty());
+        Assertions.assertThrows(NullPointerException.class, () -> trie.fuzzyMap(null, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> trie.fuzzyMap("a", -1));
+    }
+
+    @Test
+    public void testFuzzyMapMatchesBruteForce() {
+        final Random random = new Random(42);
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        for (int i = 0; i < 2000; i++) {
+            final String key = randomKey(random) + randomKey(random);
+            // a zero character reads like the padding of a shorter key
+            trie.put(random.nextInt(50) == 0 ? key + '\0' + randomKey(random) : key, i);
+        }
+        for (int i = 0; i < 300; i++) {
+            final String search = randomKey(random) + randomKey(random);
+            final int maxDistance = random.nextInt(4);
+            final List<String> expected = new ArrayList<>();
+            for (final String candidate : trie.keySet()) {
+                if (levenshtein(search, candidate) <= maxDistance) {
+                    expected.add(candidate);
+                }
+            }
+            assertEquals(search, expected, new ArrayList<>(trie.fuzzyMap(search, maxDistance).keySet()));
+        }
+    }
+
     @Override
     public String getCompatibilityVersion() {
         return "4";
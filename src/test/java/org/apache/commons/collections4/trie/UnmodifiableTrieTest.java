@@ -18,6 +18,9 @@ package org.apache.commons.collections4.trie;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.collections4.Trie;
 import org.apache.commons.collections4.Unmodifiable;
 import org.apache.commons.collections4.map.AbstractSortedMapTest;
@@ -76,6 +79,17 @@ public class UnmodifiableTrieTest<V> extends AbstractSortedMapTest<String, V> {
         assertThrows(NullPointerException.class, () -> UnmodifiableTrie.unmodifiableTrie(null));
     }
 
+    @Test
+    public void testPrefixQueries() {
+        final Trie<String, V> trie = makeFullMap();
+        for (final String prefix : new String[] {"", "b", "bl", "we", "x"}) {
+            assertEquals(trie.prefixMap(prefix).size(), trie.countWithPrefix(prefix));
+            final List<String> keys = new ArrayList<>();
+            trie.forEachWithPrefix(prefix, (k, v) -> keys.add(k));
+            assertEquals(new ArrayList<>(trie.prefixMap(prefix).keySet()), keys);
+        }
+    }
+
     /**
      * Override to prevent infinite recursion of tests.
      */
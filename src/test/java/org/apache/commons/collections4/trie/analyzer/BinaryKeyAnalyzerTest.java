@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the analyzers of binary keys against a bit by bit reference.
+ */
+public class BinaryKeyAnalyzerTest {
+
+    private static final int TRIALS = 20_000;
+
+    /**
+     * Reads bit {@code i} of the region {@code [offset, offset + length)} of a key, zero past
+     * the region.
+     */
+    private static <K> boolean bit(final KeyAnalyzer<K> analyzer, final K key, final int offset, final int length,
+            final int i) {
+        return i < length && analyzer.isBitSet(key, offset + i, offset + length);
+    }
+
+    private static <K> int referenceBitIndex(final KeyAnalyzer<K> analyzer, final K key, final int offset,
+            final int length, final K other, final int otherOffset, final int otherLength) {
+        boolean allNull = true;
+        for (int i = 0; i < Math.max(length, otherLength); i++) {
+            final boolean a = bit(analyzer, key, offset, length, i);
+            if (a != bit(analyzer, other, otherOffset, otherLength, i)) {
+                return i;
+            }
+            allNull &= !a;
+        }
+        return allNull ? KeyAnalyzer.NULL_BIT_KEY : KeyAnalyzer.EQUAL_BIT_KEY;
+    }
+
+    /**
+     * Checks bitIndex, isPrefix and compare of random pairs of keys and regions.
+     */
+    private static <K> void assertMatchesReference(final KeyAnalyzer<K> analyzer, final Function<Random, K> keys) {
+        final Random random = new Random(42);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            final K key = keys.apply(random);
+            // often a key with a common prefix, to exercise late differences
+            final K other = random.nextBoolean() ? keys.apply(random) : key;
+            final int length = analyzer.lengthInBits(key);
+            final int otherLength = analyzer.lengthInBits(other);
+            assertEquals(referenceBitIndex(analyzer, key, 0, length, other, 0, otherLength),
+                analyzer.bitIndex(key, 0, length, other, 0, otherLength));
+            // the order of the bits is the order of the comparator
+            final int bitIndex = analyzer.bitIndex(key, 0, length, other, 0, otherLength);
+            if (bitIndex >= 0) {
+                final boolean greater = analyzer.isBitSet(key, bitIndex, length);
+                assertEquals(greater, analyzer.compare(key, other) > 0);
+                assertEquals(!greater, analyzer.compare(other, key) > 0);
+            } else if (key.equals(other)) {
+                assertEquals(0, analyzer.compare(key, other));
+            }
+            // a region of the key against the start of the other
+            final int offset = length == 0 ? 0 : random.nextInt(length);
+            final int regionLength = length - offset == 0 ? 0 : random.nextInt(length - offset + 1);
+            assertEquals(referenceBitIndex(analyzer, key, offset, regionLength, other, 0, otherLength),
+                analyzer.bitIndex(key, offset, regionLength, other, 0, otherLength));
+            boolean prefix = true;
+            for (int i = 0; prefix && i < regionLength; i++) {
+                prefix = bit(analyzer, key, offset, regionLength, i) == bit(analyzer, other, 0, otherLength, i);
+            }
+            assertEquals(prefix, analyzer.isPrefix(key, offset, regionLength, other));
+        }
+    }
+
+    private static byte[] randomBytes(final Random random, final byte[] base) {
+        // a random length, sharing a random number of bytes with the base
+        final byte[] bytes = new byte[random.nextInt(24)];
+        final int shared = random.nextInt(Math.min(bytes.length, base.length) + 1);
+        System.arraycopy(base, 0, bytes, 0, shared);
+        for (int i = shared; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt(256);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testByteArrayKeyAnalyzer() {
+        final byte[] base = new byte[24];
+        new Random(7).nextBytes(base);
+        assertMatchesReference(ByteArrayKeyAnalyzer.INSTANCE, r -> randomBytes(r, base));
+        final ByteArrayKeyAnalyzer analyzer = ByteArrayKeyAnalyzer.INSTANCE;
+        assertEquals(8, analyzer.bitsPerElement());
+        assertEquals(0, analyzer.lengthInBits(null));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex(new byte[0], 0, 0, new byte[2], 0, 16));
+        assertEquals(KeyAnalyzer.EQUAL_BIT_KEY, analyzer.bitIndex(new byte[] {1}, 0, 8, new byte[] {1, 0}, 0, 16));
+        assertTrue(analyzer.compare(new byte[] {(byte) 0x80}, new byte[] {0x7F}) > 0);
+        assertTrue(analyzer.compare(new byte[] {1}, new byte[] {1, 0}) < 0);
+        assertEquals(0, analyzer.compare(new byte[] {1, 2}, new byte[] {1, 2}));
+        assertTrue(analyzer.compare(null, new byte[0]) < 0);
+    }
+
+    @Test
+    public void testByteBufferKeyAnalyzer() {
+        final byte[] base = new byte[24];
+        new Random(7).nextBytes(base);
+        assertMatchesReference(ByteBufferKeyAnalyzer.INSTANCE, r -> {
+            final byte[] bytes = randomBytes(r, base);
+            final ByteBuffer buffer = r.nextBoolean() ? ByteBuffer.allocate(bytes.length + 3)
+                : ByteBuffer.allocateDirect(bytes.length + 3);
+            // the key is the remaining bytes only
+            buffer.put((byte) -1).put(bytes).put((byte) -1);
+            buffer.position(1).limit(1 + bytes.length);
+            return buffer;
+        });
+        assertTrue(ByteBufferKeyAnalyzer.INSTANCE.compare(ByteBuffer.wrap(new byte[] {(byte) 0x80}),
+            ByteBuffer.wrap(new byte[] {0x7F})) > 0);
+    }
+
+    @Test
+    public void testIntegerKeyAnalyzer() {
+        final int base = new Random(7).nextInt();
+        assertMatchesReference(IntegerKeyAnalyzer.INSTANCE, r -> r.nextBoolean() ? r.nextInt() : base ^ r.nextInt(256));
+        final IntegerKeyAnalyzer analyzer = IntegerKeyAnalyzer.INSTANCE;
+        assertEquals(32, analyzer.lengthInBits(0));
+        // the inverted sign bit orders negative numbers first
+        assertFalse(analyzer.isBitSet(-1, 0, 32));
+        assertTrue(analyzer.isBitSet(0, 0, 32));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex(Integer.MIN_VALUE, 0, 32, Integer.MIN_VALUE, 0, 32));
+        assertEquals(KeyAnalyzer.EQUAL_BIT_KEY, analyzer.bitIndex(5, 0, 32, 5, 0, 32));
+        assertEquals(31, analyzer.bitIndex(4, 0, 32, 5, 0, 32));
+        assertTrue(analyzer.isPrefix(0x0A010000, 0, 16, 0x0A01FFFF));
+        assertFalse(analyzer.isPrefix(0x0A010000, 0, 16, 0x0A02FFFF));
+    }
+
+    @Test
+    public void testLongKeyAnalyzer() {
+        final long base = new Random(7).nextLong();
+        assertMatchesReference(LongKeyAnalyzer.INSTANCE, r -> r.nextBoolean() ? r.nextLong() : base ^ r.nextInt(256));
+        final LongKeyAnalyzer analyzer = LongKeyAnalyzer.INSTANCE;
+        assertEquals(64, analyzer.lengthInBits(0L));
+        assertFalse(analyzer.isBitSet(-1L, 0, 64));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex(Long.MIN_VALUE, 0, 64, null, 0, 0));
+        assertEquals(63, analyzer.bitIndex(4L, 0, 64, 5L, 0, 64));
+        assertTrue(analyzer.compare(-1L, 1L) < 0);
+    }
+
+    @Test
+    public void testInetAddressKeyAnalyzer() throws UnknownHostException {
+        final InetAddress[] addresses = new InetAddress[64];
+        final Random random = new Random(7);
+        for (int i = 0; i < addresses.length; i++) {
+            final byte[] bytes = new byte[i % 2 == 0 ? 4 : 16];
+            random.nextBytes(bytes);
+            addresses[i] = InetAddress.getByAddress(bytes);
+        }
+        assertMatchesReference(InetAddressKeyAnalyzer.INSTANCE, r -> addresses[r.nextInt(addresses.length)]);
+        final InetAddressKeyAnalyzer analyzer = InetAddressKeyAnalyzer.INSTANCE;
+        assertEquals(32, analyzer.lengthInBits(InetAddress.getByName("10.1.2.3")));
+        assertEquals(128, analyzer.lengthInBits(InetAddress.getByName("::1")));
+        assertTrue(analyzer.isPrefix(InetAddress.getByName("10.1.0.0"), 0, 16, InetAddress.getByName("10.1.200.7")));
+        assertFalse(analyzer.isPrefix(InetAddress.getByName("10.1.0.0"), 0, 16, InetAddress.getByName("10.2.0.7")));
+        assertTrue(analyzer.compare(InetAddress.getByName("10.1.2.3"), InetAddress.getByName("192.168.0.1")) < 0);
+    }
+}